@@ -1,3 +1,3 @@
 @echo off
 title Dodge Adventure
-java -jar DodgeAdventure.jar
+java --add-modules jdk.incubator.vector -jar DodgeAdventure.jar
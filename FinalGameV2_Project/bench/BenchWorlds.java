@@ -0,0 +1,86 @@
+package bench;
+
+import java.util.Random;
+
+import src.Character;
+import src.GameLoop;
+import src.GameWorld;
+import src.ProjectileStore;
+import src.VirtualClock;
+
+/**
+ * Fixed, seeded scenes shared by the benchmarks so every run measures the
+ * same work. Spiral projectiles orbit the arena center between radius 30
+ * and 150 forever, which keeps the projectile count steady while a world
+ * is stepped; the player is parked outside their reach and cannot die.
+ */
+final class BenchWorlds {
+    static final long SEED = 42;
+
+    private BenchWorlds() { }
+
+    /**
+     * A running level 4 world holding the given number of extra spirals.
+     */
+    static GameWorld world(int projectileCount) {
+        VirtualClock clock = new VirtualClock(1_000_000_000L / GameLoop.DEFAULT_TICK_RATE);
+        GameWorld world = new GameWorld(clock, SEED, GameWorld.WARRIOR, false, "MEDIUM", 4, GameWorld.SILENT);
+        world.setEffectsEnabled(false);
+
+        Character player = world.getPlayer();
+        player.setX(60);
+        player.setY(GameWorld.HEIGHT - 100);
+        player.setMaxHealth(Integer.MAX_VALUE);
+        player.setHealth(Integer.MAX_VALUE);
+
+        addSpirals(world.getProjectiles(), projectileCount);
+        return world;
+    }
+
+    /**
+     * Spirals around the arena center with evenly spread start angles.
+     */
+    static void addSpirals(ProjectileStore store, int count) {
+        double cx = GameWorld.WIDTH / 2.0;
+        double cy = GameWorld.HEIGHT / 2.0;
+        for (int i = 0; i < count; i++) {
+            store.spawnSpiral(cx, cy, i * (2 * Math.PI / count), 10);
+        }
+    }
+
+    /**
+     * Motionless straight projectiles scattered uniformly over the arena.
+     */
+    static void addScattered(ProjectileStore store, int count) {
+        Random random = new Random(SEED);
+        for (int i = 0; i < count; i++) {
+            double x = 40 + random.nextDouble() * (GameWorld.WIDTH - 80);
+            double y = 40 + random.nextDouble() * (GameWorld.HEIGHT - 80);
+            store.spawn(ProjectileStore.KIND_STRAIGHT, x, y, 0, 0, 10);
+        }
+    }
+
+    /**
+     * Straight, zigzag and spiral projectiles interleaved in random order,
+     * as a boss fight leaves them in the store.
+     */
+    static void addMixed(ProjectileStore store, int count) {
+        Random random = new Random(SEED);
+        for (int i = 0; i < count; i++) {
+            double x = 40 + random.nextDouble() * (GameWorld.WIDTH - 80);
+            double y = 40 + random.nextDouble() * (GameWorld.HEIGHT - 80);
+            double angle = random.nextDouble() * 2 * Math.PI;
+            switch (random.nextInt(3)) {
+                case 0:
+                    store.spawn(ProjectileStore.KIND_STRAIGHT, x, y, Math.cos(angle), Math.sin(angle), 10);
+                    break;
+                case 1:
+                    store.spawn(ProjectileStore.KIND_ZIGZAG, x, y, Math.cos(angle), Math.sin(angle), 10);
+                    break;
+                default:
+                    store.spawnSpiral(x, y, angle, 10);
+                    break;
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import src.Character;
+import src.GameWorld;
+import src.ProjectileStore;
+import src.SpatialGrid;
+import src.Warrior;
+
+/**
+ * Player-vs-projectile collision: the brute-force scan against the grid
+ * broad phase, with and without the per-tick rebuild.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Djava.awt.headless=true")
+public class CollisionBenchmark {
+    @Param({ "100", "1000", "10000" })
+    public int projectiles;
+
+    private ProjectileStore store;
+    private SpatialGrid grid;
+    private Character player;
+
+    @Setup
+    public void setup() {
+        store = new ProjectileStore();
+        BenchWorlds.addScattered(store, projectiles);
+        grid = new SpatialGrid(-50, -50, GameWorld.WIDTH + 50, GameWorld.HEIGHT + 50, 32);
+        grid.rebuild(store);
+        player = new Warrior(GameWorld.WIDTH / 2 - 20, GameWorld.HEIGHT / 2 - 20);
+    }
+
+    @Benchmark
+    public int bruteForce() {
+        int hits = 0;
+        for (int i = 0; i < store.size(); i++) {
+            if (store.collidesWith(i, player)) hits++;
+        }
+        return hits;
+    }
+
+    @Benchmark
+    public int gridQuery() {
+        return queryPlayer();
+    }
+
+    @Benchmark
+    public int gridRebuildAndQuery() {
+        grid.rebuild(store);
+        return queryPlayer();
+    }
+
+    private int queryPlayer() {
+        int candidates = grid.queryAabb(player.getX(), player.getY(),
+                player.getX() + player.getWidth(), player.getY() + player.getHeight());
+        int hits = 0;
+        for (int k = 0; k < candidates; k++) {
+            if (store.collidesWith(grid.getResult(k), player)) hits++;
+        }
+        return hits;
+    }
+}
@@ -0,0 +1,72 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import src.ProjectileStore;
+
+/**
+ * Projectile move kernels. The spiral kernel costs a sin and a cos per
+ * projectile; the straight kernel over the same count is the baseline
+ * that isolates that trig cost. The mixed store holds every kind; with
+ * vectorized=true it runs on the Vector API kernel (if the module loads).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Djava.awt.headless=true", "--add-modules=jdk.incubator.vector" })
+public class MoveBenchmark {
+    @Param({ "100", "1000", "10000", "50000" })
+    public int projectiles;
+
+    @Param({ "false", "true" })
+    public boolean vectorized;
+
+    private ProjectileStore spirals;
+    private ProjectileStore straights;
+    private ProjectileStore mixed;
+
+    @Setup
+    public void setup() {
+        spirals = new ProjectileStore();
+        BenchWorlds.addSpirals(spirals, projectiles);
+        straights = new ProjectileStore();
+        BenchWorlds.addScattered(straights, projectiles);
+        mixed = new ProjectileStore();
+        BenchWorlds.addMixed(mixed, projectiles);
+        for (ProjectileStore store : new ProjectileStore[] { spirals, straights, mixed }) {
+            store.setVectorized(vectorized);
+        }
+    }
+
+    @Benchmark
+    public double spiral() {
+        spirals.moveAll();
+        return spirals.getX(0);
+    }
+
+    @Benchmark
+    public double straight() {
+        straights.moveAll();
+        return straights.getX(0);
+    }
+
+    @Benchmark
+    public double mixed() {
+        mixed.moveAll();
+        return mixed.getX(0);
+    }
+}
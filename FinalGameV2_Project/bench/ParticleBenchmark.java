@@ -0,0 +1,81 @@
+package bench;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import src.GameWorld;
+import src.ParticleSystem;
+
+/**
+ * Particle update and draw with the ring buffer kept near full. Each update
+ * re-emits enough trail particles (300 ms lifetime, 16 ms ticks) to replace
+ * the ones that expired.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ParticleBenchmark {
+    private static final int TICK_MS = 16;
+    private static final int TRAIL_LIFETIME_MS = 300;
+
+    @Param({ "1024", "4096" })
+    public int budget;
+
+    private ParticleSystem particles;
+    private int emitPerTick;
+    private int color;
+    private long nowMs;
+    private BufferedImage image;
+    private Graphics2D g;
+
+    @Setup
+    public void setup() {
+        particles = new ParticleSystem(budget, BenchWorlds.SEED);
+        color = particles.addColor(new Color(255, 200, 100));
+        emitPerTick = budget * TICK_MS / TRAIL_LIFETIME_MS + 1;
+        for (int i = 0; i < budget; i++) {
+            particles.emitTrail(40 + i % 720, 40 + (i / 720) * 10 % 520, color, nowMs);
+        }
+        image = new BufferedImage(GameWorld.WIDTH, GameWorld.HEIGHT, BufferedImage.TYPE_INT_RGB);
+        g = image.createGraphics();
+    }
+
+    @TearDown
+    public void tearDown() {
+        g.dispose();
+    }
+
+    @Benchmark
+    public int update() {
+        nowMs += TICK_MS;
+        for (int i = 0; i < emitPerTick; i++) {
+            particles.emitTrail(40 + i % 720, 40 + i % 520, color, nowMs);
+        }
+        particles.update(nowMs);
+        return particles.size();
+    }
+
+    @Benchmark
+    public int draw() {
+        particles.draw(g, nowMs);
+        return particles.size();
+    }
+}
@@ -0,0 +1,81 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import src.Boss;
+import src.BulletPattern;
+import src.Level1Boss;
+import src.PatternRunner;
+import src.ProjectileStore;
+import src.Warrior;
+
+/**
+ * One dense ring volley emitted by the pattern interpreter, against the
+ * same volley spawned bullet by bullet with a cos/sin each, the way the
+ * hand-written attack patterns did it. The store is cleared after every
+ * volley, so only emission is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Djava.awt.headless=true")
+public class PatternBenchmark {
+    @Param({ "16", "128", "512" })
+    public int bullets;
+
+    private ProjectileStore store;
+    private Boss boss;
+    private Warrior target;
+    private PatternRunner runner;
+    private long now;
+
+    @Setup
+    public void setup() {
+        store = new ProjectileStore();
+        boss = new Level1Boss(400, 300, 0);
+        target = new Warrior(100, 100);
+        BulletPattern ring = BulletPattern.builder()
+                .ring(bullets, ProjectileStore.KIND_STRAIGHT, 5)
+                .rotate(0.1)
+                .wait(1)
+                .build();
+        runner = new PatternRunner(ring, null, 0);
+    }
+
+    @Benchmark
+    public int interpreter() {
+        runner.run(store, boss, target, now++);
+        int n = store.size();
+        store.clear();
+        return n;
+    }
+
+    @Benchmark
+    public int perBullet() {
+        double cx = boss.getX() + boss.getSize() / 2.0;
+        double cy = boss.getY() + boss.getSize() / 2.0;
+        for (int i = 0; i < bullets; i++) {
+            double angle = 0.1 * now + i * 2 * Math.PI / bullets;
+            store.spawn(ProjectileStore.KIND_STRAIGHT, cx, cy,
+                    Math.cos(angle) * boss.getProjectileSpeed(), Math.sin(angle) * boss.getProjectileSpeed(), 5);
+        }
+        now++;
+        int n = store.size();
+        store.clear();
+        return n;
+    }
+}
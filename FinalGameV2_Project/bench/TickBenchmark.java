@@ -0,0 +1,63 @@
+package bench;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import src.GameWorld;
+
+/**
+ * One full simulation tick (GameWorld.step) against a level 4 boss with
+ * the given number of projectiles in flight, sequential or with the
+ * per-element work split over a pool of all available cores.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Djava.awt.headless=true")
+public class TickBenchmark {
+    @Param({ "100", "1000", "10000", "50000" })
+    public int projectiles;
+
+    @Param({ "false", "true" })
+    public boolean parallel;
+
+    private GameWorld world;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setup() {
+        world = BenchWorlds.world(projectiles);
+        if (parallel) {
+            pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+            world.setParallelism(pool);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    @Benchmark
+    public int step() {
+        world.step();
+        return world.getProjectiles().size();
+    }
+}
@@ -1,11 +1,14 @@
 @echo off
 echo Building Dodge Adventure...
 
-REM Compile all Java files
-javac -d . src\*.java
+REM Compile all Java files (the vector move kernel needs the incubator module)
+javac --add-modules jdk.incubator.vector -d . src\*.java
+
+REM Pack sounds (pre-converted to the mixer format) and the icon into assets.pak
+java -cp . src.AssetPacker assets.pak
 
 REM Create JAR file with manifest
-jar cfm DodgeAdventure.jar MANIFEST.MF -C . src -C . audio
+jar cfm DodgeAdventure.jar MANIFEST.MF -C . src -C . assets.pak
 
 echo.
 echo Build complete! Run DodgeAdventure.jar to play the game.
@@ -0,0 +1,182 @@
+package src;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * AssetArchive reads the packed asset file written by AssetPacker. The
+ * whole archive is one buffer: memory-mapped when it is a plain file, or
+ * read once when it sits inside the jar. Assets are returned as slices of
+ * that buffer, so sounds are handed to the mixer without copying.
+ *
+ * Layout (header big-endian, payload as noted per type):
+ * <pre>
+ *   int   magic "DPAK"
+ *   int   version
+ *   int   entry count
+ *   per entry: UTF name, byte type, int width, int height, long offset, int length
+ *   payload, each entry aligned to 8 bytes
+ * </pre>
+ * TYPE_PCM payloads are 16-bit little-endian stereo samples at the mixer
+ * rate; TYPE_IMAGE payloads are big-endian ARGB pixels, width x height.
+ */
+public class AssetArchive {
+    public static final String FILE_NAME = "assets.pak";
+    public static final int MAGIC = 0x4450414B; // "DPAK"
+    public static final int VERSION = 1;
+
+    public static final int TYPE_RAW = 0;
+    public static final int TYPE_PCM = 1;
+    public static final int TYPE_IMAGE = 2;
+
+    private static final class Entry {
+        int type;
+        int width;
+        int height;
+        int offset;
+        int length;
+    }
+
+    private final ByteBuffer data;
+    private final String source;
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    private AssetArchive(ByteBuffer data, String source) throws IOException {
+        this.data = data;
+        this.source = source;
+        ByteBuffer header = data.duplicate().order(ByteOrder.BIG_ENDIAN);
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Not an asset archive: " + source);
+        }
+        int version = header.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported asset archive version " + version + ": " + source);
+        }
+        int count = header.getInt();
+        for (int i = 0; i < count; i++) {
+            String name = readUtf(header);
+            Entry entry = new Entry();
+            entry.type = header.get();
+            entry.width = header.getInt();
+            entry.height = header.getInt();
+            long offset = header.getLong();
+            entry.length = header.getInt();
+            if (offset < 0 || offset + entry.length > data.capacity()) {
+                throw new IOException("Corrupt asset archive entry " + name + ": " + source);
+            }
+            entry.offset = (int) offset;
+            entries.put(name, entry);
+        }
+    }
+
+    /**
+     * Find and open the archive: -Ddodge.assets=<file> if set, then
+     * assets.pak on the classpath (mapped when it is a file, read when it
+     * is in a jar), then assets.pak in the working directory. Returns null
+     * if there is none.
+     */
+    public static AssetArchive open() throws IOException {
+        String path = System.getProperty("dodge.assets");
+        if (path != null) {
+            return map(new File(path));
+        }
+        URL url = AssetArchive.class.getResource("/" + FILE_NAME);
+        if (url != null) {
+            if ("file".equals(url.getProtocol())) {
+                try {
+                    return map(new File(url.toURI()));
+                } catch (URISyntaxException e) {
+                    throw new IOException("Bad asset archive location: " + url, e);
+                }
+            }
+            try (InputStream in = url.openStream()) {
+                return new AssetArchive(ByteBuffer.wrap(in.readAllBytes()), url.toString());
+            }
+        }
+        File local = new File(FILE_NAME);
+        return local.exists() ? map(local) : null;
+    }
+
+    /**
+     * Memory-map an archive file.
+     */
+    public static AssetArchive map(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new AssetArchive(buffer, file.getPath());
+        }
+    }
+
+    public boolean contains(String name) {
+        return entries.containsKey(name);
+    }
+
+    /**
+     * The raw bytes of an asset as a read-only slice of the archive.
+     */
+    public ByteBuffer getBytes(String name) {
+        Entry entry = require(name);
+        ByteBuffer slice = data.duplicate();
+        slice.limit(entry.offset + entry.length).position(entry.offset);
+        return slice.slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * A packed sound as interleaved stereo samples at the mixer rate.
+     */
+    public ShortBuffer getPcm(String name) {
+        Entry entry = require(name);
+        if (entry.type != TYPE_PCM) {
+            throw new IllegalArgumentException("Not a sound asset: " + name);
+        }
+        return getBytes(name).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+    }
+
+    /**
+     * A packed image; the pixels are copied into a new BufferedImage.
+     */
+    public BufferedImage getImage(String name) {
+        Entry entry = require(name);
+        if (entry.type != TYPE_IMAGE) {
+            throw new IllegalArgumentException("Not an image asset: " + name);
+        }
+        IntBuffer pixels = getBytes(name).order(ByteOrder.BIG_ENDIAN).asIntBuffer();
+        int[] argb = new int[entry.width * entry.height];
+        pixels.get(argb);
+        BufferedImage image = new BufferedImage(entry.width, entry.height, BufferedImage.TYPE_INT_ARGB);
+        image.setRGB(0, 0, entry.width, entry.height, argb, 0, entry.width);
+        return image;
+    }
+
+    public int size() { return entries.size(); }
+    public String getSource() { return source; }
+
+    private Entry require(String name) {
+        Entry entry = entries.get(name);
+        if (entry == null) {
+            throw new IllegalArgumentException("No asset " + name + " in " + source);
+        }
+        return entry;
+    }
+
+    // Matches DataOutputStream.writeUTF for the plain ASCII names the packer writes
+    private static String readUtf(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xffff;
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, java.nio.charset.StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,88 @@
+package src;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AssetLoader decodes game assets in the background on a small shared pool
+ * of daemon threads, so the window can appear before sounds and images are
+ * ready. Every load returns a CompletableFuture; callers either chain on it
+ * or check isDone() and carry on without the asset until it arrives.
+ *
+ * Assets are taken from the packed AssetArchive when one is found, which is
+ * opened once and shared; loose files are the fallback.
+ */
+public final class AssetLoader {
+    private static final AtomicInteger threadCount = new AtomicInteger();
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(
+            Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors())),
+            task -> {
+                Thread thread = new Thread(task, "AssetLoader-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private static AssetArchive archive;
+    private static boolean archiveOpened = false;
+
+    private AssetLoader() { }
+
+    /**
+     * The shared asset archive, opened on first use; null if there is none
+     * or it could not be read.
+     */
+    public static synchronized AssetArchive getArchive() {
+        if (!archiveOpened) {
+            archiveOpened = true;
+            try {
+                archive = AssetArchive.open();
+            } catch (IOException e) {
+                System.err.println("Warning: Could not open asset archive (" + e.getMessage() + "), using loose files");
+            }
+        }
+        return archive;
+    }
+
+    /**
+     * Run a loading task in the background.
+     */
+    public static <T> CompletableFuture<T> load(Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        EXECUTOR.execute(() -> {
+            try {
+                future.complete(task.call());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Load an image in the background, from the archive if it is packed.
+     */
+    public static CompletableFuture<BufferedImage> loadImage(String path) {
+        return load(() -> {
+            AssetArchive packed = getArchive();
+            if (packed != null && packed.contains(path)) {
+                return packed.getImage(path);
+            }
+            File file = new File(path);
+            if (!file.exists()) {
+                throw new IOException("Image not found: " + path);
+            }
+            BufferedImage image = ImageIO.read(file);
+            if (image == null) {
+                throw new IOException("Unsupported image format: " + path);
+            }
+            return image;
+        });
+    }
+}
@@ -0,0 +1,156 @@
+package src;
+
+import javax.imageio.ImageIO;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * AssetPacker is the build step that writes the AssetArchive: every sound
+ * in audio/ is decoded and resampled to the mixer's PCM format and the
+ * icon is decoded to ARGB pixels, so the game loads them without any
+ * conversion. Asset names are the same relative paths the game asks for.
+ *
+ * Usage: java src.AssetPacker [--dir base] [output]
+ *   --dir   directory holding audio/ and ICON.png (default .)
+ *   output  archive to write (default assets.pak)
+ */
+public class AssetPacker {
+    private static final int ALIGN = 8;
+
+    private static final class Asset {
+        final String name;
+        final int type;
+        final int width;
+        final int height;
+        final byte[] data;
+
+        Asset(String name, int type, int width, int height, byte[] data) {
+            this.name = name;
+            this.type = type;
+            this.width = width;
+            this.height = height;
+            this.data = data;
+        }
+    }
+
+    private final List<Asset> assets = new ArrayList<>();
+
+    public void addSound(String name, File file) throws IOException, UnsupportedAudioFileException {
+        short[] samples = AudioManager.decodeWav(file);
+        byte[] data = new byte[samples.length * 2];
+        for (int i = 0; i < samples.length; i++) {
+            data[i * 2] = (byte) samples[i];
+            data[i * 2 + 1] = (byte) (samples[i] >> 8);
+        }
+        assets.add(new Asset(name, AssetArchive.TYPE_PCM, 0, 0, data));
+    }
+
+    public void addImage(String name, File file) throws IOException {
+        BufferedImage image = ImageIO.read(file);
+        if (image == null) {
+            throw new IOException("Unsupported image format: " + file);
+        }
+        int w = image.getWidth();
+        int h = image.getHeight();
+        int[] argb = image.getRGB(0, 0, w, h, null, 0, w);
+        byte[] data = new byte[argb.length * 4];
+        for (int i = 0; i < argb.length; i++) {
+            data[i * 4] = (byte) (argb[i] >>> 24);
+            data[i * 4 + 1] = (byte) (argb[i] >>> 16);
+            data[i * 4 + 2] = (byte) (argb[i] >>> 8);
+            data[i * 4 + 3] = (byte) argb[i];
+        }
+        assets.add(new Asset(name, AssetArchive.TYPE_IMAGE, w, h, data));
+    }
+
+    /**
+     * Write the archive: header and index first, then the payloads.
+     */
+    public void write(OutputStream out) throws IOException {
+        // Offsets are fixed width, so an index of zeros has the final size
+        long[] offsets = new long[assets.size()];
+        long offset = align(index(offsets).length);
+        for (int i = 0; i < assets.size(); i++) {
+            offsets[i] = offset;
+            offset = align(offset + assets.get(i).data.length);
+        }
+
+        DataOutputStream data = new DataOutputStream(out);
+        byte[] header = index(offsets);
+        data.write(header);
+        long written = header.length;
+        for (int i = 0; i < assets.size(); i++) {
+            data.write(new byte[(int) (offsets[i] - written)]);
+            data.write(assets.get(i).data);
+            written = offsets[i] + assets.get(i).data.length;
+        }
+        data.flush();
+    }
+
+    private byte[] index(long[] offsets) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(AssetArchive.MAGIC);
+        out.writeInt(AssetArchive.VERSION);
+        out.writeInt(assets.size());
+        for (int i = 0; i < assets.size(); i++) {
+            Asset asset = assets.get(i);
+            out.writeUTF(asset.name);
+            out.writeByte(asset.type);
+            out.writeInt(asset.width);
+            out.writeInt(asset.height);
+            out.writeLong(offsets[i]);
+            out.writeInt(asset.data.length);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static long align(long offset) {
+        return (offset + ALIGN - 1) / ALIGN * ALIGN;
+    }
+
+    public int getAssetCount() { return assets.size(); }
+
+    public static void main(String[] args) throws Exception {
+        File dir = new File(".");
+        File output = new File(AssetArchive.FILE_NAME);
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--dir") && i + 1 < args.length) {
+                dir = new File(args[++i]);
+            } else if (args[i].startsWith("--")) {
+                System.err.println("Usage: java src.AssetPacker [--dir base] [output]");
+                System.exit(2);
+            } else {
+                output = new File(args[i]);
+            }
+        }
+
+        AssetPacker packer = new AssetPacker();
+        File[] sounds = new File(dir, "audio").listFiles((d, name) -> name.endsWith(".wav"));
+        if (sounds != null) {
+            Arrays.sort(sounds);
+            for (File sound : sounds) {
+                packer.addSound("audio/" + sound.getName(), sound);
+            }
+        }
+        File icon = new File(dir, "ICON.png");
+        if (icon.exists()) {
+            packer.addImage("ICON.png", icon);
+        }
+
+        try (OutputStream out = new FileOutputStream(output)) {
+            packer.write(out);
+        }
+        System.out.println("Packed " + packer.getAssetCount() + " assets into " + output
+                + " (" + output.length() / 1024 + " KB)");
+    }
+}
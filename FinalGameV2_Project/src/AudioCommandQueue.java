@@ -0,0 +1,71 @@
+package src;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * AudioCommandQueue is a bounded lock-free queue of int commands with many
+ * producers (game loop, EDT) and a single consumer (the audio thread).
+ * Each slot carries a sequence number telling whose turn it is: producers
+ * claim a slot by advancing the tail with a CAS, write the command and
+ * then publish it by bumping the slot's sequence. Nothing blocks and
+ * nothing allocates; when the queue is full the command is dropped, which
+ * for sound effects is preferable to stalling a tick.
+ */
+public class AudioCommandQueue {
+    private final int mask;
+    private final int[] commands;
+    private final AtomicLongArray sequence;
+    private final AtomicLong tail = new AtomicLong();
+    // Only touched by the consumer thread
+    private long head = 0;
+
+    /**
+     * @param capacity rounded up to a power of two
+     */
+    public AudioCommandQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        mask = size - 1;
+        commands = new int[size];
+        sequence = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequence.set(i, i);
+        }
+    }
+
+    /**
+     * Enqueue a command from any thread. Returns false if the queue is full.
+     */
+    public boolean offer(int command) {
+        while (true) {
+            long pos = tail.get();
+            int index = (int) (pos & mask);
+            long seq = sequence.get(index);
+            if (seq == pos) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    commands[index] = command;
+                    // Publishes the command write to the consumer
+                    sequence.set(index, pos + 1);
+                    return true;
+                }
+            } else if (seq < pos) {
+                return false; // consumer has not freed this slot yet
+            }
+            // Another producer claimed the slot; retry with the new tail
+        }
+    }
+
+    /**
+     * Dequeue the next command, or return -1 if none is ready.
+     * Only the consumer thread may call this.
+     */
+    public int poll() {
+        int index = (int) (head & mask);
+        if (sequence.get(index) != head + 1) return -1;
+        int command = commands[index];
+        // Hand the slot back to producers for the next lap
+        sequence.set(index, head + mask + 1);
+        head++;
+        return command;
+    }
+}
@@ -3,91 +3,184 @@
 import javax.sound.sampled.*;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ShortBuffer;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * AudioManager handles loading and playing sound effects for the game.
- * Uses Java's sound API to play .wav and .ogg audio files.
+ * Every sound is decoded once into 16-bit stereo PCM at the mixer rate
+ * and played through a shared AudioMixer, so overlapping effects layer
+ * instead of cutting each other off. playSound() only enqueues a command
+ * and is safe to call from the game loop.
+ *
+ * Sounds load in the background (see AssetLoader) so construction returns
+ * immediately; a sound requested before it has finished decoding is
+ * skipped rather than waited for. When an AssetArchive is present the
+ * sounds are already in mixer format and are played straight from it;
+ * otherwise the WAV files are decoded.
  */
-public class AudioManager {
-    private final Map<String, Clip> soundClips = new HashMap<>();
+public class AudioManager implements SoundPlayer {
+    // Concurrent voices shared by all sounds
+    private static final int VOICES = 16;
+
+    private final AudioMixer mixer = new AudioMixer(VOICES);
+    // Mixer sound id per name once decoded, -1 if loading failed
+    private final Map<String, CompletableFuture<Integer>> sounds = new HashMap<>();
     private boolean soundEnabled = true;
 
     public AudioManager() {
-        // Load all sound files
-        loadSound("click", "audio/click.wav");
-        loadSound("level_next", "audio/level_next.wav");
-        loadSound("lose", "audio/lose.wav");
-        loadSound("mage", "audio/mage.wav");
-        loadSound("slash", "audio/slash.wav");
-        loadSound("won", "audio/won.wav");
-        loadSound("boss_hit", "audio/boss_hit.wav");
-        loadSound("damage", "audio/damage.wav");
-        loadSound("pick_uped", "audio/pick_uped.wav");
-        loadSound("boom", "audio/boom.wav");
-        loadSound("dash", "audio/dash.wav");
+        // Decode all sound files in parallel; the last argument is how many copies may overlap
+        loadSound("click", "audio/click.wav", 2);
+        loadSound("level_next", "audio/level_next.wav", 1);
+        loadSound("lose", "audio/lose.wav", 1);
+        loadSound("mage", "audio/mage.wav", 4);
+        loadSound("slash", "audio/slash.wav", 3);
+        loadSound("won", "audio/won.wav", 1);
+        loadSound("boss_hit", "audio/boss_hit.wav", 4);
+        loadSound("damage", "audio/damage.wav", 3);
+        loadSound("pick_uped", "audio/pick_uped.wav", 2);
+        loadSound("boom", "audio/boom.wav", 2);
+        loadSound("dash", "audio/dash.wav", 2);
+        // Opening the output line can also take a while
+        AssetLoader.load(mixer::start);
     }
 
     /**
-     * Load a sound file and store it in the sound clips map.
-     * @param name The identifier for the sound
-     * @param path The relative path to the audio file
+     * Start decoding a sound file in the background; it is registered with
+     * the mixer when done. Failures are reported and leave the sound silent.
+     * @param name      The identifier for the sound
+     * @param path      The relative path to the audio file
+     * @param maxVoices How many instances may play at the same time
      */
-    private void loadSound(String name, String path) {
-        try {
-            File soundFile = new File(path);
-            if (!soundFile.exists()) {
-                System.err.println("Warning: Sound file not found: " + path);
-                return;
-            }
-            
-            AudioInputStream audioStream = AudioSystem.getAudioInputStream(soundFile);
-            AudioFormat sourceFormat = audioStream.getFormat();
-            
-            // Convert 24-bit audio to 16-bit if necessary
-            if (sourceFormat.getSampleSizeInBits() == 24 || sourceFormat.getSampleSizeInBits() == 32) {
-                AudioFormat targetFormat = new AudioFormat(
-                    AudioFormat.Encoding.PCM_SIGNED,
-                    sourceFormat.getSampleRate(),
-                    16, // Convert to 16-bit
-                    sourceFormat.getChannels(),
-                    sourceFormat.getChannels() * 2, // 16-bit = 2 bytes per sample
-                    sourceFormat.getSampleRate(),
-                    false // little-endian
-                );
-                
-                audioStream = AudioSystem.getAudioInputStream(targetFormat, audioStream);
+    private void loadSound(String name, String path, int maxVoices) {
+        CompletableFuture<Integer> sound = AssetLoader.load(() -> decodeSound(path))
+                .thenApply(samples -> mixer.addSound(samples, maxVoices))
+                .exceptionally(e -> {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof UnsupportedAudioFileException) {
+                        System.err.println("Warning: Unsupported audio format for " + path + " (skipping)");
+                    } else {
+                        System.err.println("Error loading sound: " + path + " - " + cause.getMessage());
+                    }
+                    return -1;
+                });
+        sounds.put(name, sound);
+    }
+
+    private static ShortBuffer decodeSound(String path) throws IOException, UnsupportedAudioFileException {
+        AssetArchive archive = AssetLoader.getArchive();
+        if (archive != null && archive.contains(path)) {
+            return archive.getPcm(path);
+        }
+        return ShortBuffer.wrap(decodeWav(new File(path)));
+    }
+
+    /**
+     * Decode a sound file to interleaved stereo 16-bit samples at the mixer
+     * rate. Also used by AssetPacker to pre-convert sounds.
+     */
+    static short[] decodeWav(File soundFile) throws IOException, UnsupportedAudioFileException {
+        if (!soundFile.exists()) {
+            throw new IOException("Sound file not found");
+        }
+        
+        AudioInputStream audioStream = AudioSystem.getAudioInputStream(soundFile);
+        AudioFormat sourceFormat = audioStream.getFormat();
+        
+        // Decode to 16-bit signed little-endian at the source rate (converts 24/32-bit)
+        AudioFormat pcmFormat = new AudioFormat(
+            AudioFormat.Encoding.PCM_SIGNED,
+            sourceFormat.getSampleRate(),
+            16,
+            sourceFormat.getChannels(),
+            sourceFormat.getChannels() * 2, // 16-bit = 2 bytes per sample
+            sourceFormat.getSampleRate(),
+            false // little-endian
+        );
+        if (!sourceFormat.matches(pcmFormat)) {
+            audioStream = AudioSystem.getAudioInputStream(pcmFormat, audioStream);
+        }
+        byte[] bytes;
+        try (AudioInputStream in = audioStream) {
+            bytes = in.readAllBytes();
+        }
+        return toMixerFormat(bytes, pcmFormat.getChannels(), pcmFormat.getSampleRate());
+    }
+
+    /**
+     * Convert 16-bit little-endian PCM to interleaved stereo at the mixer
+     * rate, resampling linearly when the source rate differs.
+     */
+    private static short[] toMixerFormat(byte[] bytes, int channels, float sourceRate) {
+        int sourceFrames = bytes.length / (channels * 2);
+        double step = sourceRate / AudioMixer.SAMPLE_RATE;
+        int frames = (int) (sourceFrames / step);
+        short[] out = new short[frames * AudioMixer.CHANNELS];
+        for (int f = 0; f < frames; f++) {
+            double srcPos = f * step;
+            int i0 = (int) srcPos;
+            int i1 = Math.min(i0 + 1, sourceFrames - 1);
+            double frac = srcPos - i0;
+            for (int c = 0; c < AudioMixer.CHANNELS; c++) {
+                // Mono sources feed both output channels
+                int sc = Math.min(c, channels - 1);
+                int a = sample(bytes, i0 * channels + sc);
+                int b = sample(bytes, i1 * channels + sc);
+                out[f * AudioMixer.CHANNELS + c] = (short) Math.round(a + (b - a) * frac);
             }
-            
-            Clip clip = AudioSystem.getClip();
-            clip.open(audioStream);
-            soundClips.put(name, clip);
-        } catch (UnsupportedAudioFileException e) {
-            System.err.println("Warning: Unsupported audio format for " + path + " (skipping)");
-        } catch (IOException | LineUnavailableException e) {
-            System.err.println("Error loading sound: " + path + " - " + e.getMessage());
         }
+        return out;
+    }
+
+    private static int sample(byte[] bytes, int index) {
+        return (short) ((bytes[index * 2] & 0xff) | (bytes[index * 2 + 1] << 8));
     }
 
     /**
      * Play a sound effect by name.
      * @param name The identifier of the sound to play
      */
+    @Override
     public void playSound(String name) {
-        if (!soundEnabled) return;
+        boolean played = play(name);
+        GameEvents.Sound event = new GameEvents.Sound();
+        if (event.shouldCommit()) {
+            event.name = name;
+            event.played = played;
+            event.commit();
+        }
+    }
+
+    private boolean play(String name) {
+        if (!soundEnabled) return false;
         
-        Clip clip = soundClips.get(name);
-        if (clip != null) {
-            // Stop and reset the clip if it's already playing
-            if (clip.isRunning()) {
-                clip.stop();
-            }
-            clip.setFramePosition(0);
-            clip.start();
-        } else {
+        CompletableFuture<Integer> sound = sounds.get(name);
+        if (sound == null) {
             System.err.println("Sound not found: " + name);
+            return false;
         }
+        // Still decoding: skip this one rather than block the caller
+        int id = sound.getNow(-1);
+        if (id < 0) return false;
+        mixer.play(id);
+        return true;
+    }
+
+    /**
+     * True once the named sound has decoded and can be played.
+     */
+    public boolean isReady(String name) {
+        CompletableFuture<Integer> sound = sounds.get(name);
+        return sound != null && sound.getNow(-1) >= 0;
+    }
+
+    /**
+     * Completes when every sound has finished loading (or failed to).
+     */
+    public CompletableFuture<Void> whenLoaded() {
+        return CompletableFuture.allOf(sounds.values().toArray(new CompletableFuture<?>[0]));
     }
 
     /**
@@ -95,10 +188,10 @@ public class AudioManager {
      * @param name The identifier of the sound to stop
      */
     public void stopSound(String name) {
-        Clip clip = soundClips.get(name);
-        if (clip != null && clip.isRunning()) {
-            clip.stop();
-            clip.setFramePosition(0);
+        CompletableFuture<Integer> sound = sounds.get(name);
+        int id = sound != null ? sound.getNow(-1) : -1;
+        if (id >= 0) {
+            mixer.stop(id);
         }
     }
 
@@ -106,12 +199,7 @@ public class AudioManager {
      * Stop all currently playing sounds.
      */
     public void stopAllSounds() {
-        for (Clip clip : soundClips.values()) {
-            if (clip != null && clip.isRunning()) {
-                clip.stop();
-                clip.setFramePosition(0);
-            }
-        }
+        mixer.stopAll();
     }
 
     /**
@@ -129,11 +217,6 @@ public class AudioManager {
      * Clean up resources when the audio manager is no longer needed.
      */
     public void dispose() {
-        for (Clip clip : soundClips.values()) {
-            if (clip != null) {
-                clip.close();
-            }
-        }
-        soundClips.clear();
+        mixer.close();
     }
 }
@@ -0,0 +1,236 @@
+package src;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+
+/**
+ * AudioMixer plays many sounds at once through a single SourceDataLine.
+ * Sounds are registered up front as 16-bit stereo PCM at the output rate;
+ * a fixed pool of voices plays them back and a dedicated audio thread sums
+ * the active voices into the line in small blocks.
+ *
+ * Other threads never touch the voices: play and stop requests go through
+ * an AudioCommandQueue and are applied by the audio thread before each
+ * block. When a sound already uses its polyphony limit, its oldest voice
+ * restarts; when every voice is busy, the oldest voice overall is stolen.
+ *
+ * If no audio device is available the mixer stays closed and requests are
+ * ignored, so the game runs unchanged without sound.
+ */
+public class AudioMixer implements Runnable {
+    public static final int SAMPLE_RATE = 44100;
+    public static final int CHANNELS = 2;
+    public static final AudioFormat FORMAT = new AudioFormat(SAMPLE_RATE, 16, CHANNELS, true, false);
+
+    // Frames mixed per block (~5.8 ms) and frames buffered in the line (~23 ms)
+    private static final int BLOCK_FRAMES = 256;
+    private static final int LINE_BUFFER_FRAMES = 1024;
+
+    private static final int CMD_PLAY = 1 << 24;
+    private static final int CMD_STOP = 2 << 24;
+    private static final int CMD_STOP_ALL = 3 << 24;
+    private static final int CMD_ARG_MASK = (1 << 24) - 1;
+
+    // Registered sounds (interleaved stereo samples), either wrapped arrays
+    // or slices of a mapped AssetArchive. Replaced, never modified in place,
+    // so sounds can be added while the audio thread runs.
+    private volatile ShortBuffer[] soundData = new ShortBuffer[0];
+    private volatile int[] soundMaxVoices = new int[0];
+
+    // Voice pool, owned by the audio thread
+    private final int[] voiceSound;
+    private final int[] voicePosition;
+    private final long[] voiceStarted;
+    private long playCounter = 0;
+
+    private final AudioCommandQueue commands = new AudioCommandQueue(256);
+    private final int[] mixBuffer = new int[BLOCK_FRAMES * CHANNELS];
+    private final byte[] outBuffer = new byte[BLOCK_FRAMES * CHANNELS * 2];
+
+    private SourceDataLine line;
+    private volatile boolean running = false;
+    private Thread thread;
+
+    public AudioMixer(int voices) {
+        voiceSound = new int[voices];
+        voicePosition = new int[voices];
+        voiceStarted = new long[voices];
+        Arrays.fill(voiceSound, -1);
+    }
+
+    /**
+     * Register a sound; may be called from any thread, also after start().
+     * Returns the id used to play it.
+     * @param samples   interleaved stereo 16-bit samples at SAMPLE_RATE
+     * @param maxVoices how many copies of this sound may play at once
+     */
+    public int addSound(short[] samples, int maxVoices) {
+        return addSound(ShortBuffer.wrap(samples), maxVoices);
+    }
+
+    /**
+     * Register a sound without copying its samples. The buffer's remaining
+     * content is the sound; it is read with absolute gets only, so a shared
+     * slice is never disturbed.
+     */
+    public synchronized int addSound(ShortBuffer samples, int maxVoices) {
+        int id = soundData.length;
+        int[] limits = Arrays.copyOf(soundMaxVoices, id + 1);
+        limits[id] = Math.max(1, maxVoices);
+        ShortBuffer[] data = Arrays.copyOf(soundData, id + 1);
+        data[id] = samples.slice();
+        // Limits first: a reader that sees the new sound also sees its limit
+        soundMaxVoices = limits;
+        soundData = data;
+        return id;
+    }
+
+    /**
+     * Open the output line and start the audio thread. Returns false (and
+     * leaves the mixer silent) if no line is available.
+     */
+    public synchronized boolean start() {
+        if (running) return true;
+        try {
+            line = AudioSystem.getSourceDataLine(FORMAT);
+            line.open(FORMAT, LINE_BUFFER_FRAMES * FORMAT.getFrameSize());
+            line.start();
+        } catch (LineUnavailableException | IllegalArgumentException | SecurityException e) {
+            System.err.println("Warning: No audio output available (" + e.getMessage() + "), sound disabled");
+            line = null;
+            return false;
+        }
+        running = true;
+        thread = new Thread(this, "AudioMixer");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MAX_PRIORITY);
+        thread.start();
+        return true;
+    }
+
+    public void play(int soundId) {
+        if (running) commands.offer(CMD_PLAY | soundId);
+    }
+
+    public void stop(int soundId) {
+        if (running) commands.offer(CMD_STOP | soundId);
+    }
+
+    public void stopAll() {
+        if (running) commands.offer(CMD_STOP_ALL);
+    }
+
+    public synchronized void close() {
+        running = false;
+        if (thread != null) {
+            try {
+                thread.join(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+        if (line != null) {
+            line.stop();
+            line.close();
+            line = null;
+        }
+    }
+
+    public boolean isRunning() { return running; }
+
+    @Override
+    public void run() {
+        while (running) {
+            applyCommands();
+            mixBlock();
+            // Blocks while the line buffer is full, which paces the loop
+            line.write(outBuffer, 0, outBuffer.length);
+        }
+    }
+
+    private void applyCommands() {
+        int command;
+        while ((command = commands.poll()) != -1) {
+            int arg = command & CMD_ARG_MASK;
+            switch (command & ~CMD_ARG_MASK) {
+                case CMD_PLAY:
+                    startVoice(arg);
+                    break;
+                case CMD_STOP:
+                    for (int v = 0; v < voiceSound.length; v++) {
+                        if (voiceSound[v] == arg) voiceSound[v] = -1;
+                    }
+                    break;
+                case CMD_STOP_ALL:
+                    Arrays.fill(voiceSound, -1);
+                    break;
+            }
+        }
+    }
+
+    private void startVoice(int sound) {
+        ShortBuffer[] data = soundData;
+        int[] limits = soundMaxVoices;
+        if (sound < 0 || sound >= data.length) return;
+        int free = -1;
+        int oldest = 0;
+        int oldestOfSound = -1;
+        int playing = 0;
+        for (int v = 0; v < voiceSound.length; v++) {
+            if (voiceSound[v] < 0) {
+                if (free < 0) free = v;
+                continue;
+            }
+            if (voiceStarted[v] < voiceStarted[oldest] || voiceSound[oldest] < 0) oldest = v;
+            if (voiceSound[v] == sound) {
+                playing++;
+                if (oldestOfSound < 0 || voiceStarted[v] < voiceStarted[oldestOfSound]) oldestOfSound = v;
+            }
+        }
+        // Polyphony limit reached: restart this sound's oldest voice
+        int voice;
+        if (playing >= limits[sound]) {
+            voice = oldestOfSound;
+        } else if (free >= 0) {
+            voice = free;
+        } else {
+            voice = oldest; // every voice busy: steal the oldest
+        }
+        voiceSound[voice] = sound;
+        voicePosition[voice] = 0;
+        voiceStarted[voice] = playCounter++;
+    }
+
+    private void mixBlock() {
+        Arrays.fill(mixBuffer, 0);
+        ShortBuffer[] sounds = soundData;
+        for (int v = 0; v < voiceSound.length; v++) {
+            int sound = voiceSound[v];
+            if (sound < 0) continue;
+            ShortBuffer data = sounds[sound];
+            int pos = voicePosition[v];
+            int n = Math.min(mixBuffer.length, data.limit() - pos);
+            for (int i = 0; i < n; i++) {
+                mixBuffer[i] += data.get(pos + i);
+            }
+            pos += n;
+            if (pos >= data.limit()) {
+                voiceSound[v] = -1;
+            }
+            voicePosition[v] = pos;
+        }
+        // Clamp the sum to 16 bits and write little-endian bytes
+        for (int i = 0; i < mixBuffer.length; i++) {
+            int s = mixBuffer[i];
+            if (s > Short.MAX_VALUE) s = Short.MAX_VALUE;
+            else if (s < Short.MIN_VALUE) s = Short.MIN_VALUE;
+            outBuffer[i * 2] = (byte) s;
+            outBuffer[i * 2 + 1] = (byte) (s >> 8);
+        }
+    }
+}
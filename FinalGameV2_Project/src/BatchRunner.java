@@ -0,0 +1,180 @@
+package src;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * BatchRunner plays headless bot-vs-boss matches for balancing. Every
+ * character is matched against every level boss, each pairing is played
+ * a number of times with different seeds, and the matches are spread over
+ * a thread pool. A match ends when the boss is defeated (win), the player
+ * dies (loss) or the tick limit is reached (timeout).
+ *
+ * With --tick-threads each match also splits its projectile and particle
+ * updates over a shared ForkJoinPool; this helps when there are fewer
+ * matches than cores or scenes are very dense, and gives the same results.
+ *
+ * Usage: java src.BatchRunner [--matches N] [--threads N] [--tick-threads N] [--max-ticks N] [--seed N]
+ */
+public class BatchRunner {
+    private static final String[] CHARACTER_NAMES = { "", "Warrior", "Rogue", "Mage" };
+    private static final int BOSS_LEVELS = 4;
+
+    private static final int WIN = 0;
+    private static final int LOSS = 1;
+    private static final int TIMEOUT = 2;
+
+    /**
+     * Outcome of a single match.
+     */
+    private static final class MatchResult {
+        final int characterType;
+        final int level;
+        final int outcome;
+        final long ticks;
+        final int playerHealth;
+        final int bossHealth;
+
+        MatchResult(int characterType, int level, int outcome, long ticks, int playerHealth, int bossHealth) {
+            this.characterType = characterType;
+            this.level = level;
+            this.outcome = outcome;
+            this.ticks = ticks;
+            this.playerHealth = playerHealth;
+            this.bossHealth = bossHealth;
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException, ExecutionException {
+        int matches = 10;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int tickThreads = 0;
+        int maxTicks = 60 * 60 * 5; // five minutes of game time at 60 Hz
+        long seed = 1;
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (i + 1 >= args.length) {
+                usage("Missing value for " + arg);
+            }
+            String value = args[++i];
+            switch (arg) {
+                case "--matches": matches = Integer.parseInt(value); break;
+                case "--threads": threads = Integer.parseInt(value); break;
+                case "--tick-threads": tickThreads = Integer.parseInt(value); break;
+                case "--max-ticks": maxTicks = Integer.parseInt(value); break;
+                case "--seed": seed = Long.parseLong(value); break;
+                default: usage("Unknown option " + arg);
+            }
+        }
+
+        System.out.println("Running " + matches + " matches per pairing on " + threads + " threads"
+                + (tickThreads > 0 ? " (" + tickThreads + " per tick)" : "") + ", max "
+                + maxTicks + " ticks, seed " + seed);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ForkJoinPool tickPool = tickThreads > 0 ? new ForkJoinPool(tickThreads) : null;
+        List<Future<MatchResult>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        int index = 0;
+        for (int type = GameWorld.WARRIOR; type <= GameWorld.MAGE; type++) {
+            for (int level = 1; level <= BOSS_LEVELS; level++) {
+                for (int m = 0; m < matches; m++) {
+                    final int characterType = type;
+                    final int bossLevel = level;
+                    final long matchSeed = seed * 1_000_003L + index++;
+                    final int tickLimit = maxTicks;
+                    futures.add(pool.submit(() -> playMatch(characterType, bossLevel, matchSeed, tickLimit, tickPool)));
+                }
+            }
+        }
+
+        List<MatchResult> results = new ArrayList<>();
+        for (Future<MatchResult> future : futures) {
+            results.add(future.get());
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        pool.shutdown();
+        if (tickPool != null) {
+            tickPool.shutdown();
+        }
+
+        report(results, elapsedNanos);
+    }
+
+    /**
+     * Play one match on the calling thread (plus tickPool, if given) and
+     * return its outcome.
+     */
+    private static MatchResult playMatch(int characterType, int level, long seed, int maxTicks, ForkJoinPool tickPool) {
+        VirtualClock clock = new VirtualClock(1_000_000_000L / GameLoop.DEFAULT_TICK_RATE);
+        GameWorld world = new GameWorld(clock, seed, characterType, false, "MEDIUM", level, GameWorld.SILENT);
+        world.setEffectsEnabled(false);
+        world.setParallelism(tickPool);
+        BotController bot = new BotController(characterType);
+
+        long ticks = 0;
+        int outcome = TIMEOUT;
+        while (ticks < maxTicks) {
+            world.setInput(bot.decide(world));
+            world.step();
+            ticks++;
+            if (world.getLevel() != level) {
+                outcome = WIN;
+                break;
+            }
+            if (!world.isRunning()) {
+                outcome = LOSS;
+                break;
+            }
+        }
+        int bossHealth = outcome == WIN ? 0 : world.getBoss().getHealth();
+        return new MatchResult(characterType, level, outcome, ticks, world.getPlayer().getHealth(), bossHealth);
+    }
+
+    private static void report(List<MatchResult> results, long elapsedNanos) {
+        System.out.println();
+        System.out.printf("%-8s %-5s %6s %6s %8s %10s %10s %10s%n",
+                "Player", "Boss", "Wins", "Losses", "Timeouts", "Avg ticks", "Avg HP", "Boss HP");
+
+        long totalTicks = 0;
+        for (int type = GameWorld.WARRIOR; type <= GameWorld.MAGE; type++) {
+            for (int level = 1; level <= BOSS_LEVELS; level++) {
+                int[] outcomes = new int[3];
+                long ticks = 0;
+                long playerHealth = 0;
+                long bossHealth = 0;
+                int count = 0;
+                for (MatchResult r : results) {
+                    if (r.characterType != type || r.level != level) continue;
+                    outcomes[r.outcome]++;
+                    ticks += r.ticks;
+                    playerHealth += r.playerHealth;
+                    bossHealth += r.bossHealth;
+                    count++;
+                }
+                totalTicks += ticks;
+                if (count == 0) continue;
+                System.out.printf("%-8s %-5s %6d %6d %8d %10d %10.1f %10.1f%n",
+                        CHARACTER_NAMES[type], "L" + level, outcomes[WIN], outcomes[LOSS], outcomes[TIMEOUT],
+                        ticks / count, playerHealth / (double) count, bossHealth / (double) count);
+            }
+        }
+
+        double seconds = elapsedNanos / 1e9;
+        System.out.println();
+        System.out.printf("%d matches, %d ticks in %.2f s (%.0f ticks/sec)%n",
+                results.size(), totalTicks, seconds, totalTicks / seconds);
+    }
+
+    private static void usage(String error) {
+        System.err.println(error);
+        System.err.println("Usage: java src.BatchRunner [--matches N] [--threads N] [--tick-threads N] [--max-ticks N] [--seed N]");
+        System.exit(2);
+    }
+}
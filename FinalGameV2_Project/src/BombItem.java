@@ -7,22 +7,28 @@ import java.awt.Graphics;
  * Bomb item damages the player when picked up - a trap item!
  */
 public class BombItem extends Item {
+    // Glow colors for every pulse alpha (0-60) so drawing allocates nothing
+    private static final Color[] PULSE_COLORS = new Color[61];
+    static {
+        for (int a = 0; a < PULSE_COLORS.length; a++) {
+            PULSE_COLORS[a] = new Color(255, 0, 0, a);
+        }
+    }
+
     public BombItem(int x, int y) {
         super(x, y);
     }
 
     @Override
-    public void applyEffect(Character player, java.util.List<Projectile> projectiles) {
+    public void applyEffect(Character player, ProjectileStore projectiles) {
         // Damage the player by 15 HP
         player.setHealth(player.getHealth() - 15);
     }
 
     @Override
-    public void draw(Graphics g) {
+    protected void drawSprite(Graphics g, int x, int y) {
         // Draw a bomb with fuse
         int s = getSize();
-        int x = getX();
-        int y = getY();
         
         // Main bomb body (dark gray/black sphere)
         g.setColor(Color.BLACK);
@@ -39,10 +45,17 @@ public class BombItem extends Item {
         // Spark at top of fuse (red)
         g.setColor(Color.RED);
         g.fillOval(x + s/2 - 2, y - 2, 5, 5);
-        
+    }
+
+    @Override
+    protected void drawEffect(Graphics g, long nowMs) {
+        int s = getSize();
+        int x = getX();
+        int y = getY();
+
         // Warning indicator (pulsing red glow)
-        int pulse = (int)(Math.sin(System.currentTimeMillis() * 0.01) * 30 + 30);
-        g.setColor(new Color(255, 0, 0, pulse));
+        int pulse = (int)(Math.sin(nowMs * 0.01) * 30 + 30);
+        g.setColor(PULSE_COLORS[pulse]);
         g.fillOval(x - 3, y + s/4 - 3, s + 6, s*3/4 + 6);
     }
 }
@@ -2,7 +2,7 @@ package src;
 
 import java.awt.Color;
 import java.awt.Graphics;
-import java.util.List;
+import java.nio.ByteBuffer;
 
 /**
  * Abstract Boss encapsulates boss statistics and behaviors.
@@ -16,30 +16,30 @@ public abstract class Boss {
     private int projectileSpeed;
     private boolean weakPointActive;
 
-    // Timers for weak point activation
-    private long lastWeakToggleMs = System.currentTimeMillis();
+    // Timers for weak point activation (simulation time)
+    private long lastWeakToggleMs;
     private int weakOpenMs = 1500;  // duration open
     private int weakClosedMs = 2500; // duration closed
 
-    public Boss(int x, int y, int health, int projectileSpeed) {
+    public Boss(int x, int y, int health, int projectileSpeed, long nowMs) {
         this.x = x;
         this.y = y;
         this.health = health;
         this.maxHealth = health;
         this.projectileSpeed = projectileSpeed;
+        this.lastWeakToggleMs = nowMs;
     }
 
-    public void updateWeakPoint() {
-        long now = System.currentTimeMillis();
+    public void updateWeakPoint(long nowMs) {
         if (weakPointActive) {
-            if (now - lastWeakToggleMs > weakOpenMs) {
+            if (nowMs - lastWeakToggleMs > weakOpenMs) {
                 weakPointActive = false;
-                lastWeakToggleMs = now;
+                lastWeakToggleMs = nowMs;
             }
         } else {
-            if (now - lastWeakToggleMs > weakClosedMs) {
+            if (nowMs - lastWeakToggleMs > weakClosedMs) {
                 weakPointActive = true;
-                lastWeakToggleMs = now;
+                lastWeakToggleMs = nowMs;
             }
         }
     }
@@ -49,7 +49,46 @@ public abstract class Boss {
         g.fillOval(x, y, size, size);
     }
 
-    public abstract void attackPattern(List<Projectile> projectiles, Character player);
+    public abstract void attackPattern(ProjectileStore projectiles, Character player, long nowMs);
+
+    /**
+     * The runner behind attackPattern(), saved along with the boss; null
+     * for bosses whose attacks keep no state.
+     */
+    protected PatternRunner getPattern() {
+        return null;
+    }
+
+    /**
+     * Write the mutable state, including the attack pattern's, into buf
+     * for restoreState() on a boss of the same class.
+     */
+    public void saveState(ByteBuffer buf) {
+        buf.putInt(x).putInt(y).putInt(size).putInt(health).putInt(maxHealth).putInt(projectileSpeed);
+        buf.put((byte) (weakPointActive ? 1 : 0));
+        buf.putLong(lastWeakToggleMs).putInt(weakOpenMs).putInt(weakClosedMs);
+        PatternRunner pattern = getPattern();
+        if (pattern != null) {
+            pattern.saveState(buf);
+        }
+    }
+
+    public void restoreState(ByteBuffer buf) {
+        x = buf.getInt();
+        y = buf.getInt();
+        size = buf.getInt();
+        health = buf.getInt();
+        maxHealth = buf.getInt();
+        projectileSpeed = buf.getInt();
+        weakPointActive = buf.get() != 0;
+        lastWeakToggleMs = buf.getLong();
+        weakOpenMs = buf.getInt();
+        weakClosedMs = buf.getInt();
+        PatternRunner pattern = getPattern();
+        if (pattern != null) {
+            pattern.restoreState(buf);
+        }
+    }
 
     // Configuration helpers
     protected void setWeakDurations(int openMs, int closedMs) {
@@ -71,5 +110,5 @@ public abstract class Boss {
     public int getProjectileSpeed() { return projectileSpeed; }
     public void setProjectileSpeed(int projectileSpeed) { this.projectileSpeed = projectileSpeed; }
     public boolean isWeakPointActive() { return weakPointActive; }
-    public void activateWeakPoint() { this.weakPointActive = true; lastWeakToggleMs = System.currentTimeMillis(); }
+    public void activateWeakPoint(long nowMs) { this.weakPointActive = true; lastWeakToggleMs = nowMs; }
 }
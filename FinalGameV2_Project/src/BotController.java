@@ -0,0 +1,86 @@
+package src;
+
+/**
+ * BotController is a simple scripted player used by headless matches.
+ * Each tick it is pulled away from nearby enemy projectiles and pushed
+ * toward a preferred distance from the boss (close for melee characters,
+ * further out for the Mage), and it holds attack so every opening of the
+ * weak point is used. It dashes when a projectile gets very close.
+ *
+ * The bot is deliberately plain: its purpose is to compare bosses against
+ * each other under the same player, not to play well.
+ */
+public class BotController {
+    // Projectiles closer than this push the bot away
+    private static final double DANGER_RADIUS = 90;
+    // Projectiles closer than this trigger a dash
+    private static final double DASH_RADIUS = 28;
+    // Ignore steering components weaker than this to avoid jittering
+    private static final double DEAD_ZONE = 0.15;
+
+    private final double preferredDistance;
+    // Whether the last decision pressed dash; a dash fires on the press, so
+    // the bot taps it, releasing every other tick, rather than holding it
+    private boolean dashPressed;
+
+    public BotController(int characterType) {
+        this.preferredDistance = characterType == GameWorld.MAGE ? 220 : 35;
+    }
+
+    /**
+     * Decide the input bits for the next tick of the given world.
+     */
+    public int decide(GameWorld world) {
+        return decide(world.getPlayer(), world.getBoss(), world.getProjectiles());
+    }
+
+    /**
+     * Decide the input bits for a player facing the given boss and
+     * projectiles; used where there is no GameWorld, such as a network client.
+     */
+    public int decide(Character player, Boss boss, ProjectileStore projectiles) {
+        if (player == null || boss == null) return 0;
+
+        double px = player.getX() + player.getWidth() / 2.0;
+        double py = player.getY() + player.getHeight() / 2.0;
+        double steerX = 0;
+        double steerY = 0;
+        boolean dash = false;
+
+        // Repulsion from enemy projectiles, stronger the closer they are
+        for (int i = 0; i < projectiles.size(); i++) {
+            if (projectiles.isPlayerShot(i)) continue;
+            double half = projectiles.getSize(i) / 2.0;
+            double dx = px - (projectiles.getX(i) + half);
+            double dy = py - (projectiles.getY(i) + half);
+            double dist = Math.sqrt(dx * dx + dy * dy);
+            if (dist >= DANGER_RADIUS || dist == 0) continue;
+            double weight = (DANGER_RADIUS - dist) / DANGER_RADIUS;
+            steerX += dx / dist * weight * 2;
+            steerY += dy / dist * weight * 2;
+            if (dist < DASH_RADIUS) dash = true;
+        }
+
+        // Keep the preferred distance from the boss
+        double bx = boss.getX() + boss.getSize() / 2.0;
+        double by = boss.getY() + boss.getSize() / 2.0;
+        double toBossX = bx - px;
+        double toBossY = by - py;
+        double bossDist = Math.sqrt(toBossX * toBossX + toBossY * toBossY);
+        if (bossDist > 0) {
+            double pull = (bossDist - preferredDistance - boss.getSize() / 2.0) / 100.0;
+            pull = Math.max(-1, Math.min(1, pull));
+            steerX += toBossX / bossDist * pull;
+            steerY += toBossY / bossDist * pull;
+        }
+
+        int mask = GameWorld.INPUT_ATTACK;
+        if (steerX < -DEAD_ZONE) mask |= GameWorld.INPUT_LEFT;
+        if (steerX > DEAD_ZONE) mask |= GameWorld.INPUT_RIGHT;
+        if (steerY < -DEAD_ZONE) mask |= GameWorld.INPUT_UP;
+        if (steerY > DEAD_ZONE) mask |= GameWorld.INPUT_DOWN;
+        dashPressed = dash && !dashPressed;
+        if (dashPressed) mask |= GameWorld.INPUT_DASH;
+        return mask;
+    }
+}
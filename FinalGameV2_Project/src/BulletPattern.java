@@ -0,0 +1,220 @@
+package src;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * BulletPattern is a compiled boss firing program: a flat array of int
+ * instructions plus a pool of double constants, run by a PatternRunner.
+ * Patterns are immutable and shared by every boss using them; each boss
+ * keeps its own runner with the program counter, loop counters and aim.
+ *
+ * Programs are written with the Builder and repeat from the start when
+ * they reach the end. Firing instructions emit a whole volley into the
+ * ProjectileStore at once:
+ * <pre>
+ *   aim()                          point at the player
+ *   setAngle(a) / rotate(a)        set or turn the aim, for fixed patterns and spirals
+ *   shoot(kind, damage)            one bullet along the aim
+ *   spread(n, step, off, kind, d)  n bullets fanned around aim + off
+ *   ring(n, kind, damage)          n bullets around the full circle from the aim
+ *   orbit(n, damage)               n spiral bullets orbiting the boss
+ *   wait(ms)                       pause; each pass through a program must wait
+ *   repeat(n) ... end()            counted loop
+ *   label(name), jump(name)        unconditional jump
+ *   choose(names...)               jump to one of the labels at random
+ * </pre>
+ */
+public final class BulletPattern {
+    // Opcodes, each followed by its operands; C marks a constant pool index
+    static final int OP_WAIT = 0;       // ms
+    static final int OP_AIM = 1;
+    static final int OP_SET_ANGLE = 2;  // C angle
+    static final int OP_ROTATE = 3;     // C delta
+    static final int OP_SHOOT = 4;      // kind, damage
+    static final int OP_SPREAD = 5;     // count, C step, C offset, kind, damage
+    static final int OP_RING = 6;       // count, kind, damage
+    static final int OP_ORBIT = 7;      // count, damage
+    static final int OP_REPEAT = 8;     // count
+    static final int OP_END = 9;        // pc of the loop body
+    static final int OP_JUMP = 10;      // target pc
+    static final int OP_CHOOSE = 11;    // n, n target pcs
+
+    private final int[] code;
+    private final double[] constants;
+    private final int maxDepth;
+    private final boolean random;
+
+    private BulletPattern(int[] code, double[] constants, int maxDepth, boolean random) {
+        this.code = code;
+        this.constants = constants;
+        this.maxDepth = maxDepth;
+        this.random = random;
+    }
+
+    int[] getCode() { return code; }
+    double[] getConstants() { return constants; }
+    /** Deepest repeat() nesting, i.e. the loop stack a runner needs. */
+    int getMaxDepth() { return maxDepth; }
+    /** True if the program uses choose() and so needs a random source. */
+    public boolean isRandom() { return random; }
+    public int getLength() { return code.length; }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Assembles a BulletPattern. Labels may be used before they are
+     * defined; build() resolves them and checks the program's structure.
+     */
+    public static final class Builder {
+        private final List<Integer> code = new ArrayList<>();
+        private final List<Double> constants = new ArrayList<>();
+        private final Map<String, Integer> labels = new HashMap<>();
+        private final Map<String, Integer> labelDepths = new HashMap<>();
+        // Jump operands still to be patched: code index -> label, and the loop depth of each jump
+        private final Map<Integer, String> fixups = new HashMap<>();
+        private final Map<Integer, Integer> fixupDepths = new HashMap<>();
+        private final int[] loopStarts = new int[16];
+        private int depth = 0;
+        private int maxDepth = 0;
+        private boolean waits = false;
+        private boolean random = false;
+
+        private Builder() { }
+
+        public Builder wait(int ms) {
+            if (ms <= 0) throw new IllegalArgumentException("wait must be positive: " + ms);
+            waits = true;
+            return emit(OP_WAIT, ms);
+        }
+
+        public Builder aim() {
+            return emit(OP_AIM);
+        }
+
+        public Builder setAngle(double angle) {
+            return emit(OP_SET_ANGLE, constant(angle));
+        }
+
+        public Builder rotate(double delta) {
+            return emit(OP_ROTATE, constant(delta));
+        }
+
+        public Builder shoot(int kind, int damage) {
+            return emit(OP_SHOOT, kind, damage);
+        }
+
+        public Builder spread(int count, double step, double offset, int kind, int damage) {
+            requirePositive(count);
+            return emit(OP_SPREAD, count, constant(step), constant(offset), kind, damage);
+        }
+
+        public Builder ring(int count, int kind, int damage) {
+            requirePositive(count);
+            return emit(OP_RING, count, kind, damage);
+        }
+
+        public Builder orbit(int count, int damage) {
+            requirePositive(count);
+            return emit(OP_ORBIT, count, damage);
+        }
+
+        public Builder repeat(int count) {
+            requirePositive(count);
+            if (depth == loopStarts.length) throw new IllegalStateException("repeat() nested too deeply");
+            emit(OP_REPEAT, count);
+            loopStarts[depth++] = code.size();
+            maxDepth = Math.max(maxDepth, depth);
+            return this;
+        }
+
+        public Builder end() {
+            if (depth == 0) throw new IllegalStateException("end() without repeat()");
+            return emit(OP_END, loopStarts[--depth]);
+        }
+
+        public Builder label(String name) {
+            if (labels.putIfAbsent(name, code.size()) != null) {
+                throw new IllegalStateException("Duplicate label " + name);
+            }
+            labelDepths.put(name, depth);
+            return this;
+        }
+
+        public Builder jump(String name) {
+            emit(OP_JUMP);
+            fixup(name);
+            return this;
+        }
+
+        public Builder choose(String... names) {
+            if (names.length == 0) throw new IllegalArgumentException("choose() needs a label");
+            random = true;
+            emit(OP_CHOOSE, names.length);
+            for (String name : names) {
+                fixup(name);
+            }
+            return this;
+        }
+
+        public BulletPattern build() {
+            if (depth != 0) throw new IllegalStateException("repeat() without end()");
+            if (!waits) throw new IllegalStateException("Pattern never waits");
+            int[] program = new int[code.size()];
+            for (int i = 0; i < program.length; i++) {
+                program[i] = code.get(i);
+            }
+            for (Map.Entry<Integer, String> fixup : fixups.entrySet()) {
+                String name = fixup.getValue();
+                Integer target = labels.get(name);
+                if (target == null) throw new IllegalStateException("Undefined label " + name);
+                // The loop stack is only kept right if jumps stay inside their repeat block
+                if (!labelDepths.get(name).equals(fixupDepths.get(fixup.getKey()))) {
+                    throw new IllegalStateException("Jump to " + name + " crosses a repeat block");
+                }
+                program[fixup.getKey()] = target;
+            }
+            double[] pool = new double[constants.size()];
+            for (int i = 0; i < pool.length; i++) {
+                pool[i] = constants.get(i);
+            }
+            return new BulletPattern(program, pool, maxDepth, random);
+        }
+
+        private Builder emit(int... words) {
+            for (int word : words) {
+                code.add(word);
+            }
+            return this;
+        }
+
+        private void fixup(String name) {
+            fixups.put(code.size(), name);
+            fixupDepths.put(code.size(), depth);
+            code.add(-1);
+        }
+
+        private int constant(double value) {
+            int index = constants.indexOf(value);
+            if (index < 0) {
+                index = constants.size();
+                constants.add(value);
+            }
+            return index;
+        }
+
+        private static void requirePositive(int count) {
+            if (count <= 0) throw new IllegalArgumentException("count must be positive: " + count);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BulletPattern" + Arrays.toString(code);
+    }
+}
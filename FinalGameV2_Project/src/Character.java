@@ -2,6 +2,7 @@ package src;
 
 import java.awt.Color;
 import java.awt.Graphics;
+import java.nio.ByteBuffer;
 
 /**
  * Abstract Character encapsulates common player fields and behaviors.
@@ -15,11 +16,12 @@ public abstract class Character {
     private int health;
     private int maxHealth;
     private int attackPower;
-    // Attack timing for animations/cooldowns
-    private long lastAttackMs = 0;
+    // Attack timing for animations/cooldowns (simulation time; NEVER = not yet)
+    private static final long NEVER = Long.MIN_VALUE / 2;
+    private long lastAttackMs = NEVER;
     private long swingStartMs = -1;
     // Dash timing and state
-    private long lastDashMs = 0;
+    private long lastDashMs = NEVER;
     private long dashStartMs = -1;
     private double dashDirX = 0;
     private double dashDirY = 0;
@@ -35,6 +37,34 @@ public abstract class Character {
         this.attackPower = attackPower;
     }
 
+    /**
+     * Write the mutable state (position, stats, attack and dash timers)
+     * into buf, for restoreState() on a character of the same class.
+     */
+    public void saveState(ByteBuffer buf) {
+        buf.putInt(x).putInt(y).putInt(width).putInt(height).putInt(speed);
+        buf.putInt(health).putInt(maxHealth).putInt(attackPower);
+        buf.putLong(lastAttackMs).putLong(swingStartMs).putLong(lastDashMs).putLong(dashStartMs);
+        buf.putDouble(dashDirX).putDouble(dashDirY);
+    }
+
+    public void restoreState(ByteBuffer buf) {
+        x = buf.getInt();
+        y = buf.getInt();
+        width = buf.getInt();
+        height = buf.getInt();
+        speed = buf.getInt();
+        health = buf.getInt();
+        maxHealth = buf.getInt();
+        attackPower = buf.getInt();
+        lastAttackMs = buf.getLong();
+        swingStartMs = buf.getLong();
+        lastDashMs = buf.getLong();
+        dashStartMs = buf.getLong();
+        dashDirX = buf.getDouble();
+        dashDirY = buf.getDouble();
+    }
+
     // Movement with arena bounds
     public void move(int dx, int dy, int arenaW, int arenaH) {
         x += dx * speed;
@@ -51,7 +81,7 @@ public abstract class Character {
     }
 
     // Polymorphic attack behavior
-    public abstract void attack(Boss boss);
+    public abstract void attack(Boss boss, long nowMs);
 
     // Draw player rectangle with color per subclass
     public void draw(Graphics g) {
@@ -62,7 +92,7 @@ public abstract class Character {
     protected abstract Color getColor();
 
     // Weapon visuals and hitbox
-    public void drawWeapon(Graphics g, Boss boss, boolean attacking) {
+    public void drawWeapon(Graphics g, Boss boss, boolean attacking, long nowMs) {
         if (boss == null) return;
         // Aim toward boss center
         int cx = x + width / 2;
@@ -75,8 +105,8 @@ public abstract class Character {
         double ux = dx / len;
         double uy = dy / len;
 
-        int reach = getDynamicReach();
-        int thickness = getDynamicThickness(attacking);
+        int reach = getDynamicReach(nowMs);
+        int thickness = getDynamicThickness(attacking, nowMs);
         int sx = cx;
         int sy = cy;
         int ex = (int)(cx + ux * reach);
@@ -142,30 +172,26 @@ public abstract class Character {
     public void setAttackPower(int attackPower) { this.attackPower = attackPower; }
 
     // Cooldown and swing animation support
-    protected boolean canAttack() {
-        long now = System.currentTimeMillis();
-        return (now - lastAttackMs) >= getAttackCooldownMs();
+    protected boolean canAttack(long nowMs) {
+        return (nowMs - lastAttackMs) >= getAttackCooldownMs();
     }
 
-    protected void markAttack() {
-        long now = System.currentTimeMillis();
-        lastAttackMs = now;
-        swingStartMs = now;
+    protected void markAttack(long nowMs) {
+        lastAttackMs = nowMs;
+        swingStartMs = nowMs;
     }
 
-    private int getDynamicThickness(boolean attacking) {
+    private int getDynamicThickness(boolean attacking, long nowMs) {
         if (!attacking || swingStartMs < 0) return 6;
-        long now = System.currentTimeMillis();
-        long elapsed = now - swingStartMs;
+        long elapsed = nowMs - swingStartMs;
         long dur = getSwingDurationMs();
         double t = Math.min(1.0, elapsed / (double) dur);
         return 6 + (int) Math.round(6 * Math.sin(t * Math.PI)); // pulse
     }
 
-    private int getDynamicReach() {
+    private int getDynamicReach(long nowMs) {
         if (swingStartMs < 0) return getWeaponReach();
-        long now = System.currentTimeMillis();
-        long elapsed = now - swingStartMs;
+        long elapsed = nowMs - swingStartMs;
         long dur = getSwingDurationMs();
         double t = Math.min(1.0, elapsed / (double) dur);
         // Ease-out reach for visual swing
@@ -190,26 +216,24 @@ public abstract class Character {
     }
     
     // Dash system - only for warrior and rogue
-    public boolean canDash() {
+    public boolean canDash(long nowMs) {
         return false; // Override in subclasses that can dash
     }
     
-    public void startDash(double dirX, double dirY) {
-        long now = System.currentTimeMillis();
-        lastDashMs = now;
-        dashStartMs = now;
+    public void startDash(double dirX, double dirY, long nowMs) {
+        lastDashMs = nowMs;
+        dashStartMs = nowMs;
         dashDirX = dirX;
         dashDirY = dirY;
     }
     
-    public boolean isDashing() {
+    public boolean isDashing(long nowMs) {
         if (dashStartMs < 0) return false;
-        long now = System.currentTimeMillis();
-        return (now - dashStartMs) < getDashDurationMs();
+        return (nowMs - dashStartMs) < getDashDurationMs();
     }
     
-    public void updateDash(int arenaW, int arenaH) {
-        if (isDashing()) {
+    public void updateDash(int arenaW, int arenaH, long nowMs) {
+        if (isDashing(nowMs)) {
             // Move in dash direction at high speed
             int dashSpeed = getDashSpeed();
             x += (int)(dashDirX * dashSpeed);
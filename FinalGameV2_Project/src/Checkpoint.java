@@ -0,0 +1,139 @@
+package src;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.zip.CRC32;
+
+/**
+ * Checkpoint is a saved GameWorld as written by CheckpointWriter: the
+ * settings the world was built with plus its saveState() bytes.
+ *
+ * Checkpoints alternate between two files, checkpoint.0 and checkpoint.1,
+ * so the previous one survives a crash or power loss halfway through
+ * writing the next. load() returns the newest one whose CRC checks out.
+ *
+ * Layout (big-endian):
+ *   magic "DCKP", version(4), sequence(8), characterType(1), endless(1),
+ *   difficulty(1), tickNanos(8), stateLength(4), state, crc32(4) of all before
+ */
+public final class Checkpoint {
+    static final int MAGIC = 0x44434B50; // "DCKP"
+    static final int VERSION = 2;
+    static final int SEQUENCE_OFFSET = 8;
+    static final int STATE_LENGTH_OFFSET = 27;
+    static final int HEADER_BYTES = 31;
+    static final String[] FILE_NAMES = { "checkpoint.0", "checkpoint.1" };
+
+    private static final String[] DIFFICULTIES = { "EASY", "MEDIUM", "NIGHTMARE" };
+
+    private final long sequence;
+    private final int characterType;
+    private final boolean endlessMode;
+    private final String difficulty;
+    private final long tickNanos;
+    private final ByteBuffer state;
+
+    private Checkpoint(long sequence, int characterType, boolean endlessMode, String difficulty,
+                       long tickNanos, ByteBuffer state) {
+        this.sequence = sequence;
+        this.characterType = characterType;
+        this.endlessMode = endlessMode;
+        this.difficulty = difficulty;
+        this.tickNanos = tickNanos;
+        this.state = state;
+    }
+
+    /**
+     * The newest valid checkpoint in dir, or null if there is none.
+     */
+    public static Checkpoint load(File dir) {
+        Checkpoint newest = null;
+        for (String name : FILE_NAMES) {
+            Checkpoint c = read(new File(dir, name));
+            if (c != null && (newest == null || c.sequence > newest.sequence)) {
+                newest = c;
+            }
+        }
+        return newest;
+    }
+
+    /**
+     * Delete both checkpoint files, once the run they hold is over.
+     */
+    public static void delete(File dir) {
+        for (String name : FILE_NAMES) {
+            File file = new File(dir, name);
+            if (file.exists() && !file.delete()) {
+                System.err.println("Could not delete " + file);
+            }
+        }
+    }
+
+    // Null when the file is missing, torn or from another version
+    private static Checkpoint read(File file) {
+        if (!file.isFile()) return null;
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(file.toPath());
+        } catch (IOException e) {
+            return null;
+        }
+        if (bytes.length < HEADER_BYTES + 4) return null;
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        int stateLength = buf.getInt(STATE_LENGTH_OFFSET);
+        if (buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION || stateLength < 0
+                || HEADER_BYTES + stateLength + 4 != bytes.length) {
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - 4);
+        if ((int) crc.getValue() != buf.getInt(bytes.length - 4)) return null;
+
+        buf.position(SEQUENCE_OFFSET);
+        long sequence = buf.getLong();
+        int characterType = buf.get();
+        boolean endless = buf.get() != 0;
+        int difficulty = buf.get();
+        long tickNanos = buf.getLong();
+        if (difficulty < 0 || difficulty >= DIFFICULTIES.length || tickNanos <= 0) return null;
+        ByteBuffer state = ByteBuffer.wrap(bytes, HEADER_BYTES, stateLength).slice();
+        return new Checkpoint(sequence, characterType, endless, DIFFICULTIES[difficulty], tickNanos, state);
+    }
+
+    /**
+     * Write the header for a world into buf; CheckpointWriter follows it
+     * with the state, its length and the CRC.
+     */
+    static void putHeader(ByteBuffer buf, long sequence, GameWorld world) {
+        buf.putInt(MAGIC).putInt(VERSION).putLong(sequence);
+        buf.put((byte) world.getCharacterType());
+        buf.put((byte) (world.isEndlessMode() ? 1 : 0));
+        buf.put((byte) difficultyIndex(world.getDifficulty()));
+        buf.putLong(((VirtualClock) world.getClock()).getTickNanos());
+        buf.putInt(0); // state length, filled in once known
+    }
+
+    private static int difficultyIndex(String difficulty) {
+        for (int i = 0; i < DIFFICULTIES.length; i++) {
+            if (DIFFICULTIES[i].equals(difficulty)) return i;
+        }
+        return 1;
+    }
+
+    /**
+     * Build a world in the saved state, reporting sounds to the given player.
+     */
+    public GameWorld createWorld(SoundPlayer sound) {
+        GameWorld world = new GameWorld(new VirtualClock(tickNanos), 0, characterType, endlessMode, difficulty, 1,
+                sound);
+        world.restoreState(state.duplicate());
+        return world;
+    }
+
+    public long getSequence() { return sequence; }
+    public int getCharacterType() { return characterType; }
+    public boolean isEndlessMode() { return endlessMode; }
+    public String getDifficulty() { return difficulty; }
+}
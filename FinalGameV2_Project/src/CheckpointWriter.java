@@ -0,0 +1,146 @@
+package src;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.zip.CRC32;
+
+/**
+ * CheckpointWriter saves a running GameWorld to disk without holding up
+ * the game loop. checkpoint() only copies the world into one of two
+ * preallocated direct buffers (GameWorld.saveState(), a few microseconds
+ * even with thousands of bullets); a background thread then adds the CRC,
+ * writes the buffer to the checkpoint file it alternates to (see
+ * Checkpoint) and forces it to disk. If that thread is still writing the
+ * previous checkpoint, the new one is skipped rather than waited for.
+ *
+ * checkpoint() and clear() are called from the simulation thread. The
+ * writer is a daemon thread; a checkpoint cut short by the JVM exiting is
+ * ignored on load in favor of the previous one.
+ */
+public class CheckpointWriter {
+    private final File dir;
+    // Buffers ready to be filled, and filled ones waiting to be written
+    private final ArrayBlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<>(2);
+    private final ArrayBlockingQueue<ByteBuffer> pending = new ArrayBlockingQueue<>(2);
+    // Held while a file is written or deleted
+    private final Object fileLock = new Object();
+    private final CRC32 crc = new CRC32();
+    private final ByteBuffer trailer = ByteBuffer.allocate(Integer.BYTES);
+
+    // Simulation thread only
+    private long sequence;
+    // Checkpoints up to this sequence belong to a finished run and are not written
+    private volatile long clearedThrough = 0;
+    private volatile long written = 0;
+    private volatile long skipped = 0;
+
+    /**
+     * @param dir directory for the checkpoint files; created if missing
+     */
+    public CheckpointWriter(File dir) throws IOException {
+        this.dir = dir;
+        Files.createDirectories(dir.toPath());
+        Checkpoint existing = Checkpoint.load(dir);
+        // Carry on numbering so a new checkpoint is always the newest
+        sequence = existing != null ? existing.getSequence() : 0;
+        free.add(ByteBuffer.allocateDirect(1 << 16));
+        free.add(ByteBuffer.allocateDirect(1 << 16));
+        Thread thread = new Thread(this::run, "checkpoint-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Save the world's current state in the background. Call between
+     * ticks; the world must run on a VirtualClock. Returns false if the
+     * previous checkpoint is still being written and this one was skipped.
+     */
+    public boolean checkpoint(GameWorld world) {
+        ByteBuffer buf = free.poll();
+        if (buf == null) {
+            skipped++;
+            return false;
+        }
+        buf = fill(buf, world);
+        pending.add(buf);
+        return true;
+    }
+
+    /**
+     * Save the world and write it on the calling thread, for shutting down.
+     */
+    public void checkpointNow(GameWorld world) throws IOException {
+        write(fill(ByteBuffer.allocateDirect(Checkpoint.HEADER_BYTES + world.stateBytes() + 4), world));
+    }
+
+    private ByteBuffer fill(ByteBuffer buf, GameWorld world) {
+        int needed = Checkpoint.HEADER_BYTES + world.stateBytes() + 4;
+        if (buf.capacity() < needed) {
+            buf = ByteBuffer.allocateDirect(needed * 2);
+        }
+        buf.clear();
+        Checkpoint.putHeader(buf, ++sequence, world);
+        world.saveState(buf);
+        buf.putInt(Checkpoint.STATE_LENGTH_OFFSET, buf.position() - Checkpoint.HEADER_BYTES);
+        buf.flip();
+        return buf;
+    }
+
+    /**
+     * Delete the saved run, and drop any checkpoint of it not yet written.
+     */
+    public void clear() {
+        synchronized (fileLock) {
+            clearedThrough = sequence;
+            Checkpoint.delete(dir);
+        }
+    }
+
+    private void run() {
+        while (true) {
+            ByteBuffer buf;
+            try {
+                buf = pending.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                write(buf);
+            } catch (IOException e) {
+                System.err.println("Checkpoint failed: " + e.getMessage());
+            } finally {
+                free.add(buf);
+            }
+        }
+    }
+
+    // Append the CRC after the filled part of buf and write it out
+    private void write(ByteBuffer buf) throws IOException {
+        synchronized (fileLock) {
+            long seq = buf.getLong(Checkpoint.SEQUENCE_OFFSET);
+            if (seq <= clearedThrough) return;
+            ByteBuffer body = buf.duplicate();
+            crc.reset();
+            crc.update(body);
+            trailer.clear();
+            trailer.putInt(0, (int) crc.getValue());
+            File file = new File(dir, Checkpoint.FILE_NAMES[(int) (seq & 1)]);
+            try (FileChannel out = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                body = buf.duplicate();
+                while (body.hasRemaining()) out.write(body);
+                while (trailer.hasRemaining()) out.write(trailer);
+                out.force(true);
+            }
+            written++;
+        }
+    }
+
+    public long getWritten() { return written; }
+    public long getSkipped() { return skipped; }
+}
@@ -8,30 +8,55 @@ import java.awt.Graphics;
  * Represents a floating damage number that appears when damage is dealt.
  */
 public class DamageNumber {
-    private final int damage;
+    private static final int MAX_FONT_SIZE = 20;
+    private static final Color COLOR = new Color(255, 255, 100);
+    // One font per size the number grows through, so drawing creates none
+    private static final Font[] FONTS = new Font[MAX_FONT_SIZE + 1];
+    static {
+        for (int size = 1; size <= MAX_FONT_SIZE; size++) {
+            FONTS[size] = new Font("Arial", Font.BOLD, size);
+        }
+    }
+
+    private int damage;
     private double x;
     private double y;
-    private final long spawnTime;
+    private long spawnTime;
     private final long duration = 800; // milliseconds
     
-    public DamageNumber(int damage, double x, double y) {
+    public DamageNumber(int damage, double x, double y, long spawnMs) {
         this.damage = damage;
         this.x = x;
         this.y = y;
-        this.spawnTime = System.currentTimeMillis();
+        this.spawnTime = spawnMs;
     }
     
+    /**
+     * Become a copy of other, so a world copied for drawing can reuse its
+     * damage numbers.
+     */
+    void copyFrom(DamageNumber other) {
+        damage = other.damage;
+        x = other.x;
+        y = other.y;
+        spawnTime = other.spawnTime;
+    }
+
     public void update() {
         // Float upward
         y -= 1.5;
     }
     
-    public boolean isExpired() {
-        return System.currentTimeMillis() - spawnTime > duration;
+    public boolean isExpired(long nowMs) {
+        return nowMs - spawnTime > duration;
     }
     
-    public void draw(Graphics g) {
-        long elapsed = System.currentTimeMillis() - spawnTime;
+    /**
+     * Draw the number from glyph strips; nothing is allocated once the
+     * strips for its sizes and alpha levels exist.
+     */
+    public void draw(Graphics g, long nowMs, TextRenderer text) {
+        long elapsed = nowMs - spawnTime;
         double progress = elapsed / (double) duration;
         
         // Fade out over time
@@ -40,13 +65,12 @@ public class DamageNumber {
         
         // Scale up slightly at start
         double scale = Math.min(1.0, progress * 3);
-        int fontSize = (int) (20 * scale);
-        
-        g.setFont(new Font("Arial", Font.BOLD, fontSize));
-        g.setColor(new Color(255, 255, 100, alpha));
-        
-        String text = String.valueOf(damage);
-        int textWidth = g.getFontMetrics().stringWidth(text);
-        g.drawString(text, (int) x - textWidth / 2, (int) y);
+        int fontSize = (int) (MAX_FONT_SIZE * scale);
+        if (fontSize <= 0) return;
+
+        TextRenderer.Strip strip = text.fade(FONTS[fontSize], COLOR, alpha);
+        if (strip == null) return;
+        int textWidth = strip.numberWidth(damage);
+        strip.drawNumber(g, damage, (int) x - textWidth / 2, (int) y);
     }
 }
@@ -0,0 +1,63 @@
+package src;
+
+/**
+ * FastTrig is a polynomial sin/cos for the projectile move kernels. The
+ * angle is reduced to r in [-pi/4, pi/4] plus a quadrant, and r goes
+ * through a fixed Taylor polynomial. The absolute error is below 1e-11
+ * for |x| < 1e6 radians, far more than the game's bullets ever reach.
+ *
+ * Only plain multiplies and adds are used, in a fixed order, so
+ * VectorProjectileKernel can repeat the exact same steps across lanes and
+ * get bit-identical results. Replays rely on this: a run recorded with
+ * one kernel plays back with the other.
+ */
+public final class FastTrig {
+    static final double TWO_OVER_PI = 0.6366197723675814;
+    // pi/2 in two parts; the high part has 33 bits so k * PIO2_HI is exact
+    static final double PIO2_HI = 1.5707963267341256;
+    static final double PIO2_LO = 6.077100506506192e-11;
+    // Adding and subtracting this rounds a double to the nearest integer
+    static final double ROUND = 0x1.8p52;
+
+    static final double S3 = -1.0 / 6;
+    static final double S5 = 1.0 / 120;
+    static final double S7 = -1.0 / 5040;
+    static final double S9 = 1.0 / 362880;
+    static final double S11 = -1.0 / 39916800;
+
+    static final double C2 = -1.0 / 2;
+    static final double C4 = 1.0 / 24;
+    static final double C6 = -1.0 / 720;
+    static final double C8 = 1.0 / 40320;
+    static final double C10 = -1.0 / 3628800;
+    static final double C12 = 1.0 / 479001600;
+
+    private FastTrig() { }
+
+    public static double sin(double x) {
+        double k = (x * TWO_OVER_PI + ROUND) - ROUND;
+        double r = (x - k * PIO2_HI) - k * PIO2_LO;
+        return quadrant(r, (long) k);
+    }
+
+    public static double cos(double x) {
+        double k = (x * TWO_OVER_PI + ROUND) - ROUND;
+        double r = (x - k * PIO2_HI) - k * PIO2_LO;
+        // cos(x) = sin(x + pi/2): same reduction, one quadrant on
+        return quadrant(r, (long) k + 1);
+    }
+
+    private static double quadrant(double r, long q) {
+        double r2 = r * r;
+        double v = (q & 1) == 0 ? sinPoly(r, r2) : cosPoly(r2);
+        return (q & 2) == 0 ? v : -v;
+    }
+
+    static double sinPoly(double r, double r2) {
+        return r + r * r2 * (S3 + r2 * (S5 + r2 * (S7 + r2 * (S9 + r2 * S11))));
+    }
+
+    static double cosPoly(double r2) {
+        return 1 + r2 * (C2 + r2 * (C4 + r2 * (C6 + r2 * (C8 + r2 * (C10 + r2 * C12)))));
+    }
+}
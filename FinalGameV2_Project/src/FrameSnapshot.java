@@ -0,0 +1,56 @@
+package src;
+
+/**
+ * FrameSnapshot is everything GamePanel draws for one frame: a copy of the
+ * world (see GameWorld.copyViewTo) and the menu and overlay state around
+ * it. The loop thread fills one after each batch of ticks and GamePanel
+ * hands it to the render thread through a triple buffer, so painting never
+ * takes the state lock and a slow paint cannot hold up the simulation.
+ *
+ * A snapshot is written only while the loop thread owns it and read only
+ * while the render thread does.
+ */
+final class FrameSnapshot {
+    // Copy of the running world; null while a menu is showing
+    GameWorld view;
+    // Fraction of a tick to interpolate projectiles by (GameLoop.getAlpha)
+    double interpolation;
+
+    boolean selectingCharacter;
+    boolean selectingMode;
+    boolean selectingDifficulty;
+    boolean paused;
+    boolean showPerf;
+    // Run the mode menu offers to continue, or null
+    Checkpoint savedRun;
+    boolean practice;
+    boolean rewinding;
+    int rewindSteps;
+    int runRank;
+    int rankBoardSize;
+
+    // World the view was copied from, and its tick at the time
+    private GameWorld source;
+    private long sourceTick;
+
+    /**
+     * Copy world into view, unless view already shows it at its current
+     * tick; a world only changes when it ticks or is rewound.
+     */
+    void copyWorld(GameWorld world) {
+        if (world == null) {
+            view = null;
+            source = null;
+            return;
+        }
+        long tick = world.getClock().getTick();
+        if (world != source) {
+            view = world.newView();
+            source = world;
+        } else if (tick == sourceTick) {
+            return;
+        }
+        world.copyViewTo(view);
+        sourceTick = tick;
+    }
+}
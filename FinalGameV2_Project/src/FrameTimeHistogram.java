@@ -0,0 +1,64 @@
+package src;
+
+import java.util.Arrays;
+
+/**
+ * FrameTimeHistogram counts durations in fixed 0.1 ms buckets up to
+ * 50 ms, with a final bucket for anything slower. Recording is a single
+ * array increment, so it can be called every frame; percentiles are read
+ * from the bucket counts and are accurate to one bucket.
+ *
+ * Written by one thread; other threads may read slightly stale values.
+ */
+public class FrameTimeHistogram {
+    private static final long BUCKET_NANOS = 100_000; // 0.1 ms
+    private static final int BUCKETS = 500;           // 0 - 50 ms
+
+    private final long[] counts = new long[BUCKETS + 1];
+    private long count = 0;
+    private long totalNanos = 0;
+    private long maxNanos = 0;
+
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        int bucket = (int) Math.min(BUCKETS, nanos / BUCKET_NANOS);
+        counts[bucket]++;
+        count++;
+        totalNanos += nanos;
+        if (nanos > maxNanos) maxNanos = nanos;
+    }
+
+    /**
+     * Upper edge in milliseconds of the bucket holding the given
+     * percentile (0-100); the overflow bucket reports the maximum.
+     */
+    public double getPercentileMs(double percentile) {
+        if (count == 0) return 0;
+        long rank = (long) Math.ceil(count * percentile / 100.0);
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += counts[b];
+            if (seen >= rank) {
+                return (b + 1) * BUCKET_NANOS / 1e6;
+            }
+        }
+        return maxNanos / 1e6;
+    }
+
+    public double getMeanMs() { return count == 0 ? 0 : totalNanos / (double) count / 1e6; }
+    public double getMaxMs() { return maxNanos / 1e6; }
+    public long getCount() { return count; }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        totalNanos = 0;
+        maxNanos = 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("n=%d mean=%.2fms p50=%.1fms p95=%.1fms p99=%.1fms max=%.1fms",
+                count, getMeanMs(), getPercentileMs(50), getPercentileMs(95), getPercentileMs(99), getMaxMs());
+    }
+}
@@ -0,0 +1,117 @@
+package src;
+
+import java.awt.Canvas;
+import java.awt.Color;
+import java.awt.DisplayMode;
+import java.awt.Graphics;
+import java.awt.GraphicsConfiguration;
+import java.awt.Toolkit;
+import java.awt.image.BufferStrategy;
+import java.util.function.Consumer;
+
+/**
+ * GameCanvas is the active-rendering surface: frames are drawn straight
+ * into a BufferStrategy from the GameLoop thread and shown immediately,
+ * instead of asking Swing to repaint and waiting for the EDT.
+ *
+ * Presents are paced to the display refresh rate (60 Hz when the display
+ * does not report one), so raising the tick rate does not draw frames
+ * the monitor can never show. Present-to-present intervals and render
+ * durations are kept in FrameTimeHistograms; -Ddodge.frameStats=true
+ * prints them every five seconds.
+ */
+public class GameCanvas extends Canvas {
+    private static final long REPORT_INTERVAL_NANOS = 5_000_000_000L;
+
+    private final int buffers;
+    private final Consumer<Graphics> painter;
+    private final boolean reportStats = Boolean.getBoolean("dodge.frameStats");
+
+    private final FrameTimeHistogram frameTimes = new FrameTimeHistogram();
+    private final FrameTimeHistogram renderTimes = new FrameTimeHistogram();
+    private long refreshNanos = 0;
+    private long lastPresentNanos = 0;
+    private long lastReportNanos = 0;
+
+    /**
+     * @param buffers 2 for double or 3 for triple buffering
+     * @param painter draws one complete frame
+     */
+    public GameCanvas(int width, int height, int buffers, Consumer<Graphics> painter) {
+        this.buffers = buffers;
+        this.painter = painter;
+        setSize(width, height);
+        setBackground(Color.BLACK);
+        // Painting is driven by present(), not by AWT
+        setIgnoreRepaint(true);
+        setFocusable(true);
+    }
+
+    /**
+     * Render and show a frame unless the previous one was shown less than
+     * a refresh interval ago. Returns true if a frame was shown. Call from
+     * the thread that drives the game loop.
+     */
+    public boolean present() {
+        if (!isDisplayable()) return false;
+        if (getBufferStrategy() == null) {
+            createBufferStrategy(buffers);
+            refreshNanos = detectRefreshNanos();
+        }
+
+        long start = System.nanoTime();
+        // Allow a quarter interval of jitter so a frame that is slightly early is not skipped
+        if (lastPresentNanos != 0 && start - lastPresentNanos < refreshNanos - refreshNanos / 4) {
+            return false;
+        }
+
+        BufferStrategy strategy = getBufferStrategy();
+        do {
+            do {
+                Graphics g = strategy.getDrawGraphics();
+                try {
+                    g.setColor(getBackground());
+                    g.fillRect(0, 0, getWidth(), getHeight());
+                    painter.accept(g);
+                } finally {
+                    g.dispose();
+                }
+            } while (strategy.contentsRestored());
+            strategy.show();
+        } while (strategy.contentsLost());
+        // Push the frame to the display now rather than when the pipeline flushes
+        Toolkit.getDefaultToolkit().sync();
+
+        long end = System.nanoTime();
+        renderTimes.record(end - start);
+        if (lastPresentNanos != 0) {
+            frameTimes.record(end - lastPresentNanos);
+        }
+        lastPresentNanos = end;
+
+        if (reportStats) {
+            if (lastReportNanos == 0) lastReportNanos = end;
+            if (end - lastReportNanos >= REPORT_INTERVAL_NANOS) {
+                System.out.println("frame " + frameTimes + " | render " + renderTimes);
+                frameTimes.reset();
+                renderTimes.reset();
+                lastReportNanos = end;
+            }
+        }
+        return true;
+    }
+
+    private long detectRefreshNanos() {
+        int hz = DisplayMode.REFRESH_RATE_UNKNOWN;
+        GraphicsConfiguration config = getGraphicsConfiguration();
+        if (config != null) {
+            hz = config.getDevice().getDisplayMode().getRefreshRate();
+        }
+        if (hz <= 0) hz = 60;
+        return 1_000_000_000L / hz;
+    }
+
+    public FrameTimeHistogram getFrameTimes() { return frameTimes; }
+    public FrameTimeHistogram getRenderTimes() { return renderTimes; }
+    public int getBufferCount() { return buffers; }
+}
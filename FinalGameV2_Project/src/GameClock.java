@@ -0,0 +1,30 @@
+package src;
+
+/**
+ * GameClock is the single source of time for the simulation. It is advanced
+ * exactly once per tick and every entity reads the tick's time from it (or
+ * from a value passed down from it) instead of querying the wall clock.
+ */
+public interface GameClock {
+    /**
+     * Move the clock to the next tick. Called once at the start of every tick.
+     */
+    void advance();
+
+    /**
+     * Number of ticks advanced so far.
+     */
+    long getTick();
+
+    /**
+     * Simulated time of the current tick in nanoseconds since the clock started.
+     */
+    long getNanos();
+
+    /**
+     * Simulated time of the current tick in milliseconds since the clock started.
+     */
+    default long getMillis() {
+        return getNanos() / 1_000_000L;
+    }
+}
@@ -0,0 +1,102 @@
+package src;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * GameEvents are the game's Java Flight Recorder events. Record a session
+ * with -XX:StartFlightRecording=filename=run.jfr and summarize it with
+ * TickProfileReport.
+ *
+ * Every event skips the stack trace. Volley, LevelTransition and Sound
+ * fill in their fields only after shouldCommit(), so while no recording is
+ * running they cost a branch and the JIT can remove the allocation. Tick
+ * and Paint are created and begun on every pass, since their duration
+ * spans the whole tick or paint, and fill in the rest only when they will
+ * commit; with a recording they are all cheap enough to leave on. Tick and
+ * Paint carry the stage times of GameWorld.STAGE_* and GameRenderer.STAGE_*,
+ * in nanoseconds.
+ */
+public final class GameEvents {
+    static final String CATEGORY = "Dodge Adventure";
+
+    private GameEvents() { }
+
+    @Name("dodge.Tick")
+    @Label("Tick")
+    @Description("One simulation step of a GameWorld")
+    @Category({ CATEGORY, "Simulation" })
+    @StackTrace(false)
+    public static final class Tick extends Event {
+        @Label("Tick Number") public long tick;
+        @Label("Level") public int level;
+        @Label("Boss") @Description("Boss level 1-4, 0 when there is none") public int boss;
+        @Label("Projectiles") public int projectiles;
+        @Label("Particles") public int particles;
+        @Label("Items") public int items;
+        @Label("Damage Numbers") public int damageNumbers;
+        @Label("Input") @Timespan public long input;
+        @Label("Boss Attack") @Timespan public long bossAttack;
+        @Label("Move") @Timespan public long move;
+        @Label("Collide") @Timespan public long collide;
+        @Label("Items Update") @Timespan public long itemsUpdate;
+        @Label("Particles Update") @Timespan public long particlesUpdate;
+    }
+
+    @Name("dodge.Volley")
+    @Label("Boss Volley")
+    @Description("Bullets fired by one run of a boss's pattern")
+    @Category({ CATEGORY, "Simulation" })
+    @StackTrace(false)
+    public static final class Volley extends Event {
+        @Label("Boss") public int boss;
+        @Label("Bullets") public int bullets;
+        @Label("Projectiles") @Description("Projectiles alive after the volley") public int projectiles;
+    }
+
+    @Name("dodge.LevelTransition")
+    @Label("Level Transition")
+    @Description("A boss was defeated")
+    @Category({ CATEGORY, "Simulation" })
+    @StackTrace(false)
+    public static final class LevelTransition extends Event {
+        @Label("From Level") public int fromLevel;
+        @Label("To Level") public int toLevel;
+        @Label("Next Boss") @Description("0 when the run was won") public int nextBoss;
+        @Label("Score") public int score;
+        @Label("Tick Number") public long tick;
+    }
+
+    @Name("dodge.Sound")
+    @Label("Sound")
+    @Description("A sound effect was requested")
+    @Category({ CATEGORY, "Audio" })
+    @StackTrace(false)
+    public static final class Sound extends Event {
+        @Label("Name") public String name;
+        @Label("Played") @Description("False when the sound was unknown, disabled or still decoding")
+        public boolean played;
+    }
+
+    @Name("dodge.Paint")
+    @Label("Paint")
+    @Description("One GameRenderer.render() pass")
+    @Category({ CATEGORY, "Rendering" })
+    @StackTrace(false)
+    public static final class Paint extends Event {
+        @Label("Tick Number") @Description("Tick of the world that was drawn") public long tick;
+        @Label("Projectiles") public int projectiles;
+        @Label("Particles") public int particles;
+        @Label("Items") public int items;
+        @Label("Damage Numbers") public int damageNumbers;
+        @Label("Entities") @Timespan public long entities;
+        @Label("Projectiles Draw") @Timespan public long projectilesDraw;
+        @Label("Effects") @Timespan public long effects;
+        @Label("HUD") @Timespan public long hud;
+    }
+}
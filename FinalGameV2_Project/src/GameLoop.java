@@ -0,0 +1,107 @@
+package src;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * GameLoop runs the simulation on a dedicated thread with a fixed timestep.
+ * Elapsed real time is collected in an accumulator and consumed in whole
+ * ticks, so a slow paint or a GC pause delays rendering but never stretches
+ * simulation time. After each batch of ticks the frame callback is invoked
+ * and the renderer can read {@link #getAlpha()} to interpolate between the
+ * last two simulated states.
+ *
+ * The game is tuned for DEFAULT_TICK_RATE and only plays as designed at
+ * that rate. Speeds are pixels per tick, but fire rates and cooldowns are
+ * milliseconds of clock time, so at 120 Hz everything moves twice as fast
+ * while firing just as often. Other rates are a stress knob that changes
+ * the game, not a finer step of the same one.
+ */
+public class GameLoop implements Runnable {
+    public static final int DEFAULT_TICK_RATE = 60;
+    // Upper bound of catch-up ticks per frame so a long stall cannot snowball
+    private static final int MAX_TICKS_PER_FRAME = 8;
+
+    private final int tickRate;
+    private final long tickNanos;
+    private final Runnable tick;
+    private final Runnable frame;
+
+    private volatile boolean running = false;
+    private volatile double alpha = 0;
+    private volatile long tickCount = 0;
+    private Thread thread;
+
+    /**
+     * @param tickRate simulation ticks per second; see the class comment
+     *                 for what rates other than DEFAULT_TICK_RATE do
+     * @param tick     invoked once per fixed simulation step
+     * @param frame    invoked after each batch of ticks to request a render
+     */
+    public GameLoop(int tickRate, Runnable tick, Runnable frame) {
+        if (tickRate <= 0) {
+            throw new IllegalArgumentException("Tick rate must be positive: " + tickRate);
+        }
+        this.tickRate = tickRate;
+        this.tickNanos = 1_000_000_000L / tickRate;
+        this.tick = tick;
+        this.frame = frame;
+    }
+
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        thread = new Thread(this, "GameLoop");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+    }
+
+    @Override
+    public void run() {
+        long previous = System.nanoTime();
+        long accumulator = 0;
+
+        while (running) {
+            long now = System.nanoTime();
+            accumulator += now - previous;
+            previous = now;
+
+            int steps = 0;
+            while (accumulator >= tickNanos && steps < MAX_TICKS_PER_FRAME) {
+                tick.run();
+                tickCount++;
+                accumulator -= tickNanos;
+                steps++;
+            }
+            // Still behind after the catch-up limit: drop the backlog
+            if (accumulator >= tickNanos) {
+                accumulator %= tickNanos;
+            }
+
+            alpha = accumulator / (double) tickNanos;
+            frame.run();
+
+            // Sleep until the next tick is due
+            long wait = tickNanos - accumulator - (System.nanoTime() - previous);
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+        }
+    }
+
+    /**
+     * Fraction of a tick elapsed since the last simulated step, in [0, 1).
+     */
+    public double getAlpha() { return alpha; }
+    public long getTickCount() { return tickCount; }
+    public int getTickRate() { return tickRate; }
+    public long getTickNanos() { return tickNanos; }
+    public boolean isRunning() { return running; }
+}
@@ -1,88 +1,147 @@
 package src;
 
 import javax.swing.JPanel;
-import javax.swing.Timer;
+import java.awt.BorderLayout;
 import java.awt.Dimension;
 import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.Font;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Random;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * GamePanel is the main game surface. It manages the game loop,
- * keyboard input, updates, rendering, collision, and level progression.
+ * GamePanel is the main game surface. It shows the menus, turns keyboard
+ * input into GameWorld input bits and draws the world. The simulation runs
+ * on the GameLoop thread and key handling on the EDT, so the game state
+ * they share is guarded by stateLock. Painting never takes that lock:
+ * after each batch of ticks the loop thread copies what is drawn into a
+ * FrameSnapshot and publishes it through a triple buffer, and the render
+ * thread (the EDT, or the loop thread with active rendering) draws only
+ * the newest snapshot.
  */
-public class GamePanel extends JPanel implements ActionListener, KeyListener {
+public class GamePanel extends JPanel implements KeyListener {
     // Arena dimensions
-    public static final int WIDTH = 800;
-    public static final int HEIGHT = 600;
+    public static final int WIDTH = GameWorld.WIDTH;
+    public static final int HEIGHT = GameWorld.HEIGHT;
 
-    // Game loop timer (Swing Timer)
-    private final Timer timer;
+    // Fixed-timestep simulation loop (runs off the EDT)
+    private final GameLoop gameLoop;
+    // Guards game state shared between the loop thread and the EDT
+    private final Object stateLock = new Object();
+    // Tick rate of the loop, also used for the virtual clock of each run
+    private final int tickRate;
     
     // Audio manager for sound effects
     private final AudioManager audioManager;
 
-    // Game state
-    private Character player;
-    private Boss boss;
-    private final List<Projectile> projectiles = new ArrayList<>();
-    private final List<Item> items = new ArrayList<>();
-    private final List<DamageNumber> damageNumbers = new ArrayList<>();
-    private final List<Particle> particles = new ArrayList<>();
-    private final Random random = new Random();
+    // Simulation of the current run; null while a menu is showing
+    private GameWorld world;
+    private final RenderCache renderCache = new RenderCache();
+    private final GameRenderer renderer = new GameRenderer(renderCache);
+    // Menus only repaint after input changed them
+    private boolean menuDirty = true;
+    // Triple buffer of snapshots: the loop thread fills frames[back] and
+    // swaps it into ready, the render thread swaps ready for frames[front].
+    // ready holds an index, plus FRESH until the render thread takes it
+    private static final int FRESH = 4;
+    private final FrameSnapshot[] frames = { new FrameSnapshot(), new FrameSnapshot(), new FrameSnapshot() };
+    private final AtomicInteger ready = new AtomicInteger(1);
+    private int back = 0;
+    private int front = 2;
+    // Render thread only: the snapshot being drawn
+    private FrameSnapshot drawing = frames[front];
+    // Active-rendering surface, or null when painting through Swing
+    private final GameCanvas canvas;
+    private long lastIdleFrameNanos = 0;
+    // Records the run when -Ddodge.replay=<file> is set; null otherwise
+    private ReplayRecorder recorder;
+    // Broadcasts every tick to spectators when -Ddodge.spectatorPort=<port> is set; null otherwise
+    private final SpectatorServer spectators;
+    // Finished runs are ranked here; -Ddodge.leaderboard=<dir>, null if it could not be opened
+    private final Leaderboard leaderboard;
+    // Only thread that touches the leaderboard after startup, so the loop
+    // never waits for a record to reach the disk; null with no leaderboard
+    private final ExecutorService leaderboardWriter;
+    // Leaderboard rank of the finished run: 0 until handed to the writer,
+    // -1 while it is being recorded or if it could not be
+    private int runRank = 0;
+    // Runs on the finished run's board, once runRank is known
+    private int rankBoardSize = 0;
+    // Saves the run in progress every few seconds to -Ddodge.saveDir=<dir>; null if unavailable
+    private static final int CHECKPOINT_SECONDS = 5;
+    private final File saveDir = new File(System.getProperty("dodge.saveDir", "saves"));
+    private final CheckpointWriter checkpoints;
+    private int ticksSinceCheckpoint = 0;
+    // Run that can be continued from the mode menu, or null
+    private Checkpoint savedRun;
+    // Practice runs keep the last REWIND_SECONDS in rewind (null otherwise);
+    // they are not ranked, checkpointed or recorded as replays
+    private static final int REWIND_SECONDS = 10;
+    private static final Font PRACTICE_FONT = new Font("Arial", Font.BOLD, 14);
+    private static final Color PRACTICE_COLOR = new Color(200, 200, 255);
+    private boolean practiceMode = false;
+    private RewindBuffer rewind;
+    // Allocated by the first practice run and reused after that
+    private RewindBuffer rewindBuffer;
+    private boolean rewinding = false;
+    // F3 overlay; the profilers only record while it is showing
+    private final StageProfiler tickProfiler = GameWorld.newProfiler();
+    private final StageProfiler paintProfiler = GameRenderer.newProfiler();
+    private final PerfOverlay perfOverlay;
+    private boolean showPerf = false;
 
-    private int level = 1;
-    private boolean running = true;
     private boolean selectingCharacter = true;
     private boolean selectingMode = false;
     private boolean selectingDifficulty = false;
     private boolean paused = false;
     
-    // Screen shake effect
-    private int shakeOffsetX = 0;
-    private int shakeOffsetY = 0;
-    private long shakeUntilMs = 0;
-    
-    // Game modes
+    // Game modes chosen in the menus
     private boolean endlessMode = false;
     private String difficulty = "MEDIUM"; // EASY, MEDIUM, NIGHTMARE
-    
-    // Scoring system
-    private int score = 0;
-    private double scoreMultiplier = 1.0;
-    // Hit indicator timing
-    private long playerHitFlashUntilMs = 0;
-    // Shield immunity timing
-    private long shieldUntilMs = 0;
-    // Explosion effect timing
-    private long explosionUntilMs = 0;
-    private int explosionX = 0;
-    private int explosionY = 0;
-    // Deflection effect timing
-    private long deflectionUntilMs = 0;
-    private int deflectionX = 0;
-    private int deflectionY = 0;
-    // Item spawn timing
-    private long lastItemSpawnMs = System.currentTimeMillis();
-    private long nextItemSpawnMs = System.currentTimeMillis() + getRandomSpawnDelay();
+
+    // Game-over screen
+    private static final Font END_TITLE_FONT = new Font("Arial", Font.BOLD, 32);
+    private static final Font END_SCORE_FONT = new Font("Arial", Font.BOLD, 24);
+    private static final Font END_INFO_FONT = new Font("Arial", Font.PLAIN, 16);
+    private static final Font END_RESTART_FONT = new Font("Arial", Font.PLAIN, 18);
+    private static final Color END_BACKDROP_COLOR = new Color(0, 0, 0, 180);
+    private static final Color END_SCORE_COLOR = new Color(255, 220, 100);
+    private static final Color END_RESTART_COLOR = new Color(200, 200, 200);
 
     // Input state
     private boolean up, down, left, right, attacking, dashing;
 
     public GamePanel() {
+        this(false);
+    }
+
+    /**
+     * @param activeRendering draw from the loop thread into a GameCanvas
+     *                        instead of repainting through Swing
+     */
+    public GamePanel(boolean activeRendering) {
         setPreferredSize(new Dimension(WIDTH, HEIGHT));
         setBackground(Color.BLACK);
         setFocusable(true);
         addKeyListener(this);
 
+        if (activeRendering) {
+            // 2 = double, 3 = triple buffering
+            int buffers = Integer.getInteger("dodge.buffers", 2);
+            canvas = new GameCanvas(WIDTH, HEIGHT, buffers, this::renderFrame);
+            canvas.addKeyListener(this);
+            setLayout(new BorderLayout());
+            add(canvas, BorderLayout.CENTER);
+        } else {
+            canvas = null;
+        }
+
         // Start with mode selection, don't spawn boss yet
         selectingMode = true;
         selectingCharacter = false;
@@ -90,507 +149,397 @@ public class GamePanel extends JPanel implements ActionListener, KeyListener {
         // Initialize audio manager
         audioManager = new AudioManager();
 
-        // 60 FPS equivalent ~16ms
-        timer = new Timer(16, this);
-        timer.start();
-    }
+        spectators = startSpectatorServer();
+        leaderboard = openLeaderboard();
+        leaderboardWriter = leaderboard != null ? Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "leaderboard-writer");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+        checkpoints = openCheckpointWriter();
+        savedRun = Checkpoint.load(saveDir);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::saveOnExit, "save-on-exit"));
 
-    private void spawnBossForLevel(int lvl) {
-        int cx = WIDTH / 2 - 40;
-        int cy = HEIGHT / 2 - 40;
-        switch (lvl) {
-            case 1:
-                boss = new Level1Boss(cx, cy);
-                break;
-            case 2:
-                boss = new Level2Boss(cx, cy);
-                break;
-            case 3:
-                boss = new Level3Boss(cx, cy);
-                break;
-            default:
-                boss = new Level4Boss(cx, cy);
-                break;
+        // Stress knob, e.g. -Ddodge.tickRate=240: movement is per tick but
+        // cooldowns are in milliseconds, so other rates change the game
+        tickRate = Integer.getInteger("dodge.tickRate", GameLoop.DEFAULT_TICK_RATE);
+        if (tickRate != GameLoop.DEFAULT_TICK_RATE) {
+            System.err.println("Running at " + tickRate + " Hz: the game is tuned for "
+                    + GameLoop.DEFAULT_TICK_RATE + " Hz and plays faster or slower; runs are not ranked");
         }
+        tickProfiler.setEnabled(false);
+        paintProfiler.setEnabled(false);
+        renderer.setProfiler(paintProfiler);
+        perfOverlay = new PerfOverlay(tickProfiler, paintProfiler, tickRate);
+        publishFrame(0);
+        gameLoop = new GameLoop(tickRate, this::tick, this::requestFrame);
+        gameLoop.start();
     }
 
-    private void spawnDefaultPlayer() {
-        // Default spawn point near bottom center
-        int px = WIDTH / 2 - 20;
-        int py = HEIGHT - 100;
-        // If none selected yet, choose Warrior
-        if (player == null) {
-            player = new Warrior(px, py);
+    // One fixed simulation step, called from the GameLoop thread
+    private void tick() {
+        synchronized (stateLock) {
+            if (tickProfiler.isEnabled() != showPerf) {
+                tickProfiler.setEnabled(showPerf);
+            }
+            // No update until a character is selected
+            if (world == null || paused) return;
+            if (rewinding && rewind != null) {
+                rewind.stepBack(world);
+            } else if (recorder != null) {
+                recorder.step(world, inputMask());
+                if (!world.isRunning()) recorder.save();
+            } else {
+                long before = world.getClock().getTick();
+                world.setInput(inputMask());
+                world.step();
+                if (rewind != null && world.getClock().getTick() != before) rewind.record(world);
+            }
+            if (spectators != null) {
+                spectators.publish(world);
+            }
+            if (practiceMode) return;
+            if (checkpoints != null && world.isRunning() && ++ticksSinceCheckpoint >= tickRate * CHECKPOINT_SECONDS) {
+                ticksSinceCheckpoint = 0;
+                if (world.getClock() instanceof VirtualClock) checkpoints.checkpoint(world);
+            }
+            if (!world.isRunning() && runRank == 0) {
+                recordRun();
+                if (checkpoints != null) checkpoints.clear();
+            }
         }
     }
 
-    @Override
-    public void actionPerformed(ActionEvent e) {
-        if (!running) return;
-        if (paused) { repaint(); return; }
-
-        if (selectingCharacter) {
-            // No update until character selected
-            repaint();
-            return;
+    private CheckpointWriter openCheckpointWriter() {
+        try {
+            return new CheckpointWriter(saveDir);
+        } catch (IOException e) {
+            System.err.println("Checkpoints disabled: " + e.getMessage());
+            return null;
         }
-
-        updateGame();
-        repaint();
     }
 
-    private void updateGame() {
-        // Move player based on input
-        if (player != null) {
-            // Handle dash input
-            if (dashing && player.canDash()) {
-                int dx = 0, dy = 0;
-                if (up) dy -= 1;
-                if (down) dy += 1;
-                if (left) dx -= 1;
-                if (right) dx += 1;
-                
-                // Normalize direction if moving diagonally
-                if (dx != 0 || dy != 0) {
-                    double len = Math.sqrt(dx * dx + dy * dy);
-                    player.startDash(dx / len, dy / len);
-                    audioManager.playSound("dash"); // Dash sound effect
-                }
-                dashing = false; // Reset dash input
-            }
-            
-            // Update dash movement with collision check
-            if (player.isDashing()) {
-                int prevX = player.getX();
-                int prevY = player.getY();
-                player.updateDash(WIDTH, HEIGHT);
-                // Prevent dashing into boss
-                if (boss != null && collidesPlayerBoss(player, boss)) {
-                    player.setX(prevX);
-                    player.setY(prevY);
-                }
-            }
-            
-            // Regular movement only if not dashing
-            if (!player.isDashing()) {
-                int prevX = player.getX();
-                int prevY = player.getY();
-                int dx = 0, dy = 0;
-                if (up) dy -= 1;
-                if (down) dy += 1;
-                if (left) dx -= 1;
-                if (right) dx += 1;
-                player.move(dx, dy, WIDTH, HEIGHT);
-                // Prevent overlapping with boss
-                if (boss != null && collidesPlayerBoss(player, boss)) {
-                    player.setX(prevX);
-                    player.setY(prevY);
-                }
-            }
+    // Shutdown hook: closing the window saves the run as it is rather than
+    // as of the last checkpoint, and closes the leaderboard so the next
+    // start maps its indexes instead of reading the log
+    private void saveOnExit() {
+        if (checkpoints != null) {
+            checkpointOnExit();
         }
-
-        // Boss attacks periodically and adds projectiles
-        if (boss != null) {
-            boss.updateWeakPoint();
-            boss.attackPattern(projectiles, player);
+        if (leaderboard != null) {
+            closeLeaderboard();
         }
+    }
 
-        // Mage ranged attack: allow firing anytime while attacking
-        if (attacking && player instanceof Mage && boss != null) {
-            Mage m = (Mage) player;
-            if (m.canAttack()) {
-                audioManager.playSound("mage");
-                double sx = m.getX() + m.getWidth() / 2.0;
-                double sy = m.getY() + m.getHeight() / 2.0;
-                double bx = boss.getX() + boss.getSize() / 2.0;
-                double by = boss.getY() + boss.getSize() / 2.0;
-                double dx = bx - sx;
-                double dy = by - sy;
-                double len = Math.max(1, Math.hypot(dx, dy));
-                double speed = 6.0;
-                double vx = dx / len * speed;
-                double vy = dy / len * speed;
-                projectiles.add(new PlayerProjectile(sx, sy, vx, vy, m.getAttackPower()));
-                m.markAttack();
+    private void checkpointOnExit() {
+        synchronized (stateLock) {
+            if (world == null || !world.isRunning() || !(world.getClock() instanceof VirtualClock)) return;
+            try {
+                checkpoints.checkpointNow(world);
+            } catch (IOException e) {
+                System.err.println("Could not save the run: " + e.getMessage());
             }
         }
+    }
 
-        // Update projectiles
-        Iterator<Projectile> it = projectiles.iterator();
-        while (it.hasNext()) {
-            Projectile p = it.next();
-            p.move();
-            // Remove if out of bounds
-            if (p.getX() < -50 || p.getX() > WIDTH + 50 || p.getY() < -50 || p.getY() > HEIGHT + 50) {
-                it.remove();
-                continue;
-            }
-            // Collision with player (ignore player projectiles and shield immunity)
-            if (!(p instanceof PlayerProjectile) && player != null && p.collidesWith(player)) {
-                long currentTime = System.currentTimeMillis();
-                // Invincible during dash or shield
-                if (currentTime >= shieldUntilMs && !player.isDashing()) {
-                    // Only take damage if shield is not active and not dashing
-                    player.setHealth(player.getHealth() - p.getDamage());
-                    audioManager.playSound("damage");
-                    // Trigger hit flash indicator for a short duration
-                    playerHitFlashUntilMs = currentTime + 200; // 200ms flash
-                }
-                it.remove();
-            }
-
-            // Player projectile hits boss (mage only damages when weak point is open)
-            if (p instanceof PlayerProjectile && boss != null) {
-                PlayerProjectile pp = (PlayerProjectile) p;
-                if (pp.collidesWithBoss(boss)) {
-                    if (boss.isWeakPointActive()) {
-                        int damage = pp.getDamage();
-                        boss.setHealth(boss.getHealth() - damage);
-                        audioManager.playSound("boss_hit");
-                        // Add damage number
-                        damageNumbers.add(new DamageNumber(damage, 
-                            boss.getX() + boss.getSize() / 2.0, 
-                            boss.getY() + boss.getSize() / 2.0));
-                        // Screen shake
-                        shakeUntilMs = System.currentTimeMillis() + 100;
-                        // Award score for hitting boss
-                        score += (int)(10 * scoreMultiplier);
-                    }
-                    it.remove();
-                }
+    private void closeLeaderboard() {
+        // A run still being recorded is finished first
+        leaderboardWriter.shutdown();
+        try {
+            if (leaderboardWriter.awaitTermination(2, TimeUnit.SECONDS)) {
+                leaderboard.close();
             }
+        } catch (InterruptedException | IOException e) {
+            System.err.println("Could not close the leaderboard: " + e.getMessage());
         }
+    }
 
-        // Player attack via weapon hit detection
-        updatePlayerAttack();
-
-        // Check win/loss
-        if (player != null && player.getHealth() <= 0) {
-            audioManager.playSound("lose");
-            running = false; // Game over
+    private static Leaderboard openLeaderboard() {
+        File dir = new File(System.getProperty("dodge.leaderboard", Leaderboard.DEFAULT_DIR));
+        try {
+            return new Leaderboard(dir);
+        } catch (IOException e) {
+            System.err.println("Leaderboard disabled: " + e.getMessage());
+            return null;
         }
-        if (boss != null && boss.getHealth() <= 0) {
-            // Award bonus score for defeating boss
-            score += (int)(level * 100 * scoreMultiplier);
-            
-            level++;
-            if (!endlessMode && level > 4) {
-                audioManager.playSound("won");
-                running = false; // Game win (levels mode only)
-            } else {
-                audioManager.playSound("level_next");
-                projectiles.clear();
-                items.clear(); // Clear items on level transition
-                
-                // In endless mode, cycle through boss types
-                if (endlessMode) {
-                    int bossType = ((level - 1) % 4) + 1;
-                    spawnBossForLevel(bossType);
-                } else {
-                    spawnBossForLevel(level);
+    }
+
+    // Hand the finished run to the writer; the rank comes back once the
+    // record is on disk, unless another run has started by then. Runs at
+    // another tick rate played a different game and are not recorded
+    private void recordRun() {
+        runRank = -1;
+        if (leaderboard == null || tickRate != GameLoop.DEFAULT_TICK_RATE) return;
+        GameWorld finished = world;
+        int board = Leaderboard.boardFor(world.isEndlessMode(), world.getDifficulty());
+        int characterType = world.getCharacterType();
+        int level = world.getLevel();
+        int score = world.getScore();
+        long timeMs = System.currentTimeMillis();
+        leaderboardWriter.execute(() -> {
+            try {
+                int rank = leaderboard.record(board, characterType, level, score, timeMs);
+                int size = leaderboard.size(board);
+                synchronized (stateLock) {
+                    if (world == finished) {
+                        runRank = rank;
+                        rankBoardSize = size;
+                    }
                 }
-                
-                // Slight heal/reposition player
-                player.setHealth(Math.min(player.getMaxHealth(), player.getHealth() + 20));
-                player.setX(WIDTH / 2 - player.getWidth() / 2);
-                player.setY(HEIGHT - 100);
-                // Reset item spawn timer
-                lastItemSpawnMs = System.currentTimeMillis();
-                nextItemSpawnMs = System.currentTimeMillis() + getRandomSpawnDelay();
+            } catch (IOException e) {
+                System.err.println("Could not save the score: " + e.getMessage());
             }
-        }
+        });
+    }
 
-        // Item spawning at random intervals (no max limit)
-        long now = System.currentTimeMillis();
-        if (now >= nextItemSpawnMs) {
-            spawnRandomItem();
-            lastItemSpawnMs = now;
-            nextItemSpawnMs = now + getRandomSpawnDelay();
+    private static SpectatorServer startSpectatorServer() {
+        Integer port = Integer.getInteger("dodge.spectatorPort");
+        if (port == null) return null;
+        try {
+            SpectatorServer server = new SpectatorServer(port);
+            System.out.println("Spectators can watch on TCP port " + server.getPort());
+            return server;
+        } catch (IOException e) {
+            System.err.println("Spectator broadcast disabled: " + e.getMessage());
+            return null;
         }
+    }
 
-        // Item collision and pickup
-        Iterator<Item> itemIt = items.iterator();
-        while (itemIt.hasNext()) {
-            Item item = itemIt.next();
-            if (player != null && item.collidesWith(player)) {
-                if (item instanceof BombItem) {
-                    audioManager.playSound("boom");
-                    // Trigger hit flash when bomb damages player
-                    playerHitFlashUntilMs = System.currentTimeMillis() + 300;
-                    // Trigger explosion animation and screen shake
-                    explosionUntilMs = System.currentTimeMillis() + 500;
-                    shakeUntilMs = System.currentTimeMillis() + 300;
-                    explosionX = item.getX();
-                    explosionY = item.getY();
-                } else {
-                    audioManager.playSound("pick_uped");
-                    if (item instanceof ShieldItem) {
-                        // Activate shield for 5 seconds
-                        shieldUntilMs = System.currentTimeMillis() + 5000;
-                    }
-                }
-                item.applyEffect(player, projectiles);
-                itemIt.remove();
+    // Frame callback from the GameLoop thread: publish a snapshot and paint
+    // it, skipping both while a menu sits idle
+    private void requestFrame() {
+        boolean changed;
+        synchronized (stateLock) {
+            changed = world != null || menuDirty;
+            menuDirty = false;
+            if (changed) {
+                publishFrame(gameLoop.getAlpha());
             }
         }
-        
-        // Update damage numbers
-        Iterator<DamageNumber> dnIt = damageNumbers.iterator();
-        while (dnIt.hasNext()) {
-            DamageNumber dn = dnIt.next();
-            dn.update();
-            if (dn.isExpired()) {
-                dnIt.remove();
-            }
+        if (canvas != null) {
+            presentActiveFrame(changed);
+        } else if (changed) {
+            repaint();
         }
-        
-        // Update particles
-        Iterator<Particle> partIt = particles.iterator();
-        while (partIt.hasNext()) {
-            Particle p = partIt.next();
-            p.update();
-            if (p.isExpired()) {
-                partIt.remove();
-            }
+    }
+
+    // Loop thread, holding stateLock (or the constructor, before the loop starts)
+    private void publishFrame(double interpolation) {
+        FrameSnapshot frame = frames[back];
+        frame.copyWorld(world);
+        frame.interpolation = interpolation;
+        frame.selectingCharacter = selectingCharacter;
+        frame.selectingMode = selectingMode;
+        frame.selectingDifficulty = selectingDifficulty;
+        frame.paused = paused;
+        frame.showPerf = showPerf;
+        frame.savedRun = savedRun;
+        frame.practice = rewind != null;
+        frame.rewinding = rewinding;
+        frame.rewindSteps = rewind != null ? rewind.getSteps() : 0;
+        frame.runRank = runRank;
+        frame.rankBoardSize = rankBoardSize;
+        back = ready.getAndSet(back | FRESH) & ~FRESH;
+    }
+
+    // Render thread: switch to the newest published snapshot, if any
+    private FrameSnapshot acquireFrame() {
+        if ((ready.get() & FRESH) != 0) {
+            front = ready.getAndSet(front) & ~FRESH;
         }
-        
-        // Spawn particle trails for projectiles
-        if (random.nextInt(3) == 0) { // Not every frame to avoid too many particles
-            for (Projectile p : projectiles) {
-                Color trailColor = (p instanceof PlayerProjectile) ? 
-                    new Color(255, 200, 100) : new Color(200, 50, 50);
-                particles.add(Particle.createTrailParticle(
-                    p.getX() + p.getSize() / 2.0, 
-                    p.getY() + p.getSize() / 2.0, 
-                    trailColor
-                ));
+        return frames[front];
+    }
+
+    // Active path: render on this thread. An idle menu is still redrawn a
+    // few times a second because AWT no longer repaints the canvas after
+    // it is uncovered.
+    private void presentActiveFrame(boolean changed) {
+        long now = System.nanoTime();
+        if (!changed && now - lastIdleFrameNanos < 250_000_000L) return;
+        if (canvas.present()) {
+            lastIdleFrameNanos = now;
+        } else if (changed) {
+            // Not on screen yet; try again next frame
+            synchronized (stateLock) {
+                menuDirty = true;
             }
         }
-        
-        // Update screen shake
-        if (System.currentTimeMillis() < shakeUntilMs) {
-            shakeOffsetX = random.nextInt(11) - 5; // -5 to +5
-            shakeOffsetY = random.nextInt(11) - 5;
-        } else {
-            shakeOffsetX = 0;
-            shakeOffsetY = 0;
+    }
+
+    private void renderFrame(Graphics g) {
+        drawing = acquireFrame();
+        // The paint profiler is only touched on the render thread
+        if (paintProfiler.isEnabled() != drawing.showPerf) {
+            paintProfiler.setEnabled(drawing.showPerf);
         }
+        render(g);
+    }
+
+    @Override
+    public boolean requestFocusInWindow() {
+        // Key events go to the canvas when it covers the panel
+        if (canvas != null) return canvas.requestFocusInWindow();
+        return super.requestFocusInWindow();
+    }
+
+    public GameCanvas getCanvas() { return canvas; }
+
+    private int inputMask() {
+        int mask = 0;
+        if (up) mask |= GameWorld.INPUT_UP;
+        if (down) mask |= GameWorld.INPUT_DOWN;
+        if (left) mask |= GameWorld.INPUT_LEFT;
+        if (right) mask |= GameWorld.INPUT_RIGHT;
+        if (attacking) mask |= GameWorld.INPUT_ATTACK;
+        if (dashing) mask |= GameWorld.INPUT_DASH;
+        return mask;
     }
 
-    // Rectangle (player) vs circle (boss) collision check
-    private boolean collidesPlayerBoss(Character c, Boss b) {
-        int cx = c.getX();
-        int cy = c.getY();
-        int cw = c.getWidth();
-        int ch = c.getHeight();
-        int bx = b.getX() + b.getSize() / 2;
-        int by = b.getY() + b.getSize() / 2;
-        int radius = b.getSize() / 2;
-        // Closest point on rect to circle center
-        int closestX = Math.max(cx, Math.min(bx, cx + cw));
-        int closestY = Math.max(cy, Math.min(by, cy + ch));
-        int dx = bx - closestX;
-        int dy = by - closestY;
-        return (dx * dx + dy * dy) < (radius * radius);
+    // Virtual time by default so timers follow ticks; -Ddodge.clock=real follows the wall clock
+    private GameClock newClock() {
+        if ("real".equals(System.getProperty("dodge.clock"))) {
+            return new RealTimeClock();
+        }
+        return new VirtualClock(1_000_000_000L / tickRate);
     }
 
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
-        
+        if (canvas != null) return;
+        renderFrame(g);
+    }
+
+    private void render(Graphics g) {
+        GameWorld world = drawing.view;
         // Apply screen shake offset
-        g.translate(shakeOffsetX, shakeOffsetY);
+        if (world != null) {
+            g.translate(world.getShakeOffsetX(), world.getShakeOffsetY());
+        }
 
         // Draw arena boundary
         g.setColor(Color.DARK_GRAY);
         g.fillRect(40, 40, WIDTH - 80, HEIGHT - 80);
 
+        // Menu screens are static, so each is rasterized once and blitted
         // Character selection overlay
-        if (selectingCharacter) {
-            drawCharacterSelection(g);
+        if (drawing.selectingCharacter) {
+            renderCache.drawLayer(g, "menu.character", 0, 0, 0, WIDTH, HEIGHT, this::drawCharacterSelection);
             return;
         }
         
         // Mode selection overlay
-        if (selectingMode) {
-            drawModeSelection(g);
+        if (drawing.selectingMode) {
+            renderCache.drawLayer(g, "menu.mode", drawing.savedRun != null ? 1 : 0, 0, 0, WIDTH, HEIGHT, this::drawModeSelection);
             return;
         }
         
         // Difficulty selection overlay (for endless mode)
-        if (selectingDifficulty) {
-            drawDifficultySelection(g);
+        if (drawing.selectingDifficulty) {
+            renderCache.drawLayer(g, "menu.difficulty", 0, 0, 0, WIDTH, HEIGHT, this::drawDifficultySelection);
             return;
         }
+        if (world == null) return;
 
-        // Draw player
-        if (player != null) {
-            // If recently hit, draw a flashing overlay
-            boolean flashing = System.currentTimeMillis() < playerHitFlashUntilMs;
-            boolean shielded = System.currentTimeMillis() < shieldUntilMs;
-            boolean isDashing = player.isDashing();
-            
-            // Draw dash trail effect
-            if (isDashing) {
-                g.setColor(new Color(255, 255, 255, 100));
-                int trailSize = 8;
-                g.fillRect(player.getX() - trailSize/2, player.getY() - trailSize/2, 
-                          player.getWidth() + trailSize, player.getHeight() + trailSize);
-            }
-            
-            player.draw(g);
-            
-            if (flashing) {
-                g.setColor(new Color(255, 0, 0, 120));
-                g.fillRect(player.getX(), player.getY(), player.getWidth(), player.getHeight());
-            }
-            if (shielded) {
-                // Draw pulsing shield aura around player
-                g.setColor(new Color(100, 200, 255, 80));
-                int pulseSize = (int)(Math.sin(System.currentTimeMillis() * 0.01) * 3 + 5);
-                g.fillRect(player.getX() - pulseSize, player.getY() - pulseSize, 
-                          player.getWidth() + pulseSize * 2, player.getHeight() + pulseSize * 2);
-            }
-            // Draw weapon aimed at boss; highlight when attacking
-            player.drawWeapon(g, boss, attacking);
-        }
+        renderer.render(g, world, drawing.interpolation);
 
-        // Draw boss
-        if (boss != null) {
-            boss.draw(g);
-            
-            // Draw glowing effect around boss when weak point is active
-            if (boss.isWeakPointActive()) {
-                // Pulsing glow
-                double pulse = Math.sin(System.currentTimeMillis() * 0.01) * 0.5 + 0.5;
-                int glowAlpha = (int)(150 * pulse);
-                g.setColor(new Color(255, 255, 0, glowAlpha));
-                int glowSize = (int)(boss.getSize() + 20 + pulse * 10);
-                int bossCenterX = boss.getX() + boss.getSize() / 2;
-                int bossCenterY = boss.getY() + boss.getSize() / 2;
-                g.fillOval(bossCenterX - glowSize / 2, bossCenterY - glowSize / 2, glowSize, glowSize);
-            }
+        // Rewind status above the controls line
+        if (drawing.practice) {
+            long version = (long) drawing.rewindSteps / tickRate * 2 + (drawing.rewinding ? 1 : 0);
+            renderCache.drawLayer(g, "hud.practice", version, 40, HEIGHT - 62, 420, 22, this::drawPracticeStatus);
         }
 
-        // Draw projectiles
-        for (Projectile p : projectiles) {
-            p.draw(g);
+        // End messages
+        if (!world.isRunning()) {
+            long version = ((long) drawing.runRank << 32) | (world.getScore() * 2L + (world.isWon() ? 1 : 0))
+                    | (drawing.practice ? 1L << 62 : 0);
+            renderCache.drawLayer(g, "overlay.end", version, WIDTH / 2 - 250, HEIGHT / 2 - 80, 500, 160,
+                    this::drawEndMessage);
         }
 
-        // Draw items
-        for (Item item : items) {
-            item.draw(g);
+        // Pause overlay
+        if (drawing.paused && world.isRunning()) {
+            renderCache.drawLayer(g, "overlay.pause", 0, 40, 40, WIDTH - 80, HEIGHT - 80, this::drawPauseOverlay);
         }
 
-        // Draw explosion effect if active
-        long currentTime = System.currentTimeMillis();
-        if (currentTime < explosionUntilMs) {
-            long elapsed = currentTime - (explosionUntilMs - 500);
-            double progress = elapsed / 500.0;
-            int explosionSize = (int)(progress * 80);
-            int alpha = (int)((1.0 - progress) * 200);
-            
-            // Outer explosion (orange)
-            g.setColor(new Color(255, 100, 0, Math.max(0, alpha)));
-            g.fillOval(explosionX - explosionSize/2, explosionY - explosionSize/2, explosionSize, explosionSize);
-            
-            // Inner explosion (yellow)
-            g.setColor(new Color(255, 255, 0, Math.max(0, alpha + 55)));
-            int innerSize = explosionSize * 2 / 3;
-            g.fillOval(explosionX - innerSize/2, explosionY - innerSize/2, innerSize, innerSize);
-            
-            // Core (white)
-            g.setColor(new Color(255, 255, 255, Math.max(0, alpha + 55)));
-            int coreSize = explosionSize / 3;
-            g.fillOval(explosionX - coreSize/2, explosionY - coreSize/2, coreSize, coreSize);
-        }
-        
-        // Draw deflection spark effect if active
-        if (currentTime < deflectionUntilMs) {
-            long elapsed = currentTime - (deflectionUntilMs - 200);
-            double progress = elapsed / 200.0;
-            int sparkSize = (int)((1.0 - progress) * 30);
-            int alpha = (int)((1.0 - progress) * 255);
-            
-            // Draw spark burst (cyan/white for deflection)
-            g.setColor(new Color(100, 255, 255, Math.max(0, alpha)));
-            g.fillOval(deflectionX - sparkSize/2, deflectionY - sparkSize/2, sparkSize, sparkSize);
-            
-            // Draw cross pattern for impact effect
-            g.setColor(new Color(255, 255, 255, Math.max(0, alpha)));
-            int lineLen = sparkSize / 2;
-            g.drawLine(deflectionX - lineLen, deflectionY, deflectionX + lineLen, deflectionY);
-            g.drawLine(deflectionX, deflectionY - lineLen, deflectionX, deflectionY + lineLen);
+        if (drawing.showPerf) {
+            // Undo the screen shake so the overlay holds still
+            g.translate(-world.getShakeOffsetX(), -world.getShakeOffsetY());
+            perfOverlay.draw(g, world, WIDTH);
         }
+    }
+
+    private void drawEndMessage(Graphics g) {
+        GameWorld world = drawing.view;
+        int runRank = drawing.runRank;
+        TextRenderer text = renderer.getTextRenderer();
+        g.setColor(END_BACKDROP_COLOR);
+        g.fillRect(WIDTH / 2 - 250, HEIGHT / 2 - 80, 500, 160);
         
-        // Draw particles
-        for (Particle particle : particles) {
-            particle.draw(g);
-        }
+        TextRenderer.Strip title = text.strip(END_TITLE_FONT, Color.WHITE);
+        String msg = world.isWon() ? "You Win!" : "Game Over!";
+        int msgWidth = title.stringWidth(msg);
+        title.drawString(g, msg, WIDTH / 2 - msgWidth / 2, HEIGHT / 2 - 30);
         
-        // Draw damage numbers
-        for (DamageNumber dn : damageNumbers) {
-            dn.draw(g);
-        }
+        // Show final score
+        TextRenderer.Strip score = text.strip(END_SCORE_FONT, END_SCORE_COLOR);
+        int scoreWidth = score.stringWidth("Final Score: ") + score.numberWidth(world.getScore());
+        int x = WIDTH / 2 - scoreWidth / 2;
+        x += score.drawString(g, "Final Score: ", x, HEIGHT / 2 + 10);
+        score.drawNumber(g, world.getScore(), x, HEIGHT / 2 + 10);
 
-        // Draw shield timer above player if active
-        if (player != null && currentTime < shieldUntilMs) {
-            long timeLeft = (shieldUntilMs - currentTime) / 1000 + 1; // Round up
-            g.setColor(new Color(100, 200, 255));
-            g.setFont(new Font("Arial", Font.BOLD, 16));
-            String timerText = "Shield: " + timeLeft + "s";
-            int textWidth = g.getFontMetrics().stringWidth(timerText);
-            int textX = player.getX() + player.getWidth() / 2 - textWidth / 2;
-            int textY = player.getY() - 8;
-            
-            // Background for readability
-            g.setColor(new Color(0, 0, 0, 150));
-            g.fillRect(textX - 3, textY - 14, textWidth + 6, 18);
-            
-            // Timer text
-            g.setColor(new Color(150, 220, 255));
-            g.drawString(timerText, textX, textY);
+        // Leaderboard rank
+        TextRenderer.Strip info = text.strip(END_INFO_FONT, Color.WHITE);
+        if (runRank > 0) {
+            int board = Leaderboard.boardFor(world.isEndlessMode(), world.getDifficulty());
+            String boardName = Leaderboard.BOARD_NAMES[board];
+            int rankWidth = info.stringWidth("Rank # of  ()") + info.numberWidth(runRank)
+                    + info.numberWidth(drawing.rankBoardSize) + info.stringWidth(boardName);
+            x = WIDTH / 2 - rankWidth / 2;
+            x += info.drawString(g, "Rank #", x, HEIGHT / 2 + 36);
+            x += info.drawNumber(g, runRank, x, HEIGHT / 2 + 36);
+            x += info.drawString(g, " of ", x, HEIGHT / 2 + 36);
+            x += info.drawNumber(g, drawing.rankBoardSize, x, HEIGHT / 2 + 36);
+            x += info.drawString(g, " (", x, HEIGHT / 2 + 36);
+            x += info.drawString(g, boardName, x, HEIGHT / 2 + 36);
+            info.drawChar(g, ')', x, HEIGHT / 2 + 36);
+        } else if (drawing.practice) {
+            String rewindMsg = "Hold Backspace to rewind";
+            int rewindWidth = info.stringWidth(rewindMsg);
+            info.drawString(g, rewindMsg, WIDTH / 2 - rewindWidth / 2, HEIGHT / 2 + 36);
         }
+        
+        // Restart instruction
+        TextRenderer.Strip restart = text.strip(END_RESTART_FONT, END_RESTART_COLOR);
+        String restartMsg = "Press R to Restart";
+        int restartWidth = restart.stringWidth(restartMsg);
+        restart.drawString(g, restartMsg, WIDTH / 2 - restartWidth / 2, HEIGHT / 2 + 64);
+    }
 
-        // HUD
-        drawHUD(g);
-
-        // End messages
-        if (!running) {
-            g.setColor(new Color(0, 0, 0, 180));
-            g.fillRect(WIDTH / 2 - 250, HEIGHT / 2 - 80, 500, 160);
-            
-            g.setColor(Color.WHITE);
-            g.setFont(new Font("Arial", Font.BOLD, 32));
-            String msg = (endlessMode || level <= 4) ? "Game Over!" : "You Win!";
-            int msgWidth = g.getFontMetrics().stringWidth(msg);
-            g.drawString(msg, WIDTH / 2 - msgWidth / 2, HEIGHT / 2 - 30);
-            
-            // Show final score
-            g.setColor(new Color(255, 220, 100));
-            g.setFont(new Font("Arial", Font.BOLD, 24));
-            String scoreMsg = "Final Score: " + score;
-            int scoreWidth = g.getFontMetrics().stringWidth(scoreMsg);
-            g.drawString(scoreMsg, WIDTH / 2 - scoreWidth / 2, HEIGHT / 2 + 10);
-            
-            // Restart instruction
-            g.setColor(new Color(200, 200, 200));
-            g.setFont(new Font("Arial", Font.PLAIN, 18));
-            String restartMsg = "Press R to Restart";
-            int restartWidth = g.getFontMetrics().stringWidth(restartMsg);
-            g.drawString(restartMsg, WIDTH / 2 - restartWidth / 2, HEIGHT / 2 + 50);
+    private void drawPracticeStatus(Graphics g) {
+        int seconds = drawing.rewindSteps / tickRate;
+        int y = HEIGHT - 46;
+        if (drawing.rewinding) {
+            TextRenderer.Strip status = renderer.getTextRenderer().strip(PRACTICE_FONT, Color.CYAN);
+            int x = 50 + status.drawString(g, "<< REWINDING  (", 50, y);
+            x += status.drawNumber(g, seconds, x, y);
+            status.drawString(g, " s left)", x, y);
+        } else {
+            TextRenderer.Strip status = renderer.getTextRenderer().strip(PRACTICE_FONT, PRACTICE_COLOR);
+            int x = 50 + status.drawString(g, "Practice: hold Backspace to rewind (", 50, y);
+            x += status.drawNumber(g, seconds, x, y);
+            status.drawString(g, " s), Home to jump back", x, y);
         }
+    }
 
-        // Pause overlay
-        if (paused && running && !selectingCharacter) {
-            g.setColor(new Color(0, 0, 0, 150));
-            g.fillRect(40, 40, WIDTH - 80, HEIGHT - 80);
-            g.setColor(Color.WHITE);
-            g.setFont(new Font("Arial", Font.BOLD, 28));
-            g.drawString("Paused", WIDTH / 2 - 60, HEIGHT / 2 - 20);
-            g.setFont(new Font("Arial", Font.PLAIN, 18));
-            g.drawString("Press P to Resume | Press R to Restart", WIDTH / 2 - 190, HEIGHT / 2 + 20);
-        }
+    private void drawPauseOverlay(Graphics g) {
+        g.setColor(new Color(0, 0, 0, 150));
+        g.fillRect(40, 40, WIDTH - 80, HEIGHT - 80);
+        g.setColor(Color.WHITE);
+        g.setFont(new Font("Arial", Font.BOLD, 28));
+        g.drawString("Paused", WIDTH / 2 - 60, HEIGHT / 2 - 20);
+        g.setFont(new Font("Arial", Font.PLAIN, 18));
+        g.drawString("Press P to Resume | Press R to Restart", WIDTH / 2 - 190, HEIGHT / 2 + 20);
     }
 
     private void drawCharacterSelection(Graphics g) {
@@ -804,6 +753,23 @@ public class GamePanel extends JPanel implements ActionListener, KeyListener {
         g.setColor(new Color(200, 200, 255));
         g.setFont(new Font("Arial", Font.BOLD, 16));
         g.drawString("Press 1 or 2 to select mode", WIDTH / 2 - 130, 480);
+        g.setColor(new Color(180, 180, 210));
+        g.setFont(new Font("Arial", Font.PLAIN, 14));
+        String practiceMsg = "Press 3 to practice the levels with rewind (not ranked)";
+        int practiceWidth = g.getFontMetrics().stringWidth(practiceMsg);
+        g.drawString(practiceMsg, WIDTH / 2 - practiceWidth / 2, 505);
+
+        // Saved run
+        Checkpoint savedRun = drawing.savedRun;
+        if (savedRun != null) {
+            g.setColor(new Color(255, 220, 100));
+            g.setFont(new Font("Arial", Font.BOLD, 16));
+            String mode = savedRun.isEndlessMode()
+                    ? "endless run (" + savedRun.getDifficulty().toLowerCase() + ")" : "levels run";
+            String resumeMsg = "Press C to continue your saved " + mode;
+            int resumeWidth = g.getFontMetrics().stringWidth(resumeMsg);
+            g.drawString(resumeMsg, WIDTH / 2 - resumeWidth / 2, 535);
+        }
     }
     
     private void drawDifficultySelection(Graphics g) {
@@ -885,232 +851,45 @@ public class GamePanel extends JPanel implements ActionListener, KeyListener {
         g.drawString("Press 1, 2, or 3 to select difficulty", WIDTH / 2 - 155, 480);
     }
 
-    // Player attack: weapon must reach boss; damage gated inside Character.attack
-    private void updatePlayerAttack() {
-        if (attacking && player != null && boss != null) {
-            // Check if this is Warrior or Rogue for special abilities
-            boolean isWarriorOrRogue = (player instanceof Warrior || player instanceof Rogue);
-            boolean justAttacked = player.canAttack(); // Check if we're off cooldown (about to attack)
-            
-            // Warrior and Rogue can destroy projectiles with their weapon
-            if (isWarriorOrRogue && justAttacked) {
-                int[][] weaponBox = player.getWeaponHitbox(boss);
-                int[] xs = weaponBox[0];
-                int[] ys = weaponBox[1];
-                int minX = xs[0], maxX = xs[0], minY = ys[0], maxY = ys[0];
-                for (int i = 1; i < xs.length; i++) {
-                    if (xs[i] < minX) minX = xs[i];
-                    if (xs[i] > maxX) maxX = xs[i];
-                    if (ys[i] < minY) minY = ys[i];
-                    if (ys[i] > maxY) maxY = ys[i];
-                }
-                
-                // Check for projectile collisions with weapon
-                Iterator<Projectile> projIt = projectiles.iterator();
-                boolean deflectedAny = false;
-                while (projIt.hasNext()) {
-                    Projectile p = projIt.next();
-                    // Only destroy enemy projectiles, not player projectiles
-                    if (!(p instanceof PlayerProjectile)) {
-                        int px = (int)p.getX();
-                        int py = (int)p.getY();
-                        int pSize = p.getSize();
-                        
-                        // Simple AABB collision check
-                        if (!(px + pSize < minX || px > maxX || py + pSize < minY || py > maxY)) {
-                            // Trigger deflection animation
-                            deflectionUntilMs = System.currentTimeMillis() + 200;
-                            deflectionX = px;
-                            deflectionY = py;
-                            deflectedAny = true;
-                            projIt.remove();
-                            score += (int)(5 * scoreMultiplier); // Small bonus for deflecting
-                        }
-                    }
-                }
-                
-                // Play deflection sound if any projectiles were destroyed
-                if (deflectedAny) {
-                    audioManager.playSound("boss_hit");
-                }
-            }
-            
-            if (weaponHitsBoss(player, boss)) {
-                int healthBefore = boss.getHealth();
-                player.attack(boss);
-                int healthAfter = boss.getHealth();
-                
-                // Play slash sound when Warrior or Rogue swing (regardless of damage)
-                if (isWarriorOrRogue && justAttacked) {
-                    audioManager.playSound("slash");
-                }
-                
-                // Award score if damage was dealt
-                if (healthAfter < healthBefore) {
-                    int damage = healthBefore - healthAfter;
-                    audioManager.playSound("boss_hit");
-                    // Add damage number
-                    damageNumbers.add(new DamageNumber(damage, 
-                        boss.getX() + boss.getSize() / 2.0, 
-                        boss.getY() + boss.getSize() / 2.0));
-                    // Screen shake
-                    shakeUntilMs = System.currentTimeMillis() + 100;
-                    score += (int)(10 * scoreMultiplier);
-                }
-            }
-        }
-    }
-
-    private boolean weaponHitsBoss(Character c, Boss b) {
-        int[][] poly = c.getWeaponHitbox(b);
-        int[] xs = poly[0];
-        int[] ys = poly[1];
-        int minX = xs[0], maxX = xs[0], minY = ys[0], maxY = ys[0];
-        for (int i = 1; i < xs.length; i++) {
-            if (xs[i] < minX) minX = xs[i];
-            if (xs[i] > maxX) maxX = xs[i];
-            if (ys[i] < minY) minY = ys[i];
-            if (ys[i] > maxY) maxY = ys[i];
-        }
-        int bx = b.getX();
-        int by = b.getY();
-        int bs = b.getSize();
-        int bMinX = bx;
-        int bMinY = by;
-        int bMaxX = bx + bs;
-        int bMaxY = by + bs;
-        return !(maxX < bMinX || minX > bMaxX || maxY < bMinY || minY > bMaxY);
-    }
-
-    private void drawHUD(Graphics g) {
-        // Top-left: Level + Player HP
-        g.setColor(Color.WHITE);
-        g.setFont(new Font("Arial", Font.PLAIN, 14));
-        int topY = 28;
-        
-        String modeText = endlessMode ? "Endless" : "Level: " + level;
-        g.drawString(modeText, 50, topY);
-        
-        if (player != null) {
-            g.drawString("HP: " + player.getHealth() + "/" + player.getMaxHealth(), 140, topY);
-        }
-        
-        // Score display - moved to top right to avoid overlap
-        g.setColor(new Color(255, 220, 100));
-        g.setFont(new Font("Arial", Font.BOLD, 16));
-        String scoreText = "Score: " + score;
-        if (endlessMode) {
-            scoreText += " (x" + String.format("%.1f", scoreMultiplier) + ")";
-        }
-        int scoreWidth = g.getFontMetrics().stringWidth(scoreText);
-        g.drawString(scoreText, WIDTH - scoreWidth - 50, topY);
-
-        // Boss health bar at top center
-        if (boss != null) {
-            int barWidth = 300;
-            int barHeight = 25;
-            int barX = WIDTH / 2 - barWidth / 2;
-            int barY = 50;
-            
-            // Background
-            g.setColor(new Color(50, 50, 50));
-            g.fillRect(barX, barY, barWidth, barHeight);
-            
-            // Health fill
-            double healthPercent = (double) boss.getHealth() / boss.getMaxHealth();
-            int fillWidth = (int) (barWidth * healthPercent);
-            
-            // Color based on health
-            Color healthColor;
-            if (healthPercent > 0.6) {
-                healthColor = new Color(0, 200, 0);
-            } else if (healthPercent > 0.3) {
-                healthColor = new Color(255, 200, 0);
-            } else {
-                healthColor = new Color(255, 50, 50);
-            }
-            g.setColor(healthColor);
-            g.fillRect(barX, barY, fillWidth, barHeight);
-            
-            // Border
-            g.setColor(Color.WHITE);
-            g.drawRect(barX, barY, barWidth, barHeight);
-            
-            // Boss HP text
-            g.setFont(new Font("Arial", Font.BOLD, 14));
-            String bossText = "BOSS: " + boss.getHealth() + " / " + boss.getMaxHealth();
-            int textWidth = g.getFontMetrics().stringWidth(bossText);
-            g.drawString(bossText, WIDTH / 2 - textWidth / 2, barY + 18);
-            
-            // Weak point indicator
-            g.setFont(new Font("Arial", Font.PLAIN, 12));
-            String wpText = boss.isWeakPointActive() ? "WEAK POINT OPEN!" : "Weak Point Closed";
-            Color wpColor = boss.isWeakPointActive() ? new Color(255, 255, 0) : new Color(150, 150, 150);
-            g.setColor(wpColor);
-            int wpWidth = g.getFontMetrics().stringWidth(wpText);
-            g.drawString(wpText, WIDTH / 2 - wpWidth / 2, barY + barHeight + 15);
-        }
-        
-        // Attack cooldown indicator
-        if (player != null && attacking) {
-            long now = System.currentTimeMillis();
-            long timeSinceAttack = now - player.getLastAttackTime();
-            long cooldown = player.getAttackCooldown();
-            
-            if (timeSinceAttack < cooldown) {
-                double cooldownPercent = (double) timeSinceAttack / cooldown;
-                
-                int cdSize = 40;
-                int cdX = player.getX() + player.getWidth() / 2 - cdSize / 2;
-                int cdY = player.getY() - cdSize - 5;
-                
-                // Background circle
-                g.setColor(new Color(50, 50, 50, 150));
-                g.fillOval(cdX, cdY, cdSize, cdSize);
-                
-                // Cooldown arc (fills as cooldown progresses)
-                g.setColor(new Color(100, 200, 255, 200));
-                int arcAngle = (int) (360 * cooldownPercent);
-                g.fillArc(cdX, cdY, cdSize, cdSize, 90, -arcAngle);
-                
-                // Border
-                g.setColor(Color.WHITE);
-                g.drawOval(cdX, cdY, cdSize, cdSize);
-            }
-        }
-
-        // Bottom-center: Controls to avoid overlapping top info
-        g.setColor(Color.WHITE);
-        g.setFont(new Font("Arial", Font.PLAIN, 14));
-        String controls = "Move: Arrow Keys    Attack: SPACE    Dash: SHIFT (Warrior/Rogue)    Pause: P    Restart: R";
-        int controlsY = HEIGHT - 18;
-        int controlsX = WIDTH / 2 - g.getFontMetrics().stringWidth(controls) / 2;
-        g.drawString(controls, controlsX, controlsY);
-    }
-
     // KeyListener
     @Override
     public void keyTyped(KeyEvent e) { }
 
     @Override
     public void keyPressed(KeyEvent e) {
-        int code = e.getKeyCode();
-        
+        synchronized (stateLock) {
+            handleKeyPressed(e.getKeyCode());
+        }
+    }
+
+    private void handleKeyPressed(int code) {
+        menuDirty = true;
         // Mode selection
         if (selectingMode) {
             if (code == KeyEvent.VK_1) {
                 // Levels mode
                 audioManager.playSound("click");
                 endlessMode = false;
+                practiceMode = false;
                 selectingMode = false;
                 selectingCharacter = true;
-                scoreMultiplier = 1.0;
             } else if (code == KeyEvent.VK_2) {
                 // Endless mode - go to difficulty selection
                 audioManager.playSound("click");
                 endlessMode = true;
+                practiceMode = false;
                 selectingMode = false;
                 selectingDifficulty = true;
+            } else if (code == KeyEvent.VK_3) {
+                // Practice: levels mode with rewind
+                audioManager.playSound("click");
+                endlessMode = false;
+                practiceMode = true;
+                selectingMode = false;
+                selectingCharacter = true;
+            } else if (code == KeyEvent.VK_C && savedRun != null) {
+                audioManager.playSound("click");
+                resumeGame();
             }
             return;
         }
@@ -1121,21 +900,18 @@ public class GamePanel extends JPanel implements ActionListener, KeyListener {
                 // Easy
                 audioManager.playSound("click");
                 difficulty = "EASY";
-                scoreMultiplier = 1.0;
                 selectingDifficulty = false;
                 selectingCharacter = true;
             } else if (code == KeyEvent.VK_2) {
                 // Medium
                 audioManager.playSound("click");
                 difficulty = "MEDIUM";
-                scoreMultiplier = 1.5;
                 selectingDifficulty = false;
                 selectingCharacter = true;
             } else if (code == KeyEvent.VK_3) {
                 // Nightmare
                 audioManager.playSound("click");
                 difficulty = "NIGHTMARE";
-                scoreMultiplier = 2.5;
                 selectingDifficulty = false;
                 selectingCharacter = true;
             }
@@ -1145,23 +921,11 @@ public class GamePanel extends JPanel implements ActionListener, KeyListener {
         // Character selection
         if (selectingCharacter) {
             if (code == KeyEvent.VK_1) {
-                audioManager.playSound("click");
-                player = new Warrior(WIDTH / 2 - 20, HEIGHT - 100);
-                selectingCharacter = false;
-                spawnBossForLevel(level);
-                spawnDefaultPlayer();
+                startGame(GameWorld.WARRIOR);
             } else if (code == KeyEvent.VK_2) {
-                audioManager.playSound("click");
-                player = new Rogue(WIDTH / 2 - 20, HEIGHT - 100);
-                selectingCharacter = false;
-                spawnBossForLevel(level);
-                spawnDefaultPlayer();
+                startGame(GameWorld.ROGUE);
             } else if (code == KeyEvent.VK_3) {
-                audioManager.playSound("click");
-                player = new Mage(WIDTH / 2 - 20, HEIGHT - 100);
-                selectingCharacter = false;
-                spawnBossForLevel(level);
-                spawnDefaultPlayer();
+                startGame(GameWorld.MAGE);
             }
             return;
         }
@@ -1173,11 +937,19 @@ public class GamePanel extends JPanel implements ActionListener, KeyListener {
             case KeyEvent.VK_RIGHT: right = true; break;
             case KeyEvent.VK_SPACE: attacking = true; break;
             case KeyEvent.VK_SHIFT: dashing = true; break;
+            case KeyEvent.VK_BACK_SPACE: rewinding = rewind != null; break;
+            case KeyEvent.VK_HOME:
+                if (rewind != null) rewind.seek(world, rewind.getOldestTick());
+                break;
             case KeyEvent.VK_P:
                 paused = !paused;
                 break;
+            case KeyEvent.VK_F3:
+                // The profilers follow on their own threads
+                showPerf = !showPerf;
+                break;
             case KeyEvent.VK_R:
-                if (!running || paused) restartGame();
+                if ((world != null && !world.isRunning()) || paused) restartGame();
                 break;
         }
     }
@@ -1185,118 +957,79 @@ public class GamePanel extends JPanel implements ActionListener, KeyListener {
     @Override
     public void keyReleased(KeyEvent e) {
         int code = e.getKeyCode();
-        switch (code) {
-            case KeyEvent.VK_UP:    up = false; break;
-            case KeyEvent.VK_DOWN:  down = false; break;
-            case KeyEvent.VK_LEFT:  left = false; break;
-            case KeyEvent.VK_RIGHT: right = false; break;
-            case KeyEvent.VK_SPACE: attacking = false; break;
-            case KeyEvent.VK_SHIFT: dashing = false; break;
-            case KeyEvent.VK_P: /* no-op on release */ break;
+        synchronized (stateLock) {
+            switch (code) {
+                case KeyEvent.VK_UP:    up = false; break;
+                case KeyEvent.VK_DOWN:  down = false; break;
+                case KeyEvent.VK_LEFT:  left = false; break;
+                case KeyEvent.VK_RIGHT: right = false; break;
+                case KeyEvent.VK_SPACE: attacking = false; break;
+                case KeyEvent.VK_SHIFT: dashing = false; break;
+                case KeyEvent.VK_BACK_SPACE: rewinding = false; break;
+                case KeyEvent.VK_P: /* no-op on release */ break;
+            }
         }
     }
 
-    private void restartGame() {
-        level = 1;
-        running = true;
-        score = 0;
-        projectiles.clear();
-        items.clear();
-        boss = null; // Clear boss until character is selected
-        selectingMode = true;
+    private void startGame(int characterType) {
+        audioManager.playSound("click");
         selectingCharacter = false;
-        selectingDifficulty = false;
-        player = null;
-        lastItemSpawnMs = System.currentTimeMillis();
-        nextItemSpawnMs = System.currentTimeMillis() + getRandomSpawnDelay();
-        shieldUntilMs = 0;
-        playerHitFlashUntilMs = 0;
-        explosionUntilMs = 0;
+        long seed = System.nanoTime();
+        GameClock clock = newClock();
+        world = new GameWorld(clock, seed, characterType, endlessMode, difficulty, 1, audioManager);
+        world.setProfiler(tickProfiler);
+        runRank = 0;
+        ticksSinceCheckpoint = 0;
+        savedRun = null;
+        rewinding = false;
+        rewind = null;
+        if (practiceMode && clock instanceof VirtualClock) {
+            if (rewindBuffer == null) {
+                rewindBuffer = new RewindBuffer(RewindBuffer.DEFAULT_CAPACITY, tickRate * REWIND_SECONDS);
+            }
+            rewind = rewindBuffer;
+            rewind.clear();
+            rewind.record(world);
+            return;
+        }
+
+        // Only virtual time can be replayed exactly
+        String replayPath = System.getProperty("dodge.replay");
+        if (replayPath != null && clock instanceof VirtualClock) {
+            Replay replay = new Replay(seed, characterType, endlessMode, difficulty, 1,
+                    ((VirtualClock) clock).getTickNanos());
+            recorder = new ReplayRecorder(replay, new File(replayPath));
+        }
     }
 
-    private int getRandomSpawnDelay() {
-        // Spawn rate increases per level
-        int baseMin = 10000; // 10 seconds
-        int baseMax = 18000; // 18 seconds
-        
-        // Level 1: 0%, Level 2: 60%, Level 3: 80%, Level 4: 90%
-        double speedIncrease = 0;
-        if (level == 2) speedIncrease = 0.60;
-        else if (level == 3) speedIncrease = 0.80;
-        else if (level >= 4) speedIncrease = 0.90;
-        
-        double multiplier = 1.0 - speedIncrease;
-        
-        int minInterval = (int)(baseMin * multiplier);
-        int maxInterval = (int)(baseMax * multiplier);
-        
-        return minInterval + random.nextInt(Math.max(1, maxInterval - minInterval));
+    private void resumeGame() {
+        selectingMode = false;
+        practiceMode = false;
+        rewind = null;
+        world = savedRun.createWorld(audioManager);
+        savedRun = null;
+        endlessMode = world.isEndlessMode();
+        difficulty = world.getDifficulty();
+        world.setProfiler(tickProfiler);
+        runRank = 0;
+        ticksSinceCheckpoint = 0;
     }
 
-    private void spawnRandomItem() {
-        // Random position within arena bounds (with margins), avoiding boss
-        int margin = 60;
-        int x, y;
-        int attempts = 0;
-        
-        do {
-            x = margin + random.nextInt(WIDTH - margin * 2 - 20);
-            y = margin + random.nextInt(HEIGHT - margin * 2 - 20);
-            attempts++;
-        } while (attempts < 50 && boss != null && isNearBoss(x, y, boss, 100)); // Keep 100 pixel distance from boss
-        
-        // Difficulty-based item spawn rates
-        int choice;
-        if (endlessMode) {
-            if (difficulty.equals("EASY")) {
-                // Easy: More hearts (40%) and shields (30%), fewer bombs (10%)
-                int roll = random.nextInt(100);
-                if (roll < 40) {
-                    choice = 0; // Heart
-                } else if (roll < 60) {
-                    choice = 1; // Orb
-                } else if (roll < 90) {
-                    choice = 2; // Shield
-                } else {
-                    choice = 3; // Bomb
-                }
-            } else if (difficulty.equals("NIGHTMARE")) {
-                // Nightmare: More bombs (40%), fewer hearts (15%) and shields (15%)
-                int roll = random.nextInt(100);
-                if (roll < 15) {
-                    choice = 0; // Heart
-                } else if (roll < 30) {
-                    choice = 1; // Orb
-                } else if (roll < 45) {
-                    choice = 2; // Shield
-                } else {
-                    choice = 3; // Bomb
-                }
-            } else {
-                // Medium: Balanced (25% each)
-                choice = random.nextInt(4);
-            }
-        } else {
-            // Levels mode: Normal spawn (25% each)
-            choice = random.nextInt(4);
-        }
-        
-        // Spawn the selected item
-        if (choice == 0) {
-            items.add(new HeartItem(x, y));
-        } else if (choice == 1) {
-            items.add(new OrbItem(x, y));
-        } else if (choice == 2) {
-            items.add(new ShieldItem(x, y));
-        } else {
-            items.add(new BombItem(x, y));
+    private void restartGame() {
+        if (recorder != null) {
+            recorder.save();
+            recorder = null;
         }
+        // A run given up from the pause menu is not kept either
+        if (checkpoints != null) checkpoints.clear();
+        savedRun = null;
+        world = null; // No simulation until a character is selected
+        rewind = null;
+        rewinding = false;
+        paused = false;
+        selectingMode = true;
+        selectingCharacter = false;
+        selectingDifficulty = false;
     }
-    
-    private boolean isNearBoss(int x, int y, Boss b, int minDistance) {
-        int bx = b.getX() + b.getSize() / 2;
-        int by = b.getY() + b.getSize() / 2;
-        double dist = Math.hypot(x - bx, y - by);
-        return dist < minDistance;
-    }
+
 }
@@ -0,0 +1,46 @@
+package src;
+
+import java.util.Random;
+
+/**
+ * GameRandom is a java.util.Random whose state can be read and set, so a
+ * simulation using it can be saved and restored (see RollbackSession). It
+ * runs the same 48-bit linear congruential generator as Random and gives
+ * exactly the same numbers for the same seed, so switching a Random to a
+ * GameRandom does not change existing runs or replays.
+ *
+ * The cached second value of nextGaussian() is not part of the state;
+ * simulations that save their state should not use it. Unlike Random,
+ * this class is not thread-safe.
+ */
+public class GameRandom extends Random {
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    // No initializer: Random's constructor sets it through setSeed()
+    private long state;
+
+    public GameRandom(long seed) {
+        super(seed);
+    }
+
+    @Override
+    public void setSeed(long seed) {
+        state = (seed ^ MULTIPLIER) & MASK;
+        super.setSeed(seed);
+    }
+
+    @Override
+    protected int next(int bits) {
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (state >>> (48 - bits));
+    }
+
+    /** The generator's internal state, for restoring with setState(). */
+    public long getState() { return state; }
+
+    public void setState(long state) {
+        this.state = state & MASK;
+    }
+}
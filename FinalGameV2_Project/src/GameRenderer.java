@@ -0,0 +1,404 @@
+package src;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics;
+
+/**
+ * GameRenderer draws a GameWorld: player, boss, projectiles, items, effects
+ * and the in-game HUD. It holds no game state of its own, so the same
+ * renderer serves the game window and offscreen benchmark renders.
+ *
+ * Item sprites and the HUD panels come from a RenderCache and are only
+ * re-rasterized when what they show changes. Numbers and other text that
+ * changes while playing are blitted from a TextRenderer's glyph strips.
+ */
+public class GameRenderer {
+    private static final int WIDTH = GameWorld.WIDTH;
+    private static final int HEIGHT = GameWorld.HEIGHT;
+    private static final int HUD_TOP_Y = 28;
+
+    private static final Font HUD_FONT = new Font("Arial", Font.PLAIN, 14);
+    private static final Font SCORE_FONT = new Font("Arial", Font.BOLD, 16);
+    private static final Font SHIELD_FONT = new Font("Arial", Font.BOLD, 16);
+    private static final Font BOSS_FONT = new Font("Arial", Font.BOLD, 14);
+    private static final Font WEAK_POINT_FONT = new Font("Arial", Font.PLAIN, 12);
+    private static final Color SCORE_COLOR = new Color(255, 220, 100);
+    private static final Color DASH_TRAIL_COLOR = new Color(255, 255, 255, 100);
+    private static final Color HIT_FLASH_COLOR = new Color(255, 0, 0, 120);
+    private static final Color SHIELD_AURA_COLOR = new Color(100, 200, 255, 80);
+    private static final Color TEXT_BACKDROP_COLOR = new Color(0, 0, 0, 150);
+    private static final Color SHIELD_TEXT_COLOR = new Color(150, 220, 255);
+    private static final Color COOLDOWN_BACK_COLOR = new Color(50, 50, 50, 150);
+    private static final Color COOLDOWN_ARC_COLOR = new Color(100, 200, 255, 200);
+    private static final Color BOSS_BAR_BACK_COLOR = new Color(50, 50, 50);
+    private static final Color BOSS_HEALTHY_COLOR = new Color(0, 200, 0);
+    private static final Color BOSS_HURT_COLOR = new Color(255, 200, 0);
+    private static final Color BOSS_CRITICAL_COLOR = new Color(255, 50, 50);
+    private static final Color WEAK_POINT_OPEN_COLOR = new Color(255, 255, 0);
+    private static final Color WEAK_POINT_CLOSED_COLOR = new Color(150, 150, 150);
+
+    // Stages of a render, as recorded by a profiler from newProfiler()
+    public static final int STAGE_ENTITIES = 0;
+    public static final int STAGE_PROJECTILES = 1;
+    public static final int STAGE_EFFECTS = 2;
+    public static final int STAGE_HUD = 3;
+
+    private final RenderCache cache;
+    private final TextRenderer text = new TextRenderer();
+    // Run drawn last (see GameWorld.getRunWorld); the HUD layers are dropped when a new run starts
+    private GameWorld lastWorld;
+    private StageProfiler profiler = StageProfiler.DISABLED;
+    // Times the stages for GameEvents.Paint while no profiler is recording; created on first use
+    private StageProfiler eventStages;
+
+    public GameRenderer() {
+        this(new RenderCache());
+    }
+
+    public GameRenderer(RenderCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Glyph strips for text drawn every frame, shared with overlays drawn on top.
+     */
+    public TextRenderer getTextRenderer() { return text; }
+
+    /**
+     * A profiler with this class's render stages (STAGE_*), for setProfiler().
+     */
+    public static StageProfiler newProfiler() {
+        return new StageProfiler("entities", "projectiles", "effects", "hud");
+    }
+
+    /**
+     * Time each render() and its stages with the given profiler (null for none).
+     */
+    public void setProfiler(StageProfiler profiler) {
+        this.profiler = profiler == null ? StageProfiler.DISABLED : profiler;
+    }
+
+    /**
+     * Draw the world as of its last tick.
+     * @param interpolation fraction of a tick since that tick, used to smooth projectile motion
+     */
+    public void render(Graphics g, GameWorld world, double interpolation) {
+        GameEvents.Paint event = new GameEvents.Paint();
+        StageProfiler stages = stagesFor(event.isEnabled());
+        event.begin();
+        stages.start();
+        // Views of one run take turns being drawn; only a new run clears the cache
+        GameWorld run = world.getRunWorld();
+        if (run != lastWorld) {
+            cache.invalidateAll();
+            lastWorld = run;
+        }
+
+        // Effects are timed against the simulation clock of the last tick
+        long currentTime = world.getTimeMs();
+        Character player = world.getPlayer();
+        Boss boss = world.getBoss();
+        long shieldUntilMs = world.getShieldUntilMs();
+
+        // Draw player
+        if (player != null) {
+            // If recently hit, draw a flashing overlay
+            boolean flashing = currentTime < world.getPlayerHitFlashUntilMs();
+            boolean shielded = currentTime < shieldUntilMs;
+            boolean isDashing = player.isDashing(currentTime);
+            
+            // Draw dash trail effect
+            if (isDashing) {
+                g.setColor(DASH_TRAIL_COLOR);
+                int trailSize = 8;
+                g.fillRect(player.getX() - trailSize/2, player.getY() - trailSize/2, 
+                          player.getWidth() + trailSize, player.getHeight() + trailSize);
+            }
+            
+            player.draw(g);
+            
+            if (flashing) {
+                g.setColor(HIT_FLASH_COLOR);
+                g.fillRect(player.getX(), player.getY(), player.getWidth(), player.getHeight());
+            }
+            if (shielded) {
+                // Draw pulsing shield aura around player
+                g.setColor(SHIELD_AURA_COLOR);
+                int pulseSize = (int)(Math.sin(currentTime * 0.01) * 3 + 5);
+                g.fillRect(player.getX() - pulseSize, player.getY() - pulseSize, 
+                          player.getWidth() + pulseSize * 2, player.getHeight() + pulseSize * 2);
+            }
+            // Draw weapon aimed at boss; highlight when attacking
+            player.drawWeapon(g, boss, world.isAttacking(), currentTime);
+        }
+
+        // Draw boss
+        if (boss != null) {
+            boss.draw(g);
+            
+            // Draw glowing effect around boss when weak point is active
+            if (boss.isWeakPointActive()) {
+                // Pulsing glow
+                double pulse = Math.sin(currentTime * 0.01) * 0.5 + 0.5;
+                int glowAlpha = (int)(150 * pulse);
+                g.setColor(new Color(255, 255, 0, glowAlpha));
+                int glowSize = (int)(boss.getSize() + 20 + pulse * 10);
+                int bossCenterX = boss.getX() + boss.getSize() / 2;
+                int bossCenterY = boss.getY() + boss.getSize() / 2;
+                g.fillOval(bossCenterX - glowSize / 2, bossCenterY - glowSize / 2, glowSize, glowSize);
+            }
+        }
+
+        stages.mark(STAGE_ENTITIES);
+
+        // Draw projectiles
+        world.getProjectiles().draw(g, interpolation);
+        stages.mark(STAGE_PROJECTILES);
+
+        // Draw items
+        for (Item item : world.getItems()) {
+            cache.drawItem(g, item, currentTime);
+        }
+
+        // Draw explosion effect if active
+        long explosionUntilMs = world.getExplosionUntilMs();
+        if (currentTime < explosionUntilMs) {
+            int explosionX = world.getExplosionX();
+            int explosionY = world.getExplosionY();
+            long elapsed = currentTime - (explosionUntilMs - 500);
+            double progress = elapsed / 500.0;
+            int explosionSize = (int)(progress * 80);
+            int alpha = (int)((1.0 - progress) * 200);
+            
+            // Outer explosion (orange)
+            g.setColor(new Color(255, 100, 0, Math.max(0, alpha)));
+            g.fillOval(explosionX - explosionSize/2, explosionY - explosionSize/2, explosionSize, explosionSize);
+            
+            // Inner explosion (yellow)
+            g.setColor(new Color(255, 255, 0, Math.max(0, alpha + 55)));
+            int innerSize = explosionSize * 2 / 3;
+            g.fillOval(explosionX - innerSize/2, explosionY - innerSize/2, innerSize, innerSize);
+            
+            // Core (white)
+            g.setColor(new Color(255, 255, 255, Math.max(0, alpha + 55)));
+            int coreSize = explosionSize / 3;
+            g.fillOval(explosionX - coreSize/2, explosionY - coreSize/2, coreSize, coreSize);
+        }
+        
+        // Draw deflection spark effect if active
+        long deflectionUntilMs = world.getDeflectionUntilMs();
+        if (currentTime < deflectionUntilMs) {
+            int deflectionX = world.getDeflectionX();
+            int deflectionY = world.getDeflectionY();
+            long elapsed = currentTime - (deflectionUntilMs - 200);
+            double progress = elapsed / 200.0;
+            int sparkSize = (int)((1.0 - progress) * 30);
+            int alpha = (int)((1.0 - progress) * 255);
+            
+            // Draw spark burst (cyan/white for deflection)
+            g.setColor(new Color(100, 255, 255, Math.max(0, alpha)));
+            g.fillOval(deflectionX - sparkSize/2, deflectionY - sparkSize/2, sparkSize, sparkSize);
+            
+            // Draw cross pattern for impact effect
+            g.setColor(new Color(255, 255, 255, Math.max(0, alpha)));
+            int lineLen = sparkSize / 2;
+            g.drawLine(deflectionX - lineLen, deflectionY, deflectionX + lineLen, deflectionY);
+            g.drawLine(deflectionX, deflectionY - lineLen, deflectionX, deflectionY + lineLen);
+        }
+        
+        // Draw particles
+        world.getParticles().draw(g, currentTime);
+        
+        // Draw damage numbers
+        for (DamageNumber dn : world.getDamageNumbers()) {
+            dn.draw(g, currentTime, text);
+        }
+
+        // Draw shield timer above player if active
+        if (player != null && currentTime < shieldUntilMs) {
+            long timeLeft = (shieldUntilMs - currentTime) / 1000 + 1; // Round up
+            TextRenderer.Strip shieldText = text.strip(SHIELD_FONT, SHIELD_TEXT_COLOR);
+            int textWidth = shieldText.stringWidth("Shield: ") + shieldText.numberWidth(timeLeft)
+                    + shieldText.charWidth('s');
+            int textX = player.getX() + player.getWidth() / 2 - textWidth / 2;
+            int textY = player.getY() - 8;
+            
+            // Background for readability
+            g.setColor(TEXT_BACKDROP_COLOR);
+            g.fillRect(textX - 3, textY - 14, textWidth + 6, 18);
+            
+            // Timer text
+            int x = textX + shieldText.drawString(g, "Shield: ", textX, textY);
+            x += shieldText.drawNumber(g, timeLeft, x, textY);
+            shieldText.drawChar(g, 's', x, textY);
+        }
+
+        stages.mark(STAGE_EFFECTS);
+
+        // HUD
+        drawHUD(g, world, currentTime);
+        stages.mark(STAGE_HUD);
+        stages.end();
+        event.end();
+        if (stages.isEnabled() && event.shouldCommit()) {
+            event.tick = world.getClock().getTick();
+            event.projectiles = world.getProjectiles().size();
+            event.particles = world.getParticles().size();
+            event.items = world.getItems().size();
+            event.damageNumbers = world.getDamageNumbers().size();
+            event.entities = stages.getStageNanos(STAGE_ENTITIES, 0);
+            event.projectilesDraw = stages.getStageNanos(STAGE_PROJECTILES, 0);
+            event.effects = stages.getStageNanos(STAGE_EFFECTS, 0);
+            event.hud = stages.getStageNanos(STAGE_HUD, 0);
+            event.commit();
+        }
+    }
+
+    // The configured profiler, or a private one when only a Paint event wants the stage times
+    private StageProfiler stagesFor(boolean eventEnabled) {
+        if (profiler.isEnabled() || !eventEnabled) return profiler;
+        if (eventStages == null) {
+            eventStages = newProfiler();
+        }
+        return eventStages;
+    }
+
+    private void drawHUD(Graphics g, GameWorld world, long now) {
+        Character player = world.getPlayer();
+        Boss boss = world.getBoss();
+
+        // Top-left: Level + Player HP, re-rasterized only when they change
+        int hp = player != null ? player.getHealth() : -1;
+        int maxHp = player != null ? player.getMaxHealth() : -1;
+        long statusVersion = ((long) world.getLevel() * 1_000_003L + hp) * 1_000_003L + maxHp;
+        cache.drawLayer(g, "hud.status", statusVersion, 40, 10, 320, 26, lg -> {
+            TextRenderer.Strip hudText = text.strip(HUD_FONT, Color.WHITE);
+            if (world.isEndlessMode()) {
+                hudText.drawString(lg, "Endless", 50, HUD_TOP_Y);
+            } else {
+                int x = 50 + hudText.drawString(lg, "Level: ", 50, HUD_TOP_Y);
+                hudText.drawNumber(lg, world.getLevel(), x, HUD_TOP_Y);
+            }
+            if (player != null) {
+                int x = 140 + hudText.drawString(lg, "HP: ", 140, HUD_TOP_Y);
+                x += hudText.drawNumber(lg, player.getHealth(), x, HUD_TOP_Y);
+                x += hudText.drawChar(lg, '/', x, HUD_TOP_Y);
+                hudText.drawNumber(lg, player.getMaxHealth(), x, HUD_TOP_Y);
+            }
+        });
+
+        // Score display - top right to avoid overlap
+        cache.drawLayer(g, "hud.score", world.getScore(), WIDTH - 360, 10, 320, 26, lg -> {
+            TextRenderer.Strip scoreText = text.strip(SCORE_FONT, SCORE_COLOR);
+            int score = world.getScore();
+            // Multiplier to one decimal, as "(x1.5)"
+            long tenths = Math.round(world.getScoreMultiplier() * 10);
+            int scoreWidth = scoreText.stringWidth("Score: ") + scoreText.numberWidth(score);
+            if (world.isEndlessMode()) {
+                scoreWidth += scoreText.stringWidth(" (x.)") + scoreText.numberWidth(tenths / 10)
+                        + scoreText.numberWidth(tenths % 10);
+            }
+            int x = WIDTH - scoreWidth - 50;
+            x += scoreText.drawString(lg, "Score: ", x, HUD_TOP_Y);
+            x += scoreText.drawNumber(lg, score, x, HUD_TOP_Y);
+            if (world.isEndlessMode()) {
+                x += scoreText.drawString(lg, " (x", x, HUD_TOP_Y);
+                x += scoreText.drawNumber(lg, tenths / 10, x, HUD_TOP_Y);
+                x += scoreText.drawChar(lg, '.', x, HUD_TOP_Y);
+                x += scoreText.drawNumber(lg, tenths % 10, x, HUD_TOP_Y);
+                scoreText.drawChar(lg, ')', x, HUD_TOP_Y);
+            }
+        });
+
+        // Boss health bar at top center
+        if (boss != null) {
+            long bossVersion = boss.getHealth() * 2L + (boss.isWeakPointActive() ? 1 : 0);
+            cache.drawLayer(g, "hud.boss", bossVersion, WIDTH / 2 - 160, 48, 320, 50, lg -> drawBossBar(lg, boss));
+        }
+        
+        // Attack cooldown indicator
+        if (player != null && world.isAttacking()) {
+            long timeSinceAttack = now - player.getLastAttackTime();
+            long cooldown = player.getAttackCooldown();
+            
+            if (timeSinceAttack < cooldown) {
+                double cooldownPercent = (double) timeSinceAttack / cooldown;
+                
+                int cdSize = 40;
+                int cdX = player.getX() + player.getWidth() / 2 - cdSize / 2;
+                int cdY = player.getY() - cdSize - 5;
+                
+                // Background circle
+                g.setColor(COOLDOWN_BACK_COLOR);
+                g.fillOval(cdX, cdY, cdSize, cdSize);
+                
+                // Cooldown arc (fills as cooldown progresses)
+                g.setColor(COOLDOWN_ARC_COLOR);
+                int arcAngle = (int) (360 * cooldownPercent);
+                g.fillArc(cdX, cdY, cdSize, cdSize, 90, -arcAngle);
+                
+                // Border
+                g.setColor(Color.WHITE);
+                g.drawOval(cdX, cdY, cdSize, cdSize);
+            }
+        }
+
+        // Bottom-center: Controls to avoid overlapping top info
+        cache.drawLayer(g, "hud.controls", 0, 0, HEIGHT - 36, WIDTH, 26, lg -> {
+            lg.setColor(Color.WHITE);
+            lg.setFont(HUD_FONT);
+            String controls = "Move: Arrow Keys    Attack: SPACE    Dash: SHIFT (Warrior/Rogue)    Pause: P    Restart: R";
+            int controlsX = WIDTH / 2 - lg.getFontMetrics().stringWidth(controls) / 2;
+            lg.drawString(controls, controlsX, HEIGHT - 18);
+        });
+    }
+
+    private void drawBossBar(Graphics g, Boss boss) {
+        int barWidth = 300;
+        int barHeight = 25;
+        int barX = WIDTH / 2 - barWidth / 2;
+        int barY = 50;
+        
+        // Background
+        g.setColor(BOSS_BAR_BACK_COLOR);
+        g.fillRect(barX, barY, barWidth, barHeight);
+        
+        // Health fill
+        double healthPercent = (double) boss.getHealth() / boss.getMaxHealth();
+        int fillWidth = (int) (barWidth * healthPercent);
+        
+        // Color based on health
+        Color healthColor;
+        if (healthPercent > 0.6) {
+            healthColor = BOSS_HEALTHY_COLOR;
+        } else if (healthPercent > 0.3) {
+            healthColor = BOSS_HURT_COLOR;
+        } else {
+            healthColor = BOSS_CRITICAL_COLOR;
+        }
+        g.setColor(healthColor);
+        g.fillRect(barX, barY, fillWidth, barHeight);
+        
+        // Border
+        g.setColor(Color.WHITE);
+        g.drawRect(barX, barY, barWidth, barHeight);
+        
+        // Boss HP text
+        TextRenderer.Strip bossText = text.strip(BOSS_FONT, Color.WHITE);
+        int textWidth = bossText.stringWidth("BOSS:  / ") + bossText.numberWidth(boss.getHealth())
+                + bossText.numberWidth(boss.getMaxHealth());
+        int x = WIDTH / 2 - textWidth / 2;
+        x += bossText.drawString(g, "BOSS: ", x, barY + 18);
+        x += bossText.drawNumber(g, boss.getHealth(), x, barY + 18);
+        x += bossText.drawString(g, " / ", x, barY + 18);
+        bossText.drawNumber(g, boss.getMaxHealth(), x, barY + 18);
+        
+        // Weak point indicator
+        String wpText = boss.isWeakPointActive() ? "WEAK POINT OPEN!" : "Weak Point Closed";
+        TextRenderer.Strip wpStrip = text.strip(WEAK_POINT_FONT,
+                boss.isWeakPointActive() ? WEAK_POINT_OPEN_COLOR : WEAK_POINT_CLOSED_COLOR);
+        int wpWidth = wpStrip.stringWidth(wpText);
+        wpStrip.drawString(g, wpText, WIDTH / 2 - wpWidth / 2, barY + barHeight + 15);
+    }
+}
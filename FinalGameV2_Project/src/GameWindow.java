@@ -1,9 +1,7 @@
 package src;
 
 import javax.swing.JFrame;
-import javax.swing.ImageIcon;
-import java.awt.Image;
-import java.io.File;
+import javax.swing.SwingUtilities;
 
 /**
  * GameWindow creates the main application frame using JFrame.
@@ -15,18 +13,19 @@ public class GameWindow extends JFrame {
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setResizable(false);
         
-        // Set application icon
-        try {
-            File iconFile = new File("ICON.png");
-            if (iconFile.exists()) {
-                ImageIcon icon = new ImageIcon(iconFile.getAbsolutePath());
-                setIconImage(icon.getImage());
+        // Set application icon once it has loaded in the background
+        AssetLoader.loadImage("ICON.png").whenComplete((icon, error) -> {
+            if (error != null) {
+                Throwable cause = error.getCause() != null ? error.getCause() : error;
+                System.err.println("Could not load icon: " + cause.getMessage());
+                return;
             }
-        } catch (Exception e) {
-            System.err.println("Could not load icon: " + e.getMessage());
-        }
+            SwingUtilities.invokeLater(() -> setIconImage(icon));
+        });
 
-        GamePanel panel = new GamePanel();
+        // -Ddodge.render=active draws from the game loop via BufferStrategy; Swing repaint otherwise
+        boolean active = "active".equals(System.getProperty("dodge.render"));
+        GamePanel panel = new GamePanel(active);
         setContentPane(panel);
         pack();
         setLocationRelativeTo(null);
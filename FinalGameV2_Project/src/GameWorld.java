@@ -0,0 +1,1093 @@
+package src;
+
+import java.awt.Color;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * GameWorld holds the complete simulation: player, boss, projectiles, items,
+ * scoring and level progression. It has no dependency on Swing or audio
+ * devices, so it can be stepped headless as fast as the CPU allows; the
+ * GamePanel drives one in real time and draws it.
+ *
+ * Sounds are reported through a SoundPlayer. Randomness that affects the
+ * outcome comes from a Random seeded at construction; purely visual effects
+ * (particles, screen shake) use a separate generator so they never change
+ * the simulation.
+ */
+public class GameWorld {
+    // Arena dimensions
+    public static final int WIDTH = 800;
+    public static final int HEIGHT = 600;
+
+    // Playable characters
+    public static final int WARRIOR = 1;
+    public static final int ROGUE = 2;
+    public static final int MAGE = 3;
+
+    // Input bits, see setInput()
+    public static final int INPUT_UP = 1;
+    public static final int INPUT_DOWN = 1 << 1;
+    public static final int INPUT_LEFT = 1 << 2;
+    public static final int INPUT_RIGHT = 1 << 3;
+    public static final int INPUT_ATTACK = 1 << 4;
+    public static final int INPUT_DASH = 1 << 5;
+    // Saved with the input bits: a dash press not yet taken
+    private static final int DASH_QUEUED = 1 << 6;
+
+    // Sound sink used when nothing should be played (headless runs)
+    public static final SoundPlayer SILENT = name -> { };
+
+    // Stages of a tick, as recorded by a profiler from newProfiler()
+    public static final int STAGE_INPUT = 0;
+    public static final int STAGE_BOSS = 1;
+    public static final int STAGE_MOVE = 2;
+    public static final int STAGE_COLLIDE = 3;
+    public static final int STAGE_ITEMS = 4;
+    public static final int STAGE_PARTICLES = 5;
+
+    // FNV-1a parameters for checksum()
+    static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final GameClock clock;
+    private final SoundPlayer sound;
+    private final GameRandom random;
+    private final Random effectsRandom;
+    private final int characterType;
+
+    // Game state
+    private Character player;
+    private Boss boss;
+    private final ProjectileStore projectiles = new ProjectileStore();
+    // Broad phase over the projectile area (arena plus the 50px despawn margin)
+    private final SpatialGrid projectileGrid = new SpatialGrid(-50, -50, WIDTH + 50, HEIGHT + 50, 32);
+    private final List<Item> items = new ArrayList<>();
+    private final List<DamageNumber> damageNumbers = new ArrayList<>();
+    // Trail particles; budget can be changed with -Ddodge.particleBudget
+    private final ParticleSystem particles;
+    private final int playerTrailColor;
+    private final int enemyTrailColor;
+    private boolean effectsEnabled = true;
+    // Splits per-element tick work over a pool when set; null runs sequentially
+    private ParallelTick parallelTick;
+    private StageProfiler profiler = StageProfiler.DISABLED;
+    // Times the stages for GameEvents.Tick while no profiler is recording; created on first use
+    private StageProfiler eventStages;
+
+    private int level;
+    private boolean running = true;
+
+    // Screen shake effect
+    private int shakeOffsetX = 0;
+    private int shakeOffsetY = 0;
+    private long shakeUntilMs = 0;
+
+    // Game modes
+    private final boolean endlessMode;
+    private final String difficulty; // EASY, MEDIUM, NIGHTMARE
+
+    // Scoring system
+    private int score = 0;
+    private final double scoreMultiplier;
+    // Hit indicator timing
+    private long playerHitFlashUntilMs = 0;
+    // Shield immunity timing
+    private long shieldUntilMs = 0;
+    // Explosion effect timing
+    private long explosionUntilMs = 0;
+    private int explosionX = 0;
+    private int explosionY = 0;
+    // Deflection effect timing
+    private long deflectionUntilMs = 0;
+    private int deflectionX = 0;
+    private int deflectionY = 0;
+    // Item spawn timing (simulation time)
+    private long lastItemSpawnMs;
+    private long nextItemSpawnMs;
+
+    // Input state for the next tick
+    private boolean up, down, left, right, attacking, dashing;
+    // Set when dash is pressed; taken by the first tick the dash is off
+    // cooldown, or dropped when the key is released
+    private boolean dashQueued;
+
+    // A view's copy of the player and boss passes through here (see copyViewTo)
+    private ByteBuffer viewScratch;
+    // For a view, the world it shows; see getRunWorld()
+    private GameWorld viewOf;
+
+    /**
+     * @param clock         time source, advanced once per step()
+     * @param seed          seed for every random decision of the simulation
+     * @param characterType WARRIOR, ROGUE or MAGE
+     * @param endlessMode   cycle bosses forever instead of winning after level 4
+     * @param difficulty    EASY, MEDIUM or NIGHTMARE (endless mode item rates and score multiplier)
+     * @param startLevel    level whose boss is spawned first (1-4 in levels mode)
+     * @param sound         receives sound effect names; use SILENT for headless runs
+     */
+    public GameWorld(GameClock clock, long seed, int characterType, boolean endlessMode,
+                     String difficulty, int startLevel, SoundPlayer sound) {
+        this.clock = clock;
+        this.sound = sound;
+        this.random = new GameRandom(seed);
+        this.effectsRandom = new Random(~seed);
+        this.characterType = characterType;
+        this.endlessMode = endlessMode;
+        this.difficulty = difficulty;
+        this.scoreMultiplier = scoreMultiplierFor(endlessMode, difficulty);
+        this.level = startLevel;
+
+        particles = new ParticleSystem(Integer.getInteger("dodge.particleBudget", 4096), effectsRandom.nextLong());
+        playerTrailColor = particles.addColor(new Color(255, 200, 100));
+        enemyTrailColor = particles.addColor(new Color(200, 50, 50));
+
+        player = createCharacter(characterType, WIDTH / 2 - 20, HEIGHT - 100);
+        spawnBossForLevel(endlessMode ? ((level - 1) % 4) + 1 : level);
+        lastItemSpawnMs = clock.getMillis();
+        nextItemSpawnMs = lastItemSpawnMs + getRandomSpawnDelay();
+    }
+
+    public static Character createCharacter(int type, int x, int y) {
+        switch (type) {
+            case ROGUE:
+                return new Rogue(x, y);
+            case MAGE:
+                return new Mage(x, y);
+            default:
+                return new Warrior(x, y);
+        }
+    }
+
+    public static double scoreMultiplierFor(boolean endlessMode, String difficulty) {
+        if (!endlessMode) return 1.0;
+        if (difficulty.equals("NIGHTMARE")) return 2.5;
+        if (difficulty.equals("MEDIUM")) return 1.5;
+        return 1.0;
+    }
+
+    /**
+     * Set the held inputs (INPUT_* bits) used by the following ticks.
+     * Dash acts on the press: holding it dashes once, not again each time
+     * the cooldown runs out.
+     */
+    public void setInput(int mask) {
+        up = (mask & INPUT_UP) != 0;
+        down = (mask & INPUT_DOWN) != 0;
+        left = (mask & INPUT_LEFT) != 0;
+        right = (mask & INPUT_RIGHT) != 0;
+        attacking = (mask & INPUT_ATTACK) != 0;
+        boolean dash = (mask & INPUT_DASH) != 0;
+        dashQueued = dash && (dashQueued || !dashing);
+        dashing = dash;
+    }
+
+    /**
+     * Advance the simulation by one tick. Does nothing once the run is over.
+     */
+    public void step() {
+        if (!running) return;
+        clock.advance();
+        updateGame(clock.getMillis());
+    }
+
+    /**
+     * Skip particle trails and screen shake; used by headless runs.
+     */
+    public void setEffectsEnabled(boolean enabled) {
+        this.effectsEnabled = enabled;
+        if (!enabled) {
+            particles.clear();
+        }
+    }
+
+    /**
+     * Run projectile and particle updates in parallel on the given pool,
+     * or sequentially if null. Results are identical either way.
+     */
+    public void setParallelism(ForkJoinPool pool) {
+        this.parallelTick = pool == null ? null : new ParallelTick(pool);
+    }
+
+    /**
+     * A profiler with this class's tick stages (STAGE_*), for setProfiler().
+     */
+    public static StageProfiler newProfiler() {
+        return new StageProfiler("input", "boss", "move", "collide", "items", "particles");
+    }
+
+    /**
+     * Time each step() and its stages with the given profiler (null for none).
+     */
+    public void setProfiler(StageProfiler profiler) {
+        this.profiler = profiler == null ? StageProfiler.DISABLED : profiler;
+    }
+
+    /**
+     * Level 1-4 of the boss createBoss() built, or 0 for none.
+     */
+    static int bossKind(Boss boss) {
+        if (boss == null) return 0;
+        if (boss instanceof Level1Boss) return 1;
+        if (boss instanceof Level2Boss) return 2;
+        if (boss instanceof Level3Boss) return 3;
+        return 4;
+    }
+
+    /**
+     * Kind of an item, for createItem().
+     */
+    static int itemKind(Item item) {
+        if (item instanceof HeartItem) return 0;
+        if (item instanceof OrbItem) return 1;
+        if (item instanceof ShieldItem) return 2;
+        return 3;
+    }
+
+    static Item createItem(int kind, int x, int y) {
+        switch (kind) {
+            case 0: return new HeartItem(x, y);
+            case 1: return new OrbItem(x, y);
+            case 2: return new ShieldItem(x, y);
+            default: return new BombItem(x, y);
+        }
+    }
+
+    private void spawnBossForLevel(int lvl) {
+        boss = createBoss(lvl, clock.getMillis(), random);
+    }
+
+    /**
+     * The boss for a level (1-4), centered in the arena. Level 4 draws its
+     * pattern seed from random.
+     */
+    public static Boss createBoss(int lvl, long nowMs, Random random) {
+        int cx = WIDTH / 2 - 40;
+        int cy = HEIGHT / 2 - 40;
+        switch (lvl) {
+            case 1:
+                return new Level1Boss(cx, cy, nowMs);
+            case 2:
+                return new Level2Boss(cx, cy, nowMs);
+            case 3:
+                return new Level3Boss(cx, cy, nowMs);
+            default:
+                return new Level4Boss(cx, cy, nowMs, random.nextLong());
+        }
+    }
+
+    private void updateGame(long now) {
+        GameEvents.Tick event = new GameEvents.Tick();
+        StageProfiler stages = stagesFor(event.isEnabled());
+        event.begin();
+        stages.start();
+        // Move player based on input
+        if (player != null) {
+            // Handle dash input
+            if (dashQueued && player.canDash(now)) {
+                int dx = 0, dy = 0;
+                if (up) dy -= 1;
+                if (down) dy += 1;
+                if (left) dx -= 1;
+                if (right) dx += 1;
+                
+                // Normalize direction if moving diagonally
+                if (dx != 0 || dy != 0) {
+                    double len = Math.sqrt(dx * dx + dy * dy);
+                    player.startDash(dx / len, dy / len, now);
+                    sound.playSound("dash"); // Dash sound effect
+                }
+                dashQueued = false; // Reset dash input
+            }
+            
+            // Update dash movement with collision check
+            if (player.isDashing(now)) {
+                int prevX = player.getX();
+                int prevY = player.getY();
+                player.updateDash(WIDTH, HEIGHT, now);
+                // Prevent dashing into boss
+                if (boss != null && collidesPlayerBoss(player, boss)) {
+                    player.setX(prevX);
+                    player.setY(prevY);
+                }
+            }
+            
+            // Regular movement only if not dashing
+            if (!player.isDashing(now)) {
+                int prevX = player.getX();
+                int prevY = player.getY();
+                int dx = 0, dy = 0;
+                if (up) dy -= 1;
+                if (down) dy += 1;
+                if (left) dx -= 1;
+                if (right) dx += 1;
+                player.move(dx, dy, WIDTH, HEIGHT);
+                // Prevent overlapping with boss
+                if (boss != null && collidesPlayerBoss(player, boss)) {
+                    player.setX(prevX);
+                    player.setY(prevY);
+                }
+            }
+        }
+
+        stages.mark(STAGE_INPUT);
+
+        // Boss attacks periodically and adds projectiles
+        if (boss != null) {
+            boss.updateWeakPoint(now);
+            boss.attackPattern(projectiles, player, now);
+        }
+
+        // Mage ranged attack: allow firing anytime while attacking
+        if (attacking && player instanceof Mage && boss != null) {
+            Mage m = (Mage) player;
+            if (m.canAttack(now)) {
+                sound.playSound("mage");
+                double sx = m.getX() + m.getWidth() / 2.0;
+                double sy = m.getY() + m.getHeight() / 2.0;
+                double bx = boss.getX() + boss.getSize() / 2.0;
+                double by = boss.getY() + boss.getSize() / 2.0;
+                double dx = bx - sx;
+                double dy = by - sy;
+                double len = Math.max(1, Math.hypot(dx, dy));
+                double speed = 6.0;
+                double vx = dx / len * speed;
+                double vy = dy / len * speed;
+                projectiles.spawn(ProjectileStore.KIND_PLAYER, sx, sy, vx, vy, m.getAttackPower());
+                m.markAttack(now);
+            }
+        }
+
+        stages.mark(STAGE_BOSS);
+
+        // Update projectiles, removing those out of bounds
+        if (parallelTick != null) {
+            parallelTick.moveProjectiles(projectiles, -50, -50, WIDTH + 50, HEIGHT + 50);
+        } else {
+            projectiles.moveAll();
+            // Backwards so swap-removal never skips one
+            for (int i = projectiles.size() - 1; i >= 0; i--) {
+                double px = projectiles.getX(i);
+                double py = projectiles.getY(i);
+                if (px < -50 || px > WIDTH + 50 || py < -50 || py > HEIGHT + 50) {
+                    projectiles.removeAt(i);
+                }
+            }
+        }
+        // Slots stay put from here until the sweep, so hits are only marked
+        projectileGrid.rebuild(projectiles);
+        stages.mark(STAGE_MOVE);
+
+        // Collision with player (ignore player projectiles and shield immunity)
+        if (player != null) {
+            int candidates = projectileGrid.queryAabb(player.getX(), player.getY(),
+                    player.getX() + player.getWidth(), player.getY() + player.getHeight());
+            for (int k = 0; k < candidates; k++) {
+                int i = projectileGrid.getResult(k);
+                if (projectiles.isPlayerShot(i) || !projectiles.collidesWith(i, player)) continue;
+                // Invincible during dash or shield
+                if (now >= shieldUntilMs && !player.isDashing(now)) {
+                    // Only take damage if shield is not active and not dashing
+                    player.setHealth(player.getHealth() - projectiles.getDamage(i));
+                    sound.playSound("damage");
+                    // Trigger hit flash indicator for a short duration
+                    playerHitFlashUntilMs = now + 200; // 200ms flash
+                }
+                projectiles.markRemoved(i);
+            }
+        }
+
+        // Player projectile hits boss (mage only damages when weak point is open)
+        if (boss != null) {
+            int candidates = projectileGrid.queryAabb(boss.getX(), boss.getY(),
+                    boss.getX() + boss.getSize(), boss.getY() + boss.getSize());
+            for (int k = 0; k < candidates; k++) {
+                int i = projectileGrid.getResult(k);
+                if (projectiles.isPlayerShot(i) && projectiles.collidesWithBoss(i, boss)) {
+                    if (boss.isWeakPointActive()) {
+                        int damage = projectiles.getDamage(i);
+                        boss.setHealth(boss.getHealth() - damage);
+                        sound.playSound("boss_hit");
+                        // Add damage number
+                        damageNumbers.add(new DamageNumber(damage, 
+                            boss.getX() + boss.getSize() / 2.0, 
+                            boss.getY() + boss.getSize() / 2.0, now));
+                        // Screen shake
+                        shakeUntilMs = now + 100;
+                        // Award score for hitting boss
+                        score += (int)(10 * scoreMultiplier);
+                    }
+                    projectiles.markRemoved(i);
+                }
+            }
+        }
+
+        // Player attack via weapon hit detection
+        updatePlayerAttack(now);
+        projectiles.sweepRemoved();
+        stages.mark(STAGE_COLLIDE);
+
+        // Check win/loss
+        if (player != null && player.getHealth() <= 0) {
+            sound.playSound("lose");
+            running = false; // Game over
+        }
+        if (boss != null && boss.getHealth() <= 0) {
+            // Award bonus score for defeating boss
+            score += (int)(level * 100 * scoreMultiplier);
+            
+            level++;
+            if (!endlessMode && level > 4) {
+                sound.playSound("won");
+                running = false; // Game win (levels mode only)
+            } else {
+                sound.playSound("level_next");
+                projectiles.clear();
+                items.clear(); // Clear items on level transition
+                
+                // In endless mode, cycle through boss types
+                if (endlessMode) {
+                    int bossType = ((level - 1) % 4) + 1;
+                    spawnBossForLevel(bossType);
+                } else {
+                    spawnBossForLevel(level);
+                }
+                
+                // Slight heal/reposition player
+                player.setHealth(Math.min(player.getMaxHealth(), player.getHealth() + 20));
+                player.setX(WIDTH / 2 - player.getWidth() / 2);
+                player.setY(HEIGHT - 100);
+                // Reset item spawn timer
+                lastItemSpawnMs = now;
+                nextItemSpawnMs = now + getRandomSpawnDelay();
+            }
+
+            GameEvents.LevelTransition transition = new GameEvents.LevelTransition();
+            if (transition.shouldCommit()) {
+                transition.fromLevel = level - 1;
+                transition.toLevel = level;
+                transition.nextBoss = !endlessMode && level > 4 ? 0 : bossKind(boss);
+                transition.score = score;
+                transition.tick = clock.getTick();
+                transition.commit();
+            }
+        }
+
+        // Item spawning at random intervals (no max limit)
+        if (now >= nextItemSpawnMs) {
+            spawnRandomItem();
+            lastItemSpawnMs = now;
+            nextItemSpawnMs = now + getRandomSpawnDelay();
+        }
+
+        // Item collision and pickup
+        Iterator<Item> itemIt = items.iterator();
+        while (itemIt.hasNext()) {
+            Item item = itemIt.next();
+            if (player != null && item.collidesWith(player)) {
+                if (item instanceof BombItem) {
+                    sound.playSound("boom");
+                    // Trigger hit flash when bomb damages player
+                    playerHitFlashUntilMs = now + 300;
+                    // Trigger explosion animation and screen shake
+                    explosionUntilMs = now + 500;
+                    shakeUntilMs = now + 300;
+                    explosionX = item.getX();
+                    explosionY = item.getY();
+                } else {
+                    sound.playSound("pick_uped");
+                    if (item instanceof ShieldItem) {
+                        // Activate shield for 5 seconds
+                        shieldUntilMs = now + 5000;
+                    }
+                }
+                item.applyEffect(player, projectiles);
+                itemIt.remove();
+            }
+        }
+        
+        // Update damage numbers
+        Iterator<DamageNumber> dnIt = damageNumbers.iterator();
+        while (dnIt.hasNext()) {
+            DamageNumber dn = dnIt.next();
+            dn.update();
+            if (dn.isExpired(now)) {
+                dnIt.remove();
+            }
+        }
+        
+        stages.mark(STAGE_ITEMS);
+
+        // Update particles
+        if (parallelTick != null) {
+            parallelTick.updateParticles(particles, now);
+        } else {
+            particles.update(now);
+        }
+        
+        // Spawn particle trails for projectiles
+        if (effectsEnabled && effectsRandom.nextInt(3) == 0) { // Not every frame to avoid too many particles
+            for (int i = 0; i < projectiles.size(); i++) {
+                int trailColor = projectiles.isPlayerShot(i) ? playerTrailColor : enemyTrailColor;
+                particles.emitTrail(
+                    projectiles.getX(i) + projectiles.getSize(i) / 2.0, 
+                    projectiles.getY(i) + projectiles.getSize(i) / 2.0, 
+                    trailColor,
+                    now
+                );
+            }
+        }
+        
+        // Update screen shake
+        if (effectsEnabled && now < shakeUntilMs) {
+            shakeOffsetX = effectsRandom.nextInt(11) - 5; // -5 to +5
+            shakeOffsetY = effectsRandom.nextInt(11) - 5;
+        } else {
+            shakeOffsetX = 0;
+            shakeOffsetY = 0;
+        }
+        stages.mark(STAGE_PARTICLES);
+        stages.end();
+        event.end();
+        if (stages.isEnabled() && event.shouldCommit()) {
+            event.tick = clock.getTick();
+            event.level = level;
+            event.boss = bossKind(boss);
+            event.projectiles = projectiles.size();
+            event.particles = particles.size();
+            event.items = items.size();
+            event.damageNumbers = damageNumbers.size();
+            event.input = stages.getStageNanos(STAGE_INPUT, 0);
+            event.bossAttack = stages.getStageNanos(STAGE_BOSS, 0);
+            event.move = stages.getStageNanos(STAGE_MOVE, 0);
+            event.collide = stages.getStageNanos(STAGE_COLLIDE, 0);
+            event.itemsUpdate = stages.getStageNanos(STAGE_ITEMS, 0);
+            event.particlesUpdate = stages.getStageNanos(STAGE_PARTICLES, 0);
+            event.commit();
+        }
+    }
+
+    // The configured profiler, or a private one when only a Tick event wants the stage times
+    private StageProfiler stagesFor(boolean eventEnabled) {
+        if (profiler.isEnabled() || !eventEnabled) return profiler;
+        if (eventStages == null) {
+            eventStages = newProfiler();
+        }
+        return eventStages;
+    }
+
+    // Rectangle (player) vs circle (boss) collision check
+    static boolean collidesPlayerBoss(Character c, Boss b) {
+        int cx = c.getX();
+        int cy = c.getY();
+        int cw = c.getWidth();
+        int ch = c.getHeight();
+        int bx = b.getX() + b.getSize() / 2;
+        int by = b.getY() + b.getSize() / 2;
+        int radius = b.getSize() / 2;
+        // Closest point on rect to circle center
+        int closestX = Math.max(cx, Math.min(bx, cx + cw));
+        int closestY = Math.max(cy, Math.min(by, cy + ch));
+        int dx = bx - closestX;
+        int dy = by - closestY;
+        return (dx * dx + dy * dy) < (radius * radius);
+    }
+
+    // Player attack: weapon must reach boss; damage gated inside Character.attack
+    private void updatePlayerAttack(long now) {
+        if (attacking && player != null && boss != null) {
+            // Check if this is Warrior or Rogue for special abilities
+            boolean isWarriorOrRogue = (player instanceof Warrior || player instanceof Rogue);
+            boolean justAttacked = player.canAttack(now); // Check if we're off cooldown (about to attack)
+            
+            // Warrior and Rogue can destroy projectiles with their weapon
+            if (isWarriorOrRogue && justAttacked) {
+                int[][] weaponBox = player.getWeaponHitbox(boss);
+                int[] xs = weaponBox[0];
+                int[] ys = weaponBox[1];
+                int minX = xs[0], maxX = xs[0], minY = ys[0], maxY = ys[0];
+                for (int i = 1; i < xs.length; i++) {
+                    if (xs[i] < minX) minX = xs[i];
+                    if (xs[i] > maxX) maxX = xs[i];
+                    if (ys[i] < minY) minY = ys[i];
+                    if (ys[i] > maxY) maxY = ys[i];
+                }
+                
+                // Check for projectile collisions with weapon (grid candidates only)
+                boolean deflectedAny = false;
+                int candidates = projectileGrid.queryAabb(minX, minY, maxX, maxY);
+                for (int k = 0; k < candidates; k++) {
+                    int i = projectileGrid.getResult(k);
+                    // Only destroy enemy projectiles, not ones already hit or player projectiles
+                    if (!projectiles.isPlayerShot(i) && !projectiles.isRemoved(i)) {
+                        int px = (int)projectiles.getX(i);
+                        int py = (int)projectiles.getY(i);
+                        int pSize = projectiles.getSize(i);
+                        
+                        // Simple AABB collision check
+                        if (!(px + pSize < minX || px > maxX || py + pSize < minY || py > maxY)) {
+                            // Trigger deflection animation
+                            deflectionUntilMs = now + 200;
+                            deflectionX = px;
+                            deflectionY = py;
+                            deflectedAny = true;
+                            projectiles.markRemoved(i);
+                            score += (int)(5 * scoreMultiplier); // Small bonus for deflecting
+                        }
+                    }
+                }
+                
+                // Play deflection sound if any projectiles were destroyed
+                if (deflectedAny) {
+                    sound.playSound("boss_hit");
+                }
+            }
+            
+            if (weaponHitsBoss(player, boss)) {
+                int healthBefore = boss.getHealth();
+                player.attack(boss, now);
+                int healthAfter = boss.getHealth();
+                
+                // Play slash sound when Warrior or Rogue swing (regardless of damage)
+                if (isWarriorOrRogue && justAttacked) {
+                    sound.playSound("slash");
+                }
+                
+                // Award score if damage was dealt
+                if (healthAfter < healthBefore) {
+                    int damage = healthBefore - healthAfter;
+                    sound.playSound("boss_hit");
+                    // Add damage number
+                    damageNumbers.add(new DamageNumber(damage, 
+                        boss.getX() + boss.getSize() / 2.0, 
+                        boss.getY() + boss.getSize() / 2.0, now));
+                    // Screen shake
+                    shakeUntilMs = now + 100;
+                    score += (int)(10 * scoreMultiplier);
+                }
+            }
+        }
+    }
+
+    static boolean weaponHitsBoss(Character c, Boss b) {
+        int[][] poly = c.getWeaponHitbox(b);
+        int[] xs = poly[0];
+        int[] ys = poly[1];
+        int minX = xs[0], maxX = xs[0], minY = ys[0], maxY = ys[0];
+        for (int i = 1; i < xs.length; i++) {
+            if (xs[i] < minX) minX = xs[i];
+            if (xs[i] > maxX) maxX = xs[i];
+            if (ys[i] < minY) minY = ys[i];
+            if (ys[i] > maxY) maxY = ys[i];
+        }
+        int bx = b.getX();
+        int by = b.getY();
+        int bs = b.getSize();
+        int bMinX = bx;
+        int bMinY = by;
+        int bMaxX = bx + bs;
+        int bMaxY = by + bs;
+        return !(maxX < bMinX || minX > bMaxX || maxY < bMinY || minY > bMaxY);
+    }
+
+    private int getRandomSpawnDelay() {
+        // Spawn rate increases per level
+        int baseMin = 10000; // 10 seconds
+        int baseMax = 18000; // 18 seconds
+        
+        // Level 1: 0%, Level 2: 60%, Level 3: 80%, Level 4: 90%
+        double speedIncrease = 0;
+        if (level == 2) speedIncrease = 0.60;
+        else if (level == 3) speedIncrease = 0.80;
+        else if (level >= 4) speedIncrease = 0.90;
+        
+        double multiplier = 1.0 - speedIncrease;
+        
+        int minInterval = (int)(baseMin * multiplier);
+        int maxInterval = (int)(baseMax * multiplier);
+        
+        return minInterval + random.nextInt(Math.max(1, maxInterval - minInterval));
+    }
+
+    private void spawnRandomItem() {
+        // Random position within arena bounds (with margins), avoiding boss
+        int margin = 60;
+        int x, y;
+        int attempts = 0;
+        
+        do {
+            x = margin + random.nextInt(WIDTH - margin * 2 - 20);
+            y = margin + random.nextInt(HEIGHT - margin * 2 - 20);
+            attempts++;
+        } while (attempts < 50 && boss != null && isNearBoss(x, y, boss, 100)); // Keep 100 pixel distance from boss
+        
+        // Difficulty-based item spawn rates
+        int choice;
+        if (endlessMode) {
+            if (difficulty.equals("EASY")) {
+                // Easy: More hearts (40%) and shields (30%), fewer bombs (10%)
+                int roll = random.nextInt(100);
+                if (roll < 40) {
+                    choice = 0; // Heart
+                } else if (roll < 60) {
+                    choice = 1; // Orb
+                } else if (roll < 90) {
+                    choice = 2; // Shield
+                } else {
+                    choice = 3; // Bomb
+                }
+            } else if (difficulty.equals("NIGHTMARE")) {
+                // Nightmare: More bombs (40%), fewer hearts (15%) and shields (15%)
+                int roll = random.nextInt(100);
+                if (roll < 15) {
+                    choice = 0; // Heart
+                } else if (roll < 30) {
+                    choice = 1; // Orb
+                } else if (roll < 45) {
+                    choice = 2; // Shield
+                } else {
+                    choice = 3; // Bomb
+                }
+            } else {
+                // Medium: Balanced (25% each)
+                choice = random.nextInt(4);
+            }
+        } else {
+            // Levels mode: Normal spawn (25% each)
+            choice = random.nextInt(4);
+        }
+        
+        // Spawn the selected item
+        if (choice == 0) {
+            items.add(new HeartItem(x, y));
+        } else if (choice == 1) {
+            items.add(new OrbItem(x, y));
+        } else if (choice == 2) {
+            items.add(new ShieldItem(x, y));
+        } else {
+            items.add(new BombItem(x, y));
+        }
+    }
+
+    private boolean isNearBoss(int x, int y, Boss b, int minDistance) {
+        int bx = b.getX() + b.getSize() / 2;
+        int by = b.getY() + b.getSize() / 2;
+        double dist = Math.hypot(x - bx, y - by);
+        return dist < minDistance;
+    }
+
+    // Read access for rendering and tools
+    public GameClock getClock() { return clock; }
+    public long getTimeMs() { return clock.getMillis(); }
+    public Character getPlayer() { return player; }
+    public int getCharacterType() { return characterType; }
+    public Boss getBoss() { return boss; }
+    public ProjectileStore getProjectiles() { return projectiles; }
+    public List<Item> getItems() { return items; }
+    public List<DamageNumber> getDamageNumbers() { return damageNumbers; }
+    public ParticleSystem getParticles() { return particles; }
+    public int getLevel() { return level; }
+    public boolean isRunning() { return running; }
+    public boolean isEndlessMode() { return endlessMode; }
+    public String getDifficulty() { return difficulty; }
+    public int getScore() { return score; }
+    public double getScoreMultiplier() { return scoreMultiplier; }
+    public boolean isAttacking() { return attacking; }
+    public int getShakeOffsetX() { return shakeOffsetX; }
+    public int getShakeOffsetY() { return shakeOffsetY; }
+    public long getPlayerHitFlashUntilMs() { return playerHitFlashUntilMs; }
+    public long getShieldUntilMs() { return shieldUntilMs; }
+    public long getExplosionUntilMs() { return explosionUntilMs; }
+    public int getExplosionX() { return explosionX; }
+    public int getExplosionY() { return explosionY; }
+    public long getDeflectionUntilMs() { return deflectionUntilMs; }
+    public int getDeflectionX() { return deflectionX; }
+    public int getDeflectionY() { return deflectionY; }
+
+    // Spectator view: SpectatorFrame.decode() copies a broadcast world in through these
+    void setLevel(int level) { this.level = level; }
+    void setScore(int score) { this.score = score; }
+    void setRunning(boolean running) { this.running = running; }
+    void setBoss(Boss boss) { this.boss = boss; }
+    void setPlayerHitFlashUntilMs(long untilMs) { this.playerHitFlashUntilMs = untilMs; }
+    void setShieldUntilMs(long untilMs) { this.shieldUntilMs = untilMs; }
+
+    void setExplosion(long untilMs, int x, int y) {
+        this.explosionUntilMs = untilMs;
+        this.explosionX = x;
+        this.explosionY = y;
+    }
+
+    void setDeflection(long untilMs, int x, int y) {
+        this.deflectionUntilMs = untilMs;
+        this.deflectionX = x;
+        this.deflectionY = y;
+    }
+
+    /**
+     * True once the player has beaten level 4 in levels mode.
+     */
+    public boolean isWon() { return !running && !endlessMode && level > 4; }
+
+    /**
+     * Upper bound on the bytes saveState() writes for the current state.
+     */
+    public int stateBytes() {
+        return stateBytes(false);
+    }
+
+    /**
+     * Upper bound on the bytes saveState(buf, aligned) writes for the current state.
+     */
+    public int stateBytes(boolean aligned) {
+        // Fixed part, the player and the boss with the largest pattern state
+        return 512 + items.size() * 9 + projectiles.stateBytes(aligned);
+    }
+
+    /**
+     * Write the simulation state into buf: clock, random state, scores,
+     * timers, held input, player, boss, items and projectiles. Particles,
+     * damage numbers and screen shake are cosmetic and not saved. Call
+     * between ticks; nothing is allocated.
+     */
+    public void saveState(ByteBuffer buf) {
+        saveState(buf, false);
+    }
+
+    /**
+     * Like saveState(buf); aligned pads the projectile arrays to a fixed
+     * layout (see ProjectileStore.saveState) for saves that get diffed.
+     */
+    public void saveState(ByteBuffer buf, boolean aligned) {
+        buf.putLong(clock.getTick());
+        buf.putLong(random.getState());
+        buf.putInt(level).putInt(score);
+        buf.put((byte) (running ? 1 : 0));
+        buf.put((byte) (inputMask() | (dashQueued ? DASH_QUEUED : 0)));
+        buf.putLong(playerHitFlashUntilMs).putLong(shieldUntilMs);
+        buf.putLong(explosionUntilMs).putInt(explosionX).putInt(explosionY);
+        buf.putLong(deflectionUntilMs).putInt(deflectionX).putInt(deflectionY);
+        buf.putLong(lastItemSpawnMs).putLong(nextItemSpawnMs);
+        player.saveState(buf);
+        buf.put((byte) bossKind(boss));
+        if (boss != null) {
+            boss.saveState(buf);
+        }
+        buf.putInt(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            Item item = items.get(i);
+            buf.put((byte) itemKind(item)).putInt(item.getX()).putInt(item.getY());
+        }
+        projectiles.saveState(buf, aligned);
+    }
+
+    /**
+     * Return to a state written by saveState() on a world with the same
+     * character, mode and difficulty. The boss is only recreated when the
+     * saved one is of a different level. The clock must be a VirtualClock.
+     */
+    public void restoreState(ByteBuffer buf) {
+        if (!(clock instanceof VirtualClock)) {
+            throw new IllegalStateException("Only a world on a VirtualClock can be restored");
+        }
+        ((VirtualClock) clock).setTick(buf.getLong());
+        long randomState = buf.getLong();
+        level = buf.getInt();
+        score = buf.getInt();
+        running = buf.get() != 0;
+        int input = buf.get();
+        setInput(input);
+        dashQueued = (input & DASH_QUEUED) != 0;
+        playerHitFlashUntilMs = buf.getLong();
+        shieldUntilMs = buf.getLong();
+        explosionUntilMs = buf.getLong();
+        explosionX = buf.getInt();
+        explosionY = buf.getInt();
+        deflectionUntilMs = buf.getLong();
+        deflectionX = buf.getInt();
+        deflectionY = buf.getInt();
+        lastItemSpawnMs = buf.getLong();
+        nextItemSpawnMs = buf.getLong();
+        player.restoreState(buf);
+        int kind = buf.get();
+        if (kind == 0) {
+            boss = null;
+        } else {
+            if (bossKind(boss) != kind) {
+                // Consumes random numbers, so the generator is restored after this
+                boss = createBoss(kind, clock.getMillis(), random);
+            }
+            boss.restoreState(buf);
+        }
+        items.clear();
+        int itemCount = buf.getInt();
+        for (int i = 0; i < itemCount; i++) {
+            items.add(createItem(buf.get(), buf.getInt(), buf.getInt()));
+        }
+        projectiles.restoreState(buf);
+        random.setState(randomState);
+
+        damageNumbers.clear();
+        particles.clear();
+        shakeUntilMs = 0;
+        shakeOffsetX = 0;
+        shakeOffsetY = 0;
+    }
+
+    /**
+     * A world that copyViewTo() can copy this one into, so it can be drawn
+     * on another thread while this one keeps running. It is never stepped.
+     */
+    public GameWorld newView() {
+        long tickNanos = clock instanceof VirtualClock ? ((VirtualClock) clock).getTickNanos()
+                : 1_000_000_000L / GameLoop.DEFAULT_TICK_RATE;
+        GameWorld view = new GameWorld(new VirtualClock(tickNanos), 0, characterType, endlessMode, difficulty, 1,
+                SILENT);
+        view.setEffectsEnabled(false);
+        view.viewOf = this;
+        return view;
+    }
+
+    /**
+     * The running world this one shows: itself, or for a view from
+     * newView() the world it copies. Every view of a run answers the same.
+     */
+    public GameWorld getRunWorld() {
+        return viewOf != null ? viewOf : this;
+    }
+
+    /**
+     * Make view, from newView(), show this world as it is now: everything
+     * GameRenderer draws, particles, damage numbers and screen shake
+     * included. Call between ticks. Items never change once spawned, so
+     * they are shared rather than copied. Allocates only when the boss
+     * changes or there are more damage numbers than at the last copy.
+     */
+    public void copyViewTo(GameWorld view) {
+        ((VirtualClock) view.clock).setTime(clock.getTick(), clock.getNanos());
+        view.level = level;
+        view.score = score;
+        view.running = running;
+        view.setInput(inputMask());
+        view.shakeOffsetX = shakeOffsetX;
+        view.shakeOffsetY = shakeOffsetY;
+        view.shakeUntilMs = shakeUntilMs;
+        view.playerHitFlashUntilMs = playerHitFlashUntilMs;
+        view.shieldUntilMs = shieldUntilMs;
+        view.explosionUntilMs = explosionUntilMs;
+        view.explosionX = explosionX;
+        view.explosionY = explosionY;
+        view.deflectionUntilMs = deflectionUntilMs;
+        view.deflectionX = deflectionX;
+        view.deflectionY = deflectionY;
+        view.lastItemSpawnMs = lastItemSpawnMs;
+        view.nextItemSpawnMs = nextItemSpawnMs;
+
+        if (view.viewScratch == null) {
+            view.viewScratch = ByteBuffer.allocate(512);
+        }
+        ByteBuffer scratch = view.viewScratch;
+        if (player == null) {
+            view.player = null;
+        } else {
+            if (view.player == null) {
+                view.player = createCharacter(characterType, 0, 0);
+            }
+            scratch.clear();
+            player.saveState(scratch);
+            scratch.flip();
+            view.player.restoreState(scratch);
+        }
+        int kind = bossKind(boss);
+        if (kind == 0) {
+            view.boss = null;
+        } else {
+            if (bossKind(view.boss) != kind) {
+                view.boss = createBoss(kind, clock.getMillis(), view.random);
+            }
+            scratch.clear();
+            boss.saveState(scratch);
+            scratch.flip();
+            view.boss.restoreState(scratch);
+        }
+
+        view.items.clear();
+        view.items.addAll(items);
+        List<DamageNumber> numbers = view.damageNumbers;
+        for (int i = 0; i < damageNumbers.size(); i++) {
+            if (i == numbers.size()) {
+                numbers.add(new DamageNumber(0, 0, 0, 0));
+            }
+            numbers.get(i).copyFrom(damageNumbers.get(i));
+        }
+        while (numbers.size() > damageNumbers.size()) {
+            numbers.remove(numbers.size() - 1);
+        }
+        view.particles.copyFrom(particles);
+        view.projectiles.copyFrom(projectiles);
+    }
+
+    private int inputMask() {
+        int mask = 0;
+        if (up) mask |= INPUT_UP;
+        if (down) mask |= INPUT_DOWN;
+        if (left) mask |= INPUT_LEFT;
+        if (right) mask |= INPUT_RIGHT;
+        if (attacking) mask |= INPUT_ATTACK;
+        if (dashing) mask |= INPUT_DASH;
+        return mask;
+    }
+
+    /**
+     * Hash of the simulation state (FNV-1a over tick, scores, entities and
+     * projectiles). Purely visual state such as particles and screen shake
+     * is left out, so two runs from the same seed and inputs must agree on
+     * every tick whether or not effects are enabled.
+     */
+    public long checksum() {
+        long h = FNV_OFFSET;
+        h = mix(h, clock.getTick());
+        h = mix(h, level);
+        h = mix(h, score);
+        h = mix(h, running ? 1 : 0);
+        h = mix(h, nextItemSpawnMs);
+        h = mix(h, shieldUntilMs);
+        if (player != null) {
+            h = mix(h, player.getX());
+            h = mix(h, player.getY());
+            h = mix(h, player.getHealth());
+            h = mix(h, player.getLastAttackTime());
+            h = mix(h, player.getLastDashTime());
+        }
+        if (boss != null) {
+            h = mix(h, boss.getX());
+            h = mix(h, boss.getY());
+            h = mix(h, boss.getHealth());
+            h = mix(h, boss.isWeakPointActive() ? 1 : 0);
+        }
+        h = mix(h, projectiles.size());
+        for (int i = 0; i < projectiles.size(); i++) {
+            h = mix(h, Double.doubleToLongBits(projectiles.getX(i)));
+            h = mix(h, Double.doubleToLongBits(projectiles.getY(i)));
+            h = mix(h, projectiles.getKind(i));
+        }
+        h = mix(h, items.size());
+        for (Item item : items) {
+            h = mix(h, item.getX());
+            h = mix(h, item.getY());
+        }
+        return h;
+    }
+
+    static long mix(long h, long value) {
+        for (int i = 0; i < 8; i++) {
+            h ^= (value >>> (i * 8)) & 0xff;
+            h *= FNV_PRIME;
+        }
+        return h;
+    }
+}
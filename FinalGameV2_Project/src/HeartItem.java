@@ -12,18 +12,16 @@ public class HeartItem extends Item {
     }
 
     @Override
-    public void applyEffect(Character player, java.util.List<Projectile> projectiles) {
+    public void applyEffect(Character player, ProjectileStore projectiles) {
         int newHealth = Math.min(player.getMaxHealth(), player.getHealth() + 10);
         player.setHealth(newHealth);
     }
 
     @Override
-    public void draw(Graphics g) {
+    protected void drawSprite(Graphics g, int x, int y) {
         // Draw a simple heart shape using two circles and a triangle
         g.setColor(Color.RED);
         int s = getSize();
-        int x = getX();
-        int y = getY();
         
         // Simple heart approximation: two circles at top and filled polygon
         g.fillOval(x, y, s/2, s/2);
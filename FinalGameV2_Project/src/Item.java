@@ -16,9 +16,21 @@ public abstract class Item {
         this.y = y;
     }
 
-    public abstract void applyEffect(Character player, java.util.List<Projectile> projectiles);
+    public abstract void applyEffect(Character player, ProjectileStore projectiles);
     
-    public abstract void draw(Graphics g);
+    /**
+     * Draw the item at its position; animated parts are timed by nowMs.
+     */
+    public void draw(Graphics g, long nowMs) {
+        drawSprite(g, x, y);
+        drawEffect(g, nowMs);
+    }
+
+    // Static look of the item with its top-left corner at (x, y); cached by RenderCache
+    protected abstract void drawSprite(Graphics g, int x, int y);
+
+    // Animated part drawn over the sprite every frame; none by default
+    protected void drawEffect(Graphics g, long nowMs) { }
     
     public boolean collidesWith(Character c) {
         int cx = c.getX();
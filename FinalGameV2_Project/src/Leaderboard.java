@@ -0,0 +1,517 @@
+package src;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+/**
+ * Leaderboard keeps every finished run on disk and answers top-K and
+ * rank-of-score queries per board (levels mode, and endless mode per
+ * difficulty).
+ *
+ * Runs are appended to scores.log as fixed-size records, each ending in a
+ * CRC32 and forced to disk before record() returns; a torn record left by
+ * a crash fails its check and is cut off at the next open. Each board also
+ * has a sorted index of (score, record number) pairs, highest score first,
+ * that is memory-mapped rather than read. Runs recorded since the index was
+ * written sit in a small sorted in-memory delta, rebuilt at open from the
+ * log records the index does not cover, and are merged into a new index
+ * generation once DELTA_LIMIT of them pile up. Queries binary-search both,
+ * so they stay O(log n) with millions of runs. close() brings every board's
+ * index up to the end of the log, including boards with no runs, so after
+ * a clean shutdown the next open maps the indexes and reads no records.
+ *
+ * Index generations get new file names instead of replacing the mapped
+ * file, since Windows cannot replace a file that is mapped; stale ones are
+ * deleted when possible.
+ *
+ * Log layout (big-endian): magic "DLBL", version, then records of
+ *   board(1) characterType(1) level(2) score(4) timeMs(8) crc32(4)
+ * Index layout: magic "DLBI", version, log bytes covered(8), count(4),
+ * then count x (score(4), record(4)).
+ *
+ * Not thread-safe; callers serialize access.
+ *
+ * Usage: java src.Leaderboard [--dir D] [--top K] [--fill N] [--seed N]
+ *   prints each board's top K; --fill first records N random runs
+ */
+public class Leaderboard implements Closeable {
+    public static final String DEFAULT_DIR = "leaderboard";
+    public static final String[] BOARD_NAMES = { "levels", "endless-easy", "endless-medium", "endless-nightmare" };
+
+    private static final int LOG_MAGIC = 0x444C424C;   // "DLBL"
+    private static final int INDEX_MAGIC = 0x444C4249; // "DLBI"
+    private static final int VERSION = 1;
+    private static final int LOG_HEADER_BYTES = 8;
+    private static final int RECORD_BYTES = 20;
+    private static final int INDEX_HEADER_BYTES = 20;
+    private static final int INDEX_ENTRY_BYTES = 8;
+    // Runs held in memory per board before a new index is written
+    static final int DELTA_LIMIT = 4096;
+
+    /**
+     * One recorded run.
+     */
+    public static final class Entry {
+        public final int board;
+        public final int characterType;
+        public final int level;
+        public final int score;
+        public final long timeMs;
+
+        Entry(int board, int characterType, int level, int score, long timeMs) {
+            this.board = board;
+            this.characterType = characterType;
+            this.level = level;
+            this.score = score;
+            this.timeMs = timeMs;
+        }
+    }
+
+    /**
+     * One board's mapped index plus its in-memory delta, both ordered by
+     * score descending, then record number ascending.
+     */
+    private static final class Board {
+        final String name;
+        ByteBuffer index;
+        int indexCount;
+        long indexGeneration = -1;
+        long coveredLogBytes = LOG_HEADER_BYTES;
+        int[] deltaScores = new int[64];
+        int[] deltaRecords = new int[64];
+        int deltaCount = 0;
+
+        Board(String name) {
+            this.name = name;
+        }
+
+        int indexScore(int i) { return index.getInt(INDEX_HEADER_BYTES + i * INDEX_ENTRY_BYTES); }
+        int indexRecord(int i) { return index.getInt(INDEX_HEADER_BYTES + i * INDEX_ENTRY_BYTES + 4); }
+
+        // Entries in the index scoring more than score
+        int indexAbove(int score) {
+            int lo = 0, hi = indexCount;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (indexScore(mid) > score) lo = mid + 1; else hi = mid;
+            }
+            return lo;
+        }
+
+        int deltaAbove(int score) {
+            int lo = 0, hi = deltaCount;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (deltaScores[mid] > score) lo = mid + 1; else hi = mid;
+            }
+            return lo;
+        }
+
+        void addToDelta(int score, int record) {
+            if (deltaCount == deltaScores.length) {
+                deltaScores = Arrays.copyOf(deltaScores, deltaCount * 2);
+                deltaRecords = Arrays.copyOf(deltaRecords, deltaCount * 2);
+            }
+            // Records only grow, so a new one goes after every equal score
+            int at = deltaAbove(score);
+            while (at < deltaCount && deltaScores[at] == score) at++;
+            System.arraycopy(deltaScores, at, deltaScores, at + 1, deltaCount - at);
+            System.arraycopy(deltaRecords, at, deltaRecords, at + 1, deltaCount - at);
+            deltaScores[at] = score;
+            deltaRecords[at] = record;
+            deltaCount++;
+        }
+
+        int size() { return indexCount + deltaCount; }
+    }
+
+    private final Path dir;
+    private final FileChannel log;
+    private final Board[] boards = new Board[BOARD_NAMES.length];
+    private final ByteBuffer recordBuffer = ByteBuffer.allocate(RECORD_BYTES);
+    private final CRC32 crc = new CRC32();
+    private long logBytes;
+
+    /**
+     * Open (or create) the leaderboard in dir, mapping each board's newest
+     * index and replaying the log records it does not cover.
+     */
+    public Leaderboard(File dir) throws IOException {
+        this.dir = dir.toPath();
+        Files.createDirectories(this.dir);
+        log = FileChannel.open(this.dir.resolve("scores.log"), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (log.size() < LOG_HEADER_BYTES) {
+            ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_BYTES).putInt(LOG_MAGIC).putInt(VERSION);
+            header.flip();
+            log.truncate(0);
+            log.write(header, 0);
+            log.force(true);
+        } else {
+            ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_BYTES);
+            readFully(header, 0);
+            if (header.getInt(0) != LOG_MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException("Not a leaderboard log: " + this.dir.resolve("scores.log"));
+            }
+        }
+        logBytes = log.size();
+
+        long replayFrom = Long.MAX_VALUE;
+        for (int b = 0; b < boards.length; b++) {
+            boards[b] = new Board(BOARD_NAMES[b]);
+            openIndex(boards[b]);
+            replayFrom = Math.min(replayFrom, boards[b].coveredLogBytes);
+        }
+        replayLog(replayFrom);
+        for (Board board : boards) {
+            if (board.deltaCount >= DELTA_LIMIT) {
+                writeIndex(board);
+            } else if (board.deltaCount == 0 && board.coveredLogBytes < logBytes) {
+                advanceCoverage(board);
+            }
+        }
+    }
+
+    /**
+     * Board number for a run's mode; difficulty only matters in endless mode.
+     */
+    public static int boardFor(boolean endlessMode, String difficulty) {
+        if (!endlessMode) return 0;
+        if (difficulty.equals("EASY")) return 1;
+        if (difficulty.equals("NIGHTMARE")) return 3;
+        return 2;
+    }
+
+    /**
+     * Append a finished run and return its rank on its board (1 = best;
+     * equal scores share a rank). The record is on disk when this returns.
+     */
+    public int record(int board, int characterType, int level, int score, long timeMs) throws IOException {
+        return append(board, characterType, level, score, timeMs, true);
+    }
+
+    // force false leaves flushing to close(); only for bulk loads
+    private int append(int board, int characterType, int level, int score, long timeMs, boolean force)
+            throws IOException {
+        int rank = rankOf(board, score);
+        int record = (int) ((logBytes - LOG_HEADER_BYTES) / RECORD_BYTES);
+        recordBuffer.clear();
+        recordBuffer.put((byte) board).put((byte) characterType).putShort((short) level).putInt(score)
+                .putLong(timeMs);
+        crc.reset();
+        crc.update(recordBuffer.array(), 0, RECORD_BYTES - 4);
+        recordBuffer.putInt((int) crc.getValue());
+        recordBuffer.flip();
+        while (recordBuffer.hasRemaining()) {
+            log.write(recordBuffer, logBytes + recordBuffer.position());
+        }
+        if (force) {
+            log.force(false);
+        }
+        logBytes += RECORD_BYTES;
+
+        Board b = boards[board];
+        b.addToDelta(score, record);
+        if (b.deltaCount >= DELTA_LIMIT) {
+            writeIndex(b);
+        }
+        return rank;
+    }
+
+    /**
+     * Rank a score would have on the board: one more than the runs that beat it.
+     */
+    public int rankOf(int board, int score) {
+        Board b = boards[board];
+        return b.indexAbove(score) + b.deltaAbove(score) + 1;
+    }
+
+    /** Runs recorded on the board. */
+    public int size(int board) { return boards[board].size(); }
+
+    /**
+     * The best k runs on the board, highest score first.
+     */
+    public List<Entry> top(int board, int k) throws IOException {
+        Board b = boards[board];
+        List<Entry> result = new ArrayList<>(Math.min(k, b.size()));
+        int i = 0, d = 0;
+        while (result.size() < k && (i < b.indexCount || d < b.deltaCount)) {
+            boolean fromIndex;
+            if (i == b.indexCount) {
+                fromIndex = false;
+            } else if (d == b.deltaCount) {
+                fromIndex = true;
+            } else {
+                int si = b.indexScore(i), sd = b.deltaScores[d];
+                fromIndex = si > sd || (si == sd && b.indexRecord(i) < b.deltaRecords[d]);
+            }
+            result.add(readRecord(fromIndex ? b.indexRecord(i++) : b.deltaRecords[d++]));
+        }
+        return result;
+    }
+
+    /**
+     * Merge every board's delta into a new index, mark the rest as covering
+     * the whole log, and close the log.
+     */
+    @Override
+    public void close() throws IOException {
+        // Indexes may only cover records that are on disk
+        log.force(false);
+        for (Board board : boards) {
+            if (board.deltaCount > 0) {
+                writeIndex(board);
+            } else if (board.coveredLogBytes < logBytes) {
+                advanceCoverage(board);
+            }
+        }
+        log.close();
+    }
+
+    private Entry readRecord(int record) throws IOException {
+        recordBuffer.clear();
+        readFully(recordBuffer, LOG_HEADER_BYTES + (long) record * RECORD_BYTES);
+        return new Entry(recordBuffer.get(0), recordBuffer.get(1), recordBuffer.getShort(2),
+                recordBuffer.getInt(4), recordBuffer.getLong(8));
+    }
+
+    private void readFully(ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            if (log.read(buf, position + buf.position()) < 0) {
+                throw new IOException("Leaderboard log ends early");
+            }
+        }
+    }
+
+    // Feed records past from into their boards' deltas; cut the log at the first bad one
+    private void replayLog(long from) throws IOException {
+        long end = LOG_HEADER_BYTES + (logBytes - LOG_HEADER_BYTES) / RECORD_BYTES * RECORD_BYTES;
+        ByteBuffer chunk = ByteBuffer.allocate(RECORD_BYTES * 4096);
+        long position = from;
+        while (position < end) {
+            chunk.clear();
+            chunk.limit((int) Math.min(chunk.capacity(), end - position));
+            readFully(chunk, position);
+            for (int at = 0; at < chunk.limit(); at += RECORD_BYTES) {
+                crc.reset();
+                crc.update(chunk.array(), at, RECORD_BYTES - 4);
+                int board = chunk.get(at);
+                if ((int) crc.getValue() != chunk.getInt(at + RECORD_BYTES - 4)
+                        || board < 0 || board >= boards.length) {
+                    end = position + at;
+                    break;
+                }
+                long offset = position + at;
+                if (offset >= boards[board].coveredLogBytes) {
+                    boards[board].addToDelta(chunk.getInt(at + 4),
+                            (int) ((offset - LOG_HEADER_BYTES) / RECORD_BYTES));
+                }
+            }
+            position += chunk.limit();
+        }
+        if (end < logBytes) {
+            // A torn or damaged tail from a crash
+            log.truncate(end);
+            log.force(true);
+            logBytes = end;
+        }
+    }
+
+    private void openIndex(Board board) throws IOException {
+        long newest = -1;
+        Path newestPath = null;
+        for (Path p : indexFiles(board)) {
+            long generation = generationOf(board, p);
+            if (generation > newest) {
+                newest = generation;
+                newestPath = p;
+            }
+        }
+        board.index = ByteBuffer.allocate(INDEX_HEADER_BYTES);
+        board.indexCount = 0;
+        board.coveredLogBytes = LOG_HEADER_BYTES;
+        if (newestPath == null) return;
+
+        try (FileChannel channel = FileChannel.open(newestPath, StandardOpenOption.READ)) {
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int count = mapped.capacity() >= INDEX_HEADER_BYTES ? mapped.getInt(16) : -1;
+            if (mapped.capacity() < INDEX_HEADER_BYTES || mapped.getInt(0) != INDEX_MAGIC
+                    || mapped.getInt(4) != VERSION || count < 0
+                    || mapped.capacity() != INDEX_HEADER_BYTES + (long) count * INDEX_ENTRY_BYTES
+                    || mapped.getLong(8) > logBytes) {
+                // Unusable; the whole log is replayed instead
+                System.err.println("Ignoring damaged leaderboard index " + newestPath);
+                return;
+            }
+            board.index = mapped;
+            board.indexCount = count;
+            board.coveredLogBytes = mapped.getLong(8);
+            board.indexGeneration = newest;
+        }
+        deleteStaleIndexes(board);
+    }
+
+    // Merge the index and delta into the next generation and map it
+    private void writeIndex(Board board) throws IOException {
+        long generation = board.indexGeneration + 1;
+        Path path = indexPath(board, generation);
+        Path temp = dir.resolve(board.name + ".idx.tmp");
+        int count = board.size();
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buf = ByteBuffer.allocate(INDEX_ENTRY_BYTES * 8192);
+            buf.putInt(INDEX_MAGIC).putInt(VERSION).putLong(logBytes).putInt(count);
+            int i = 0, d = 0;
+            while (i < board.indexCount || d < board.deltaCount) {
+                int score, record;
+                boolean fromIndex = d == board.deltaCount || (i < board.indexCount
+                        && (board.indexScore(i) > board.deltaScores[d] || (board.indexScore(i) == board.deltaScores[d]
+                        && board.indexRecord(i) < board.deltaRecords[d])));
+                if (fromIndex) {
+                    score = board.indexScore(i);
+                    record = board.indexRecord(i++);
+                } else {
+                    score = board.deltaScores[d];
+                    record = board.deltaRecords[d++];
+                }
+                if (buf.remaining() < INDEX_ENTRY_BYTES) {
+                    buf.flip();
+                    while (buf.hasRemaining()) out.write(buf);
+                    buf.clear();
+                }
+                buf.putInt(score).putInt(record);
+            }
+            buf.flip();
+            while (buf.hasRemaining()) out.write(buf);
+            out.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            board.index = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        board.indexCount = count;
+        board.coveredLogBytes = logBytes;
+        board.indexGeneration = generation;
+        board.deltaCount = 0;
+        deleteStaleIndexes(board);
+    }
+
+    // For a board with no runs past its index: rewrite only the covered
+    // offset in the index header instead of the whole index. The offset
+    // sits in the file's first sector, so it is written whole or not at all.
+    private void advanceCoverage(Board board) throws IOException {
+        if (board.indexGeneration < 0) {
+            writeIndex(board); // No index yet; an empty one is a header
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(indexPath(board, board.indexGeneration),
+                StandardOpenOption.WRITE)) {
+            ByteBuffer covered = ByteBuffer.allocate(8).putLong(0, logBytes);
+            while (covered.hasRemaining()) {
+                channel.write(covered, 8 + covered.position());
+            }
+            channel.force(false);
+        }
+        board.coveredLogBytes = logBytes;
+    }
+
+    private void deleteStaleIndexes(Board board) throws IOException {
+        for (Path p : indexFiles(board)) {
+            if (generationOf(board, p) < board.indexGeneration) {
+                try {
+                    Files.delete(p);
+                } catch (IOException e) {
+                    // Still mapped (Windows); removed on a later open
+                }
+            }
+        }
+    }
+
+    private List<Path> indexFiles(Board board) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, board.name + ".*.idx")) {
+            for (Path p : stream) {
+                if (generationOf(board, p) >= 0) files.add(p);
+            }
+        }
+        return files;
+    }
+
+    private Path indexPath(Board board, long generation) {
+        return dir.resolve(board.name + "." + generation + ".idx");
+    }
+
+    // Generation from "<board>.<generation>.idx", or -1 for another file
+    private static long generationOf(Board board, Path p) {
+        String name = p.getFileName().toString();
+        String middle = name.substring(board.name.length() + 1, name.length() - ".idx".length());
+        try {
+            return Long.parseLong(middle);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        String dir = DEFAULT_DIR;
+        int top = 10;
+        int fill = 0;
+        long seed = System.nanoTime();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (i + 1 >= args.length) {
+                usage("Missing value for " + arg);
+            }
+            String value = args[++i];
+            switch (arg) {
+                case "--dir": dir = value; break;
+                case "--top": top = Integer.parseInt(value); break;
+                case "--fill": fill = Integer.parseInt(value); break;
+                case "--seed": seed = Long.parseLong(value); break;
+                default: usage("Unknown option " + arg);
+            }
+        }
+
+        long start = System.nanoTime();
+        Leaderboard leaderboard = new Leaderboard(new File(dir));
+        System.out.printf("Opened in %.1f ms%n", (System.nanoTime() - start) / 1e6);
+        if (fill > 0) {
+            Random random = new Random(seed);
+            start = System.nanoTime();
+            for (int n = 0; n < fill; n++) {
+                leaderboard.append(random.nextInt(BOARD_NAMES.length), 1 + random.nextInt(3), 1 + random.nextInt(12),
+                        random.nextInt(100_000), System.currentTimeMillis(), false);
+            }
+            System.out.printf("Recorded %d runs in %.1f s%n", fill, (System.nanoTime() - start) / 1e9);
+        }
+        for (int b = 0; b < BOARD_NAMES.length; b++) {
+            System.out.println(BOARD_NAMES[b] + " (" + leaderboard.size(b) + " runs)");
+            int rank = 1;
+            for (Entry e : leaderboard.top(b, top)) {
+                System.out.printf("  %3d. %7d  level %d%n", rank++, e.score, e.level);
+            }
+        }
+        leaderboard.close();
+    }
+
+    private static void usage(String error) {
+        System.err.println(error);
+        System.err.println("Usage: java src.Leaderboard [--dir D] [--top K] [--fill N] [--seed N]");
+        System.exit(2);
+    }
+}
@@ -1,33 +1,34 @@
 package src;
 
-import java.util.List;
 
 /**
  * Level1Boss: slow single shots.
  */
 public class Level1Boss extends Boss {
-    private long lastShot = System.currentTimeMillis();
-    private int fireIntervalMs = 900;
+    private static final int FIRE_INTERVAL_MS = 900;
 
-    public Level1Boss(int x, int y) {
-        super(x, y, 120, 3);
+    // Aim roughly towards player
+    private static final BulletPattern PATTERN = BulletPattern.builder()
+            .aim()
+            .shoot(ProjectileStore.KIND_STRAIGHT, 8)
+            .wait(FIRE_INTERVAL_MS)
+            .build();
+
+    private final PatternRunner pattern;
+
+    public Level1Boss(int x, int y, long nowMs) {
+        super(x, y, 120, 3, nowMs);
+        pattern = new PatternRunner(PATTERN, null, nowMs + FIRE_INTERVAL_MS);
         setWeakDurations(1500, 2500);
     }
 
     @Override
-    public void attackPattern(List<Projectile> projectiles, Character player) {
-        long now = System.currentTimeMillis();
-        if (now - lastShot >= fireIntervalMs) {
-            lastShot = now;
-            double px = getX() + getSize() / 2.0;
-            double py = getY() + getSize() / 2.0;
-            // Aim roughly towards player
-            double dx = (player.getX() + player.getWidth() / 2.0) - px;
-            double dy = (player.getY() + player.getHeight() / 2.0) - py;
-            double len = Math.max(1, Math.hypot(dx, dy));
-            double vx = (dx / len) * getProjectileSpeed();
-            double vy = (dy / len) * getProjectileSpeed();
-            projectiles.add(new StraightProjectile(px, py, vx, vy, 8));
-        }
+    public void attackPattern(ProjectileStore projectiles, Character player, long nowMs) {
+        pattern.run(projectiles, this, player, nowMs);
+    }
+
+    @Override
+    protected PatternRunner getPattern() {
+        return pattern;
     }
 }
@@ -1,51 +1,35 @@
 package src;
 
-import java.util.List;
 
 /**
- * Level3Boss: spiral pattern with periodic bursts.
+ * Level3Boss: aimed shot plus an angled shot.
  */
 public class Level3Boss extends Boss {
-    private long lastShot = System.currentTimeMillis();
-    private int fireIntervalMs = 550;
-    private double spiralAngle = 0;
+    private static final int FIRE_INTERVAL_MS = 550;
 
-    public Level3Boss(int x, int y) {
-        super(x, y, 200, 3);
+    // Center shot directly at player, then one shot 20 degrees off
+    private static final BulletPattern PATTERN = BulletPattern.builder()
+            .aim()
+            .shoot(ProjectileStore.KIND_STRAIGHT, 10)
+            .spread(1, 0, Math.toRadians(20), ProjectileStore.KIND_STRAIGHT, 10)
+            .wait(FIRE_INTERVAL_MS)
+            .build();
+
+    private final PatternRunner pattern;
+
+    public Level3Boss(int x, int y, long nowMs) {
+        super(x, y, 200, 3, nowMs);
+        pattern = new PatternRunner(PATTERN, null, nowMs + FIRE_INTERVAL_MS);
         setWeakDurations(1000, 2000);
     }
 
     @Override
-    public void attackPattern(List<Projectile> projectiles, Character player) {
-        long now = System.currentTimeMillis();
-        if (now - lastShot >= fireIntervalMs) {
-            lastShot = now;
-            double cx = getX() + getSize() / 2.0;
-            double cy = getY() + getSize() / 2.0;
-            
-            // Spawn 2 straight projectiles aimed at player
-            double px = player.getX() + player.getWidth() / 2.0;
-            double py = player.getY() + player.getHeight() / 2.0;
-            
-            // Center shot directly at player
-            double dx = px - cx;
-            double dy = py - cy;
-            double len = Math.max(1, Math.hypot(dx, dy));
-            double vx = (dx / len) * getProjectileSpeed();
-            double vy = (dy / len) * getProjectileSpeed();
-            projectiles.add(new StraightProjectile(cx, cy, vx, vy, 10));
-            
-            // One angled shot (20 degrees offset)
-            double angle = Math.atan2(dy, dx);
-            double spread = Math.toRadians(20);
-            
-            // Offset shot
-            double offsetAngle = angle + spread;
-            double offsetVx = Math.cos(offsetAngle) * getProjectileSpeed();
-            double offsetVy = Math.sin(offsetAngle) * getProjectileSpeed();
-            projectiles.add(new StraightProjectile(cx, cy, offsetVx, offsetVy, 10));
-            
-            spiralAngle += 0.3; // advance base angle for next wave
-        }
+    public void attackPattern(ProjectileStore projectiles, Character player, long nowMs) {
+        pattern.run(projectiles, this, player, nowMs);
+    }
+
+    @Override
+    protected PatternRunner getPattern() {
+        return pattern;
     }
 }
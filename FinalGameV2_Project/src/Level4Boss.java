@@ -1,51 +1,42 @@
 package src;
 
-import java.util.List;
-import java.util.Random;
-
 /**
  * Level4Boss: rapid fire mixed patterns.
  */
 public class Level4Boss extends Boss {
-    private long lastShot = System.currentTimeMillis();
-    private int fireIntervalMs = 380;
-    private final Random rng = new Random();
+    private static final int FIRE_INTERVAL_MS = 380;
+
+    // Each volley is either a rapid straight aimed shot or a 5-way zigzag spread
+    private static final BulletPattern PATTERN = BulletPattern.builder()
+            .aim()
+            .choose("straight", "spread")
+            .label("straight")
+            .shoot(ProjectileStore.KIND_STRAIGHT, 11)
+            .jump("done")
+            .label("spread")
+            .spread(5, 0.15, 0, ProjectileStore.KIND_ZIGZAG, 12)
+            .label("done")
+            .wait(FIRE_INTERVAL_MS)
+            .build();
+
+    private final PatternRunner pattern;
 
-    public Level4Boss(int x, int y) {
-        super(x, y, 260, 4);
+    /**
+     * @param seed seeds the pattern choice so runs can be replayed exactly
+     */
+    public Level4Boss(int x, int y, long nowMs, long seed) {
+        super(x, y, 260, 4, nowMs);
+        pattern = new PatternRunner(PATTERN, new GameRandom(seed), nowMs + FIRE_INTERVAL_MS);
         setWeakDurations(800, 1800);
     }
 
     @Override
-    public void attackPattern(List<Projectile> projectiles, Character player) {
-        long now = System.currentTimeMillis();
-        if (now - lastShot >= fireIntervalMs) {
-            lastShot = now;
-            double cx = getX() + getSize() / 2.0;
-            double cy = getY() + getSize() / 2.0;
+    public void attackPattern(ProjectileStore projectiles, Character player, long nowMs) {
+        pattern.run(projectiles, this, player, nowMs);
+    }
 
-            int pattern = rng.nextInt(2);
-            switch (pattern) {
-                case 0: // rapid straight aimed
-                    double dx = (player.getX() + player.getWidth() / 2.0) - cx;
-                    double dy = (player.getY() + player.getHeight() / 2.0) - cy;
-                    double len = Math.max(1, Math.hypot(dx, dy));
-                    double vx = (dx / len) * getProjectileSpeed();
-                    double vy = (dy / len) * getProjectileSpeed();
-                    projectiles.add(new StraightProjectile(cx, cy, vx, vy, 11));
-                    break;
-                default: // 5-way zigzag spread
-                    for (int i = -2; i <= 2; i++) {
-                        double angle = Math.atan2(
-                                (player.getY() + player.getHeight() / 2.0) - cy,
-                                (player.getX() + player.getWidth() / 2.0) - cx
-                        ) + i * 0.15;
-                        double vx2 = Math.cos(angle) * getProjectileSpeed();
-                        double vy2 = Math.sin(angle) * getProjectileSpeed();
-                        projectiles.add(new ZigZagProjectile(cx, cy, vx2, vy2, 12));
-                    }
-                    break;
-            }
-        }
+    @Override
+    protected PatternRunner getPattern() {
+        return pattern;
     }
 }
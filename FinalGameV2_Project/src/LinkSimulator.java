@@ -0,0 +1,114 @@
+package src;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * LinkSimulator sits in front of a DatagramChannel's sends and makes a
+ * loopback connection behave like a real one: each packet is dropped with
+ * the given probability, or held back for the latency plus a random
+ * jitter and sent by a later flush(). Jitter can reorder packets, as on a
+ * real network. With no latency, jitter or loss, packets go straight out.
+ *
+ * Decisions come from a seeded Random, so a test run loses the same
+ * packets every time for the same traffic.
+ */
+public class LinkSimulator {
+    /**
+     * A packet waiting for its delivery time.
+     */
+    private static final class Pending implements Comparable<Pending> {
+        final long dueNanos;
+        final long order;
+        final ByteBuffer data;
+        final SocketAddress target;
+
+        Pending(long dueNanos, long order, ByteBuffer data, SocketAddress target) {
+            this.dueNanos = dueNanos;
+            this.order = order;
+            this.data = data;
+            this.target = target;
+        }
+
+        @Override
+        public int compareTo(Pending other) {
+            int byTime = Long.compare(dueNanos, other.dueNanos);
+            return byTime != 0 ? byTime : Long.compare(order, other.order);
+        }
+    }
+
+    private final long latencyNanos;
+    private final long jitterNanos;
+    private final double lossRate;
+    private final Random random;
+    private final PriorityQueue<Pending> pending = new PriorityQueue<>();
+    private long order = 0;
+
+    private long packetsSent = 0;
+    private long packetsDropped = 0;
+    private long bytesSent = 0;
+
+    /**
+     * @param latencyMs one-way delay added to every packet
+     * @param jitterMs  extra delay, uniform in [0, jitterMs]
+     * @param lossRate  probability in [0, 1) that a packet is dropped
+     * @param seed      seed for the loss and jitter decisions
+     */
+    public LinkSimulator(int latencyMs, int jitterMs, double lossRate, long seed) {
+        if (latencyMs < 0 || jitterMs < 0 || lossRate < 0 || lossRate >= 1) {
+            throw new IllegalArgumentException("Bad link settings: latency " + latencyMs
+                    + ", jitter " + jitterMs + ", loss " + lossRate);
+        }
+        this.latencyNanos = latencyMs * 1_000_000L;
+        this.jitterNanos = jitterMs * 1_000_000L;
+        this.lossRate = lossRate;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * A perfect link: every packet is sent immediately.
+     */
+    public static LinkSimulator direct() {
+        return new LinkSimulator(0, 0, 0, 0);
+    }
+
+    /**
+     * Send a packet (position to limit) to target, possibly later or never.
+     * The packet's bytes are copied if it has to wait.
+     */
+    public void send(DatagramChannel channel, ByteBuffer packet, SocketAddress target, long nowNanos) throws IOException {
+        packetsSent++;
+        bytesSent += packet.remaining();
+        if (lossRate > 0 && random.nextDouble() < lossRate) {
+            packetsDropped++;
+            return;
+        }
+        long delay = latencyNanos + (jitterNanos > 0 ? (long) (random.nextDouble() * jitterNanos) : 0);
+        if (delay == 0 && pending.isEmpty()) {
+            channel.send(packet, target);
+            return;
+        }
+        ByteBuffer copy = ByteBuffer.allocate(packet.remaining());
+        copy.put(packet).flip();
+        pending.add(new Pending(nowNanos + delay, order++, copy, target));
+    }
+
+    /**
+     * Send every held packet whose delivery time has come.
+     */
+    public void flush(DatagramChannel channel, long nowNanos) throws IOException {
+        while (!pending.isEmpty() && pending.peek().dueNanos <= nowNanos) {
+            Pending p = pending.poll();
+            // A full socket buffer drops the packet, as the network would
+            channel.send(p.data, p.target);
+        }
+    }
+
+    public long getPacketsSent() { return packetsSent; }
+    public long getPacketsDropped() { return packetsDropped; }
+    public long getBytesSent() { return bytesSent; }
+}
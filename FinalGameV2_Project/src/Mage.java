@@ -11,10 +11,10 @@ public class Mage extends Character {
     }
 
     @Override
-    public void attack(Boss boss) {
+    public void attack(Boss boss, long nowMs) {
         // Mage melee swing animation only; ranged handled via PlayerProjectile
-        if (!canAttack()) return;
-        markAttack();
+        if (!canAttack(nowMs)) return;
+        markAttack(nowMs);
     }
 
     @Override
@@ -0,0 +1,506 @@
+package src;
+
+import java.nio.ByteBuffer;
+
+/**
+ * MultiplayerWorld is the cooperative simulation run by a NetServer: up to
+ * NetProtocol.MAX_PLAYERS players against the same boss and projectiles.
+ * It follows GameWorld's rules for movement, dashing, attacks and hits,
+ * without items, so every player sees the same fight. The boss aims at
+ * the nearest player still standing.
+ *
+ * A player whose health reaches zero is down: it stops moving and is
+ * ignored by the boss and its bullets until the next level, when it comes
+ * back at half health. When everyone is down the run restarts at level 1.
+ * Levels cycle through the four bosses forever.
+ *
+ * Every change to the projectile set is reported to a Listener in the
+ * order it happens, so a client repeating the same spawns, moves and
+ * removals ends up with the same projectiles without ever being sent the
+ * whole set.
+ *
+ * saveState() and restoreState() copy the whole simulation to and from a
+ * ByteBuffer without allocating, so RollbackSession can rewind a few ticks
+ * and play them again with corrected inputs.
+ */
+public class MultiplayerWorld {
+    /**
+     * Receives every change to the projectiles, in simulation order.
+     */
+    public interface Listener {
+        /** A projectile was added in the given slot; its state is still as spawned. */
+        void spawned(ProjectileStore projectiles, int slot);
+        /** Every projectile moved one tick (ProjectileStore.moveAll). */
+        void moved();
+        /** The projectile with the given id was removed. */
+        void removed(int id);
+        /** Every projectile was removed. */
+        void cleared();
+    }
+
+    private static final Listener NONE = new Listener() {
+        @Override public void spawned(ProjectileStore projectiles, int slot) { }
+        @Override public void moved() { }
+        @Override public void removed(int id) { }
+        @Override public void cleared() { }
+    };
+
+    // Kept in a player's input bits: a dash press not yet taken (see setInput)
+    private static final int DASH_QUEUED = 1 << 6;
+
+    private final GameClock clock;
+    private final GameRandom random;
+    private final Character[] players = new Character[NetProtocol.MAX_PLAYERS];
+    private final int[] playerTypes = new int[NetProtocol.MAX_PLAYERS];
+    private final int[] inputs = new int[NetProtocol.MAX_PLAYERS];
+    private Boss boss;
+    private final ProjectileStore projectiles = new ProjectileStore();
+    private final SpatialGrid projectileGrid = new SpatialGrid(-50, -50,
+            GameWorld.WIDTH + 50, GameWorld.HEIGHT + 50, 32);
+    private Listener listener = NONE;
+
+    private int level = 1;
+    private int score = 0;
+    // Orbiting bullets added at the start of every level for load tests; they
+    // have no damage and players pass through them
+    private int ambientBullets = 0;
+
+    public MultiplayerWorld(GameClock clock, long seed) {
+        this.clock = clock;
+        this.random = new GameRandom(seed);
+        boss = GameWorld.createBoss(level, clock.getMillis(), random);
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener == null ? NONE : listener;
+    }
+
+    /**
+     * Spawn this many harmless spiral bullets at the start of each level,
+     * beginning now. They live until the level ends, so they load the
+     * simulation and the clients without causing any traffic of their own.
+     */
+    public void setAmbientBullets(int count) {
+        this.ambientBullets = count;
+        spawnAmbient();
+    }
+
+    /**
+     * Add a player in the first free slot, returning the slot or -1 if the
+     * game is full.
+     */
+    public int addPlayer(int characterType) {
+        for (int slot = 0; slot < players.length; slot++) {
+            if (players[slot] == null) {
+                players[slot] = GameWorld.createCharacter(characterType, spawnX(slot), GameWorld.HEIGHT - 100);
+                playerTypes[slot] = characterType;
+                inputs[slot] = 0;
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    public void removePlayer(int slot) {
+        players[slot] = null;
+        playerTypes[slot] = 0;
+        inputs[slot] = 0;
+    }
+
+    /**
+     * Set a player's held inputs (GameWorld.INPUT_* bits) for the following
+     * ticks. As in GameWorld, dash acts on the press, not while held.
+     */
+    public void setInput(int slot, int mask) {
+        int previous = inputs[slot];
+        boolean dash = (mask & GameWorld.INPUT_DASH) != 0;
+        boolean queued = dash && ((previous & DASH_QUEUED) != 0 || (previous & GameWorld.INPUT_DASH) == 0);
+        inputs[slot] = (mask & ~DASH_QUEUED) | (queued ? DASH_QUEUED : 0);
+    }
+
+    /**
+     * Advance the simulation by one tick.
+     */
+    public void step() {
+        clock.advance();
+        long now = clock.getMillis();
+
+        for (int slot = 0; slot < players.length; slot++) {
+            if (isStanding(slot)) {
+                inputs[slot] = movePlayer(players[slot], inputs[slot], now);
+            }
+        }
+
+        // Boss and mage volleys; everything from here to the move is a spawn
+        int spawnedFrom = projectiles.size();
+        boss.updateWeakPoint(now);
+        Character target = nearestStanding();
+        if (target != null) {
+            boss.attackPattern(projectiles, target, now);
+        }
+        for (int slot = 0; slot < players.length; slot++) {
+            if (isStanding(slot) && (inputs[slot] & GameWorld.INPUT_ATTACK) != 0 && players[slot] instanceof Mage) {
+                fireMageShot((Mage) players[slot], now);
+            }
+        }
+        for (int i = spawnedFrom; i < projectiles.size(); i++) {
+            listener.spawned(projectiles, i);
+        }
+
+        projectiles.moveAll();
+        listener.moved();
+        for (int i = projectiles.size() - 1; i >= 0; i--) {
+            double px = projectiles.getX(i);
+            double py = projectiles.getY(i);
+            if (px < -50 || px > GameWorld.WIDTH + 50 || py < -50 || py > GameWorld.HEIGHT + 50) {
+                listener.removed(projectiles.getId(i));
+                projectiles.removeAt(i);
+            }
+        }
+        projectileGrid.rebuild(projectiles);
+
+        for (int slot = 0; slot < players.length; slot++) {
+            if (isStanding(slot)) {
+                checkPlayerHits(players[slot], now);
+            }
+        }
+        checkBossHits();
+        for (int slot = 0; slot < players.length; slot++) {
+            if (isStanding(slot) && (inputs[slot] & GameWorld.INPUT_ATTACK) != 0) {
+                meleeAttack(players[slot], now);
+            }
+        }
+        projectiles.sweepRemoved();
+
+        if (boss.getHealth() <= 0) {
+            score += level * 100;
+            level++;
+            startLevel(now, false);
+        } else if (hasPlayers() && nearestStanding() == null) {
+            score = 0;
+            level = 1;
+            startLevel(now, true);
+        }
+    }
+
+    // Returns the mask with a dash taken off cooldown cleared from the queue
+    private int movePlayer(Character player, int mask, long now) {
+        int dx = 0, dy = 0;
+        if ((mask & GameWorld.INPUT_UP) != 0) dy -= 1;
+        if ((mask & GameWorld.INPUT_DOWN) != 0) dy += 1;
+        if ((mask & GameWorld.INPUT_LEFT) != 0) dx -= 1;
+        if ((mask & GameWorld.INPUT_RIGHT) != 0) dx += 1;
+
+        if ((mask & DASH_QUEUED) != 0 && player.canDash(now)) {
+            if (dx != 0 || dy != 0) {
+                double len = Math.sqrt(dx * dx + dy * dy);
+                player.startDash(dx / len, dy / len, now);
+            }
+            mask &= ~DASH_QUEUED;
+        }
+        int prevX = player.getX();
+        int prevY = player.getY();
+        if (player.isDashing(now)) {
+            player.updateDash(GameWorld.WIDTH, GameWorld.HEIGHT, now);
+        } else {
+            player.move(dx, dy, GameWorld.WIDTH, GameWorld.HEIGHT);
+        }
+        if (GameWorld.collidesPlayerBoss(player, boss)) {
+            player.setX(prevX);
+            player.setY(prevY);
+        }
+        return mask;
+    }
+
+    private void fireMageShot(Mage m, long now) {
+        if (!m.canAttack(now)) return;
+        double sx = m.getX() + m.getWidth() / 2.0;
+        double sy = m.getY() + m.getHeight() / 2.0;
+        double dx = boss.getX() + boss.getSize() / 2.0 - sx;
+        double dy = boss.getY() + boss.getSize() / 2.0 - sy;
+        double len = Math.max(1, Math.hypot(dx, dy));
+        double speed = 6.0;
+        projectiles.spawn(ProjectileStore.KIND_PLAYER, sx, sy, dx / len * speed, dy / len * speed, m.getAttackPower());
+        m.markAttack(now);
+    }
+
+    private void checkPlayerHits(Character player, long now) {
+        int candidates = projectileGrid.queryAabb(player.getX(), player.getY(),
+                player.getX() + player.getWidth(), player.getY() + player.getHeight());
+        for (int k = 0; k < candidates; k++) {
+            int i = projectileGrid.getResult(k);
+            if (isDecoration(i) || projectiles.isRemoved(i) || !projectiles.collidesWith(i, player)) continue;
+            if (!player.isDashing(now)) {
+                player.setHealth(player.getHealth() - projectiles.getDamage(i));
+            }
+            remove(i);
+        }
+    }
+
+    private void checkBossHits() {
+        int candidates = projectileGrid.queryAabb(boss.getX(), boss.getY(),
+                boss.getX() + boss.getSize(), boss.getY() + boss.getSize());
+        for (int k = 0; k < candidates; k++) {
+            int i = projectileGrid.getResult(k);
+            if (projectiles.isPlayerShot(i) && !projectiles.isRemoved(i) && projectiles.collidesWithBoss(i, boss)) {
+                if (boss.isWeakPointActive()) {
+                    boss.setHealth(boss.getHealth() - projectiles.getDamage(i));
+                    score += 10;
+                }
+                remove(i);
+            }
+        }
+    }
+
+    // Melee swing: Warrior and Rogue also cut through enemy bullets in reach
+    private void meleeAttack(Character player, long now) {
+        boolean swings = (player instanceof Warrior || player instanceof Rogue) && player.canAttack(now);
+        if (swings) {
+            int[][] weaponBox = player.getWeaponHitbox(boss);
+            int[] xs = weaponBox[0];
+            int[] ys = weaponBox[1];
+            int minX = xs[0], maxX = xs[0], minY = ys[0], maxY = ys[0];
+            for (int i = 1; i < xs.length; i++) {
+                minX = Math.min(minX, xs[i]);
+                maxX = Math.max(maxX, xs[i]);
+                minY = Math.min(minY, ys[i]);
+                maxY = Math.max(maxY, ys[i]);
+            }
+            int candidates = projectileGrid.queryAabb(minX, minY, maxX, maxY);
+            for (int k = 0; k < candidates; k++) {
+                int i = projectileGrid.getResult(k);
+                if (isDecoration(i) || projectiles.isRemoved(i)) continue;
+                int px = (int) projectiles.getX(i);
+                int py = (int) projectiles.getY(i);
+                int pSize = projectiles.getSize(i);
+                if (!(px + pSize < minX || px > maxX || py + pSize < minY || py > maxY)) {
+                    remove(i);
+                    score += 5;
+                }
+            }
+        }
+        if (GameWorld.weaponHitsBoss(player, boss)) {
+            int healthBefore = boss.getHealth();
+            player.attack(boss, now);
+            if (boss.getHealth() < healthBefore) {
+                score += 10;
+            }
+        }
+    }
+
+    // Player shots and the harmless ambient bullets never touch players
+    private boolean isDecoration(int slot) {
+        return projectiles.isPlayerShot(slot) || projectiles.getDamage(slot) == 0;
+    }
+
+    private void remove(int slot) {
+        listener.removed(projectiles.getId(slot));
+        projectiles.markRemoved(slot);
+    }
+
+    // New boss and a clean arena; players come back (restart) or are healed
+    private void startLevel(long now, boolean restart) {
+        projectiles.clear();
+        listener.cleared();
+        boss = GameWorld.createBoss(bossKind(level), now, random);
+        for (int slot = 0; slot < players.length; slot++) {
+            Character player = players[slot];
+            if (player == null) continue;
+            if (restart) {
+                player.setHealth(player.getMaxHealth());
+            } else if (player.getHealth() <= 0) {
+                player.setHealth(player.getMaxHealth() / 2);
+            } else {
+                player.setHealth(Math.min(player.getMaxHealth(), player.getHealth() + 20));
+            }
+            player.setX(spawnX(slot));
+            player.setY(GameWorld.HEIGHT - 100);
+        }
+        spawnAmbient();
+    }
+
+    private void spawnAmbient() {
+        int from = projectiles.size();
+        projectiles.reserve(ambientBullets);
+        for (int i = 0; i < ambientBullets; i++) {
+            double cx = 150 + random.nextDouble() * (GameWorld.WIDTH - 300);
+            double cy = 150 + random.nextDouble() * (GameWorld.HEIGHT - 300);
+            projectiles.spawnSpiral(cx, cy, random.nextDouble() * 2 * Math.PI, 0);
+        }
+        for (int i = from; i < projectiles.size(); i++) {
+            listener.spawned(projectiles, i);
+        }
+    }
+
+    private Character nearestStanding() {
+        double bx = boss.getX() + boss.getSize() / 2.0;
+        double by = boss.getY() + boss.getSize() / 2.0;
+        Character nearest = null;
+        double best = Double.MAX_VALUE;
+        for (int slot = 0; slot < players.length; slot++) {
+            if (!isStanding(slot)) continue;
+            Character p = players[slot];
+            double dist = Math.hypot(p.getX() + p.getWidth() / 2.0 - bx, p.getY() + p.getHeight() / 2.0 - by);
+            if (dist < best) {
+                best = dist;
+                nearest = p;
+            }
+        }
+        return nearest;
+    }
+
+    private boolean hasPlayers() {
+        for (Character player : players) {
+            if (player != null) return true;
+        }
+        return false;
+    }
+
+    private static int spawnX(int slot) {
+        return 160 + slot * 150;
+    }
+
+    /**
+     * Copy the replicated state (level, score, boss and every player slot)
+     * into the flat vector described by NetProtocol's S_* layout.
+     */
+    public void captureState(int[] state) {
+        long now = clock.getMillis();
+        state[NetProtocol.S_LEVEL] = level;
+        state[NetProtocol.S_SCORE] = score;
+        state[NetProtocol.S_BOSS_X] = boss.getX();
+        state[NetProtocol.S_BOSS_Y] = boss.getY();
+        state[NetProtocol.S_BOSS_SIZE] = boss.getSize();
+        state[NetProtocol.S_BOSS_HEALTH] = boss.getHealth();
+        state[NetProtocol.S_BOSS_MAX_HEALTH] = boss.getMaxHealth();
+        state[NetProtocol.S_BOSS_FLAGS] = boss.isWeakPointActive() ? NetProtocol.FLAG_WEAK : 0;
+        for (int slot = 0; slot < players.length; slot++) {
+            int base = NetProtocol.playerBase(slot);
+            Character p = players[slot];
+            if (p == null) {
+                for (int f = 0; f < NetProtocol.PLAYER_FIELDS; f++) {
+                    state[base + f] = 0;
+                }
+                continue;
+            }
+            int flags = 0;
+            if (p.isDashing(now)) flags |= NetProtocol.FLAG_DASHING;
+            if ((inputs[slot] & GameWorld.INPUT_ATTACK) != 0) flags |= NetProtocol.FLAG_ATTACKING;
+            state[base + NetProtocol.P_TYPE] = playerTypes[slot];
+            state[base + NetProtocol.P_X] = p.getX();
+            state[base + NetProtocol.P_Y] = p.getY();
+            state[base + NetProtocol.P_HEALTH] = p.getHealth();
+            state[base + NetProtocol.P_MAX_HEALTH] = p.getMaxHealth();
+            state[base + NetProtocol.P_FLAGS] = flags;
+        }
+    }
+
+    /**
+     * Upper bound on the bytes saveState() writes for the current state.
+     */
+    public int stateBytes() {
+        // Fixed part, players and the boss with the largest pattern state
+        return 512 + projectiles.stateBytes();
+    }
+
+    /**
+     * Write the complete simulation state into buf. Call between ticks.
+     * The clock must be a VirtualClock for the state to be restored.
+     */
+    public void saveState(ByteBuffer buf) {
+        buf.putLong(clock.getTick());
+        buf.putLong(random.getState());
+        buf.putInt(level).putInt(score).putInt(ambientBullets);
+        for (int slot = 0; slot < players.length; slot++) {
+            buf.put((byte) playerTypes[slot]);
+            buf.putInt(inputs[slot]);
+            if (players[slot] != null) {
+                players[slot].saveState(buf);
+            }
+        }
+        boss.saveState(buf);
+        projectiles.saveState(buf);
+    }
+
+    /**
+     * Return to a state written by saveState() on this world or one built
+     * the same way. Players and the boss are only recreated when the saved
+     * ones are of a different class, so restoring within a level allocates
+     * nothing. The listener is not told about the change.
+     */
+    public void restoreState(ByteBuffer buf) {
+        if (!(clock instanceof VirtualClock)) {
+            throw new IllegalStateException("Only a world on a VirtualClock can be restored");
+        }
+        ((VirtualClock) clock).setTick(buf.getLong());
+        long randomState = buf.getLong();
+        int bossKindBefore = bossKind(level);
+        level = buf.getInt();
+        score = buf.getInt();
+        ambientBullets = buf.getInt();
+        for (int slot = 0; slot < players.length; slot++) {
+            int type = buf.get();
+            inputs[slot] = buf.getInt();
+            if (type != playerTypes[slot]) {
+                players[slot] = type == 0 ? null : GameWorld.createCharacter(type, 0, 0);
+                playerTypes[slot] = type;
+            }
+            if (players[slot] != null) {
+                players[slot].restoreState(buf);
+            }
+        }
+        if (bossKind(level) != bossKindBefore) {
+            // Consumes random numbers, so the generator is restored after this
+            boss = GameWorld.createBoss(bossKind(level), clock.getMillis(), random);
+        }
+        boss.restoreState(buf);
+        projectiles.restoreState(buf);
+        random.setState(randomState);
+    }
+
+    /**
+     * Hash of the simulation state (FNV-1a, as GameWorld.checksum()), for
+     * checking that two copies of the world agree.
+     */
+    public long checksum() {
+        long h = GameWorld.FNV_OFFSET;
+        h = GameWorld.mix(h, clock.getTick());
+        h = GameWorld.mix(h, level);
+        h = GameWorld.mix(h, score);
+        h = GameWorld.mix(h, random.getState());
+        for (Character player : players) {
+            if (player == null) continue;
+            h = GameWorld.mix(h, player.getX());
+            h = GameWorld.mix(h, player.getY());
+            h = GameWorld.mix(h, player.getHealth());
+            h = GameWorld.mix(h, player.getLastAttackTime());
+            h = GameWorld.mix(h, player.getLastDashTime());
+        }
+        h = GameWorld.mix(h, boss.getX());
+        h = GameWorld.mix(h, boss.getY());
+        h = GameWorld.mix(h, boss.getHealth());
+        h = GameWorld.mix(h, boss.isWeakPointActive() ? 1 : 0);
+        h = GameWorld.mix(h, projectiles.size());
+        for (int i = 0; i < projectiles.size(); i++) {
+            h = GameWorld.mix(h, Double.doubleToLongBits(projectiles.getX(i)));
+            h = GameWorld.mix(h, Double.doubleToLongBits(projectiles.getY(i)));
+            h = GameWorld.mix(h, projectiles.getKind(i));
+        }
+        return h;
+    }
+
+    private static int bossKind(int level) {
+        return ((level - 1) % 4) + 1;
+    }
+
+    public boolean isStanding(int slot) {
+        return players[slot] != null && players[slot].getHealth() > 0;
+    }
+
+    public Character getPlayer(int slot) { return players[slot]; }
+    public Boss getBoss() { return boss; }
+    public ProjectileStore getProjectiles() { return projectiles; }
+    public int getLevel() { return level; }
+    public int getScore() { return score; }
+    public GameClock getClock() { return clock; }
+}
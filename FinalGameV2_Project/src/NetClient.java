@@ -0,0 +1,502 @@
+package src;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.PortUnreachableException;
+import java.net.SocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * NetClient is the thin client side of NetServer. It sends the local
+ * player's input every tick and rebuilds the rest of the game from
+ * snapshots; it never runs the boss or decides hits.
+ *
+ * Three views of the world are kept, each suited to what it shows:
+ * <ul>
+ *   <li>The local player is predicted: the input is applied locally at
+ *   once, and when a snapshot arrives the player is put back at the
+ *   server's position and the inputs the server has not applied yet are
+ *   replayed on top. Dashes are not predicted; during one the server's
+ *   position is shown as is.</li>
+ *   <li>Other players and the boss are interpolated between snapshots,
+ *   INTERPOLATION_DELAY_TICKS behind the newest one, so they move
+ *   smoothly even when snapshots arrive late or are lost.</li>
+ *   <li>Projectiles are simulated from the server's event log (see
+ *   NetProtocol) and are as current as the last snapshot.</li>
+ * </ul>
+ *
+ * Call tick() once per simulation tick from a single thread.
+ */
+public class NetClient {
+    // Other entities are drawn this many ticks behind the newest snapshot
+    static final int INTERPOLATION_DELAY_TICKS = 6;
+    private static final long JOIN_RETRY_NANOS = 250_000_000L;
+    // Each INPUT repeats this many recent inputs, covering lost packets
+    private static final int INPUT_REDUNDANCY = 8;
+    // Inputs kept for replay after a snapshot (a power of two)
+    private static final int INPUT_HISTORY = 128;
+    // Snapshots kept as baselines and for interpolation
+    private static final int STATE_HISTORY = 64;
+
+    private final DatagramChannel channel;
+    private final SocketAddress server;
+    private final LinkSimulator link;
+    private final int characterType;
+    private final ByteBuffer receiveBuffer = ByteBuffer.allocate(NetProtocol.MAX_PACKET);
+    private final ByteBuffer sendBuffer = ByteBuffer.allocate(NetProtocol.MAX_PACKET);
+
+    private int slot = -1;
+    private int serverTickRate = 0;
+    private boolean full = false;
+    private boolean joinSent = false;
+    private long lastJoinNanos;
+
+    private final int[] inputMasks = new int[INPUT_HISTORY];
+    private int inputSeq = 0;
+
+    private final int[][] states = new int[STATE_HISTORY][NetProtocol.STATE_SIZE];
+    private final int[] stateTicks = new int[STATE_HISTORY];
+    private final int[] noBaseline = new int[NetProtocol.STATE_SIZE];
+    private int latestTick = 0;
+    private double renderTick = 0;
+
+    // Projectiles rebuilt from the event log; server ids map to ids in this store
+    private final ProjectileStore projectiles = new ProjectileStore();
+    private int[] clientIdOf = new int[256];
+    private long eventOffset = -1;
+    private long resetOffset = -1;
+    private ByteBuffer[] resetParts;
+    private int resetPartsReceived;
+
+    private Character predicted;
+    private Boss boss;
+    private int bossLevel = 0;
+
+    private long bytesReceived = 0;
+    private long snapshotsReceived = 0;
+    private long corrections = 0;
+    private double correctionDistance = 0;
+
+    /**
+     * @param channel non-blocking channel connected to the server
+     * @param link    applied to everything the client sends
+     */
+    public NetClient(DatagramChannel channel, LinkSimulator link, int characterType) throws IOException {
+        this.channel = channel;
+        this.server = channel.getRemoteAddress();
+        this.link = link;
+        this.characterType = characterType;
+        Arrays.fill(clientIdOf, -1);
+    }
+
+    /**
+     * Open a non-blocking channel to host:port and wrap it in a client.
+     */
+    public static NetClient connect(String host, int port, LinkSimulator link, int characterType) throws IOException {
+        DatagramChannel channel = DatagramChannel.open();
+        channel.connect(new InetSocketAddress(host, port));
+        channel.configureBlocking(false);
+        return new NetClient(channel, link, characterType);
+    }
+
+    /**
+     * Run one client tick: read what the server sent, then predict and
+     * send this tick's input (GameWorld.INPUT_* bits).
+     */
+    public void tick(int inputMask, long nowNanos) throws IOException {
+        receive();
+        if (slot < 0) {
+            if (!full && (!joinSent || nowNanos - lastJoinNanos >= JOIN_RETRY_NANOS)) {
+                sendBuffer.clear();
+                sendBuffer.put((byte) NetProtocol.JOIN);
+                sendBuffer.put((byte) characterType);
+                send(nowNanos);
+                joinSent = true;
+                lastJoinNanos = nowNanos;
+            }
+            flush(nowNanos);
+            return;
+        }
+
+        inputSeq++;
+        inputMasks[inputSeq & (INPUT_HISTORY - 1)] = inputMask;
+        if (predicted != null && canPredict(states[latestTick % STATE_HISTORY])) {
+            predictMove(inputMask);
+        }
+
+        sendBuffer.clear();
+        sendBuffer.put((byte) NetProtocol.INPUT);
+        NetProtocol.putVarInt(sendBuffer, latestTick);
+        NetProtocol.putVarLong(sendBuffer, eventOffset + 1);
+        NetProtocol.putVarInt(sendBuffer, inputSeq);
+        int count = Math.min(INPUT_REDUNDANCY, inputSeq);
+        sendBuffer.put((byte) count);
+        for (int k = 0; k < count; k++) {
+            sendBuffer.put((byte) inputMasks[(inputSeq - k) & (INPUT_HISTORY - 1)]);
+        }
+        send(nowNanos);
+
+        // Render time runs at tick rate, eased toward the delayed target
+        renderTick++;
+        double target = latestTick - INTERPOLATION_DELAY_TICKS;
+        if (Math.abs(target - renderTick) > 2 * INTERPOLATION_DELAY_TICKS) {
+            renderTick = target;
+        } else {
+            renderTick += (target - renderTick) * 0.05;
+        }
+        flush(nowNanos);
+    }
+
+    /**
+     * Tell the server this player is leaving. Sent once, straight out.
+     */
+    public void leave() throws IOException {
+        if (slot < 0) return;
+        channel.write(ByteBuffer.wrap(new byte[] { NetProtocol.LEAVE }));
+        slot = -1;
+    }
+
+    private void send(long nowNanos) throws IOException {
+        sendBuffer.flip();
+        try {
+            link.send(channel, sendBuffer, server, nowNanos);
+        } catch (PortUnreachableException e) {
+            // Server not up (yet); the packet is lost like any other
+        }
+    }
+
+    private void flush(long nowNanos) throws IOException {
+        try {
+            link.flush(channel, nowNanos);
+        } catch (PortUnreachableException e) {
+            // As in send()
+        }
+    }
+
+    private void receive() throws IOException {
+        while (true) {
+            receiveBuffer.clear();
+            SocketAddress from;
+            try {
+                from = channel.receive(receiveBuffer);
+            } catch (PortUnreachableException e) {
+                // Server not up yet; JOIN is retried
+                return;
+            }
+            if (from == null) return;
+            receiveBuffer.flip();
+            bytesReceived += receiveBuffer.remaining();
+            try {
+                handlePacket(receiveBuffer);
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                // Malformed datagram: ignore it
+            }
+        }
+    }
+
+    private void handlePacket(ByteBuffer in) {
+        int type = in.get();
+        switch (type) {
+            case NetProtocol.WELCOME:
+                slot = in.get();
+                serverTickRate = NetProtocol.getVarInt(in);
+                break;
+            case NetProtocol.FULL:
+                full = true;
+                break;
+            case NetProtocol.SNAPSHOT:
+                if (slot >= 0) readSnapshot(in);
+                break;
+            case NetProtocol.RESET:
+                readReset(in);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void readSnapshot(ByteBuffer in) {
+        int tick = NetProtocol.getVarInt(in);
+        int baselineTick = NetProtocol.getVarInt(in);
+        // Late duplicates and reordered packets carry nothing new
+        if (tick <= latestTick) return;
+        int[] baseline = noBaseline;
+        if (baselineTick != 0) {
+            if (!hasState(baselineTick)) return;
+            baseline = states[baselineTick % STATE_HISTORY];
+        }
+        // Decode aside first: a bad packet must not clobber a kept state
+        int[] state = new int[NetProtocol.STATE_SIZE];
+        NetProtocol.getStateDelta(in, baseline, state);
+        long start = NetProtocol.getVarLong(in);
+        int length = NetProtocol.getVarInt(in);
+        checkEvents(in, length);
+
+        System.arraycopy(state, 0, states[tick % STATE_HISTORY], 0, NetProtocol.STATE_SIZE);
+        stateTicks[tick % STATE_HISTORY] = tick;
+        latestTick = tick;
+        snapshotsReceived++;
+
+        // Events before our offset were applied from an earlier snapshot
+        if (length > 0 && eventOffset >= start && eventOffset < start + length) {
+            in.position(in.position() + (int) (eventOffset - start));
+            applyEvents(in, (int) (start + length - eventOffset));
+            eventOffset = start + length;
+        }
+        updateBoss(state);
+        reconcile(state);
+    }
+
+    // Events must be whole and well formed before any of them is applied
+    private static void checkEvents(ByteBuffer in, int length) {
+        if (length > in.remaining()) throw new IllegalArgumentException("Truncated events");
+        int pos = in.position();
+        int end = pos + length;
+        while (pos < end) {
+            pos += NetProtocol.eventSize(in.get(pos));
+        }
+        if (pos != end) throw new IllegalArgumentException("Events split mid-event");
+    }
+
+    private void applyEvents(ByteBuffer in, int length) {
+        int end = in.position() + length;
+        while (in.position() < end) {
+            int type = in.get();
+            switch (type) {
+                case NetProtocol.EV_SPAWN: {
+                    int id = NetProtocol.getId(in);
+                    int kind = in.get();
+                    int damage = in.get() & 0xff;
+                    double x = in.getShort() / NetProtocol.POSITION_SCALE;
+                    double y = in.getShort() / NetProtocol.POSITION_SCALE;
+                    double vx = in.getShort() / NetProtocol.VELOCITY_SCALE;
+                    double vy = in.getShort() / NetProtocol.VELOCITY_SCALE;
+                    mapId(id, projectiles.spawn(kind, x, y, vx, vy, damage));
+                    break;
+                }
+                case NetProtocol.EV_SPIRAL: {
+                    int id = NetProtocol.getId(in);
+                    int damage = in.get() & 0xff;
+                    double x = in.getShort() / NetProtocol.POSITION_SCALE;
+                    double y = in.getShort() / NetProtocol.POSITION_SCALE;
+                    double angle = (in.getShort() & 0xffff) / NetProtocol.ANGLE_SCALE;
+                    mapId(id, projectiles.spawnSpiral(x, y, angle, damage));
+                    break;
+                }
+                case NetProtocol.EV_MOVE:
+                    projectiles.moveAll();
+                    break;
+                case NetProtocol.EV_REMOVE: {
+                    int id = NetProtocol.getId(in);
+                    int slotOfId = id < clientIdOf.length ? projectiles.slotOf(clientIdOf[id]) : -1;
+                    if (slotOfId >= 0) {
+                        projectiles.removeAt(slotOfId);
+                        clientIdOf[id] = -1;
+                    }
+                    break;
+                }
+                default: // EV_CLEAR
+                    projectiles.clear();
+                    Arrays.fill(clientIdOf, -1);
+                    break;
+            }
+        }
+    }
+
+    private void mapId(int serverId, int clientId) {
+        if (serverId >= clientIdOf.length) {
+            int oldLength = clientIdOf.length;
+            clientIdOf = Arrays.copyOf(clientIdOf, Math.max(oldLength * 2, serverId + 1));
+            Arrays.fill(clientIdOf, oldLength, clientIdOf.length, -1);
+        }
+        clientIdOf[serverId] = clientId;
+    }
+
+    private void readReset(ByteBuffer in) {
+        long offset = NetProtocol.getVarLong(in);
+        int part = NetProtocol.getVarInt(in);
+        int parts = NetProtocol.getVarInt(in);
+        // Already have this point of the log, or a later one
+        if (offset <= eventOffset) return;
+        if (offset != resetOffset || resetParts == null || resetParts.length != parts) {
+            resetOffset = offset;
+            resetParts = new ByteBuffer[parts];
+            resetPartsReceived = 0;
+        }
+        if (part >= parts || resetParts[part] != null) return;
+        // Keep the record count and records; the receive buffer is reused
+        ByteBuffer copy = ByteBuffer.allocate(in.remaining());
+        copy.put(in).flip();
+        resetParts[part] = copy;
+        if (++resetPartsReceived < parts) return;
+
+        projectiles.clear();
+        Arrays.fill(clientIdOf, -1);
+        for (ByteBuffer records : resetParts) {
+            int count = NetProtocol.getVarInt(records);
+            for (int r = 0; r < count; r++) {
+                readResetRecord(records);
+            }
+        }
+        eventOffset = offset;
+        resetOffset = -1;
+        resetParts = null;
+    }
+
+    private void readResetRecord(ByteBuffer in) {
+        int id = NetProtocol.getId(in);
+        int kind = in.get();
+        int damage = in.get() & 0xff;
+        double x = in.getFloat();
+        double y = in.getFloat();
+        int clientId;
+        if (kind == ProjectileStore.KIND_SPIRAL) {
+            double phase = in.getFloat();
+            double centerX = in.getFloat();
+            double centerY = in.getFloat();
+            double radius = in.getFloat();
+            double radiusStep = in.getFloat();
+            clientId = projectiles.spawnState(kind, x, y, 0, 0, phase, centerX, centerY, radius, radiusStep, damage);
+        } else {
+            double vx = in.getFloat();
+            double vy = in.getFloat();
+            double phase = kind == ProjectileStore.KIND_ZIGZAG ? in.getFloat() : 0;
+            clientId = projectiles.spawnState(kind, x, y, vx, vy, phase, 0, 0, 0, 0, damage);
+        }
+        mapId(id, clientId);
+    }
+
+    private void updateBoss(int[] state) {
+        int level = state[NetProtocol.S_LEVEL];
+        if (boss == null || level != bossLevel) {
+            // Only its geometry is used; the pattern seed does not matter here
+            boss = GameWorld.createBoss(((level - 1) % 4) + 1, 0, new Random(0));
+            bossLevel = level;
+        }
+        boss.setX(state[NetProtocol.S_BOSS_X]);
+        boss.setY(state[NetProtocol.S_BOSS_Y]);
+        boss.setSize(state[NetProtocol.S_BOSS_SIZE]);
+        boss.setMaxHealth(state[NetProtocol.S_BOSS_MAX_HEALTH]);
+        boss.setHealth(state[NetProtocol.S_BOSS_HEALTH]);
+    }
+
+    // Server position plus the inputs it has not applied yet
+    private void reconcile(int[] state) {
+        int base = NetProtocol.playerBase(slot);
+        int type = state[base + NetProtocol.P_TYPE];
+        if (type == 0) {
+            predicted = null;
+            return;
+        }
+        boolean fresh = predicted == null;
+        if (fresh) {
+            predicted = GameWorld.createCharacter(type, 0, 0);
+        }
+        int oldX = predicted.getX();
+        int oldY = predicted.getY();
+        predicted.setX(state[base + NetProtocol.P_X]);
+        predicted.setY(state[base + NetProtocol.P_Y]);
+        predicted.setMaxHealth(state[base + NetProtocol.P_MAX_HEALTH]);
+        predicted.setHealth(state[base + NetProtocol.P_HEALTH]);
+        if (canPredict(state)) {
+            int applied = state[base + NetProtocol.P_INPUT_SEQ];
+            for (int seq = Math.max(applied + 1, inputSeq - INPUT_HISTORY + 1); seq <= inputSeq; seq++) {
+                predictMove(inputMasks[seq & (INPUT_HISTORY - 1)]);
+            }
+        }
+        if (!fresh && (predicted.getX() != oldX || predicted.getY() != oldY)) {
+            corrections++;
+            correctionDistance += Math.hypot(predicted.getX() - oldX, predicted.getY() - oldY);
+        }
+    }
+
+    private boolean canPredict(int[] state) {
+        int base = NetProtocol.playerBase(slot);
+        return state[base + NetProtocol.P_HEALTH] > 0
+                && (state[base + NetProtocol.P_FLAGS] & NetProtocol.FLAG_DASHING) == 0;
+    }
+
+    // Same walk as MultiplayerWorld's, without dashing
+    private void predictMove(int mask) {
+        int dx = 0, dy = 0;
+        if ((mask & GameWorld.INPUT_UP) != 0) dy -= 1;
+        if ((mask & GameWorld.INPUT_DOWN) != 0) dy += 1;
+        if ((mask & GameWorld.INPUT_LEFT) != 0) dx -= 1;
+        if ((mask & GameWorld.INPUT_RIGHT) != 0) dx += 1;
+        int prevX = predicted.getX();
+        int prevY = predicted.getY();
+        predicted.move(dx, dy, GameWorld.WIDTH, GameWorld.HEIGHT);
+        if (boss != null && GameWorld.collidesPlayerBoss(predicted, boss)) {
+            predicted.setX(prevX);
+            predicted.setY(prevY);
+        }
+    }
+
+    private boolean hasState(int tick) {
+        return tick > 0 && tick > latestTick - STATE_HISTORY && stateTicks[tick % STATE_HISTORY] == tick;
+    }
+
+    /**
+     * A field of the newest snapshot (NetProtocol S_* or playerBase + P_*).
+     */
+    public int getState(int field) {
+        return states[latestTick % STATE_HISTORY][field];
+    }
+
+    /**
+     * A field interpolated between the snapshots around the render time,
+     * INTERPOLATION_DELAY_TICKS behind the newest one.
+     */
+    public double interpolate(int field) {
+        int from = -1;
+        for (int t = Math.min((int) Math.floor(renderTick), latestTick); t > latestTick - STATE_HISTORY && t > 0; t--) {
+            if (hasState(t)) {
+                from = t;
+                break;
+            }
+        }
+        if (from < 0) return getState(field);
+        int to = -1;
+        for (int t = from + 1; t <= latestTick; t++) {
+            if (hasState(t)) {
+                to = t;
+                break;
+            }
+        }
+        double a = states[from % STATE_HISTORY][field];
+        if (to < 0) return a;
+        double b = states[to % STATE_HISTORY][field];
+        double f = Math.max(0, Math.min(1, (renderTick - from) / (to - from)));
+        return a + (b - a) * f;
+    }
+
+    /**
+     * Id in getProjectiles() of the projectile the server knows by serverId, or -1.
+     */
+    public int getClientId(int serverId) {
+        return serverId >= 0 && serverId < clientIdOf.length ? clientIdOf[serverId] : -1;
+    }
+
+    public boolean isConnected() { return slot >= 0; }
+    public boolean isFull() { return full; }
+    /** True once the projectiles have been synchronized with the server. */
+    public boolean isSynchronized() { return eventOffset >= 0; }
+    public int getSlot() { return slot; }
+    /** Ticks per second the server runs at; the client should tick at the same rate. */
+    public int getServerTickRate() { return serverTickRate; }
+    public int getLatestTick() { return latestTick; }
+    /** Event log offset applied up to, or -1 before the first reset. */
+    public long getEventOffset() { return eventOffset; }
+    public ProjectileStore getProjectiles() { return projectiles; }
+    public Character getPredictedPlayer() { return predicted; }
+    public Boss getBoss() { return boss; }
+    public long getBytesReceived() { return bytesReceived; }
+    public long getSnapshotsReceived() { return snapshotsReceived; }
+    public long getCorrections() { return corrections; }
+    public double getCorrectionDistance() { return correctionDistance; }
+    public LinkSimulator getLink() { return link; }
+}
@@ -0,0 +1,152 @@
+package src;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
+import javax.swing.JFrame;
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+
+/**
+ * NetClientWindow is a plain viewer for playing on a NetServer: arrow keys
+ * move, space attacks, shift dashes. It draws the predicted local player,
+ * the interpolated other players and boss, and the client's projectiles.
+ *
+ * Usage: java src.NetClientWindow [host] [port] [warrior|rogue|mage]
+ */
+public class NetClientWindow extends JPanel {
+    private static final Color[] PLAYER_COLORS = { Color.GRAY, Color.BLUE, Color.GREEN, Color.MAGENTA };
+
+    private final NetClient client;
+    // Held keys as GameWorld.INPUT_* bits; written on the EDT, read by the loop
+    private volatile int inputMask = 0;
+
+    public NetClientWindow(NetClient client) {
+        this.client = client;
+        setPreferredSize(new Dimension(GameWorld.WIDTH, GameWorld.HEIGHT));
+        setBackground(Color.BLACK);
+        setFocusable(true);
+        addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                inputMask |= bitFor(e.getKeyCode());
+            }
+
+            @Override
+            public void keyReleased(KeyEvent e) {
+                inputMask &= ~bitFor(e.getKeyCode());
+            }
+        });
+    }
+
+    private static int bitFor(int code) {
+        switch (code) {
+            case KeyEvent.VK_UP: return GameWorld.INPUT_UP;
+            case KeyEvent.VK_DOWN: return GameWorld.INPUT_DOWN;
+            case KeyEvent.VK_LEFT: return GameWorld.INPUT_LEFT;
+            case KeyEvent.VK_RIGHT: return GameWorld.INPUT_RIGHT;
+            case KeyEvent.VK_SPACE: return GameWorld.INPUT_ATTACK;
+            case KeyEvent.VK_SHIFT: return GameWorld.INPUT_DASH;
+            default: return 0;
+        }
+    }
+
+    /**
+     * One client tick; called on the EDT so painting sees a consistent client.
+     */
+    private void tick() {
+        try {
+            client.tick(inputMask, System.nanoTime());
+        } catch (IOException e) {
+            System.err.println("Network error: " + e.getMessage());
+        }
+        repaint();
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        if (!client.isConnected()) {
+            g.setColor(Color.WHITE);
+            g.drawString(client.isFull() ? "Server is full" : "Connecting...", 20, 30);
+            return;
+        }
+
+        Boss boss = client.getBoss();
+        if (boss != null) {
+            boolean weak = (client.getState(NetProtocol.S_BOSS_FLAGS) & NetProtocol.FLAG_WEAK) != 0;
+            g.setColor(weak ? Color.RED : Color.ORANGE);
+            g.fillOval((int) client.interpolate(NetProtocol.S_BOSS_X), (int) client.interpolate(NetProtocol.S_BOSS_Y),
+                    boss.getSize(), boss.getSize());
+        }
+        client.getProjectiles().draw(g, 1.0);
+
+        for (int slot = 0; slot < NetProtocol.MAX_PLAYERS; slot++) {
+            int base = NetProtocol.playerBase(slot);
+            int type = client.getState(base + NetProtocol.P_TYPE);
+            if (type == 0) continue;
+            boolean down = client.getState(base + NetProtocol.P_HEALTH) <= 0;
+            Character own = slot == client.getSlot() ? client.getPredictedPlayer() : null;
+            int x = own != null ? own.getX() : (int) client.interpolate(base + NetProtocol.P_X);
+            int y = own != null ? own.getY() : (int) client.interpolate(base + NetProtocol.P_Y);
+            g.setColor(down ? Color.DARK_GRAY : PLAYER_COLORS[type]);
+            g.fillRect(x, y, 40, 40);
+            if (own != null) {
+                g.setColor(Color.WHITE);
+                g.drawRect(x - 2, y - 2, 43, 43);
+            }
+            g.setColor(Color.WHITE);
+            g.drawString(client.getState(base + NetProtocol.P_HEALTH) + " HP", x, y - 4);
+        }
+
+        g.setColor(Color.WHITE);
+        g.drawString("Level " + client.getState(NetProtocol.S_LEVEL) + "   Score " + client.getState(NetProtocol.S_SCORE)
+                + "   Boss " + client.getState(NetProtocol.S_BOSS_HEALTH) + "/"
+                + client.getState(NetProtocol.S_BOSS_MAX_HEALTH), 20, 20);
+    }
+
+    public static void main(String[] args) throws IOException {
+        String host = args.length > 0 ? args[0] : "127.0.0.1";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : NetProtocol.DEFAULT_PORT;
+        int type = GameWorld.WARRIOR;
+        if (args.length > 2) {
+            switch (args[2].toLowerCase()) {
+                case "rogue": type = GameWorld.ROGUE; break;
+                case "mage": type = GameWorld.MAGE; break;
+                default: type = GameWorld.WARRIOR; break;
+            }
+        }
+        NetClient client = NetClient.connect(host, port, LinkSimulator.direct(), type);
+
+        SwingUtilities.invokeLater(() -> {
+            JFrame frame = new JFrame("Dodge Adventure - " + host + ":" + port);
+            NetClientWindow panel = new NetClientWindow(client);
+            frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+            frame.setResizable(false);
+            frame.setContentPane(panel);
+            frame.addWindowListener(new WindowAdapter() {
+                @Override
+                public void windowClosing(WindowEvent e) {
+                    try {
+                        client.leave();
+                    } catch (IOException ignored) {
+                        // The server times the player out instead
+                    }
+                }
+            });
+            frame.pack();
+            frame.setLocationRelativeTo(null);
+            frame.setVisible(true);
+            panel.requestFocusInWindow();
+
+            GameLoop loop = new GameLoop(GameLoop.DEFAULT_TICK_RATE,
+                    () -> SwingUtilities.invokeLater(panel::tick), () -> { });
+            loop.start();
+        });
+    }
+}
@@ -0,0 +1,124 @@
+package src;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * NetDemo runs a NetServer and several bot-driven NetClients in one
+ * process over loopback UDP, with simulated latency, jitter and loss on
+ * every link, and reports what each client received. Running it with
+ * different --bullets counts shows that the steady-state bandwidth per
+ * client does not grow with the number of live projectiles.
+ *
+ * Everything runs on one thread in real time: each tick steps the server
+ * and then every client, so the only delays are the simulated ones.
+ *
+ * Usage: java src.NetDemo [--players N] [--seconds N] [--latency ms] [--jitter ms] [--loss 0..1] [--bullets N] [--seed N]
+ */
+public class NetDemo {
+    private static final String[] CHARACTER_NAMES = { "", "Warrior", "Rogue", "Mage" };
+
+    public static void main(String[] args) throws IOException {
+        int players = 3;
+        int seconds = 10;
+        int latency = 40;
+        int jitter = 10;
+        double loss = 0.05;
+        int bullets = 0;
+        long seed = 1;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (i + 1 >= args.length) {
+                usage("Missing value for " + arg);
+            }
+            String value = args[++i];
+            switch (arg) {
+                case "--players": players = Integer.parseInt(value); break;
+                case "--seconds": seconds = Integer.parseInt(value); break;
+                case "--latency": latency = Integer.parseInt(value); break;
+                case "--jitter": jitter = Integer.parseInt(value); break;
+                case "--loss": loss = Double.parseDouble(value); break;
+                case "--bullets": bullets = Integer.parseInt(value); break;
+                case "--seed": seed = Long.parseLong(value); break;
+                default: usage("Unknown option " + arg);
+            }
+        }
+        if (players < 1 || players > NetProtocol.MAX_PLAYERS) {
+            usage("Players must be 1-" + NetProtocol.MAX_PLAYERS);
+        }
+
+        DatagramChannel serverChannel = DatagramChannel.open();
+        serverChannel.bind(new InetSocketAddress("127.0.0.1", 0));
+        serverChannel.configureBlocking(false);
+        NetServer server = new NetServer(serverChannel, new LinkSimulator(latency, jitter, loss, seed), seed);
+        server.getWorld().setAmbientBullets(bullets);
+        int port = ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+
+        NetClient[] clients = new NetClient[players];
+        BotController[] bots = new BotController[players];
+        for (int p = 0; p < players; p++) {
+            int type = p % 3 + 1;
+            clients[p] = NetClient.connect("127.0.0.1", port,
+                    new LinkSimulator(latency, jitter, loss, seed + 1 + p), type);
+            bots[p] = new BotController(type);
+        }
+        System.out.println("Serving " + players + " bots on 127.0.0.1:" + port + " for " + seconds + "s, latency "
+                + latency + "ms +" + jitter + "ms jitter, " + (loss * 100) + "% loss, " + bullets + " ambient bullets");
+
+        int tickRate = GameLoop.DEFAULT_TICK_RATE;
+        long tickNanos = 1_000_000_000L / tickRate;
+        int ticks = seconds * tickRate;
+        // Bandwidth is also measured over the second half alone, after joins and resets
+        long[] halfwayBytes = new long[players];
+        long start = System.nanoTime();
+        for (int t = 0; t < ticks; t++) {
+            long due = start + t * tickNanos;
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            long now = System.nanoTime();
+            server.tick(now);
+            for (int p = 0; p < players; p++) {
+                NetClient c = clients[p];
+                int mask = bots[p].decide(c.getPredictedPlayer(), c.getBoss(), c.getProjectiles());
+                c.tick(mask, now);
+            }
+            if (t == ticks / 2) {
+                for (int p = 0; p < players; p++) {
+                    halfwayBytes[p] = clients[p].getBytesReceived();
+                }
+            }
+        }
+        for (NetClient c : clients) {
+            c.leave();
+        }
+
+        MultiplayerWorld world = server.getWorld();
+        System.out.println("Server: tick " + server.getTick() + ", level " + world.getLevel() + ", score "
+                + world.getScore() + ", " + world.getProjectiles().size() + " bullets, "
+                + server.getLink().getPacketsDropped() + "/" + server.getLink().getPacketsSent() + " packets dropped");
+        double secondHalf = (ticks - ticks / 2) / (double) tickRate;
+        for (int p = 0; p < players; p++) {
+            NetClient c = clients[p];
+            long bytes = c.getBytesReceived();
+            System.out.printf("Client %d (%s): %.1f kB/s overall, %.1f kB/s steady, %.0f snapshots/s, "
+                            + "%d bullets (%d ticks, %d event bytes behind), %d corrections, %.1f px mean%n",
+                    p, CHARACTER_NAMES[p % 3 + 1], bytes / 1000.0 / seconds,
+                    (bytes - halfwayBytes[p]) / 1000.0 / secondHalf,
+                    c.getSnapshotsReceived() / (double) seconds,
+                    c.getProjectiles().size(), server.getTick() - c.getLatestTick(),
+                    server.getEventLogEnd() - c.getEventOffset(), c.getCorrections(),
+                    c.getCorrections() == 0 ? 0 : c.getCorrectionDistance() / c.getCorrections());
+        }
+    }
+
+    private static void usage(String error) {
+        System.err.println(error);
+        System.err.println("Usage: java src.NetDemo [--players N] [--seconds N] [--latency ms] [--jitter ms] "
+                + "[--loss 0..1] [--bullets N] [--seed N]");
+        System.exit(2);
+    }
+}
@@ -0,0 +1,223 @@
+package src;
+
+import java.nio.ByteBuffer;
+
+/**
+ * NetProtocol holds the packet layouts shared by NetServer and NetClient
+ * and the helpers both use to read and write them. Every packet is one
+ * datagram starting with a type byte; multi-byte fields are big-endian
+ * and counters are unsigned LEB128 varints.
+ * <pre>
+ *   JOIN      byte characterType
+ *   WELCOME   byte player slot, varint ticks per second
+ *   FULL      (no body)
+ *   INPUT     varint acked snapshot tick, varlong events applied + 1 (0 = waiting for a reset),
+ *             varint newest input sequence, byte count, count masks newest first
+ *   SNAPSHOT  varint tick, varint baseline tick (0 = none), state delta,
+ *             varlong event offset, varint event bytes, events
+ *   RESET     varlong event offset, varint part, varint part count, varint records, records
+ *   LEAVE     (no body)
+ * </pre>
+ *
+ * Replicated state is a flat int vector (the S_* layout): level, score,
+ * the boss and every player slot. A snapshot sends it as a delta against
+ * the last snapshot the client acknowledged: a varlong bitmask of the
+ * changed fields and a zigzag varint difference for each, so a quiet
+ * frame costs a few bytes.
+ *
+ * Projectiles are not in the vector. The server logs every spawn, move
+ * and removal as a fixed-size event in one byte stream, and each snapshot
+ * carries the stream from the client's acknowledged offset. Replaying the
+ * stream rebuilds the server's projectiles, so the bytes sent follow the
+ * spawn rate, not how many bullets are alive. Spawns are quantized:
+ * positions to 1/16 px, velocities to 1/1024 px per tick and spiral
+ * angles to 16 bits. A client that joins late, or falls too far behind
+ * the log, gets the live projectiles at full precision in RESET parts.
+ */
+public final class NetProtocol {
+    public static final int DEFAULT_PORT = 27960;
+    public static final int MAX_PLAYERS = 4;
+    // Largest datagram we send; stays under a typical path MTU
+    public static final int MAX_PACKET = 1400;
+
+    // Packet types
+    static final int JOIN = 1;
+    static final int WELCOME = 2;
+    static final int FULL = 3;
+    static final int INPUT = 4;
+    static final int SNAPSHOT = 5;
+    static final int RESET = 6;
+    static final int LEAVE = 7;
+
+    // Event types and their sizes in bytes, type byte included
+    static final int EV_SPAWN = 0;   // id(3) kind dmg x y vx vy (shorts)
+    static final int EV_SPIRAL = 1;  // id(3) dmg x y angle (shorts)
+    static final int EV_MOVE = 2;
+    static final int EV_REMOVE = 3;  // id(3)
+    static final int EV_CLEAR = 4;
+    private static final int[] EVENT_SIZES = { 14, 11, 1, 4, 1 };
+
+    static final double POSITION_SCALE = 16;
+    static final double VELOCITY_SCALE = 1024;
+    static final double ANGLE_SCALE = 65536 / (2 * Math.PI);
+
+    // Replicated state layout
+    static final int S_LEVEL = 0;
+    static final int S_SCORE = 1;
+    static final int S_BOSS_X = 2;
+    static final int S_BOSS_Y = 3;
+    static final int S_BOSS_SIZE = 4;
+    static final int S_BOSS_HEALTH = 5;
+    static final int S_BOSS_MAX_HEALTH = 6;
+    static final int S_BOSS_FLAGS = 7;
+    private static final int S_PLAYERS = 8;
+    // Per player slot, from playerBase(slot); type 0 = empty slot
+    static final int P_TYPE = 0;
+    static final int P_X = 1;
+    static final int P_Y = 2;
+    static final int P_HEALTH = 3;
+    static final int P_MAX_HEALTH = 4;
+    static final int P_FLAGS = 5;
+    static final int P_INPUT_SEQ = 6;
+    static final int PLAYER_FIELDS = 7;
+    static final int STATE_SIZE = S_PLAYERS + MAX_PLAYERS * PLAYER_FIELDS;
+
+    static final int FLAG_WEAK = 1;
+    static final int FLAG_DASHING = 1;
+    static final int FLAG_ATTACKING = 2;
+
+    private NetProtocol() { }
+
+    static int playerBase(int slot) {
+        return S_PLAYERS + slot * PLAYER_FIELDS;
+    }
+
+    static int eventSize(int type) {
+        if (type < 0 || type >= EVENT_SIZES.length) {
+            throw new IllegalArgumentException("Bad event type " + type);
+        }
+        return EVENT_SIZES[type];
+    }
+
+    /**
+     * Write state as a delta against baseline (all zeros when there is none).
+     */
+    static void putStateDelta(ByteBuffer out, int[] baseline, int[] state) {
+        long changed = 0;
+        for (int i = 0; i < STATE_SIZE; i++) {
+            if (state[i] != baseline[i]) changed |= 1L << i;
+        }
+        putVarLong(out, changed);
+        for (int i = 0; i < STATE_SIZE; i++) {
+            if ((changed & (1L << i)) != 0) {
+                putVarInt(out, zigzag(state[i] - baseline[i]));
+            }
+        }
+    }
+
+    /**
+     * Read a delta written by putStateDelta, applying it to baseline into state.
+     */
+    static void getStateDelta(ByteBuffer in, int[] baseline, int[] state) {
+        long changed = getVarLong(in);
+        for (int i = 0; i < STATE_SIZE; i++) {
+            state[i] = baseline[i];
+            if ((changed & (1L << i)) != 0) {
+                state[i] += unzigzag(getVarInt(in));
+            }
+        }
+    }
+
+    /**
+     * Write the spawn event for a freshly spawned projectile.
+     */
+    static void putSpawn(ByteBuffer out, ProjectileStore store, int slot) {
+        int kind = store.getKind(slot);
+        if (kind == ProjectileStore.KIND_SPIRAL) {
+            out.put((byte) EV_SPIRAL);
+            putId(out, store.getId(slot));
+            out.put((byte) Math.min(255, store.getDamage(slot)));
+            out.putShort(quantize(store.getX(slot), POSITION_SCALE));
+            out.putShort(quantize(store.getY(slot), POSITION_SCALE));
+            double angle = store.getPhase(slot) % (2 * Math.PI);
+            if (angle < 0) angle += 2 * Math.PI;
+            // Unsigned 16-bit turn; 65536 wraps back to 0
+            out.putShort((short) Math.round(angle * ANGLE_SCALE));
+        } else {
+            out.put((byte) EV_SPAWN);
+            putId(out, store.getId(slot));
+            out.put((byte) kind);
+            out.put((byte) Math.min(255, store.getDamage(slot)));
+            out.putShort(quantize(store.getX(slot), POSITION_SCALE));
+            out.putShort(quantize(store.getY(slot), POSITION_SCALE));
+            out.putShort(quantize(store.getVx(slot), VELOCITY_SCALE));
+            out.putShort(quantize(store.getVy(slot), VELOCITY_SCALE));
+        }
+    }
+
+    static void putRemove(ByteBuffer out, int id) {
+        out.put((byte) EV_REMOVE);
+        putId(out, id);
+    }
+
+    // Projectile ids are sent in 3 bytes
+    static void putId(ByteBuffer out, int id) {
+        out.put((byte) (id >>> 16));
+        out.putShort((short) id);
+    }
+
+    static int getId(ByteBuffer in) {
+        return ((in.get() & 0xff) << 16) | (in.getShort() & 0xffff);
+    }
+
+    static short quantize(double value, double scale) {
+        long q = Math.round(value * scale);
+        return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, q));
+    }
+
+    // Unsigned LEB128: 7 bits per byte, high bit set on all but the last
+    static void putVarInt(ByteBuffer out, int value) {
+        while ((value & ~0x7f) != 0) {
+            out.put((byte) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    static int getVarInt(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.get() & 0xff;
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IllegalArgumentException("Malformed packet: varint too long");
+    }
+
+    static void putVarLong(ByteBuffer out, long value) {
+        while ((value & ~0x7fL) != 0) {
+            out.put((byte) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    static long getVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.get() & 0xff;
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IllegalArgumentException("Malformed packet: varlong too long");
+    }
+
+    // Small magnitudes of either sign map to small unsigned values
+    static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,494 @@
+package src;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * NetServer runs the authoritative MultiplayerWorld and serves it to
+ * NetClients over one non-blocking DatagramChannel. Each tick it reads
+ * every waiting packet, applies one queued input per player, steps the
+ * world, logs the projectile events and, every SNAPSHOT_INTERVAL ticks,
+ * sends each client a snapshot (see NetProtocol for the layout).
+ *
+ * Nothing is sent reliably. A snapshot carries the state as a delta from
+ * the last snapshot the client acknowledged, so a lost one is simply
+ * covered by the next. The event log is streamed on from where the last
+ * snapshot stopped and rewound to the client's acknowledged offset when
+ * the acks stall. The log is a ring; a client that joins, or falls behind
+ * it, is sent the live projectiles in RESET parts, a few with every
+ * snapshot and round and round until it acknowledges them.
+ *
+ * All methods must be called from the thread that drives tick().
+ *
+ * Usage: java src.NetServer [--port N] [--latency ms] [--jitter ms] [--loss 0..1] [--bullets N] [--seed N]
+ */
+public class NetServer {
+    // Ticks between snapshots
+    static final int SNAPSHOT_INTERVAL = 2;
+    // Ticks of replicated state kept as delta baselines
+    private static final int STATE_HISTORY = 64;
+    // Event log ring size in bytes (a power of two)
+    private static final int EVENT_LOG_SIZE = 1 << 20;
+    // Inputs held per player; older ones are dropped so latency cannot build up
+    private static final int MAX_QUEUED_INPUTS = 8;
+    private static final long CLIENT_TIMEOUT_NANOS = 5_000_000_000L;
+    // RESET parts sent with each snapshot, cycling until the client has them all
+    private static final int RESET_PARTS_PER_SNAPSHOT = 8;
+    // Events sent this long ago without being acknowledged are sent again
+    private static final long EVENT_RESEND_NANOS = 250_000_000L;
+    // A reset younger than this is shared with other clients that need one
+    private static final long RESET_REUSE_NANOS = 1_000_000_000L;
+    // Room kept for the event header of a snapshot
+    private static final int EVENT_HEADER_BYTES = 16;
+    private static final int RESET_HEADER_BYTES = 24;
+
+    /**
+     * One connected player.
+     */
+    private static final class Client {
+        final SocketAddress address;
+        final int slot;
+        long lastHeardNanos;
+        int ackTick = 0;
+        // Event log offset the client has applied up to; -1 until its first reset
+        long eventAck = -1;
+        // Offset sent up to, and when the ack last caught up or moved
+        long eventSent = 0;
+        long ackProgressNanos;
+        ResetSet reset;
+        int nextResetPart;
+        final int[] queuedSeqs = new int[MAX_QUEUED_INPUTS];
+        final int[] queuedMasks = new int[MAX_QUEUED_INPUTS];
+        int queueHead = 0;
+        int queueCount = 0;
+        int lastReceivedSeq = 0;
+        int lastAppliedSeq = 0;
+        int mask = 0;
+        long bytesSent = 0;
+
+        Client(SocketAddress address, int slot, long nowNanos) {
+            this.address = address;
+            this.slot = slot;
+            this.lastHeardNanos = nowNanos;
+        }
+    }
+
+    /**
+     * The live projectiles at one event log offset, split into RESET packets.
+     */
+    private static final class ResetSet {
+        final long offset;
+        final long createdNanos;
+        final List<ByteBuffer> parts;
+
+        ResetSet(long offset, long createdNanos, List<ByteBuffer> parts) {
+            this.offset = offset;
+            this.createdNanos = createdNanos;
+            this.parts = parts;
+        }
+    }
+
+    private final DatagramChannel channel;
+    private final LinkSimulator link;
+    private final MultiplayerWorld world;
+    private final Map<SocketAddress, Client> clients = new LinkedHashMap<>();
+    private final ByteBuffer receiveBuffer = ByteBuffer.allocate(NetProtocol.MAX_PACKET);
+    private final ByteBuffer sendBuffer = ByteBuffer.allocate(NetProtocol.MAX_PACKET);
+
+    private final int[][] stateHistory = new int[STATE_HISTORY][NetProtocol.STATE_SIZE];
+    private final int[] historyTicks = new int[STATE_HISTORY];
+    private final int[] noBaseline = new int[NetProtocol.STATE_SIZE];
+    private int tick = 0;
+
+    private final byte[] eventLog = new byte[EVENT_LOG_SIZE];
+    private long eventEnd = 0;
+    private final ByteBuffer eventScratch = ByteBuffer.allocate(16);
+    private ResetSet latestReset;
+
+    /**
+     * @param channel bound, non-blocking channel to serve on
+     * @param link    applied to everything the server sends
+     */
+    public NetServer(DatagramChannel channel, LinkSimulator link, long seed) {
+        this.channel = channel;
+        this.link = link;
+        this.world = new MultiplayerWorld(new VirtualClock(1_000_000_000L / GameLoop.DEFAULT_TICK_RATE), seed);
+        world.setListener(new MultiplayerWorld.Listener() {
+            @Override
+            public void spawned(ProjectileStore projectiles, int slot) {
+                eventScratch.clear();
+                NetProtocol.putSpawn(eventScratch, projectiles, slot);
+                logEvent();
+            }
+
+            @Override
+            public void moved() {
+                eventScratch.clear();
+                eventScratch.put((byte) NetProtocol.EV_MOVE);
+                logEvent();
+            }
+
+            @Override
+            public void removed(int id) {
+                eventScratch.clear();
+                NetProtocol.putRemove(eventScratch, id);
+                logEvent();
+            }
+
+            @Override
+            public void cleared() {
+                eventScratch.clear();
+                eventScratch.put((byte) NetProtocol.EV_CLEAR);
+                logEvent();
+            }
+        });
+    }
+
+    private void logEvent() {
+        eventScratch.flip();
+        while (eventScratch.hasRemaining()) {
+            eventLog[(int) (eventEnd++ & (EVENT_LOG_SIZE - 1))] = eventScratch.get();
+        }
+    }
+
+    /**
+     * Run one server tick at the given wall-clock time.
+     */
+    public void tick(long nowNanos) throws IOException {
+        receive(nowNanos);
+        dropSilentClients(nowNanos);
+
+        for (Client c : clients.values()) {
+            if (c.queueCount > 0) {
+                c.lastAppliedSeq = c.queuedSeqs[c.queueHead];
+                c.mask = c.queuedMasks[c.queueHead];
+                c.queueHead = (c.queueHead + 1) % MAX_QUEUED_INPUTS;
+                c.queueCount--;
+            }
+            world.setInput(c.slot, c.mask);
+        }
+        world.step();
+        tick++;
+
+        int[] state = stateHistory[tick % STATE_HISTORY];
+        world.captureState(state);
+        for (Client c : clients.values()) {
+            state[NetProtocol.playerBase(c.slot) + NetProtocol.P_INPUT_SEQ] = c.lastAppliedSeq;
+        }
+        historyTicks[tick % STATE_HISTORY] = tick;
+
+        if (tick % SNAPSHOT_INTERVAL == 0) {
+            for (Client c : clients.values()) {
+                sendSnapshot(c, state, nowNanos);
+            }
+        }
+        link.flush(channel, nowNanos);
+    }
+
+    private void receive(long nowNanos) throws IOException {
+        while (true) {
+            receiveBuffer.clear();
+            SocketAddress from = channel.receive(receiveBuffer);
+            if (from == null) return;
+            receiveBuffer.flip();
+            try {
+                handlePacket(from, receiveBuffer, nowNanos);
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                // Malformed datagram: ignore it
+            }
+        }
+    }
+
+    private void handlePacket(SocketAddress from, ByteBuffer in, long nowNanos) throws IOException {
+        int type = in.get();
+        Client c = clients.get(from);
+        if (type == NetProtocol.JOIN) {
+            int characterType = in.get();
+            if (c == null) {
+                int slot = world.addPlayer(characterType);
+                if (slot < 0) {
+                    sendBuffer.clear();
+                    sendBuffer.put((byte) NetProtocol.FULL);
+                    send(null, from, nowNanos);
+                    return;
+                }
+                c = new Client(from, slot, nowNanos);
+                clients.put(from, c);
+            }
+            // Also answers a repeated JOIN whose WELCOME was lost
+            sendBuffer.clear();
+            sendBuffer.put((byte) NetProtocol.WELCOME);
+            sendBuffer.put((byte) c.slot);
+            NetProtocol.putVarInt(sendBuffer, GameLoop.DEFAULT_TICK_RATE);
+            send(c, from, nowNanos);
+            return;
+        }
+        if (c == null) return;
+        c.lastHeardNanos = nowNanos;
+        if (type == NetProtocol.LEAVE) {
+            removeClient(c);
+        } else if (type == NetProtocol.INPUT) {
+            readInput(c, in, nowNanos);
+        }
+    }
+
+    private void readInput(Client c, ByteBuffer in, long nowNanos) {
+        int ackTick = NetProtocol.getVarInt(in);
+        long eventAck = NetProtocol.getVarLong(in) - 1;
+        int newestSeq = NetProtocol.getVarInt(in);
+        int count = in.get() & 0xff;
+        int[] masks = new int[count];
+        for (int k = 0; k < count; k++) {
+            masks[k] = in.get() & 0xff;
+        }
+        // Packets can arrive out of order: acks only move forward
+        if (ackTick <= tick) c.ackTick = Math.max(c.ackTick, ackTick);
+        if (eventAck <= eventEnd && eventAck > c.eventAck) {
+            c.eventAck = eventAck;
+            c.ackProgressNanos = nowNanos;
+        }
+        // Masks are newest first; queue the ones not seen yet, oldest first
+        for (int k = count - 1; k >= 0; k--) {
+            int seq = newestSeq - k;
+            if (seq <= c.lastReceivedSeq) continue;
+            if (c.queueCount == MAX_QUEUED_INPUTS) {
+                c.queueHead = (c.queueHead + 1) % MAX_QUEUED_INPUTS;
+                c.queueCount--;
+            }
+            int at = (c.queueHead + c.queueCount) % MAX_QUEUED_INPUTS;
+            c.queuedSeqs[at] = seq;
+            c.queuedMasks[at] = masks[k];
+            c.queueCount++;
+            c.lastReceivedSeq = seq;
+        }
+    }
+
+    private void sendSnapshot(Client c, int[] state, long nowNanos) throws IOException {
+        sendBuffer.clear();
+        sendBuffer.put((byte) NetProtocol.SNAPSHOT);
+        NetProtocol.putVarInt(sendBuffer, tick);
+        boolean hasBaseline = c.ackTick > 0 && tick - c.ackTick < STATE_HISTORY
+                && historyTicks[c.ackTick % STATE_HISTORY] == c.ackTick;
+        NetProtocol.putVarInt(sendBuffer, hasBaseline ? c.ackTick : 0);
+        NetProtocol.putStateDelta(sendBuffer, hasBaseline ? stateHistory[c.ackTick % STATE_HISTORY] : noBaseline, state);
+
+        if (c.reset != null && c.eventAck >= c.reset.offset) {
+            c.reset = null;
+        }
+        if (c.reset == null && (c.eventAck < 0 || c.eventAck < eventEnd - EVENT_LOG_SIZE)) {
+            c.reset = resetFor(nowNanos);
+            c.nextResetPart = 0;
+        }
+        if (c.reset != null) {
+            // No events until the reset is in place
+            NetProtocol.putVarLong(sendBuffer, 0);
+            NetProtocol.putVarInt(sendBuffer, 0);
+        } else {
+            // Carry on after what was last sent, so a backlog takes one
+            // round trip rather than one per packet; go back to the ack if
+            // it stops moving (go-back-N: the client drops events after a gap)
+            if (c.eventSent <= c.eventAck) {
+                c.eventSent = c.eventAck;
+                c.ackProgressNanos = nowNanos;
+            } else if (nowNanos - c.ackProgressNanos > EVENT_RESEND_NANOS) {
+                c.eventSent = c.eventAck;
+                c.ackProgressNanos = nowNanos;
+            }
+            long from = c.eventSent;
+            int budget = sendBuffer.remaining() - EVENT_HEADER_BYTES;
+            long end = from;
+            while (end < eventEnd) {
+                int size = NetProtocol.eventSize(eventLog[(int) (end & (EVENT_LOG_SIZE - 1))]);
+                if (end + size - from > budget) break;
+                end += size;
+            }
+            NetProtocol.putVarLong(sendBuffer, from);
+            NetProtocol.putVarInt(sendBuffer, (int) (end - from));
+            for (long i = from; i < end; i++) {
+                sendBuffer.put(eventLog[(int) (i & (EVENT_LOG_SIZE - 1))]);
+            }
+            c.eventSent = end;
+        }
+        send(c, c.address, nowNanos);
+
+        // Paced so a large reset cannot overflow the client's socket buffer;
+        // parts lost on one pass are picked up on the next
+        if (c.reset != null) {
+            List<ByteBuffer> parts = c.reset.parts;
+            for (int k = 0; k < Math.min(RESET_PARTS_PER_SNAPSHOT, parts.size()); k++) {
+                sendBuffer.clear();
+                sendBuffer.put(parts.get(c.nextResetPart).duplicate());
+                send(c, c.address, nowNanos);
+                c.nextResetPart = (c.nextResetPart + 1) % parts.size();
+            }
+        }
+    }
+
+    private ResetSet resetFor(long nowNanos) {
+        if (latestReset == null || nowNanos - latestReset.createdNanos > RESET_REUSE_NANOS
+                || latestReset.offset < eventEnd - EVENT_LOG_SIZE / 2) {
+            latestReset = new ResetSet(eventEnd, nowNanos, encodeReset());
+        }
+        return latestReset;
+    }
+
+    /**
+     * Every live projectile at full precision, split into RESET packets.
+     * Records: id(3), kind, damage, float x, y, then per kind: vx, vy
+     * (straight and player shots), vx, vy, phase (zigzag) or phase,
+     * centerX, centerY, radius, radiusStep (spiral).
+     */
+    private List<ByteBuffer> encodeReset() {
+        ProjectileStore store = world.getProjectiles();
+        List<ByteBuffer> chunks = new ArrayList<>();
+        List<Integer> counts = new ArrayList<>();
+        ByteBuffer chunk = ByteBuffer.allocate(NetProtocol.MAX_PACKET - RESET_HEADER_BYTES);
+        int count = 0;
+        for (int i = 0; i < store.size(); i++) {
+            if (chunk.remaining() < 33) {
+                chunks.add(chunk);
+                counts.add(count);
+                chunk = ByteBuffer.allocate(NetProtocol.MAX_PACKET - RESET_HEADER_BYTES);
+                count = 0;
+            }
+            int kind = store.getKind(i);
+            NetProtocol.putId(chunk, store.getId(i));
+            chunk.put((byte) kind);
+            chunk.put((byte) Math.min(255, store.getDamage(i)));
+            chunk.putFloat((float) store.getX(i));
+            chunk.putFloat((float) store.getY(i));
+            if (kind == ProjectileStore.KIND_SPIRAL) {
+                chunk.putFloat((float) store.getPhase(i));
+                chunk.putFloat((float) store.getCenterX(i));
+                chunk.putFloat((float) store.getCenterY(i));
+                chunk.putFloat((float) store.getRadius(i));
+                chunk.putFloat((float) store.getRadiusStep(i));
+            } else {
+                chunk.putFloat((float) store.getVx(i));
+                chunk.putFloat((float) store.getVy(i));
+                if (kind == ProjectileStore.KIND_ZIGZAG) {
+                    chunk.putFloat((float) store.getPhase(i));
+                }
+            }
+            count++;
+        }
+        chunks.add(chunk);
+        counts.add(count);
+
+        List<ByteBuffer> parts = new ArrayList<>(chunks.size());
+        for (int p = 0; p < chunks.size(); p++) {
+            ByteBuffer part = ByteBuffer.allocate(NetProtocol.MAX_PACKET);
+            part.put((byte) NetProtocol.RESET);
+            NetProtocol.putVarLong(part, eventEnd);
+            NetProtocol.putVarInt(part, p);
+            NetProtocol.putVarInt(part, chunks.size());
+            NetProtocol.putVarInt(part, counts.get(p));
+            part.put(chunks.get(p).flip());
+            parts.add(part.flip());
+        }
+        return parts;
+    }
+
+    private void send(Client c, SocketAddress to, long nowNanos) throws IOException {
+        sendBuffer.flip();
+        if (c != null) {
+            c.bytesSent += sendBuffer.remaining();
+        }
+        link.send(channel, sendBuffer, to, nowNanos);
+    }
+
+    private void dropSilentClients(long nowNanos) {
+        Iterator<Client> it = clients.values().iterator();
+        while (it.hasNext()) {
+            Client c = it.next();
+            if (nowNanos - c.lastHeardNanos > CLIENT_TIMEOUT_NANOS) {
+                world.removePlayer(c.slot);
+                it.remove();
+            }
+        }
+    }
+
+    private void removeClient(Client c) {
+        world.removePlayer(c.slot);
+        clients.remove(c.address);
+    }
+
+    public MultiplayerWorld getWorld() { return world; }
+    public int getTick() { return tick; }
+    /** Bytes written to the event log so far, i.e. the offset of its end. */
+    public long getEventLogEnd() { return eventEnd; }
+    public int getClientCount() { return clients.size(); }
+    public LinkSimulator getLink() { return link; }
+
+    /**
+     * Bytes sent so far to the client playing in the given slot, or -1.
+     */
+    public long getBytesSent(int slot) {
+        for (Client c : clients.values()) {
+            if (c.slot == slot) return c.bytesSent;
+        }
+        return -1;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = NetProtocol.DEFAULT_PORT;
+        int latency = 0;
+        int jitter = 0;
+        double loss = 0;
+        int bullets = 0;
+        long seed = 1;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (i + 1 >= args.length) {
+                usage("Missing value for " + arg);
+            }
+            String value = args[++i];
+            switch (arg) {
+                case "--port": port = Integer.parseInt(value); break;
+                case "--latency": latency = Integer.parseInt(value); break;
+                case "--jitter": jitter = Integer.parseInt(value); break;
+                case "--loss": loss = Double.parseDouble(value); break;
+                case "--bullets": bullets = Integer.parseInt(value); break;
+                case "--seed": seed = Long.parseLong(value); break;
+                default: usage("Unknown option " + arg);
+            }
+        }
+
+        DatagramChannel channel = DatagramChannel.open();
+        channel.bind(new InetSocketAddress(port));
+        channel.configureBlocking(false);
+        NetServer server = new NetServer(channel, new LinkSimulator(latency, jitter, loss, seed), seed);
+        server.getWorld().setAmbientBullets(bullets);
+        GameLoop loop = new GameLoop(GameLoop.DEFAULT_TICK_RATE, () -> {
+            try {
+                server.tick(System.nanoTime());
+            } catch (IOException e) {
+                e.printStackTrace();
+                System.exit(1);
+            }
+        }, () -> { });
+        System.out.println("Serving on UDP port " + port);
+        loop.start();
+        while (loop.isRunning()) {
+            Thread.sleep(5000);
+            // Racy read of counters for the status line only
+            System.out.println("tick " + server.getTick() + ", " + server.getClientCount() + " players, level "
+                    + server.getWorld().getLevel() + ", " + server.getWorld().getProjectiles().size() + " bullets");
+        }
+    }
+
+    private static void usage(String error) {
+        System.err.println(error);
+        System.err.println("Usage: java src.NetServer [--port N] [--latency ms] [--jitter ms] [--loss 0..1] [--bullets N] [--seed N]");
+        System.exit(2);
+    }
+}
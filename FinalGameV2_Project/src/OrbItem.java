@@ -2,7 +2,6 @@ package src;
 
 import java.awt.Color;
 import java.awt.Graphics;
-import java.util.Iterator;
 
 /**
  * Orb item clears all enemy projectiles when picked up.
@@ -13,23 +12,15 @@ public class OrbItem extends Item {
     }
 
     @Override
-    public void applyEffect(Character player, java.util.List<Projectile> projectiles) {
+    public void applyEffect(Character player, ProjectileStore projectiles) {
         // Remove all non-player projectiles
-        Iterator<Projectile> it = projectiles.iterator();
-        while (it.hasNext()) {
-            Projectile p = it.next();
-            if (!(p instanceof PlayerProjectile)) {
-                it.remove();
-            }
-        }
+        projectiles.removeEnemyProjectiles();
     }
 
     @Override
-    public void draw(Graphics g) {
+    protected void drawSprite(Graphics g, int x, int y) {
         // Draw a glowing orb effect
         int s = getSize();
-        int x = getX();
-        int y = getY();
         
         // Outer glow
         g.setColor(new Color(100, 200, 255, 100));
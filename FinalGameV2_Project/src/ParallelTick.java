@@ -0,0 +1,138 @@
+package src;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * ParallelTick runs the per-element parts of a GameWorld tick on a
+ * ForkJoinPool: projectile movement with the out-of-bounds check, and
+ * particle movement. Each array is split into fixed chunks; a chunk writes
+ * only its own elements and its own removal buffer.
+ *
+ * After the join the removal buffers are applied from the last chunk to
+ * the first, each back to front. That is the descending slot order in
+ * which the sequential loop removes projectiles, so the store ends up
+ * identical bit for bit whatever the thread count or scheduling.
+ *
+ * One instance belongs to one world (it owns the buffers); the pool can be
+ * shared by many worlds.
+ */
+public class ParallelTick {
+    // Below this many elements per chunk a fork costs more than it saves.
+    // A multiple of every vector length, so chunks start lane-aligned.
+    private static final int MIN_CHUNK = 4096;
+
+    private final ForkJoinPool pool;
+    private final int maxChunks;
+
+    // Out-of-bounds slots found by each chunk, in ascending order
+    private int[][] removals = new int[0][];
+    private int[] removalCounts = new int[0];
+
+    public ParallelTick(ForkJoinPool pool) {
+        this.pool = pool;
+        // A few chunks per worker so an unlucky chunk does not hold up the join
+        this.maxChunks = pool.getParallelism() * 4;
+    }
+
+    /**
+     * Move every projectile and remove those outside [minX, maxX] x
+     * [minY, maxY], exactly as ProjectileStore.moveAll() followed by a
+     * backwards removeAt() pass would.
+     */
+    public void moveProjectiles(ProjectileStore store, double minX, double minY, double maxX, double maxY) {
+        int n = store.size();
+        int chunkSize = chunkSize(n);
+        int chunks = (n + chunkSize - 1) / chunkSize;
+        ensureBuffers(chunks, chunkSize);
+
+        run(chunks, c -> {
+            int from = c * chunkSize;
+            int to = Math.min(n, from + chunkSize);
+            store.moveRange(from, to);
+            int[] out = removals[c];
+            int count = 0;
+            for (int i = from; i < to; i++) {
+                double px = store.getX(i);
+                double py = store.getY(i);
+                if (px < minX || px > maxX || py < minY || py > maxY) {
+                    out[count++] = i;
+                }
+            }
+            removalCounts[c] = count;
+        });
+
+        // Merge in a fixed order: highest slot first
+        for (int c = chunks - 1; c >= 0; c--) {
+            int[] out = removals[c];
+            for (int k = removalCounts[c] - 1; k >= 0; k--) {
+                store.removeAt(out[k]);
+            }
+        }
+    }
+
+    /**
+     * Same as ParticleSystem.update().
+     */
+    public void updateParticles(ParticleSystem particles, long nowMs) {
+        int n = particles.size();
+        int chunkSize = chunkSize(n);
+        int chunks = (n + chunkSize - 1) / chunkSize;
+        run(chunks, c -> particles.move(c * chunkSize, Math.min(n, (c + 1) * chunkSize)));
+        particles.expire(nowMs);
+    }
+
+    private int chunkSize(int n) {
+        int perChunk = (n + maxChunks - 1) / maxChunks;
+        // Round up to whole MIN_CHUNKs
+        return Math.max(MIN_CHUNK, (perChunk + MIN_CHUNK - 1) / MIN_CHUNK * MIN_CHUNK);
+    }
+
+    private void ensureBuffers(int chunks, int chunkSize) {
+        if (removals.length < chunks) {
+            removals = Arrays.copyOf(removals, chunks);
+            removalCounts = new int[chunks];
+        }
+        for (int c = 0; c < chunks; c++) {
+            if (removals[c] == null || removals[c].length < chunkSize) {
+                removals[c] = new int[chunkSize];
+            }
+        }
+    }
+
+    private interface ChunkTask {
+        void run(int chunk);
+    }
+
+    // A single chunk runs on the calling thread; more are forked on the pool
+    private void run(int chunks, ChunkTask task) {
+        if (chunks <= 1) {
+            if (chunks == 1) task.run(0);
+            return;
+        }
+        pool.invoke(new Chunks(task, 0, chunks));
+    }
+
+    private static final class Chunks extends RecursiveAction {
+        private final ChunkTask task;
+        private final int from;
+        private final int to;
+
+        Chunks(ChunkTask task, int from, int to) {
+            this.task = task;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                task.run(from);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Chunks(task, from, mid), new Chunks(task, mid, to));
+        }
+    }
+}
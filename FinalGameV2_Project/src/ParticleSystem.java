@@ -0,0 +1,189 @@
+package src;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.util.Random;
+
+/**
+ * ParticleSystem stores short-lived visual particles in a fixed-capacity ring
+ * buffer of primitive arrays, so emitting and expiring particles allocates
+ * nothing. When the budget is exhausted the oldest particle is overwritten.
+ *
+ * Colors come from a small palette registered up front; each palette entry
+ * has a precomputed table of alpha-faded colors so drawing never creates
+ * Color objects. Velocity jitter uses one shared seeded Random.
+ */
+public class ParticleSystem {
+    // Fade steps per palette color (alpha quantized to 256 / ALPHA_LEVELS)
+    private static final int ALPHA_LEVELS = 32;
+    private static final double DRAG = 0.95;
+
+    private final int capacity;
+    private final double[] x;
+    private final double[] y;
+    private final double[] vx;
+    private final double[] vy;
+    private final long[] spawnMs;
+    private final int[] lifetimeMs;
+    private final int[] size;
+    private final int[] colorIndex;
+
+    // Ring buffer: live particles are [head, head + count) modulo capacity
+    private int head = 0;
+    private int count = 0;
+    private long dropped = 0;
+
+    private Color[][] fadeTables = new Color[0][];
+    private final Random random;
+
+    public ParticleSystem(int capacity, long seed) {
+        this.capacity = capacity;
+        this.x = new double[capacity];
+        this.y = new double[capacity];
+        this.vx = new double[capacity];
+        this.vy = new double[capacity];
+        this.spawnMs = new long[capacity];
+        this.lifetimeMs = new int[capacity];
+        this.size = new int[capacity];
+        this.colorIndex = new int[capacity];
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Register a base color and return its palette index for emit calls.
+     */
+    public int addColor(Color base) {
+        Color[] table = new Color[ALPHA_LEVELS];
+        for (int level = 0; level < ALPHA_LEVELS; level++) {
+            int alpha = (level + 1) * 255 / ALPHA_LEVELS;
+            table[level] = new Color(base.getRed(), base.getGreen(), base.getBlue(), alpha);
+        }
+        Color[][] tables = new Color[fadeTables.length + 1][];
+        System.arraycopy(fadeTables, 0, tables, 0, fadeTables.length);
+        tables[fadeTables.length] = table;
+        fadeTables = tables;
+        return fadeTables.length - 1;
+    }
+
+    public void emit(double px, double py, double pvx, double pvy, int color, int lifetime, int particleSize, long nowMs) {
+        int slot;
+        if (count == capacity) {
+            // Budget exhausted: overwrite the oldest particle
+            slot = head;
+            head = (head + 1) % capacity;
+            dropped++;
+        } else {
+            slot = (head + count) % capacity;
+            count++;
+        }
+        x[slot] = px;
+        y[slot] = py;
+        vx[slot] = pvx;
+        vy[slot] = pvy;
+        spawnMs[slot] = nowMs;
+        lifetimeMs[slot] = lifetime;
+        size[slot] = particleSize;
+        colorIndex[slot] = color;
+    }
+
+    /**
+     * Emit a slow drifting particle for a projectile trail.
+     */
+    public void emitTrail(double px, double py, int color, long nowMs) {
+        double pvx = (random.nextDouble() - 0.5) * 0.5;
+        double pvy = (random.nextDouble() - 0.5) * 0.5;
+        emit(px, py, pvx, pvy, color, 300, 3, nowMs);
+    }
+
+    /**
+     * Move every particle one tick and drop expired ones from the front.
+     * Particles expire roughly in emission order; any that outlive an older
+     * neighbour are skipped when drawing until the front catches up.
+     */
+    public void update(long nowMs) {
+        move(0, count);
+        expire(nowMs);
+    }
+
+    /**
+     * Move the particles at positions [from, to) counted from the oldest.
+     * Particles are independent, so disjoint ranges may be moved on
+     * different threads (see ParallelTick).
+     */
+    public void move(int from, int to) {
+        if (from >= to) return;
+        for (int k = from, i = (head + from) % capacity; k < to; k++, i = next(i)) {
+            x[i] += vx[i];
+            y[i] += vy[i];
+            // Slow down over time
+            vx[i] *= DRAG;
+            vy[i] *= DRAG;
+        }
+    }
+
+    /**
+     * Drop expired particles from the front.
+     */
+    public void expire(long nowMs) {
+        while (count > 0 && nowMs - spawnMs[head] > lifetimeMs[head]) {
+            head = next(head);
+            count--;
+        }
+    }
+
+    public void draw(Graphics g, long nowMs) {
+        for (int k = 0, i = head; k < count; k++, i = next(i)) {
+            long elapsed = nowMs - spawnMs[i];
+            if (elapsed > lifetimeMs[i]) continue;
+            // Fade out
+            double remaining = 1.0 - elapsed / (double) lifetimeMs[i];
+            int level = (int) (remaining * ALPHA_LEVELS) - 1;
+            if (level < 0) continue;
+            if (level >= ALPHA_LEVELS) level = ALPHA_LEVELS - 1;
+            g.setColor(fadeTables[colorIndex[i]][level]);
+            g.fillOval((int) x[i], (int) y[i], size[i], size[i]);
+        }
+    }
+
+    public void clear() {
+        head = 0;
+        count = 0;
+    }
+
+    /**
+     * Hold the same particles as other, which must have the same capacity
+     * and palette, for drawing a copy of a world on another thread.
+     * Copies only the live part of the ring.
+     */
+    public void copyFrom(ParticleSystem other) {
+        if (other.capacity != capacity) {
+            throw new IllegalArgumentException("Capacity " + other.capacity + " does not match " + capacity);
+        }
+        head = other.head;
+        count = other.count;
+        dropped = other.dropped;
+        int first = Math.min(count, capacity - head);
+        copyRange(other, head, first);
+        copyRange(other, 0, count - first);
+    }
+
+    private void copyRange(ParticleSystem other, int from, int length) {
+        if (length <= 0) return;
+        System.arraycopy(other.x, from, x, from, length);
+        System.arraycopy(other.y, from, y, from, length);
+        System.arraycopy(other.vx, from, vx, from, length);
+        System.arraycopy(other.vy, from, vy, from, length);
+        System.arraycopy(other.spawnMs, from, spawnMs, from, length);
+        System.arraycopy(other.lifetimeMs, from, lifetimeMs, from, length);
+        System.arraycopy(other.size, from, size, from, length);
+        System.arraycopy(other.colorIndex, from, colorIndex, from, length);
+    }
+
+    private int next(int i) {
+        return i + 1 == capacity ? 0 : i + 1;
+    }
+
+    public int size() { return count; }
+    public int getCapacity() { return capacity; }
+    public long getDroppedCount() { return dropped; }
+}
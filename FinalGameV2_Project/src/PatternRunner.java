@@ -0,0 +1,190 @@
+package src;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * PatternRunner executes a BulletPattern for one boss. Each call to run()
+ * continues the program from where it last waited, emitting volleys into
+ * the ProjectileStore, until it reaches the next wait that is not yet due.
+ *
+ * The runner holds the only mutable pattern state (program counter, loop
+ * counters, aim direction and the random source for choose()), so runs
+ * seeded the same way fire the same bullets.
+ */
+public class PatternRunner {
+    // Instructions per run() before the program is considered stuck
+    private static final int MAX_STEPS = 4096;
+
+    private final int[] code;
+    private final double[] constants;
+    private final Random rng;
+
+    private int pc = 0;
+    private long resumeAtMs;
+    private final int[] loopCounts;
+    private int depth = 0;
+
+    // Aim: angle in radians plus its unit vector
+    private double angle = 0;
+    private double dirX = 1;
+    private double dirY = 0;
+
+    /**
+     * @param rng          random source for choose(); may be null if the pattern has none
+     * @param firstVolleyMs simulation time at which the program starts running
+     */
+    public PatternRunner(BulletPattern pattern, Random rng, long firstVolleyMs) {
+        if (pattern.isRandom() && rng == null) {
+            throw new IllegalArgumentException("Pattern uses choose() but no random source was given");
+        }
+        this.code = pattern.getCode();
+        this.constants = pattern.getConstants();
+        this.rng = rng;
+        this.loopCounts = new int[pattern.getMaxDepth()];
+        this.resumeAtMs = firstVolleyMs;
+    }
+
+    /**
+     * Run the program for the boss's current tick.
+     */
+    public void run(ProjectileStore projectiles, Boss boss, Character target, long nowMs) {
+        if (nowMs < resumeAtMs) return;
+        int before = projectiles.size();
+        double cx = boss.getX() + boss.getSize() / 2.0;
+        double cy = boss.getY() + boss.getSize() / 2.0;
+        double speed = boss.getProjectileSpeed();
+
+        for (int steps = 0; steps < MAX_STEPS; steps++) {
+            if (pc >= code.length) {
+                pc = 0; // programs repeat
+            }
+            switch (code[pc]) {
+                case BulletPattern.OP_WAIT:
+                    resumeAtMs = nowMs + code[pc + 1];
+                    pc += 2;
+                    reportVolley(boss, projectiles, before);
+                    return;
+                case BulletPattern.OP_AIM: {
+                    double dx = (target.getX() + target.getWidth() / 2.0) - cx;
+                    double dy = (target.getY() + target.getHeight() / 2.0) - cy;
+                    double len = Math.max(1, Math.hypot(dx, dy));
+                    dirX = dx / len;
+                    dirY = dy / len;
+                    angle = Math.atan2(dy, dx);
+                    pc += 1;
+                    break;
+                }
+                case BulletPattern.OP_SET_ANGLE:
+                    setAngle(constants[code[pc + 1]]);
+                    pc += 2;
+                    break;
+                case BulletPattern.OP_ROTATE:
+                    setAngle(angle + constants[code[pc + 1]]);
+                    pc += 2;
+                    break;
+                case BulletPattern.OP_SHOOT:
+                    projectiles.spawn(code[pc + 1], cx, cy, dirX * speed, dirY * speed, code[pc + 2]);
+                    pc += 3;
+                    break;
+                case BulletPattern.OP_SPREAD:
+                    projectiles.spawnSpread(code[pc + 4], cx, cy, angle + constants[code[pc + 3]],
+                            constants[code[pc + 2]], code[pc + 1], speed, code[pc + 5]);
+                    pc += 6;
+                    break;
+                case BulletPattern.OP_RING:
+                    projectiles.spawnRing(code[pc + 2], cx, cy, angle, code[pc + 1], speed, code[pc + 3]);
+                    pc += 4;
+                    break;
+                case BulletPattern.OP_ORBIT: {
+                    int count = code[pc + 1];
+                    projectiles.reserve(count);
+                    for (int i = 0; i < count; i++) {
+                        projectiles.spawnSpiral(cx, cy, angle + i * 2 * Math.PI / count, code[pc + 2]);
+                    }
+                    pc += 3;
+                    break;
+                }
+                case BulletPattern.OP_REPEAT:
+                    loopCounts[depth++] = code[pc + 1];
+                    pc += 2;
+                    break;
+                case BulletPattern.OP_END:
+                    if (--loopCounts[depth - 1] > 0) {
+                        pc = code[pc + 1];
+                    } else {
+                        depth--;
+                        pc += 2;
+                    }
+                    break;
+                case BulletPattern.OP_JUMP:
+                    pc = code[pc + 1];
+                    break;
+                case BulletPattern.OP_CHOOSE:
+                    pc = code[pc + 2 + rng.nextInt(code[pc + 1])];
+                    break;
+                default:
+                    throw new IllegalStateException("Bad pattern opcode " + code[pc] + " at " + pc);
+            }
+        }
+        throw new IllegalStateException("Pattern ran " + MAX_STEPS + " instructions without waiting");
+    }
+
+    // Nothing is removed while the program runs, so growth is what it fired
+    private static void reportVolley(Boss boss, ProjectileStore projectiles, int before) {
+        int bullets = projectiles.size() - before;
+        if (bullets == 0) return;
+        GameEvents.Volley event = new GameEvents.Volley();
+        if (event.shouldCommit()) {
+            event.boss = GameWorld.bossKind(boss);
+            event.bullets = bullets;
+            event.projectiles = projectiles.size();
+            event.commit();
+        }
+    }
+
+    private void setAngle(double a) {
+        angle = a;
+        dirX = Math.cos(a);
+        dirY = Math.sin(a);
+    }
+
+    /**
+     * Write the program state into buf. A pattern using choose() can only
+     * be saved if its random source is a GameRandom.
+     */
+    public void saveState(ByteBuffer buf) {
+        buf.putInt(pc).putLong(resumeAtMs).putInt(depth);
+        for (int i = 0; i < depth; i++) {
+            buf.putInt(loopCounts[i]);
+        }
+        buf.putDouble(angle).putDouble(dirX).putDouble(dirY);
+        if (rng != null) {
+            buf.putLong(savableRandom().getState());
+        }
+    }
+
+    public void restoreState(ByteBuffer buf) {
+        pc = buf.getInt();
+        resumeAtMs = buf.getLong();
+        depth = buf.getInt();
+        for (int i = 0; i < depth; i++) {
+            loopCounts[i] = buf.getInt();
+        }
+        angle = buf.getDouble();
+        dirX = buf.getDouble();
+        dirY = buf.getDouble();
+        if (rng != null) {
+            savableRandom().setState(buf.getLong());
+        }
+    }
+
+    private GameRandom savableRandom() {
+        if (!(rng instanceof GameRandom)) {
+            throw new IllegalStateException("Pattern state cannot be saved: random source is not a GameRandom");
+        }
+        return (GameRandom) rng;
+    }
+
+    public long getResumeAtMs() { return resumeAtMs; }
+}
@@ -0,0 +1,218 @@
+package src;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.lang.management.ManagementFactory;
+
+/**
+ * PerfOverlay is the F3 debug panel: histograms of the recent frame times
+ * and tick times, the mean and worst time of every stage of updateGame()
+ * and GameRenderer.render(), live entity counts and the JVM's allocation
+ * rate.
+ *
+ * Timings come from the two StageProfilers' rings and the histograms are
+ * rebuilt every frame into a preallocated bucket array. The text is only
+ * rebuilt REFRESH_NANOS apart, both to keep it readable and so the
+ * overlay's own strings barely register in the allocation rate it shows.
+ * Draw it on the thread that paints, with the world being drawn; the tick
+ * profiler is read while the loop thread writes it, which at worst shows a
+ * slightly stale sample (see StageProfiler).
+ */
+public class PerfOverlay {
+    private static final long REFRESH_NANOS = 250_000_000L;
+    private static final int BUCKETS = 40;
+    private static final long FRAME_BUCKET_NANOS = 1_000_000; // 0 - 40 ms
+    private static final long TICK_BUCKET_NANOS = 100_000;    // 0 - 4 ms
+    private static final int BAR_WIDTH = 8;
+    private static final int GRAPH_HEIGHT = 36;
+    private static final int LINE_HEIGHT = 13;
+    private static final int WIDTH = 2 * 10 + BUCKETS * BAR_WIDTH;
+
+    private static final Font FONT = new Font("Monospaced", Font.PLAIN, 11);
+    private static final Color BACKGROUND = new Color(0, 0, 0, 190);
+    private static final Color TEXT = new Color(220, 220, 220);
+    private static final Color FRAME_BARS = new Color(90, 200, 90);
+    private static final Color TICK_BARS = new Color(90, 160, 230);
+    private static final Color TARGET_LINE = new Color(230, 200, 60);
+
+    private final StageProfiler tickProfiler;
+    private final StageProfiler paintProfiler;
+    // Null when the JVM cannot count allocated bytes
+    private final com.sun.management.ThreadMXBean threads = allocationCounter();
+
+    private final int[] buckets = new int[BUCKETS];
+    private final long targetFrameNanos;
+    private String frameLine = "";
+    private String tickLine = "";
+    private final String[] tickStageLines;
+    private final String[] paintStageLines;
+    private String countLine = "";
+    private String itemLine = "";
+    private String allocationLine = "";
+    private long lastRefreshNanos = 0;
+    private long lastAllocatedBytes = -1;
+
+    /**
+     * @param tickRate ticks per second, drawn as the target line on the
+     *                 frame histogram
+     */
+    public PerfOverlay(StageProfiler tickProfiler, StageProfiler paintProfiler, int tickRate) {
+        this.tickProfiler = tickProfiler;
+        this.paintProfiler = paintProfiler;
+        this.targetFrameNanos = 1_000_000_000L / tickRate;
+        tickStageLines = new String[tickProfiler.getStageCount()];
+        paintStageLines = new String[paintProfiler.getStageCount()];
+        refresh(System.nanoTime(), null);
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) return null;
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        if (!threads.isThreadAllocatedMemorySupported()) return null;
+        if (!threads.isThreadAllocatedMemoryEnabled()) {
+            threads.setThreadAllocatedMemoryEnabled(true);
+        }
+        return threads;
+    }
+
+    /**
+     * Draw the panel in the top-right corner; world may be null.
+     */
+    public void draw(Graphics g, GameWorld world, int screenWidth) {
+        long now = System.nanoTime();
+        if (now - lastRefreshNanos >= REFRESH_NANOS) {
+            refresh(now, world);
+        }
+
+        int lines = 6 + tickStageLines.length + paintStageLines.length;
+        int height = lines * LINE_HEIGHT + 2 * GRAPH_HEIGHT + 24;
+        int x = screenWidth - WIDTH - 10;
+        int y = 10;
+        g.setColor(BACKGROUND);
+        g.fillRect(x, y, WIDTH, height);
+        g.setFont(FONT);
+
+        int left = x + 10;
+        int line = y + LINE_HEIGHT + 2;
+        g.setColor(TEXT);
+        g.drawString(frameLine, left, line);
+        drawHistogram(g, left, line + 4, paintProfiler, true, FRAME_BUCKET_NANOS, FRAME_BARS);
+        int target = (int) (targetFrameNanos * BAR_WIDTH / FRAME_BUCKET_NANOS);
+        g.setColor(TARGET_LINE);
+        g.drawLine(left + target, line + 4, left + target, line + 4 + GRAPH_HEIGHT);
+        line += GRAPH_HEIGHT + 8 + LINE_HEIGHT;
+
+        g.setColor(TEXT);
+        g.drawString(tickLine, left, line);
+        drawHistogram(g, left, line + 4, tickProfiler, false, TICK_BUCKET_NANOS, TICK_BARS);
+        line += GRAPH_HEIGHT + 8 + LINE_HEIGHT;
+
+        g.setColor(TEXT);
+        g.drawString("tick stage       mean us   max us", left, line);
+        for (String s : tickStageLines) {
+            line += LINE_HEIGHT;
+            g.drawString(s, left, line);
+        }
+        line += LINE_HEIGHT;
+        g.drawString("paint stage      mean us   max us", left, line);
+        for (String s : paintStageLines) {
+            line += LINE_HEIGHT;
+            g.drawString(s, left, line);
+        }
+        line += LINE_HEIGHT;
+        g.drawString(countLine, left, line);
+        line += LINE_HEIGHT;
+        g.drawString(itemLine, left, line);
+        line += LINE_HEIGHT;
+        g.drawString(allocationLine, left, line);
+    }
+
+    // Bucket the held samples (frame intervals or pass times) and draw one bar per bucket
+    private void drawHistogram(Graphics g, int x, int y, StageProfiler profiler, boolean intervals,
+                               long bucketNanos, Color color) {
+        for (int b = 0; b < BUCKETS; b++) {
+            buckets[b] = 0;
+        }
+        int tallest = 1;
+        for (int age = 0, n = profiler.getSampleCount(); age < n; age++) {
+            long nanos = intervals ? profiler.getIntervalNanos(age) : profiler.getPassNanos(age);
+            // The first pass after enabling has no interval
+            if (intervals && nanos == 0) continue;
+            int b = (int) Math.min(BUCKETS - 1, nanos / bucketNanos);
+            tallest = Math.max(tallest, ++buckets[b]);
+        }
+        g.setColor(color);
+        for (int b = 0; b < BUCKETS; b++) {
+            if (buckets[b] == 0) continue;
+            int h = Math.max(1, buckets[b] * GRAPH_HEIGHT / tallest);
+            g.fillRect(x + b * BAR_WIDTH, y + GRAPH_HEIGHT - h, BAR_WIDTH - 1, h);
+        }
+    }
+
+    private void refresh(long now, GameWorld world) {
+        frameLine = "frame " + summary(paintProfiler, true) + "  1 ms/bar";
+        tickLine = "tick  " + summary(tickProfiler, false) + "  0.1 ms/bar";
+        stageLines(tickProfiler, tickStageLines);
+        stageLines(paintProfiler, paintStageLines);
+
+        if (world != null) {
+            ParticleSystem particles = world.getParticles();
+            countLine = "projectiles " + world.getProjectiles().size()
+                    + "  particles " + particles.size() + "/" + particles.getCapacity();
+            itemLine = "items " + world.getItems().size() + "  damage numbers " + world.getDamageNumbers().size();
+        } else {
+            countLine = "no run in progress";
+            itemLine = "";
+        }
+
+        long allocated = allocatedBytes();
+        if (allocated < 0) {
+            allocationLine = "allocation rate unavailable";
+        } else if (lastAllocatedBytes >= 0) {
+            // A thread that exits takes its count with it, so the total can drop
+            long delta = Math.max(0, allocated - lastAllocatedBytes);
+            double mbPerSecond = delta / 1e6 / ((now - lastRefreshNanos) / 1e9);
+            allocationLine = "allocating " + oneDecimal(mbPerSecond) + " MB/s";
+        }
+        lastAllocatedBytes = allocated;
+        lastRefreshNanos = now;
+    }
+
+    // Bytes allocated so far by the live threads, or -1
+    private long allocatedBytes() {
+        if (threads == null) return -1;
+        long total = 0;
+        for (long bytes : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            if (bytes > 0) total += bytes;
+        }
+        return total;
+    }
+
+    // Mean and max over the held samples, in milliseconds
+    private static String summary(StageProfiler profiler, boolean intervals) {
+        long sum = 0;
+        long max = 0;
+        int n = 0;
+        for (int age = 0, count = profiler.getSampleCount(); age < count; age++) {
+            long nanos = intervals ? profiler.getIntervalNanos(age) : profiler.getPassNanos(age);
+            if (intervals && nanos == 0) continue;
+            sum += nanos;
+            max = Math.max(max, nanos);
+            n++;
+        }
+        if (n == 0) return "no samples";
+        return "mean " + twoDecimals(sum / (double) n / 1e6) + " ms  max " + twoDecimals(max / 1e6) + " ms";
+    }
+
+    private static void stageLines(StageProfiler profiler, String[] lines) {
+        for (int s = 0; s < lines.length; s++) {
+            lines[s] = String.format("  %-12s %9.1f %8.1f", profiler.getStageName(s),
+                    profiler.getStageMeanNanos(s) / 1e3, profiler.getStageMaxNanos(s) / 1e3);
+        }
+    }
+
+    private static String oneDecimal(double value) { return String.format("%.1f", value); }
+    private static String twoDecimals(double value) { return String.format("%.2f", value); }
+}
@@ -1,52 +1,48 @@
 package src;
 
-import java.awt.Graphics;
-import java.awt.Color;
-
 /**
- * Abstract Projectile with position, velocity and damage.
+ * Projectile is a lightweight view of one bullet held in a ProjectileStore.
+ * It refers to the bullet by its stable id and the id's generation, so it
+ * stays valid while other bullets are removed; once its own bullet is
+ * removed {@link #isAlive()} returns false and the accessors throw, even
+ * after the store reuses the id for a new bullet.
  */
-public abstract class Projectile {
-    private double x;
-    private double y;
-    private double vx;
-    private double vy;
-    private int damage;
-    private int size = 12;
+public class Projectile {
+    private final ProjectileStore store;
+    private final int id;
+    private final int generation;
 
-    public Projectile(double x, double y, double vx, double vy, int damage) {
-        this.x = x;
-        this.y = y;
-        this.vx = vx;
-        this.vy = vy;
-        this.damage = damage;
+    Projectile(ProjectileStore store, int id, int generation) {
+        this.store = store;
+        this.id = id;
+        this.generation = generation;
     }
 
-    public abstract void move();
-
-    public void draw(Graphics g) {
-        g.setColor(Color.WHITE);
-        g.fillOval((int)x, (int)y, size, size);
+    private int slot() {
+        int slot = store.slotOf(id, generation);
+        if (slot < 0) {
+            throw new IllegalStateException("Projectile " + id + " has been removed");
+        }
+        return slot;
     }
 
-    public boolean collidesWith(Character c) {
-        int cx = c.getX();
-        int cy = c.getY();
-        int cw = c.getWidth();
-        int ch = c.getHeight();
-        return (x + size > cx && x < cx + cw && y + size > cy && y < cy + ch);
-    }
+    public boolean isAlive() { return store.slotOf(id, generation) >= 0; }
+
+    public boolean collidesWith(Character c) { return store.collidesWith(slot(), c); }
+    public boolean collidesWithBoss(Boss b) { return store.collidesWithBoss(slot(), b); }
 
-    public double getX() { return x; }
-    public void setX(double x) { this.x = x; }
-    public double getY() { return y; }
-    public void setY(double y) { this.y = y; }
-    public double getVx() { return vx; }
-    public void setVx(double vx) { this.vx = vx; }
-    public double getVy() { return vy; }
-    public void setVy(double vy) { this.vy = vy; }
-    public int getDamage() { return damage; }
-    public void setDamage(int damage) { this.damage = damage; }
-    public int getSize() { return size; }
-    public void setSize(int size) { this.size = size; }
+    public int getId() { return id; }
+    public int getKind() { return store.getKind(slot()); }
+    public boolean isPlayerShot() { return store.isPlayerShot(slot()); }
+    public double getX() { return store.getX(slot()); }
+    public void setX(double x) { int s = slot(); store.setPosition(s, x, store.getY(s)); }
+    public double getY() { return store.getY(slot()); }
+    public void setY(double y) { int s = slot(); store.setPosition(s, store.getX(s), y); }
+    public double getVx() { return store.getVx(slot()); }
+    public void setVx(double vx) { int s = slot(); store.setVelocity(s, vx, store.getVy(s)); }
+    public double getVy() { return store.getVy(slot()); }
+    public void setVy(double vy) { int s = slot(); store.setVelocity(s, store.getVx(s), vy); }
+    public int getDamage() { return store.getDamage(slot()); }
+    public void setDamage(int damage) { store.setDamage(slot(), damage); }
+    public int getSize() { return store.getSize(slot()); }
 }
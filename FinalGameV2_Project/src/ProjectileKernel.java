@@ -0,0 +1,20 @@
+package src;
+
+/**
+ * ProjectileKernel is a bulk move step over ProjectileStore's slot arrays.
+ * It is an extension point so the Vector API kernel can be loaded only
+ * when its incubator module is present; ProjectileStore's own scalar loop
+ * is the reference and the fallback.
+ *
+ * An implementation must produce bit-for-bit the same results as the
+ * scalar loop, or replays and checksums would depend on the machine.
+ */
+interface ProjectileKernel {
+    /**
+     * Move slots [from, n) for some n <= to and return n; the caller moves
+     * the remaining slots itself.
+     */
+    int move(int from, int to, int[] kind, double[] x, double[] y, double[] prevX, double[] prevY,
+             double[] vx, double[] vy, double[] phase, double[] centerX, double[] centerY,
+             double[] radius, double[] radiusStep);
+}
@@ -0,0 +1,656 @@
+package src;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * ProjectileStore keeps every live projectile in parallel primitive arrays
+ * (structure of arrays) instead of one object per bullet. Live projectiles
+ * occupy slots [0, size) with no gaps: removing a slot moves the last
+ * projectile into it, so removal is O(1) and iteration touches contiguous
+ * memory. Arrays only grow, so steady-state firing allocates nothing.
+ *
+ * Slots change when other projectiles are removed, so each projectile also
+ * gets a stable id. Ids of removed projectiles go on a free list and are
+ * reused. Each id also has a generation that goes up whenever the id is
+ * freed; {@link Projectile} views hold an id and its generation and resolve
+ * the slot on access, so a view of a removed projectile stays dead even
+ * after its id is handed to a new one.
+ *
+ * Iterate backwards when removing during a pass: the projectile swapped
+ * into a removed slot has then already been visited.
+ *
+ * moveAll() uses VectorProjectileKernel when the jdk.incubator.vector
+ * module is available (and -Ddodge.simd is not false), else a scalar loop.
+ * Both use FastTrig and give identical results.
+ */
+public class ProjectileStore {
+    // Projectile kinds; each kind has its own move kernel
+    public static final int KIND_STRAIGHT = 0;
+    public static final int KIND_ZIGZAG = 1;
+    public static final int KIND_SPIRAL = 2;
+    public static final int KIND_PLAYER = 3;
+
+    private static final int DEFAULT_SIZE = 12;
+    private static final int PLAYER_SIZE = 10;
+
+    // ZigZag: small sideways oscillation added to the straight motion
+    static final double ZIGZAG_FREQUENCY = 0.2;
+    static final double ZIGZAG_AMPLITUDE = 3.0;
+    // Spiral: orbit the spawn point while the radius pulses between min and max
+    static final double SPIRAL_ANGLE_STEP = 0.08;
+    static final double SPIRAL_RADIUS_STEP = 2.0;
+    static final double SPIRAL_MIN_RADIUS = 30;
+    static final double SPIRAL_MAX_RADIUS = 150;
+
+    // Vector move kernel, or null when unavailable
+    private static final ProjectileKernel VECTOR_KERNEL = loadVectorKernel();
+
+    private static final Color ENEMY_COLOR = Color.WHITE;
+    private static final Color PLAYER_COLOR = Color.YELLOW;
+
+    private int size = 0;
+    private int capacity;
+    private boolean vectorized = VECTOR_KERNEL != null;
+
+    // Per-slot state
+    private double[] x;
+    private double[] y;
+    private double[] prevX;
+    private double[] prevY;
+    private double[] vx;
+    private double[] vy;
+    // ZigZag: tick counter; Spiral: orbit angle
+    private double[] phase;
+    // Spiral only: orbit center and current radius (negative step = contracting)
+    private double[] centerX;
+    private double[] centerY;
+    private double[] radius;
+    private double[] radiusStep;
+    private int[] damage;
+    private int[] diameter;
+    private int[] kind;
+    private int[] idOfSlot;
+    // Marked for removal by the next sweepRemoved(); keeps slots stable mid-tick
+    private boolean[] removed;
+
+    // Stable ids: id -> slot (-1 when free) and a stack of free ids
+    private int[] slotOfId;
+    private int[] freeIds;
+    private int freeCount = 0;
+    private int nextId = 0;
+    // Bumped when an id is freed; not part of the saved state
+    private int[] generationOfId;
+
+    public ProjectileStore() {
+        this(256);
+    }
+
+    public ProjectileStore(int initialCapacity) {
+        capacity = Math.max(16, initialCapacity);
+        x = new double[capacity];
+        y = new double[capacity];
+        prevX = new double[capacity];
+        prevY = new double[capacity];
+        vx = new double[capacity];
+        vy = new double[capacity];
+        phase = new double[capacity];
+        centerX = new double[capacity];
+        centerY = new double[capacity];
+        radius = new double[capacity];
+        radiusStep = new double[capacity];
+        damage = new int[capacity];
+        diameter = new int[capacity];
+        kind = new int[capacity];
+        idOfSlot = new int[capacity];
+        removed = new boolean[capacity];
+        slotOfId = new int[capacity];
+        freeIds = new int[capacity];
+        generationOfId = new int[capacity];
+    }
+
+    /**
+     * Add a projectile moving with constant velocity (plus the zigzag wobble
+     * for {@link #KIND_ZIGZAG}). Returns the projectile's stable id.
+     */
+    public int spawn(int projectileKind, double px, double py, double pvx, double pvy, int dmg) {
+        int slot = allocate(projectileKind, px, py, dmg);
+        vx[slot] = pvx;
+        vy[slot] = pvy;
+        return idOfSlot[slot];
+    }
+
+    /**
+     * Add a spiral projectile orbiting (px, py) starting at the given angle.
+     * Returns the projectile's stable id.
+     */
+    public int spawnSpiral(double px, double py, double initialAngle, int dmg) {
+        int slot = allocate(KIND_SPIRAL, px, py, dmg);
+        phase[slot] = initialAngle;
+        centerX[slot] = px;
+        centerY[slot] = py;
+        radius[slot] = SPIRAL_MIN_RADIUS;
+        radiusStep[slot] = SPIRAL_RADIUS_STEP;
+        return idOfSlot[slot];
+    }
+
+    /**
+     * Add a projectile with its complete move state, as captured from
+     * another store's slot accessors. Returns the projectile's stable id.
+     */
+    public int spawnState(int projectileKind, double px, double py, double pvx, double pvy,
+                          double pphase, double pcenterX, double pcenterY,
+                          double pradius, double pradiusStep, int dmg) {
+        int slot = allocate(projectileKind, px, py, dmg);
+        vx[slot] = pvx;
+        vy[slot] = pvy;
+        phase[slot] = pphase;
+        centerX[slot] = pcenterX;
+        centerY[slot] = pcenterY;
+        radius[slot] = pradius;
+        radiusStep[slot] = pradiusStep;
+        return idOfSlot[slot];
+    }
+
+    /**
+     * Add a volley of count projectiles fanned out around angle, step
+     * radians apart and centered on it, all moving at speed. Capacity is
+     * reserved once for the whole volley.
+     */
+    public void spawnSpread(int projectileKind, double px, double py, double angle, double step,
+                            int count, double speed, int dmg) {
+        reserve(count);
+        double center = (count - 1) / 2.0;
+        for (int i = 0; i < count; i++) {
+            double a = angle + (i - center) * step;
+            int slot = allocate(projectileKind, px, py, dmg);
+            vx[slot] = Math.cos(a) * speed;
+            vy[slot] = Math.sin(a) * speed;
+        }
+    }
+
+    /**
+     * Add a ring of count projectiles evenly spaced around the full circle,
+     * the first one heading along angle.
+     */
+    public void spawnRing(int projectileKind, double px, double py, double angle,
+                          int count, double speed, int dmg) {
+        reserve(count);
+        // Rotate the velocity by a fixed step instead of a cos/sin per bullet
+        double stepCos = Math.cos(2 * Math.PI / count);
+        double stepSin = Math.sin(2 * Math.PI / count);
+        double dx = Math.cos(angle) * speed;
+        double dy = Math.sin(angle) * speed;
+        for (int i = 0; i < count; i++) {
+            int slot = allocate(projectileKind, px, py, dmg);
+            vx[slot] = dx;
+            vy[slot] = dy;
+            double nextDx = dx * stepCos - dy * stepSin;
+            dy = dx * stepSin + dy * stepCos;
+            dx = nextDx;
+        }
+    }
+
+    /**
+     * Make room for count more projectiles in one step.
+     */
+    public void reserve(int count) {
+        if (size + count > capacity) {
+            grow(size + count);
+        }
+    }
+
+    private int allocate(int projectileKind, double px, double py, int dmg) {
+        if (size == capacity) {
+            grow(size + 1);
+        }
+        int slot = size++;
+        int id = freeCount > 0 ? freeIds[--freeCount] : nextId++;
+        idOfSlot[slot] = id;
+        slotOfId[id] = slot;
+
+        kind[slot] = projectileKind;
+        x[slot] = px;
+        y[slot] = py;
+        prevX[slot] = px;
+        prevY[slot] = py;
+        vx[slot] = 0;
+        vy[slot] = 0;
+        phase[slot] = 0;
+        damage[slot] = dmg;
+        diameter[slot] = projectileKind == KIND_PLAYER ? PLAYER_SIZE : DEFAULT_SIZE;
+        removed[slot] = false;
+        return slot;
+    }
+
+    private void grow(int minCapacity) {
+        int newCapacity = Math.max(capacity * 2, minCapacity);
+        x = Arrays.copyOf(x, newCapacity);
+        y = Arrays.copyOf(y, newCapacity);
+        prevX = Arrays.copyOf(prevX, newCapacity);
+        prevY = Arrays.copyOf(prevY, newCapacity);
+        vx = Arrays.copyOf(vx, newCapacity);
+        vy = Arrays.copyOf(vy, newCapacity);
+        phase = Arrays.copyOf(phase, newCapacity);
+        centerX = Arrays.copyOf(centerX, newCapacity);
+        centerY = Arrays.copyOf(centerY, newCapacity);
+        radius = Arrays.copyOf(radius, newCapacity);
+        radiusStep = Arrays.copyOf(radiusStep, newCapacity);
+        damage = Arrays.copyOf(damage, newCapacity);
+        diameter = Arrays.copyOf(diameter, newCapacity);
+        kind = Arrays.copyOf(kind, newCapacity);
+        idOfSlot = Arrays.copyOf(idOfSlot, newCapacity);
+        removed = Arrays.copyOf(removed, newCapacity);
+        slotOfId = Arrays.copyOf(slotOfId, newCapacity);
+        freeIds = Arrays.copyOf(freeIds, newCapacity);
+        generationOfId = Arrays.copyOf(generationOfId, newCapacity);
+        capacity = newCapacity;
+    }
+
+    /**
+     * Remove the projectile in the given slot by moving the last live
+     * projectile into it.
+     */
+    public void removeAt(int slot) {
+        int id = idOfSlot[slot];
+        slotOfId[id] = -1;
+        generationOfId[id]++;
+        freeIds[freeCount++] = id;
+
+        int last = --size;
+        if (slot != last) {
+            x[slot] = x[last];
+            y[slot] = y[last];
+            prevX[slot] = prevX[last];
+            prevY[slot] = prevY[last];
+            vx[slot] = vx[last];
+            vy[slot] = vy[last];
+            phase[slot] = phase[last];
+            centerX[slot] = centerX[last];
+            centerY[slot] = centerY[last];
+            radius[slot] = radius[last];
+            radiusStep[slot] = radiusStep[last];
+            damage[slot] = damage[last];
+            diameter[slot] = diameter[last];
+            kind[slot] = kind[last];
+            removed[slot] = removed[last];
+            int movedId = idOfSlot[last];
+            idOfSlot[slot] = movedId;
+            slotOfId[movedId] = slot;
+        }
+    }
+
+    /**
+     * Flag a projectile for removal without moving any slots, so indices
+     * held by a SpatialGrid stay valid until {@link #sweepRemoved()}.
+     */
+    public void markRemoved(int slot) {
+        removed[slot] = true;
+    }
+
+    public boolean isRemoved(int slot) { return removed[slot]; }
+
+    /**
+     * Remove every projectile flagged by {@link #markRemoved(int)}.
+     */
+    public void sweepRemoved() {
+        for (int i = size - 1; i >= 0; i--) {
+            if (removed[i]) {
+                removeAt(i);
+            }
+        }
+    }
+
+    /**
+     * Remove every enemy projectile, keeping the player's shots.
+     */
+    public void removeEnemyProjectiles() {
+        for (int i = size - 1; i >= 0; i--) {
+            if (kind[i] != KIND_PLAYER) {
+                removeAt(i);
+            }
+        }
+    }
+
+    public void clear() {
+        while (size > 0) {
+            removeAt(size - 1);
+        }
+    }
+
+    /**
+     * Bytes saveState() will write for the current contents.
+     */
+    public int stateBytes() {
+        return stateBytes(false);
+    }
+
+    /**
+     * Bytes saveState(buf, aligned) will write for the current contents.
+     */
+    public int stateBytes(boolean aligned) {
+        int slots = aligned ? capacity : size;
+        return 16 + slots * (11 * Double.BYTES + 4 * Integer.BYTES) + (nextId + freeCount) * Integer.BYTES;
+    }
+
+    /**
+     * Write every live projectile and the id bookkeeping into buf, so that
+     * restoreState() gives back a store that behaves identically, down to
+     * the ids future spawns get. Call between ticks: marks made by
+     * markRemoved() are not saved. Allocates nothing.
+     */
+    public void saveState(ByteBuffer buf) {
+        saveState(buf, false);
+    }
+
+    /**
+     * Like saveState(buf), but with aligned set every per-slot array is
+     * written out to the full capacity with the unused slots zeroed. Each
+     * array then sits at the same offset in consecutive saves however many
+     * projectiles spawn or die, which keeps a byte-wise diff of two saves
+     * small (see RewindBuffer).
+     */
+    public void saveState(ByteBuffer buf, boolean aligned) {
+        int slots = aligned ? capacity : size;
+        buf.putInt(size);
+        buf.putInt(nextId);
+        buf.putInt(freeCount);
+        buf.putInt(slots);
+        putDoubles(buf, x, size, slots);
+        putDoubles(buf, y, size, slots);
+        putDoubles(buf, prevX, size, slots);
+        putDoubles(buf, prevY, size, slots);
+        putDoubles(buf, vx, size, slots);
+        putDoubles(buf, vy, size, slots);
+        putDoubles(buf, phase, size, slots);
+        putDoubles(buf, centerX, size, slots);
+        putDoubles(buf, centerY, size, slots);
+        putDoubles(buf, radius, size, slots);
+        putDoubles(buf, radiusStep, size, slots);
+        putInts(buf, damage, size, slots);
+        putInts(buf, diameter, size, slots);
+        putInts(buf, kind, size, slots);
+        putInts(buf, idOfSlot, size, slots);
+        putInts(buf, slotOfId, nextId, nextId);
+        putInts(buf, freeIds, freeCount, freeCount);
+    }
+
+    /**
+     * Replace the contents with a state written by saveState(). Allocates
+     * only if the saved state is larger than anything held so far. Views
+     * taken before the restore are dead afterwards.
+     */
+    public void restoreState(ByteBuffer buf) {
+        size = buf.getInt();
+        nextId = buf.getInt();
+        freeCount = buf.getInt();
+        int slots = buf.getInt();
+        int needed = Math.max(size, Math.max(nextId, freeCount));
+        if (needed > capacity) {
+            grow(needed);
+        }
+        getDoubles(buf, x, size, slots);
+        getDoubles(buf, y, size, slots);
+        getDoubles(buf, prevX, size, slots);
+        getDoubles(buf, prevY, size, slots);
+        getDoubles(buf, vx, size, slots);
+        getDoubles(buf, vy, size, slots);
+        getDoubles(buf, phase, size, slots);
+        getDoubles(buf, centerX, size, slots);
+        getDoubles(buf, centerY, size, slots);
+        getDoubles(buf, radius, size, slots);
+        getDoubles(buf, radiusStep, size, slots);
+        getInts(buf, damage, size, slots);
+        getInts(buf, diameter, size, slots);
+        getInts(buf, kind, size, slots);
+        getInts(buf, idOfSlot, size, slots);
+        getInts(buf, slotOfId, nextId, nextId);
+        getInts(buf, freeIds, freeCount, freeCount);
+        Arrays.fill(removed, 0, size, false);
+        for (int id = 0; id < capacity; id++) {
+            generationOfId[id]++;
+        }
+    }
+
+    /**
+     * Hold the same projectiles as other, ids included, for drawing a copy
+     * of a world on another thread. Call between other's ticks. Allocates
+     * only if other holds more than this store has room for. Views taken
+     * before the copy are dead afterwards.
+     */
+    public void copyFrom(ProjectileStore other) {
+        int needed = Math.max(other.size, Math.max(other.nextId, other.freeCount));
+        if (needed > capacity) {
+            grow(needed);
+        }
+        size = other.size;
+        nextId = other.nextId;
+        freeCount = other.freeCount;
+        System.arraycopy(other.x, 0, x, 0, size);
+        System.arraycopy(other.y, 0, y, 0, size);
+        System.arraycopy(other.prevX, 0, prevX, 0, size);
+        System.arraycopy(other.prevY, 0, prevY, 0, size);
+        System.arraycopy(other.vx, 0, vx, 0, size);
+        System.arraycopy(other.vy, 0, vy, 0, size);
+        System.arraycopy(other.phase, 0, phase, 0, size);
+        System.arraycopy(other.centerX, 0, centerX, 0, size);
+        System.arraycopy(other.centerY, 0, centerY, 0, size);
+        System.arraycopy(other.radius, 0, radius, 0, size);
+        System.arraycopy(other.radiusStep, 0, radiusStep, 0, size);
+        System.arraycopy(other.damage, 0, damage, 0, size);
+        System.arraycopy(other.diameter, 0, diameter, 0, size);
+        System.arraycopy(other.kind, 0, kind, 0, size);
+        System.arraycopy(other.idOfSlot, 0, idOfSlot, 0, size);
+        System.arraycopy(other.slotOfId, 0, slotOfId, 0, nextId);
+        System.arraycopy(other.freeIds, 0, freeIds, 0, freeCount);
+        Arrays.fill(removed, 0, size, false);
+        for (int id = 0; id < capacity; id++) {
+            generationOfId[id]++;
+        }
+    }
+
+    // The first count values, then zeros up to slots
+    private static void putDoubles(ByteBuffer buf, double[] values, int count, int slots) {
+        for (int i = 0; i < count; i++) {
+            buf.putDouble(values[i]);
+        }
+        for (int i = count; i < slots; i++) {
+            buf.putLong(0);
+        }
+    }
+
+    private static void getDoubles(ByteBuffer buf, double[] values, int count, int slots) {
+        for (int i = 0; i < count; i++) {
+            values[i] = buf.getDouble();
+        }
+        buf.position(buf.position() + (slots - count) * Double.BYTES);
+    }
+
+    private static void putInts(ByteBuffer buf, int[] values, int count, int slots) {
+        for (int i = 0; i < count; i++) {
+            buf.putInt(values[i]);
+        }
+        for (int i = count; i < slots; i++) {
+            buf.putInt(0);
+        }
+    }
+
+    private static void getInts(ByteBuffer buf, int[] values, int count, int slots) {
+        for (int i = 0; i < count; i++) {
+            values[i] = buf.getInt();
+        }
+        buf.position(buf.position() + (slots - count) * Integer.BYTES);
+    }
+
+    /**
+     * Advance every projectile by one tick, remembering the previous
+     * position for render interpolation.
+     */
+    public void moveAll() {
+        moveRange(0, size);
+    }
+
+    /**
+     * Advance slots [from, to) only. Slots are independent, so disjoint
+     * ranges may be moved on different threads (see ParallelTick).
+     */
+    public void moveRange(int from, int to) {
+        int start = from;
+        if (vectorized) {
+            start = VECTOR_KERNEL.move(from, to, kind, x, y, prevX, prevY, vx, vy,
+                    phase, centerX, centerY, radius, radiusStep);
+        }
+        // Scalar loop for everything, or for the tail the kernel left over
+        for (int i = start; i < to; i++) {
+            prevX[i] = x[i];
+            prevY[i] = y[i];
+            switch (kind[i]) {
+                case KIND_ZIGZAG:
+                    moveZigZag(i);
+                    break;
+                case KIND_SPIRAL:
+                    moveSpiral(i);
+                    break;
+                default:
+                    x[i] += vx[i];
+                    y[i] += vy[i];
+                    break;
+            }
+        }
+    }
+
+    private void moveZigZag(int i) {
+        phase[i] += 1;
+        double zig = FastTrig.sin(phase[i] * ZIGZAG_FREQUENCY) * ZIGZAG_AMPLITUDE;
+        x[i] += vx[i] + zig;
+        y[i] += vy[i];
+    }
+
+    private void moveSpiral(int i) {
+        phase[i] += SPIRAL_ANGLE_STEP;
+        // Pulse radius: expand then contract
+        radius[i] += radiusStep[i];
+        if (radiusStep[i] > 0 && radius[i] >= SPIRAL_MAX_RADIUS) {
+            radiusStep[i] = -SPIRAL_RADIUS_STEP;
+        } else if (radiusStep[i] < 0 && radius[i] <= SPIRAL_MIN_RADIUS) {
+            radiusStep[i] = SPIRAL_RADIUS_STEP;
+        }
+        x[i] = centerX[i] + FastTrig.cos(phase[i]) * radius[i];
+        y[i] = centerY[i] + FastTrig.sin(phase[i]) * radius[i];
+    }
+
+    private static ProjectileKernel loadVectorKernel() {
+        if (!Boolean.parseBoolean(System.getProperty("dodge.simd", "true"))) {
+            return null;
+        }
+        try {
+            // By name, so this class links without the incubator module
+            return (ProjectileKernel) Class.forName("src.VectorProjectileKernel")
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+            return null; // module not added, or no usable vector shape
+        }
+    }
+
+    public static boolean isVectorKernelAvailable() { return VECTOR_KERNEL != null; }
+    public boolean isVectorized() { return vectorized; }
+
+    /**
+     * Choose the move kernel for this store; the vector kernel is only
+     * used if available. Results are the same either way.
+     */
+    public void setVectorized(boolean vectorized) {
+        this.vectorized = vectorized && VECTOR_KERNEL != null;
+    }
+
+    public void draw(Graphics g, double alpha) {
+        // Two passes so the color only changes twice per frame
+        g.setColor(ENEMY_COLOR);
+        for (int i = 0; i < size; i++) {
+            if (kind[i] != KIND_PLAYER) drawSlot(g, i, alpha);
+        }
+        g.setColor(PLAYER_COLOR);
+        for (int i = 0; i < size; i++) {
+            if (kind[i] == KIND_PLAYER) drawSlot(g, i, alpha);
+        }
+    }
+
+    private void drawSlot(Graphics g, int i, double alpha) {
+        int rx = (int) (prevX[i] + (x[i] - prevX[i]) * alpha);
+        int ry = (int) (prevY[i] + (y[i] - prevY[i]) * alpha);
+        g.fillOval(rx, ry, diameter[i], diameter[i]);
+    }
+
+    // Projectile (circle bounding box) vs player rectangle
+    public boolean collidesWith(int i, Character c) {
+        int cx = c.getX();
+        int cy = c.getY();
+        int cw = c.getWidth();
+        int ch = c.getHeight();
+        double px = x[i];
+        double py = y[i];
+        int s = diameter[i];
+        return (px + s > cx && px < cx + cw && py + s > cy && py < cy + ch);
+    }
+
+    // Projectile bounding box vs boss bounding box (player shots)
+    public boolean collidesWithBoss(int i, Boss b) {
+        int bx = b.getX();
+        int by = b.getY();
+        int bs = b.getSize();
+        int px = (int) x[i];
+        int py = (int) y[i];
+        int ps = diameter[i];
+        return (px + ps > bx && px < bx + bs && py + ps > by && py < by + bs);
+    }
+
+    /**
+     * View of the projectile in the given slot; stays valid until that
+     * projectile is removed, even if it moves to another slot.
+     */
+    public Projectile get(int slot) {
+        int id = idOfSlot[slot];
+        return new Projectile(this, id, generationOfId[id]);
+    }
+
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+
+    // Slot accessors
+    public double getX(int i) { return x[i]; }
+    public double getY(int i) { return y[i]; }
+    public double getVx(int i) { return vx[i]; }
+    public double getVy(int i) { return vy[i]; }
+    public int getDamage(int i) { return damage[i]; }
+    public int getSize(int i) { return diameter[i]; }
+    public int getKind(int i) { return kind[i]; }
+    public double getPhase(int i) { return phase[i]; }
+    public double getCenterX(int i) { return centerX[i]; }
+    public double getCenterY(int i) { return centerY[i]; }
+    public double getRadius(int i) { return radius[i]; }
+    public double getRadiusStep(int i) { return radiusStep[i]; }
+    public boolean isPlayerShot(int i) { return kind[i] == KIND_PLAYER; }
+    public int getId(int i) { return idOfSlot[i]; }
+
+    /**
+     * Slot currently holding the projectile with the given id, or -1 if it
+     * has been removed.
+     */
+    public int slotOf(int id) {
+        return id >= 0 && id < nextId ? slotOfId[id] : -1;
+    }
+
+    /**
+     * Like slotOf(id), but -1 as well once the id has been freed since it
+     * had the given generation, even if a new projectile now holds it.
+     */
+    public int slotOf(int id, int generation) {
+        return id >= 0 && id < nextId && generationOfId[id] == generation ? slotOfId[id] : -1;
+    }
+
+    void setPosition(int i, double px, double py) { x[i] = px; y[i] = py; }
+    void setVelocity(int i, double pvx, double pvy) { vx[i] = pvx; vy[i] = pvy; }
+    void setDamage(int i, int dmg) { damage[i] = dmg; }
+}
@@ -0,0 +1,23 @@
+package src;
+
+/**
+ * RealTimeClock samples System.nanoTime() once per tick, so time keeps
+ * flowing with the wall clock even if ticks are late or skipped.
+ */
+public class RealTimeClock implements GameClock {
+    private final long startNanos = System.nanoTime();
+    private long tick = 0;
+    private long nanos = 0;
+
+    @Override
+    public void advance() {
+        tick++;
+        nanos = System.nanoTime() - startNanos;
+    }
+
+    @Override
+    public long getTick() { return tick; }
+
+    @Override
+    public long getNanos() { return nanos; }
+}
@@ -0,0 +1,121 @@
+package src;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * RenderCache keeps pre-rasterized images of things that rarely change:
+ * menu screens, HUD panels and item sprites. Each layer is a screen region
+ * painted once into an offscreen image and then blitted every frame; it is
+ * repainted only when the caller passes a different version (for example
+ * the score a HUD panel shows) or after invalidate().
+ *
+ * Images are created compatible with the screen so Java2D can keep them
+ * in video memory; in a headless JVM plain ARGB images are used instead.
+ */
+public class RenderCache {
+    // Room around item sprites for glows that extend past the item bounds
+    private static final int SPRITE_PAD = 4;
+
+    /**
+     * Draws the content of a layer. The Graphics is translated so the
+     * painter uses the same screen coordinates as an uncached draw.
+     */
+    public interface Painter {
+        void paint(Graphics g);
+    }
+
+    private static final class Layer {
+        BufferedImage image;
+        long version;
+        boolean valid;
+    }
+
+    private final GraphicsConfiguration config;
+    private final Map<String, Layer> layers = new HashMap<>();
+    private final Map<Class<?>, BufferedImage> sprites = new HashMap<>();
+    private long rasterCount = 0;
+
+    public RenderCache() {
+        config = GraphicsEnvironment.isHeadless() ? null
+                : GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+    }
+
+    /**
+     * Blit the layer covering (x, y, width, height), repainting it first if
+     * it is missing, invalidated or its version changed.
+     */
+    public void drawLayer(Graphics g, String key, long version, int x, int y, int width, int height, Painter painter) {
+        Layer layer = layers.get(key);
+        if (layer == null) {
+            layer = new Layer();
+            layers.put(key, layer);
+        }
+        if (layer.image == null || layer.image.getWidth() != width || layer.image.getHeight() != height) {
+            layer.image = createImage(width, height);
+            layer.valid = false;
+        }
+        if (!layer.valid || layer.version != version) {
+            Graphics2D lg = layer.image.createGraphics();
+            // Clear to transparent, then paint in screen coordinates
+            lg.setComposite(AlphaComposite.Clear);
+            lg.fillRect(0, 0, width, height);
+            lg.setComposite(AlphaComposite.SrcOver);
+            lg.translate(-x, -y);
+            painter.paint(lg);
+            lg.dispose();
+            layer.version = version;
+            layer.valid = true;
+            rasterCount++;
+        }
+        g.drawImage(layer.image, x, y, null);
+    }
+
+    /**
+     * Draw an item from its cached sprite plus its per-frame effect.
+     */
+    public void drawItem(Graphics g, Item item, long nowMs) {
+        BufferedImage sprite = sprites.get(item.getClass());
+        if (sprite == null) {
+            int size = item.getSize() + SPRITE_PAD * 2;
+            sprite = createImage(size, size);
+            Graphics2D sg = sprite.createGraphics();
+            item.drawSprite(sg, SPRITE_PAD, SPRITE_PAD);
+            sg.dispose();
+            sprites.put(item.getClass(), sprite);
+            rasterCount++;
+        }
+        g.drawImage(sprite, item.getX() - SPRITE_PAD, item.getY() - SPRITE_PAD, null);
+        item.drawEffect(g, nowMs);
+    }
+
+    public void invalidate(String key) {
+        Layer layer = layers.get(key);
+        if (layer != null) layer.valid = false;
+    }
+
+    public void invalidateAll() {
+        for (Layer layer : layers.values()) {
+            layer.valid = false;
+        }
+    }
+
+    /**
+     * Number of layer and sprite rasterizations so far (cache misses).
+     */
+    public long getRasterCount() { return rasterCount; }
+
+    private BufferedImage createImage(int width, int height) {
+        if (config != null) {
+            return config.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+        }
+        return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    }
+}
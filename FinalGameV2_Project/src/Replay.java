@@ -0,0 +1,200 @@
+package src;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Replay is a recorded run: everything needed to rebuild the GameWorld
+ * (seed, character, mode, difficulty, tick length) plus the input bits of
+ * every tick and a state checksum every CHECKSUM_INTERVAL ticks.
+ *
+ * File layout (big-endian, via DataOutputStream):
+ * <pre>
+ *   int    magic "DRPL"
+ *   byte   version
+ *   long   seed
+ *   byte   character type
+ *   bool   endless mode
+ *   UTF    difficulty
+ *   byte   start level
+ *   long   tick length in nanoseconds
+ *   varint tick count
+ *   varint run count, then per run: byte input mask, varint ticks
+ *   varint checksum count, then one long per checksum
+ * </pre>
+ * Inputs are run-length encoded because held keys repeat for many ticks;
+ * a typical minute of play stores a few hundred runs.
+ */
+public class Replay {
+    public static final int MAGIC = 0x4452504C; // "DRPL"
+    // 2: projectile motion uses FastTrig, so version 1 runs no longer reproduce
+    // 3: dash fires on the press, so runs that held it no longer reproduce
+    public static final int VERSION = 3;
+    // Ticks between stored checksums
+    public static final int CHECKSUM_INTERVAL = 30;
+
+    private final long seed;
+    private final int characterType;
+    private final boolean endlessMode;
+    private final String difficulty;
+    private final int startLevel;
+    private final long tickNanos;
+
+    private byte[] inputs = new byte[1024];
+    private int tickCount = 0;
+    private long[] checksums = new long[64];
+    private int checksumCount = 0;
+
+    public Replay(long seed, int characterType, boolean endlessMode, String difficulty,
+                  int startLevel, long tickNanos) {
+        this.seed = seed;
+        this.characterType = characterType;
+        this.endlessMode = endlessMode;
+        this.difficulty = difficulty;
+        this.startLevel = startLevel;
+        this.tickNanos = tickNanos;
+    }
+
+    /**
+     * A fresh world in the recorded starting state, on a virtual clock.
+     */
+    public GameWorld createWorld(SoundPlayer sound) {
+        return new GameWorld(new VirtualClock(tickNanos), seed, characterType, endlessMode,
+                difficulty, startLevel, sound);
+    }
+
+    /**
+     * Append the input of the next tick.
+     */
+    public void addTick(int inputMask) {
+        if (tickCount == inputs.length) {
+            inputs = Arrays.copyOf(inputs, inputs.length * 2);
+        }
+        inputs[tickCount++] = (byte) inputMask;
+    }
+
+    /**
+     * Append the state checksum taken after the latest tick.
+     */
+    public void addChecksum(long checksum) {
+        if (checksumCount == checksums.length) {
+            checksums = Arrays.copyOf(checksums, checksums.length * 2);
+        }
+        checksums[checksumCount++] = checksum;
+    }
+
+    public long getSeed() { return seed; }
+    public int getCharacterType() { return characterType; }
+    public boolean isEndlessMode() { return endlessMode; }
+    public String getDifficulty() { return difficulty; }
+    public int getStartLevel() { return startLevel; }
+    public long getTickNanos() { return tickNanos; }
+    public int getTickCount() { return tickCount; }
+    public int getInput(int tick) { return inputs[tick]; }
+    public int getChecksumCount() { return checksumCount; }
+    public long getChecksum(int index) { return checksums[index]; }
+
+    public void write(File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeLong(seed);
+            out.writeByte(characterType);
+            out.writeBoolean(endlessMode);
+            out.writeUTF(difficulty);
+            out.writeByte(startLevel);
+            out.writeLong(tickNanos);
+            writeVarInt(out, tickCount);
+
+            // Count the runs first so the reader can size its loop
+            int runs = 0;
+            for (int i = 0; i < tickCount; i++) {
+                if (i == 0 || inputs[i] != inputs[i - 1]) runs++;
+            }
+            writeVarInt(out, runs);
+            int i = 0;
+            while (i < tickCount) {
+                int start = i;
+                while (i < tickCount && inputs[i] == inputs[start]) i++;
+                out.writeByte(inputs[start]);
+                writeVarInt(out, i - start);
+            }
+
+            writeVarInt(out, checksumCount);
+            for (int k = 0; k < checksumCount; k++) {
+                out.writeLong(checksums[k]);
+            }
+        }
+    }
+
+    public static Replay read(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a replay file: " + file);
+            }
+            int version = in.readUnsignedByte();
+            if (version != VERSION) {
+                throw new IOException("Unsupported replay version " + version + " in " + file);
+            }
+            long seed = in.readLong();
+            int characterType = in.readUnsignedByte();
+            boolean endlessMode = in.readBoolean();
+            String difficulty = in.readUTF();
+            int startLevel = in.readUnsignedByte();
+            long tickNanos = in.readLong();
+            Replay replay = new Replay(seed, characterType, endlessMode, difficulty, startLevel, tickNanos);
+
+            int ticks = readVarInt(in);
+            replay.inputs = new byte[Math.max(1, ticks)];
+            int runs = readVarInt(in);
+            for (int r = 0; r < runs; r++) {
+                byte mask = in.readByte();
+                int length = readVarInt(in);
+                if (replay.tickCount + length > ticks) {
+                    throw new IOException("Corrupt replay: input runs exceed " + ticks + " ticks");
+                }
+                Arrays.fill(replay.inputs, replay.tickCount, replay.tickCount + length, mask);
+                replay.tickCount += length;
+            }
+            if (replay.tickCount != ticks) {
+                throw new IOException("Corrupt replay: " + replay.tickCount + " of " + ticks + " ticks");
+            }
+
+            int count = readVarInt(in);
+            replay.checksums = new long[Math.max(1, count)];
+            for (int k = 0; k < count; k++) {
+                replay.checksums[k] = in.readLong();
+            }
+            replay.checksumCount = count;
+            return replay;
+        }
+    }
+
+    // Unsigned LEB128: 7 bits per byte, high bit set on all but the last
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            out.writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Corrupt replay: varint too long");
+    }
+}
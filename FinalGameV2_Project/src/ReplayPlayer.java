@@ -0,0 +1,87 @@
+package src;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * ReplayPlayer re-runs a recorded Replay headless at full speed and checks
+ * the stored checksums. A mismatch means the simulation diverged from the
+ * recording (a desync) somewhere in the CHECKSUM_INTERVAL ticks before it.
+ *
+ * Usage: java src.ReplayPlayer [--trace] file
+ *   --trace  print the state checksum after every tick, for diffing two builds
+ */
+public class ReplayPlayer {
+    private final Replay replay;
+    private int firstMismatchTick = -1;
+    private GameWorld world;
+
+    public ReplayPlayer(Replay replay) {
+        this.replay = replay;
+    }
+
+    /**
+     * Play every recorded tick. Returns true if all stored checksums match.
+     * With trace enabled each tick's checksum is printed as "tick checksum".
+     */
+    public boolean play(boolean trace) {
+        world = replay.createWorld(GameWorld.SILENT);
+        world.setEffectsEnabled(false);
+        firstMismatchTick = -1;
+        for (int t = 0; t < replay.getTickCount(); t++) {
+            world.setInput(replay.getInput(t));
+            world.step();
+            int tick = t + 1;
+            if (trace) {
+                System.out.println(tick + " " + Long.toHexString(world.checksum()));
+            }
+            if (tick % Replay.CHECKSUM_INTERVAL == 0 && firstMismatchTick < 0) {
+                int index = tick / Replay.CHECKSUM_INTERVAL - 1;
+                if (index < replay.getChecksumCount() && replay.getChecksum(index) != world.checksum()) {
+                    firstMismatchTick = tick;
+                }
+            }
+        }
+        return firstMismatchTick < 0;
+    }
+
+    /**
+     * First checksum tick that did not match, or -1.
+     */
+    public int getFirstMismatchTick() { return firstMismatchTick; }
+    public GameWorld getWorld() { return world; }
+
+    public static void main(String[] args) throws IOException {
+        boolean trace = false;
+        String path = null;
+        for (String arg : args) {
+            if (arg.equals("--trace")) {
+                trace = true;
+            } else {
+                path = arg;
+            }
+        }
+        if (path == null) {
+            System.err.println("Usage: java src.ReplayPlayer [--trace] file");
+            System.exit(2);
+        }
+
+        Replay replay = Replay.read(new File(path));
+        ReplayPlayer player = new ReplayPlayer(replay);
+        long start = System.nanoTime();
+        boolean ok = player.play(trace);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        GameWorld world = player.getWorld();
+        System.out.printf("%d ticks in %.3f s (%.0f ticks/sec)%n",
+                replay.getTickCount(), seconds, replay.getTickCount() / seconds);
+        System.out.println("Final: level " + world.getLevel() + ", score " + world.getScore()
+                + ", player HP " + world.getPlayer().getHealth() + (world.isRunning() ? "" : ", run over"));
+        if (ok) {
+            System.out.println("Checksums match (" + replay.getChecksumCount() + " checked)");
+        } else {
+            System.out.println("DESYNC: checksum mismatch at tick " + player.getFirstMismatchTick());
+            System.exit(1);
+        }
+    }
+}
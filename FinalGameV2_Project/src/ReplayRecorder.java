@@ -0,0 +1,49 @@
+package src;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * ReplayRecorder steps a GameWorld and records each tick's input into a
+ * Replay, adding a state checksum every Replay.CHECKSUM_INTERVAL ticks.
+ * The replay is written once, when the run ends or is abandoned.
+ */
+public class ReplayRecorder {
+    private final Replay replay;
+    private final File target;
+    private boolean saved = false;
+
+    public ReplayRecorder(Replay replay, File target) {
+        this.replay = replay;
+        this.target = target;
+    }
+
+    /**
+     * Apply the input and advance the world one tick, recording both.
+     */
+    public void step(GameWorld world, int inputMask) {
+        if (saved || !world.isRunning()) return;
+        world.setInput(inputMask);
+        world.step();
+        replay.addTick(inputMask);
+        if (replay.getTickCount() % Replay.CHECKSUM_INTERVAL == 0) {
+            replay.addChecksum(world.checksum());
+        }
+    }
+
+    /**
+     * Write the replay file; later calls do nothing.
+     */
+    public void save() {
+        if (saved) return;
+        saved = true;
+        try {
+            replay.write(target);
+            System.out.println("Replay saved: " + target + " (" + replay.getTickCount() + " ticks)");
+        } catch (IOException e) {
+            System.err.println("Error saving replay: " + target + " - " + e.getMessage());
+        }
+    }
+
+    public Replay getReplay() { return replay; }
+}
@@ -0,0 +1,354 @@
+package src;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * RewindBuffer keeps the last few seconds of a GameWorld so practice mode
+ * can play them backwards. After every tick record() saves the world (see
+ * GameWorld.saveState, aligned) and stores only the XOR of that save with
+ * the previous one, run-length encoded: most of a save is the same from
+ * one tick to the next, so the diff is mostly zero runs. Because XOR is
+ * its own inverse, the same diff takes the newest save back to the one
+ * before it, so stepBack() decodes a single diff whatever the window.
+ *
+ * Every KEYFRAME_INTERVAL ticks the whole save is stored as well. seek()
+ * starts from the first keyframe at or after the target and steps back
+ * from there, so any tick in the window is at most one keyframe and
+ * KEYFRAME_INTERVAL diffs away.
+ *
+ * Frames live in one byte array allocated up front. When it is full, or
+ * the window holds maxTicks steps, the oldest frames are dropped, so
+ * memory stays fixed however many projectiles are flying; a crowded
+ * screen just shortens how far back the window reaches. A save larger
+ * than an eighth of the capacity is not recorded at all and empties the
+ * buffer. Frames are stored whole; one that does not fit before the end
+ * of the array starts again at the front.
+ *
+ * Not thread-safe; GamePanel calls it under its state lock.
+ */
+public class RewindBuffer {
+    public static final int DEFAULT_CAPACITY = 16 << 20;
+    // Ticks between frames that also hold the whole save
+    public static final int KEYFRAME_INTERVAL = 60;
+
+    // Diff encoding: a control byte, then literal bytes for a literal run.
+    // 0x00-0x7F: 1-128 literal bytes; 0x80-0xFE: 1-127 zero bytes;
+    // 0xFF: a zero run whose length follows as a varint
+    private static final int MAX_LITERAL = 128;
+    private static final int MAX_SHORT_ZEROS = 127;
+    // Shorter zero runs stay inside a literal run
+    private static final int MIN_ZERO_RUN = 3;
+    // Compared against to find zero runs in a keyframe
+    private static final byte[] ZEROS = new byte[4096];
+
+    private final byte[] ring;
+    private final int maxStateBytes;
+    private int writePos = 0;
+
+    // Frame index, a ring of maxTicks + 1 frames; frame head is the newest
+    private final long[] frameTick;
+    private final int[] frameStart;
+    // Encoded diff to the previous frame, then the encoded keyframe (0 if none)
+    private final int[] diffLength;
+    private final int[] keyLength;
+    private final int[] stateLength;
+    private int head = -1;
+    private int count = 0;
+
+    // Save of the newest frame, zero past its length
+    private byte[] state;
+    private ByteBuffer stateView;
+    // The save being recorded, zero past its length between calls
+    private byte[] next;
+    private ByteBuffer nextView;
+    private int nextLength = 0;
+    // An encoded frame before it is copied into the ring
+    private final byte[] staging;
+
+    private long recorded = 0;
+    private long recordedBytes = 0;
+
+    /**
+     * @param capacity bytes for the stored frames
+     * @param maxTicks most steps back that are kept
+     */
+    public RewindBuffer(int capacity, int maxTicks) {
+        if (maxTicks < 1) throw new IllegalArgumentException("maxTicks must be positive: " + maxTicks);
+        ring = new byte[capacity];
+        maxStateBytes = capacity / 8;
+        frameTick = new long[maxTicks + 1];
+        frameStart = new int[maxTicks + 1];
+        diffLength = new int[maxTicks + 1];
+        keyLength = new int[maxTicks + 1];
+        stateLength = new int[maxTicks + 1];
+        state = new byte[maxStateBytes];
+        stateView = ByteBuffer.wrap(state);
+        next = new byte[maxStateBytes];
+        nextView = ByteBuffer.wrap(next);
+        staging = new byte[2 * maxEncodedBytes(maxStateBytes)];
+    }
+
+    private static int maxEncodedBytes(int length) {
+        return length + length / MAX_LITERAL + 16;
+    }
+
+    /**
+     * Save the world after a tick. The world must run on a VirtualClock.
+     */
+    public void record(GameWorld world) {
+        if (world.stateBytes(true) > maxStateBytes) {
+            clear();
+            return;
+        }
+        nextView.clear();
+        world.saveState(nextView, true);
+        int length = nextView.position();
+        if (length < nextLength) {
+            Arrays.fill(next, length, nextLength, (byte) 0);
+        }
+        nextLength = length;
+
+        int previousLength = count > 0 ? stateLength[head] : 0;
+        int diff = count > 0 ? encodeXor(next, state, Math.max(length, previousLength), staging, 0) : 0;
+        long tick = world.getClock().getTick();
+        int key = 0;
+        if (count == 0 || tick % KEYFRAME_INTERVAL == 0) {
+            key = encodeXor(next, null, length, staging, diff);
+        }
+        store(tick, diff, key, length);
+
+        // The new save becomes the newest state
+        byte[] swap = state;
+        state = next;
+        next = swap;
+        ByteBuffer swapView = stateView;
+        stateView = nextView;
+        nextView = swapView;
+        nextLength = previousLength;
+        recorded++;
+        recordedBytes += diff + key;
+    }
+
+    private void store(long tick, int diff, int key, int length) {
+        int bytes = diff + key;
+        if (count == frameTick.length) {
+            dropOldest();
+        }
+        int start = writePos;
+        if (bytes > ring.length - start) {
+            // Frames that would be skipped at the end go too
+            evictOverlapping(start, ring.length - start);
+            start = 0;
+        }
+        evictOverlapping(start, bytes);
+        System.arraycopy(staging, 0, ring, start, bytes);
+        head = (head + 1) % frameTick.length;
+        count++;
+        frameTick[head] = tick;
+        frameStart[head] = start;
+        diffLength[head] = diff;
+        keyLength[head] = key;
+        stateLength[head] = length;
+        writePos = start + bytes;
+    }
+
+    // Frames sit in the ring in the order they were written, so the space
+    // ahead of writePos always holds the oldest ones first
+    private void evictOverlapping(int start, int bytes) {
+        while (count > 0) {
+            int oldest = index(0);
+            int oldestStart = frameStart[oldest];
+            int oldestEnd = oldestStart + diffLength[oldest] + keyLength[oldest];
+            if (oldestStart >= start + bytes || oldestEnd <= start) return;
+            dropOldest();
+        }
+    }
+
+    private void dropOldest() {
+        count--;
+    }
+
+    // Frame i of the window, 0 being the oldest
+    private int index(int i) {
+        return Math.floorMod(head - count + 1 + i, frameTick.length);
+    }
+
+    /**
+     * Take the world back one tick, dropping the newest frame. Returns
+     * false, leaving the world alone, if the window holds no earlier tick.
+     */
+    public boolean stepBack(GameWorld world) {
+        if (!popNewest()) return false;
+        restore(world);
+        return true;
+    }
+
+    // Undo the newest frame's diff on state and forget the frame
+    private boolean popNewest() {
+        if (count < 2) return false;
+        int previous = Math.floorMod(head - 1, frameTick.length);
+        int length = Math.max(stateLength[head], stateLength[previous]);
+        decodeXor(ring, frameStart[head], diffLength[head], state, length);
+        writePos = frameStart[head];
+        head = previous;
+        count--;
+        return true;
+    }
+
+    /**
+     * Take the world back to the newest recorded frame at or before tick,
+     * dropping every frame after it. Returns false, leaving the world
+     * alone, if tick is older than the window.
+     */
+    public boolean seek(GameWorld world, long tick) {
+        if (count == 0 || tick < frameTick[index(0)]) return false;
+        if (tick >= frameTick[head]) return true;
+        // Oldest keyframe after the target; stepping back from there beats
+        // stepping back from the newest frame
+        for (int i = 0; i < count - 1; i++) {
+            int frame = index(i);
+            if (keyLength[frame] > 0 && frameTick[frame] > tick) {
+                loadKeyframe(frame);
+                count = i + 1;
+                head = frame;
+                writePos = frameStart[frame] + diffLength[frame] + keyLength[frame];
+                break;
+            }
+        }
+        while (frameTick[head] > tick && popNewest()) {
+            // popNewest does the work
+        }
+        restore(world);
+        return true;
+    }
+
+    private void loadKeyframe(int frame) {
+        Arrays.fill(state, 0, Math.max(stateLength[head], stateLength[frame]), (byte) 0);
+        decodeXor(ring, frameStart[frame] + diffLength[frame], keyLength[frame], state, stateLength[frame]);
+    }
+
+    private void restore(GameWorld world) {
+        stateView.clear().limit(stateLength[head]);
+        world.restoreState(stateView);
+    }
+
+    /**
+     * Forget every frame, e.g. when a new run starts.
+     */
+    public void clear() {
+        if (count > 0) {
+            Arrays.fill(state, 0, stateLength[head], (byte) 0);
+        }
+        count = 0;
+        head = -1;
+        writePos = 0;
+    }
+
+    // XOR of a and b (b null for zeros) over length bytes, encoded into out
+    // at offset; returns the encoded length
+    private static int encodeXor(byte[] a, byte[] b, int length, byte[] out, int offset) {
+        int o = offset;
+        int i = 0;
+        int literalStart = 0;
+        while (i < length) {
+            int zeros = equalRun(a, b, i, length);
+            if (zeros == 0) {
+                i++;
+                continue;
+            }
+            if (zeros < MIN_ZERO_RUN && i + zeros < length) {
+                i += zeros;
+                continue;
+            }
+            o = putLiterals(a, b, literalStart, i, out, o);
+            o = putZeros(zeros, out, o);
+            i += zeros;
+            literalStart = i;
+        }
+        o = putLiterals(a, b, literalStart, length, out, o);
+        return o - offset;
+    }
+
+    // Bytes from i on where a and b (b null for zeros) agree; Arrays.mismatch
+    // compares many bytes at a time, so unchanged stretches cost little
+    private static int equalRun(byte[] a, byte[] b, int i, int length) {
+        if (b != null) {
+            int mismatch = Arrays.mismatch(a, i, length, b, i, length);
+            return mismatch < 0 ? length - i : mismatch;
+        }
+        int run = 0;
+        while (i + run < length) {
+            int chunk = Math.min(ZEROS.length, length - i - run);
+            int mismatch = Arrays.mismatch(a, i + run, i + run + chunk, ZEROS, 0, chunk);
+            if (mismatch >= 0) return run + mismatch;
+            run += chunk;
+        }
+        return run;
+    }
+
+    private static int putLiterals(byte[] a, byte[] b, int from, int to, byte[] out, int o) {
+        while (from < to) {
+            int run = Math.min(MAX_LITERAL, to - from);
+            out[o++] = (byte) (run - 1);
+            for (int i = from; i < from + run; i++) {
+                out[o++] = (byte) (a[i] ^ (b != null ? b[i] : 0));
+            }
+            from += run;
+        }
+        return o;
+    }
+
+    private static int putZeros(int zeros, byte[] out, int o) {
+        if (zeros <= MAX_SHORT_ZEROS) {
+            out[o++] = (byte) (0x80 + zeros - 1);
+            return o;
+        }
+        out[o++] = (byte) 0xFF;
+        while (zeros >= 0x80) {
+            out[o++] = (byte) (zeros | 0x80);
+            zeros >>>= 7;
+        }
+        out[o++] = (byte) zeros;
+        return o;
+    }
+
+    // XOR the encoded bytes in[from, from + encoded) into target; they
+    // cover length bytes
+    private static void decodeXor(byte[] in, int from, int encoded, byte[] target, int length) {
+        int p = from;
+        int end = from + encoded;
+        int t = 0;
+        while (p < end) {
+            int control = in[p++] & 0xFF;
+            if (control < 0x80) {
+                int run = control + 1;
+                for (int i = 0; i < run; i++) {
+                    target[t++] ^= in[p++];
+                }
+            } else if (control < 0xFF) {
+                t += control - 0x80 + 1;
+            } else {
+                int zeros = 0;
+                int shift = 0;
+                int b;
+                do {
+                    b = in[p++] & 0xFF;
+                    zeros |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b >= 0x80);
+                t += zeros;
+            }
+        }
+        if (t != length) {
+            throw new IllegalStateException("Rewind frame decoded to " + t + " bytes, expected " + length);
+        }
+    }
+
+    /** Steps back that stepBack() can still take. */
+    public int getSteps() { return Math.max(0, count - 1); }
+    public long getOldestTick() { return count > 0 ? frameTick[index(0)] : -1; }
+    public long getNewestTick() { return count > 0 ? frameTick[head] : -1; }
+    /** Mean bytes stored per recorded tick, keyframes included. */
+    public double getBytesPerTick() { return recorded == 0 ? 0 : recordedBytes / (double) recorded; }
+}
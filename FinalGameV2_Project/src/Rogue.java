@@ -11,11 +11,11 @@ public class Rogue extends Character {
     }
 
     @Override
-    public void attack(Boss boss) {
+    public void attack(Boss boss, long nowMs) {
         if (boss == null) return;
-        if (!canAttack()) return;
+        if (!canAttack(nowMs)) return;
         // Always mark swing to show animation
-        markAttack();
+        markAttack(nowMs);
         // Only deal damage if weak point is open
         if (boss.isWeakPointActive()) {
             boss.setHealth(boss.getHealth() - getAttackPower());
@@ -48,15 +48,14 @@ public class Rogue extends Character {
     
     // Dash ability for Rogue - faster cooldown
     @Override
-    public boolean canDash() {
-        long now = System.currentTimeMillis();
-        return (now - getLastDashTime()) >= getDashCooldownMs() && !isDashing();
+    public boolean canDash(long nowMs) {
+        return (nowMs - getLastDashTime()) >= getDashCooldownMs() && !isDashing(nowMs);
     }
     
     @Override
-    public void startDash(double dirX, double dirY) {
-        if (canDash()) {
-            super.startDash(dirX, dirY);
+    public void startDash(double dirX, double dirY, long nowMs) {
+        if (canDash(nowMs)) {
+            super.startDash(dirX, dirY, nowMs);
         }
     }
     
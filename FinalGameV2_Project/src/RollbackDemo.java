@@ -0,0 +1,138 @@
+package src;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * RollbackDemo is the loopback test for rollback co-op: two bot-driven
+ * RollbackPeers, each with its own MultiplayerWorld, play together over
+ * UDP on 127.0.0.1 with simulated latency, jitter and loss on both links.
+ * Each bot only sees its own peer's (possibly mispredicted) world.
+ *
+ * At the end it reports how much rolling back was needed and what it
+ * cost, and checks that the peers converged: every checksum exchanged
+ * during the run must match, and so must the two worlds' checksums for
+ * the latest tick both have final. Exits with status 1 if they differ.
+ *
+ * Usage: java src.RollbackDemo [--seconds N] [--latency ms] [--jitter ms] [--loss 0..1] [--delay ticks] [--bullets N] [--seed N]
+ */
+public class RollbackDemo {
+    public static void main(String[] args) throws IOException {
+        int seconds = 10;
+        int latency = 40;
+        int jitter = 10;
+        double loss = 0.05;
+        int delay = 2;
+        int bullets = 0;
+        long seed = 1;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (i + 1 >= args.length) {
+                usage("Missing value for " + arg);
+            }
+            String value = args[++i];
+            switch (arg) {
+                case "--seconds": seconds = Integer.parseInt(value); break;
+                case "--latency": latency = Integer.parseInt(value); break;
+                case "--jitter": jitter = Integer.parseInt(value); break;
+                case "--loss": loss = Double.parseDouble(value); break;
+                case "--delay": delay = Integer.parseInt(value); break;
+                case "--bullets": bullets = Integer.parseInt(value); break;
+                case "--seed": seed = Long.parseLong(value); break;
+                default: usage("Unknown option " + arg);
+            }
+        }
+        if (delay < 0 || delay > RollbackSession.MAX_ROLLBACK) {
+            usage("Delay must be 0-" + RollbackSession.MAX_ROLLBACK);
+        }
+
+        int[] types = { GameWorld.WARRIOR, GameWorld.MAGE };
+        DatagramChannel[] channels = new DatagramChannel[2];
+        for (int p = 0; p < 2; p++) {
+            channels[p] = DatagramChannel.open();
+            channels[p].bind(new InetSocketAddress("127.0.0.1", 0));
+            channels[p].configureBlocking(false);
+        }
+        RollbackPeer[] peers = new RollbackPeer[2];
+        BotController[] bots = new BotController[2];
+        for (int p = 0; p < 2; p++) {
+            MultiplayerWorld world = new MultiplayerWorld(new VirtualClock(1_000_000_000L / GameLoop.DEFAULT_TICK_RATE), seed);
+            world.addPlayer(types[0]);
+            world.addPlayer(types[1]);
+            world.setAmbientBullets(bullets);
+            RollbackSession session = new RollbackSession(world, p, 1 - p, delay);
+            peers[p] = new RollbackPeer(channels[p], channels[1 - p].getLocalAddress(),
+                    new LinkSimulator(latency, jitter, loss, seed + 1 + p), session);
+            bots[p] = new BotController(types[p]);
+        }
+        System.out.println("Two peers on loopback for " + seconds + "s, latency " + latency + "ms +" + jitter
+                + "ms jitter, " + (loss * 100) + "% loss, input delay " + delay + " ticks, " + bullets + " ambient bullets");
+
+        int tickRate = GameLoop.DEFAULT_TICK_RATE;
+        long tickNanos = 1_000_000_000L / tickRate;
+        int frames = seconds * tickRate;
+        long start = System.nanoTime();
+        for (int f = 0; f < frames; f++) {
+            long due = start + f * tickNanos;
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            long now = System.nanoTime();
+            for (int p = 0; p < 2; p++) {
+                MultiplayerWorld world = peers[p].getSession().getWorld();
+                int mask = bots[p].decide(world.getPlayer(p), world.getBoss(), world.getProjectiles());
+                peers[p].update(mask, now);
+            }
+        }
+
+        boolean converged = true;
+        for (int p = 0; p < 2; p++) {
+            RollbackPeer peer = peers[p];
+            RollbackSession s = peer.getSession();
+            MultiplayerWorld world = s.getWorld();
+            System.out.printf("Peer %d: tick %d, level %d, score %d, %d bullets, %d/%d packets dropped%n",
+                    p, s.getTick(), world.getLevel(), world.getScore(), world.getProjectiles().size(),
+                    peer.getLink().getPacketsDropped(), peer.getLink().getPacketsSent());
+            System.out.printf("  %d rollbacks, %d ticks re-simulated (%.1f mean, %d max), %d stalls, worst frame %.2f ms%n",
+                    s.getRollbacks(), s.getResimulatedTicks(),
+                    s.getRollbacks() == 0 ? 0 : s.getResimulatedTicks() / (double) s.getRollbacks(),
+                    s.getMaxResimulated(), s.getStalls(), s.getMaxAdvanceNanos() / 1e6);
+            System.out.printf("  save %.1f us, restore %.1f us, %d checksums matched, %d desyncs%n",
+                    s.getSaveNanos() / 1000.0 / Math.max(1, s.getSaves()),
+                    s.getRestoreNanos() / 1000.0 / Math.max(1, s.getRollbacks()),
+                    peer.getChecksumsMatched(), peer.getDesyncs());
+            if (peer.getDesyncs() > 0) {
+                System.out.println("  first desync at tick " + peer.getFirstDesyncTick());
+                converged = false;
+            }
+            if (peer.getChecksumsMatched() == 0) {
+                converged = false;
+            }
+        }
+        RollbackSession a = peers[0].getSession();
+        RollbackSession b = peers[1].getSession();
+        int common = Math.min(a.getLatestChecksumTick(), b.getLatestChecksumTick());
+        if (a.hasChecksum(common) && b.hasChecksum(common)) {
+            boolean same = a.getChecksum(common) == b.getChecksum(common);
+            System.out.println("Tick " + common + ": checksums " + (same ? "match" : "DIFFER"));
+            converged &= same;
+        } else {
+            System.out.println("No common final tick to compare");
+            converged = false;
+        }
+        System.out.println(converged ? "Peers converged" : "Peers did NOT converge");
+        if (!converged) {
+            System.exit(1);
+        }
+    }
+
+    private static void usage(String error) {
+        System.err.println(error);
+        System.err.println("Usage: java src.RollbackDemo [--seconds N] [--latency ms] [--jitter ms] [--loss 0..1] "
+                + "[--delay ticks] [--bullets N] [--seed N]");
+        System.exit(2);
+    }
+}
@@ -0,0 +1,146 @@
+package src;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+/**
+ * RollbackPeer connects a RollbackSession to the other player over a
+ * non-blocking DatagramChannel. Once per frame it reads every waiting
+ * packet, advances the session and sends one packet back:
+ *
+ *   type(1) firstTick(varint) count(1) inputs(count bytes)
+ *   ack(varint) checksumTick(varint) [checksum(8) if checksumTick > 0]
+ *
+ * The inputs are every local input the remote has not acknowledged yet,
+ * so a lost packet is covered by the next one and nothing needs to be
+ * resent on a timer. The ack is the last remote tick this side has. The
+ * checksum is this side's latest final one; the receiver compares it with
+ * its own for the same tick to confirm the two simulations agree.
+ *
+ * All methods must be called from one thread.
+ */
+public class RollbackPeer {
+    static final int INPUTS = 1;
+    // Local inputs sent per packet at most; more than the session can be ahead
+    private static final int MAX_INPUTS_PER_PACKET = 64;
+
+    private final DatagramChannel channel;
+    private final SocketAddress remote;
+    private final LinkSimulator link;
+    private final RollbackSession session;
+    private final ByteBuffer sendBuffer = ByteBuffer.allocate(NetProtocol.MAX_PACKET);
+    private final ByteBuffer receiveBuffer = ByteBuffer.allocate(NetProtocol.MAX_PACKET);
+
+    // Last local input tick the remote has acknowledged
+    private int remoteAck = 0;
+    // Newest checksum from the remote, waiting until ours for that tick is final
+    private int remoteChecksumTick = 0;
+    private long remoteChecksum;
+    private int comparedTick = 0;
+
+    private long packetsReceived = 0;
+    private long checksumsMatched = 0;
+    private long desyncs = 0;
+    private int firstDesyncTick = 0;
+
+    /**
+     * @param channel a bound, non-blocking channel
+     * @param remote  the other peer's address
+     */
+    public RollbackPeer(DatagramChannel channel, SocketAddress remote, LinkSimulator link, RollbackSession session) {
+        this.channel = channel;
+        this.remote = remote;
+        this.link = link;
+        this.session = session;
+    }
+
+    /**
+     * One frame: receive, advance the session with this frame's input and
+     * send. Returns false if the session stalled.
+     */
+    public boolean update(int localMask, long nowNanos) throws IOException {
+        receive();
+        boolean advanced = session.advance(localMask);
+        compareChecksum();
+        send(nowNanos);
+        link.flush(channel, nowNanos);
+        return advanced;
+    }
+
+    private void receive() throws IOException {
+        while (true) {
+            receiveBuffer.clear();
+            SocketAddress from = channel.receive(receiveBuffer);
+            if (from == null) return;
+            receiveBuffer.flip();
+            try {
+                handlePacket(receiveBuffer);
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                // Malformed datagram: ignore it
+            }
+        }
+    }
+
+    private void handlePacket(ByteBuffer in) {
+        if (in.get() != INPUTS) return;
+        packetsReceived++;
+        int firstTick = NetProtocol.getVarInt(in);
+        int count = in.get() & 0xff;
+        for (int i = 0; i < count; i++) {
+            session.addRemoteInput(firstTick + i, in.get());
+        }
+        remoteAck = Math.max(remoteAck, NetProtocol.getVarInt(in));
+        int checksumTick = NetProtocol.getVarInt(in);
+        if (checksumTick > 0) {
+            long checksum = in.getLong();
+            if (checksumTick > remoteChecksumTick) {
+                remoteChecksumTick = checksumTick;
+                remoteChecksum = checksum;
+            }
+        }
+    }
+
+    private void compareChecksum() {
+        if (remoteChecksumTick <= comparedTick || !session.hasChecksum(remoteChecksumTick)) return;
+        if (session.getChecksum(remoteChecksumTick) == remoteChecksum) {
+            checksumsMatched++;
+        } else {
+            if (desyncs == 0) {
+                firstDesyncTick = remoteChecksumTick;
+            }
+            desyncs++;
+        }
+        comparedTick = remoteChecksumTick;
+    }
+
+    private void send(long nowNanos) throws IOException {
+        int last = session.getLocalInputTick();
+        int first = Math.max(remoteAck + 1, last - MAX_INPUTS_PER_PACKET + 1);
+        int count = Math.max(0, last - first + 1);
+        sendBuffer.clear();
+        sendBuffer.put((byte) INPUTS);
+        NetProtocol.putVarInt(sendBuffer, first);
+        sendBuffer.put((byte) count);
+        for (int t = first; t <= last; t++) {
+            sendBuffer.put((byte) session.getLocalInput(t));
+        }
+        NetProtocol.putVarInt(sendBuffer, session.getConfirmedRemoteTick());
+        int checksumTick = session.getLatestChecksumTick();
+        NetProtocol.putVarInt(sendBuffer, checksumTick);
+        if (checksumTick > 0) {
+            sendBuffer.putLong(session.getChecksum(checksumTick));
+        }
+        sendBuffer.flip();
+        link.send(channel, sendBuffer, remote, nowNanos);
+    }
+
+    public RollbackSession getSession() { return session; }
+    public LinkSimulator getLink() { return link; }
+    public long getPacketsReceived() { return packetsReceived; }
+    public long getChecksumsMatched() { return checksumsMatched; }
+    public long getDesyncs() { return desyncs; }
+    public int getFirstDesyncTick() { return firstDesyncTick; }
+}
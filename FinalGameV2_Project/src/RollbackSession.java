@@ -0,0 +1,213 @@
+package src;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * RollbackSession runs one peer's copy of a two-player MultiplayerWorld
+ * with GGPO-style rollback. Both peers simulate every tick themselves. The
+ * remote player's input for a tick that has not arrived yet is predicted
+ * to be the same as its last known input; when the real input turns out
+ * different, the world is restored to the state before the first wrong
+ * tick and those ticks are simulated again, all within one advance().
+ *
+ * The world state after each of the last MAX_ROLLBACK ticks is kept in a
+ * ring of ByteBuffers (see MultiplayerWorld.saveState), so a rollback
+ * costs one restore plus the re-simulated steps and allocates nothing
+ * once the buffers have grown to the largest state seen. A peer that gets
+ * more than MAX_ROLLBACK ticks ahead of the remote input it has stalls
+ * instead of predicting further.
+ *
+ * Local input is scheduled inputDelay ticks ahead, which hides that much
+ * latency without any rollback; both peers must use the same delay. Every
+ * CHECKSUM_INTERVAL ticks the world checksum is recorded once the tick is
+ * final (both inputs known), so peers can compare them (see RollbackPeer).
+ *
+ * Ticks are numbered like the world clock: tick t is the step that uses
+ * the inputs for t and leaves the clock at t.
+ */
+public class RollbackSession {
+    // Most ticks simulated on a predicted remote input
+    public static final int MAX_ROLLBACK = 8;
+    // Ticks between recorded checksums
+    public static final int CHECKSUM_INTERVAL = 30;
+    // Input history per player (a power of two, well above MAX_ROLLBACK plus the delay)
+    private static final int INPUT_RING = 128;
+    // Recorded checksums kept for comparison
+    private static final int CHECKSUM_RING = 64;
+
+    private final MultiplayerWorld world;
+    private final int localSlot;
+    private final int remoteSlot;
+
+    // World state after tick t lives in states[t % states.length]
+    private final ByteBuffer[] states = new ByteBuffer[MAX_ROLLBACK + 1];
+    private final int[] localInputs = new int[INPUT_RING];
+    private final int[] remoteInputs = new int[INPUT_RING];
+    // Remote input each simulated tick actually used, confirmed or predicted
+    private final int[] usedRemoteInputs = new int[INPUT_RING];
+
+    private int tick = 0;
+    private int localInputTick;
+    private int confirmedRemoteTick;
+    // Earliest simulated tick whose predicted remote input proved wrong
+    private int firstWrongTick = Integer.MAX_VALUE;
+
+    private final int[] checksumTicks = new int[CHECKSUM_RING];
+    private final long[] checksums = new long[CHECKSUM_RING];
+
+    private long rollbacks = 0;
+    private long resimulatedTicks = 0;
+    private int maxResimulated = 0;
+    private long stalls = 0;
+    private long saves = 0;
+    private long saveNanos = 0;
+    private long restoreNanos = 0;
+    private long maxAdvanceNanos = 0;
+
+    /**
+     * @param world      a world with both players added, on a VirtualClock at tick 0
+     * @param inputDelay ticks between reading local input and simulating it
+     */
+    public RollbackSession(MultiplayerWorld world, int localSlot, int remoteSlot, int inputDelay) {
+        if (inputDelay < 0 || inputDelay > MAX_ROLLBACK) {
+            throw new IllegalArgumentException("Input delay must be 0-" + MAX_ROLLBACK + ": " + inputDelay);
+        }
+        this.world = world;
+        this.localSlot = localSlot;
+        this.remoteSlot = remoteSlot;
+        // Both players' inputs for the first inputDelay ticks are none
+        this.localInputTick = inputDelay;
+        this.confirmedRemoteTick = inputDelay;
+        saveTick(0);
+    }
+
+    /**
+     * Record the remote player's input for a tick. Inputs must arrive in
+     * tick order; repeats and anything past a gap are ignored, so a peer
+     * can simply resend everything not yet acknowledged.
+     */
+    public void addRemoteInput(int inputTick, int mask) {
+        if (inputTick != confirmedRemoteTick + 1 || inputTick > localInputTick + INPUT_RING / 2) return;
+        int i = inputTick & (INPUT_RING - 1);
+        remoteInputs[i] = mask;
+        confirmedRemoteTick = inputTick;
+        if (inputTick <= tick && usedRemoteInputs[i] != mask && inputTick < firstWrongTick) {
+            firstWrongTick = inputTick;
+        }
+    }
+
+    /**
+     * Take this frame's local input and simulate one more tick, rolling
+     * back first if a remote input was mispredicted. Returns false, and
+     * drops the input, when stalled waiting for the remote peer.
+     */
+    public boolean advance(int localMask) {
+        if (tick + 1 - confirmedRemoteTick > MAX_ROLLBACK) {
+            stalls++;
+            return false;
+        }
+        long start = System.nanoTime();
+        localInputTick++;
+        localInputs[localInputTick & (INPUT_RING - 1)] = localMask;
+
+        if (firstWrongTick <= tick) {
+            long restoreStart = System.nanoTime();
+            ByteBuffer saved = states[(firstWrongTick - 1) % states.length];
+            saved.rewind();
+            world.restoreState(saved);
+            restoreNanos += System.nanoTime() - restoreStart;
+            int count = tick - firstWrongTick + 1;
+            for (int t = firstWrongTick; t <= tick; t++) {
+                simulate(t);
+            }
+            rollbacks++;
+            resimulatedTicks += count;
+            maxResimulated = Math.max(maxResimulated, count);
+        }
+        firstWrongTick = Integer.MAX_VALUE;
+
+        simulate(++tick);
+        maxAdvanceNanos = Math.max(maxAdvanceNanos, System.nanoTime() - start);
+        return true;
+    }
+
+    private void simulate(int t) {
+        int i = t & (INPUT_RING - 1);
+        int remote = t <= confirmedRemoteTick ? remoteInputs[i]
+                : remoteInputs[confirmedRemoteTick & (INPUT_RING - 1)];
+        usedRemoteInputs[i] = remote;
+        world.setInput(localSlot, localInputs[i]);
+        world.setInput(remoteSlot, remote);
+        world.step();
+        saveTick(t);
+        if (t % CHECKSUM_INTERVAL == 0) {
+            int c = (t / CHECKSUM_INTERVAL) & (CHECKSUM_RING - 1);
+            checksumTicks[c] = t;
+            checksums[c] = world.checksum();
+        }
+    }
+
+    private void saveTick(int t) {
+        long start = System.nanoTime();
+        int slot = t % states.length;
+        ByteBuffer buf = states[slot];
+        int needed = world.stateBytes();
+        if (buf == null || buf.capacity() < needed) {
+            // Native order makes each put a plain store
+            buf = ByteBuffer.allocate(needed + needed / 2).order(ByteOrder.nativeOrder());
+            states[slot] = buf;
+        }
+        buf.clear();
+        world.saveState(buf);
+        buf.flip();
+        saves++;
+        saveNanos += System.nanoTime() - start;
+    }
+
+    /**
+     * Latest tick with a checksum that can no longer change, or 0.
+     */
+    public int getLatestChecksumTick() {
+        int limit = Math.min(Math.min(confirmedRemoteTick, tick), firstWrongTick - 1);
+        int latest = limit - limit % CHECKSUM_INTERVAL;
+        return hasChecksum(latest) ? latest : 0;
+    }
+
+    /**
+     * True if the checksum for this tick is final and still held.
+     */
+    public boolean hasChecksum(int checksumTick) {
+        if (checksumTick <= 0 || checksumTick % CHECKSUM_INTERVAL != 0) return false;
+        if (checksumTick > confirmedRemoteTick || checksumTick > tick || checksumTick >= firstWrongTick) return false;
+        return checksumTicks[(checksumTick / CHECKSUM_INTERVAL) & (CHECKSUM_RING - 1)] == checksumTick;
+    }
+
+    public long getChecksum(int checksumTick) {
+        if (!hasChecksum(checksumTick)) {
+            throw new IllegalArgumentException("No final checksum for tick " + checksumTick);
+        }
+        return checksums[(checksumTick / CHECKSUM_INTERVAL) & (CHECKSUM_RING - 1)];
+    }
+
+    /**
+     * Local input scheduled for a tick; valid for the last INPUT_RING / 2
+     * ticks up to getLocalInputTick().
+     */
+    public int getLocalInput(int inputTick) {
+        return localInputs[inputTick & (INPUT_RING - 1)];
+    }
+
+    public MultiplayerWorld getWorld() { return world; }
+    public int getTick() { return tick; }
+    public int getLocalInputTick() { return localInputTick; }
+    public int getConfirmedRemoteTick() { return confirmedRemoteTick; }
+    public long getRollbacks() { return rollbacks; }
+    public long getResimulatedTicks() { return resimulatedTicks; }
+    public int getMaxResimulated() { return maxResimulated; }
+    public long getStalls() { return stalls; }
+    public long getSaves() { return saves; }
+    public long getSaveNanos() { return saveNanos; }
+    public long getRestoreNanos() { return restoreNanos; }
+    public long getMaxAdvanceNanos() { return maxAdvanceNanos; }
+}
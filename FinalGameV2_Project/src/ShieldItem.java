@@ -12,17 +12,15 @@ public class ShieldItem extends Item {
     }
 
     @Override
-    public void applyEffect(Character player, java.util.List<Projectile> projectiles) {
+    public void applyEffect(Character player, ProjectileStore projectiles) {
         // Shield effect is handled in GamePanel by setting shieldUntilMs
         // This method serves as a marker that shield was picked up
     }
 
     @Override
-    public void draw(Graphics g) {
+    protected void drawSprite(Graphics g, int x, int y) {
         // Draw a shield shape
         int s = getSize();
-        int x = getX();
-        int y = getY();
         
         // Outer shield border (gold)
         g.setColor(new Color(255, 215, 0));
@@ -0,0 +1,9 @@
+package src;
+
+/**
+ * SoundPlayer receives sound effect requests from the simulation by name
+ * (e.g. "boss_hit"), so the game logic does not depend on an audio device.
+ */
+public interface SoundPlayer {
+    void playSound(String name);
+}
@@ -0,0 +1,134 @@
+package src;
+
+import java.util.Arrays;
+
+/**
+ * SpatialGrid is a uniform grid broad phase over the projectile store.
+ * Each projectile is bucketed by its top-left corner; queries visit only the
+ * cells overlapping the query area and return candidate slots that the
+ * caller then tests exactly. Because a projectile is never larger than
+ * the largest size seen during the rebuild, queries widen their area by
+ * that amount to catch projectiles reaching in from neighbouring cells.
+ *
+ * The grid is rebuilt once per tick with a counting sort into flat arrays,
+ * so rebuilding is O(n) and allocates nothing once the arrays have grown.
+ * Slots in the store must not move between the rebuild and the queries;
+ * use {@link ProjectileStore#markRemoved(int)} during the tick and sweep
+ * afterwards.
+ */
+public class SpatialGrid {
+    private final double originX;
+    private final double originY;
+    private final int cellSize;
+    private final int cols;
+    private final int rows;
+
+    // cellStart[c] .. cellStart[c + 1] indexes into cellItems for cell c
+    private final int[] cellStart;
+    private final int[] cellFill;
+    private int[] cellItems = new int[256];
+    private int[] cellOfItem = new int[256];
+    private int itemCount = 0;
+    private int maxItemSize = 0;
+
+    // Candidate slots of the last query
+    private int[] results = new int[64];
+    private int resultCount = 0;
+
+    public SpatialGrid(double minX, double minY, double maxX, double maxY, int cellSize) {
+        this.originX = minX;
+        this.originY = minY;
+        this.cellSize = cellSize;
+        this.cols = Math.max(1, (int) Math.ceil((maxX - minX) / cellSize));
+        this.rows = Math.max(1, (int) Math.ceil((maxY - minY) / cellSize));
+        this.cellStart = new int[cols * rows + 1];
+        this.cellFill = new int[cols * rows];
+    }
+
+    /**
+     * Re-bucket every projectile in the store by its current position.
+     */
+    public void rebuild(ProjectileStore store) {
+        int n = store.size();
+        if (cellItems.length < n) {
+            int capacity = Math.max(n, cellItems.length * 2);
+            cellItems = new int[capacity];
+            cellOfItem = new int[capacity];
+        }
+        itemCount = n;
+        maxItemSize = 0;
+
+        Arrays.fill(cellFill, 0);
+        for (int i = 0; i < n; i++) {
+            int c = cellIndex(column(store.getX(i)), row(store.getY(i)));
+            cellOfItem[i] = c;
+            cellFill[c]++;
+            if (store.getSize(i) > maxItemSize) maxItemSize = store.getSize(i);
+        }
+
+        // Prefix sums give each cell its range, then fill the ranges
+        int running = 0;
+        for (int c = 0; c < cellFill.length; c++) {
+            cellStart[c] = running;
+            running += cellFill[c];
+            cellFill[c] = 0;
+        }
+        cellStart[cellFill.length] = running;
+        for (int i = 0; i < n; i++) {
+            int c = cellOfItem[i];
+            cellItems[cellStart[c] + cellFill[c]++] = i;
+        }
+    }
+
+    /**
+     * Collect projectiles that may overlap the given box. Returns the number
+     * of candidates, readable via {@link #getResult(int)}.
+     */
+    public int queryAabb(double minX, double minY, double maxX, double maxY) {
+        resultCount = 0;
+        int c0 = column(minX - maxItemSize);
+        int c1 = column(maxX);
+        int r0 = row(minY - maxItemSize);
+        int r1 = row(maxY);
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                int cell = cellIndex(c, r);
+                for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+                    addResult(cellItems[k]);
+                }
+            }
+        }
+        return resultCount;
+    }
+
+    /**
+     * Collect projectiles that may overlap the circle at (cx, cy).
+     */
+    public int queryCircle(double cx, double cy, double radius) {
+        return queryAabb(cx - radius, cy - radius, cx + radius, cy + radius);
+    }
+
+    public int getResult(int k) { return results[k]; }
+    public int getItemCount() { return itemCount; }
+
+    private void addResult(int slot) {
+        if (resultCount == results.length) {
+            results = Arrays.copyOf(results, results.length * 2);
+        }
+        results[resultCount++] = slot;
+    }
+
+    private int column(double x) {
+        int c = (int) Math.floor((x - originX) / cellSize);
+        return c < 0 ? 0 : (c >= cols ? cols - 1 : c);
+    }
+
+    private int row(double y) {
+        int r = (int) Math.floor((y - originY) / cellSize);
+        return r < 0 ? 0 : (r >= rows ? rows - 1 : r);
+    }
+
+    private int cellIndex(int col, int row) {
+        return row * cols + col;
+    }
+}
@@ -0,0 +1,213 @@
+package src;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+
+/**
+ * SpectatorClient receives a SpectatorServer's broadcast on a background
+ * thread and keeps the latest frame decoded into a GameWorld, so it can be
+ * drawn with GameRenderer (see SpectatorWindow). The view world is only
+ * ever written by SpectatorFrame.decode(); callers read it while holding
+ * the client's lock.
+ *
+ * main() with --load N is a headless load test instead: N connections on
+ * one selector that only count frames, to see how many spectators a
+ * server can feed.
+ *
+ * Usage: java src.SpectatorClient --load N [--host H] [--port N] [--seconds N]
+ */
+public class SpectatorClient implements Closeable {
+    // Frames larger than this are treated as a broken stream
+    private static final int MAX_FRAME_BYTES = 16 << 20;
+
+    private final SocketChannel channel;
+    private final Thread thread;
+    private final Object lock = new Object();
+    private GameWorld view;
+    private volatile boolean connected = true;
+    private volatile long framesReceived = 0;
+    private volatile long bytesReceived = 0;
+
+    private ByteBuffer frameBuffer = ByteBuffer.allocate(1 << 16);
+    private final ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+
+    public SpectatorClient(String host, int port) throws IOException {
+        channel = SocketChannel.open(new InetSocketAddress(host, port));
+        thread = new Thread(this::run, "spectator-receive");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                header.clear();
+                readFully(header);
+                int length = header.getInt(0);
+                if (length <= 0 || length > MAX_FRAME_BYTES) {
+                    throw new IOException("Bad frame length " + length);
+                }
+                if (frameBuffer.capacity() < length) {
+                    frameBuffer = ByteBuffer.allocate(length * 2);
+                }
+                frameBuffer.clear().limit(length);
+                readFully(frameBuffer);
+                frameBuffer.flip();
+                synchronized (lock) {
+                    view = SpectatorFrame.decode(frameBuffer, view);
+                }
+                framesReceived++;
+                bytesReceived += Integer.BYTES + length;
+            }
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            if (connected) {
+                System.err.println("Spectator stream ended: " + e.getMessage());
+            }
+        } finally {
+            connected = false;
+        }
+    }
+
+    private void readFully(ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) {
+            if (channel.read(buf) < 0) {
+                throw new EOFException("Server closed the connection");
+            }
+        }
+    }
+
+    /**
+     * Lock to hold while reading getView() or anything in it.
+     */
+    public Object getLock() { return lock; }
+
+    /**
+     * The world as of the latest frame, or null before the first one.
+     */
+    public GameWorld getView() { return view; }
+
+    public boolean isConnected() { return connected; }
+    public long getFramesReceived() { return framesReceived; }
+    public long getBytesReceived() { return bytesReceived; }
+
+    @Override
+    public void close() throws IOException {
+        connected = false;
+        channel.close();
+    }
+
+    public static void main(String[] args) throws IOException {
+        String host = "127.0.0.1";
+        int port = SpectatorServer.DEFAULT_PORT;
+        int load = 0;
+        int seconds = 10;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (i + 1 >= args.length) {
+                usage("Missing value for " + arg);
+            }
+            String value = args[++i];
+            switch (arg) {
+                case "--host": host = value; break;
+                case "--port": port = Integer.parseInt(value); break;
+                case "--load": load = Integer.parseInt(value); break;
+                case "--seconds": seconds = Integer.parseInt(value); break;
+                default: usage("Unknown option " + arg);
+            }
+        }
+        if (load <= 0) {
+            usage("--load must be at least 1; use SpectatorWindow to watch");
+        }
+        runLoadTest(host, port, load, seconds);
+    }
+
+    /**
+     * Open count connections and count the frames each receives by their
+     * length prefixes, without decoding.
+     */
+    static void runLoadTest(String host, int port, int count, int seconds) throws IOException {
+        Selector selector = Selector.open();
+        long[] frames = new long[count];
+        // Per connection: bytes left in the current frame, or -1 while reading a length
+        int[] remaining = new int[count];
+        ByteBuffer[] headers = new ByteBuffer[count];
+        ByteBuffer scratch = ByteBuffer.allocate(1 << 16);
+        for (int c = 0; c < count; c++) {
+            SocketChannel ch = SocketChannel.open(new InetSocketAddress(host, port));
+            ch.configureBlocking(false);
+            ch.register(selector, SelectionKey.OP_READ, c);
+            remaining[c] = -1;
+            headers[c] = ByteBuffer.allocate(Integer.BYTES);
+        }
+        System.out.println(count + " spectators connected to " + host + ":" + port);
+
+        long bytes = 0;
+        int closed = 0;
+        long end = System.nanoTime() + seconds * 1_000_000_000L;
+        while (System.nanoTime() < end && closed < count) {
+            selector.select(100);
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                int c = (Integer) key.attachment();
+                SocketChannel ch = (SocketChannel) key.channel();
+                scratch.clear();
+                int n = ch.read(scratch);
+                if (n < 0) {
+                    key.cancel();
+                    ch.close();
+                    closed++;
+                    continue;
+                }
+                bytes += n;
+                scratch.flip();
+                while (scratch.hasRemaining()) {
+                    if (remaining[c] < 0) {
+                        ByteBuffer h = headers[c];
+                        while (h.hasRemaining() && scratch.hasRemaining()) {
+                            h.put(scratch.get());
+                        }
+                        if (!h.hasRemaining()) {
+                            remaining[c] = h.getInt(0);
+                            h.clear();
+                        }
+                    } else {
+                        int skip = Math.min(remaining[c], scratch.remaining());
+                        scratch.position(scratch.position() + skip);
+                        remaining[c] -= skip;
+                    }
+                    if (remaining[c] == 0) {
+                        frames[c]++;
+                        remaining[c] = -1;
+                    }
+                }
+            }
+        }
+        selector.close();
+
+        long min = Long.MAX_VALUE, max = 0, total = 0;
+        for (long f : frames) {
+            min = Math.min(min, f);
+            max = Math.max(max, f);
+            total += f;
+        }
+        System.out.printf("%d frames/s per spectator (min %.1f, max %.1f), %.1f MB/s in total, %d disconnected%n",
+                total / count / seconds, min / (double) seconds, max / (double) seconds,
+                bytes / 1e6 / seconds, closed);
+    }
+
+    private static void usage(String error) {
+        System.err.println(error);
+        System.err.println("Usage: java src.SpectatorClient --load N [--host H] [--port N] [--seconds N]");
+        System.exit(2);
+    }
+}
@@ -0,0 +1,202 @@
+package src;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * SpectatorFrame is the binary encoding of one tick of a single-player
+ * GameWorld as SpectatorServer broadcasts it: everything GameRenderer
+ * draws except the purely cosmetic particles and damage numbers.
+ *
+ *   characterType(1) flags(1) difficulty(1) tickNanos(varlong) tick(varlong)
+ *   level(varint) score(varint)
+ *   hitFlashLeft shieldLeft explosionLeft x(2) y(2) deflectionLeft x(2) y(2)
+ *   [player: Character.saveState] [boss: kind(1) Boss.saveState]
+ *   itemCount(varint) { kind(1) x(2) y(2) }
+ *   projectileCount(varint) { kind(1) x(2) y(2) }
+ *
+ * Effect timers are sent as the milliseconds left (varint, 0 when over).
+ * Projectile positions are shorts in 1/POSITION_SCALE pixels, so a bullet
+ * costs 5 bytes. decode() writes a frame into a GameWorld on a VirtualClock
+ * so GameRenderer can draw it as if it were a local run.
+ */
+final class SpectatorFrame {
+    static final int POSITION_SCALE = 4;
+
+    static final int FLAG_ENDLESS = 1;
+    static final int FLAG_RUNNING = 1 << 1;
+    static final int FLAG_ATTACKING = 1 << 2;
+    static final int FLAG_PLAYER = 1 << 3;
+    static final int FLAG_BOSS = 1 << 4;
+
+    private static final String[] DIFFICULTIES = { "EASY", "MEDIUM", "NIGHTMARE" };
+
+    // Only seeds a Level4Boss that is about to be overwritten by restoreState()
+    private static final Random BOSS_RANDOM = new Random(0);
+
+    private SpectatorFrame() { }
+
+    /**
+     * Upper bound on the bytes encode() writes for the world's current state.
+     */
+    static int maxBytes(GameWorld world) {
+        return 512 + (world.getItems().size() + world.getProjectiles().size()) * 5;
+    }
+
+    static void encode(GameWorld world, ByteBuffer out) {
+        long now = world.getTimeMs();
+        Character player = world.getPlayer();
+        Boss boss = world.getBoss();
+        int flags = 0;
+        if (world.isEndlessMode()) flags |= FLAG_ENDLESS;
+        if (world.isRunning()) flags |= FLAG_RUNNING;
+        if (world.isAttacking()) flags |= FLAG_ATTACKING;
+        if (player != null) flags |= FLAG_PLAYER;
+        if (boss != null) flags |= FLAG_BOSS;
+
+        out.put((byte) world.getCharacterType());
+        out.put((byte) flags);
+        out.put((byte) difficultyIndex(world.getDifficulty()));
+        long tickNanos = tickNanos(world.getClock());
+        NetProtocol.putVarLong(out, tickNanos);
+        // Sent as elapsed time in ticks so effect timers line up on either clock
+        NetProtocol.putVarLong(out, world.getClock().getNanos() / tickNanos);
+        NetProtocol.putVarInt(out, world.getLevel());
+        NetProtocol.putVarInt(out, world.getScore());
+
+        putTimeLeft(out, world.getPlayerHitFlashUntilMs(), now);
+        putTimeLeft(out, world.getShieldUntilMs(), now);
+        putTimeLeft(out, world.getExplosionUntilMs(), now);
+        out.putShort((short) world.getExplosionX()).putShort((short) world.getExplosionY());
+        putTimeLeft(out, world.getDeflectionUntilMs(), now);
+        out.putShort((short) world.getDeflectionX()).putShort((short) world.getDeflectionY());
+
+        if (player != null) {
+            player.saveState(out);
+        }
+        if (boss != null) {
+            out.put((byte) GameWorld.bossKind(boss));
+            boss.saveState(out);
+        }
+
+        List<Item> items = world.getItems();
+        NetProtocol.putVarInt(out, items.size());
+        for (Item item : items) {
+            out.put((byte) GameWorld.itemKind(item));
+            out.putShort((short) item.getX()).putShort((short) item.getY());
+        }
+
+        ProjectileStore projectiles = world.getProjectiles();
+        NetProtocol.putVarInt(out, projectiles.size());
+        for (int i = 0; i < projectiles.size(); i++) {
+            out.put((byte) projectiles.getKind(i));
+            out.putShort(NetProtocol.quantize(projectiles.getX(i), POSITION_SCALE));
+            out.putShort(NetProtocol.quantize(projectiles.getY(i), POSITION_SCALE));
+        }
+    }
+
+    /**
+     * Apply a frame to view, which must have been returned by an earlier
+     * decode() (or be null). A new world is returned when the frame is
+     * from a run with a different character, mode or tick rate.
+     */
+    static GameWorld decode(ByteBuffer in, GameWorld view) {
+        int characterType = in.get();
+        int flags = in.get();
+        String difficulty = DIFFICULTIES[in.get()];
+        long tickNanos = NetProtocol.getVarLong(in);
+        long tick = NetProtocol.getVarLong(in);
+        boolean endless = (flags & FLAG_ENDLESS) != 0;
+        if (view == null || view.getCharacterType() != characterType || view.isEndlessMode() != endless
+                || !view.getDifficulty().equals(difficulty)
+                || ((VirtualClock) view.getClock()).getTickNanos() != tickNanos) {
+            view = new GameWorld(new VirtualClock(tickNanos), 0, characterType, endless, difficulty, 1,
+                    GameWorld.SILENT);
+            view.setEffectsEnabled(false);
+        }
+        ((VirtualClock) view.getClock()).setTick(tick);
+        long now = view.getTimeMs();
+
+        view.setLevel(NetProtocol.getVarInt(in));
+        view.setScore(NetProtocol.getVarInt(in));
+        view.setRunning((flags & FLAG_RUNNING) != 0);
+        view.setInput((flags & FLAG_ATTACKING) != 0 ? GameWorld.INPUT_ATTACK : 0);
+
+        view.setPlayerHitFlashUntilMs(getTimeLeft(in, now));
+        view.setShieldUntilMs(getTimeLeft(in, now));
+        view.setExplosion(getTimeLeft(in, now), in.getShort(), in.getShort());
+        view.setDeflection(getTimeLeft(in, now), in.getShort(), in.getShort());
+
+        if ((flags & FLAG_PLAYER) != 0) {
+            view.getPlayer().restoreState(in);
+        }
+        if ((flags & FLAG_BOSS) != 0) {
+            int kind = in.get();
+            Boss boss = view.getBoss();
+            if (boss == null || GameWorld.bossKind(boss) != kind) {
+                boss = GameWorld.createBoss(kind, now, BOSS_RANDOM);
+                view.setBoss(boss);
+            }
+            boss.restoreState(in);
+        } else {
+            view.setBoss(null);
+        }
+
+        // Items rarely change, so ones already in place are kept
+        List<Item> items = view.getItems();
+        int itemCount = NetProtocol.getVarInt(in);
+        for (int i = 0; i < itemCount; i++) {
+            int kind = in.get();
+            int x = in.getShort();
+            int y = in.getShort();
+            Item existing = i < items.size() ? items.get(i) : null;
+            if (existing != null && GameWorld.itemKind(existing) == kind && existing.getX() == x && existing.getY() == y) {
+                continue;
+            }
+            Item item = GameWorld.createItem(kind, x, y);
+            if (existing != null) {
+                items.set(i, item);
+            } else {
+                items.add(item);
+            }
+        }
+        while (items.size() > itemCount) {
+            items.remove(items.size() - 1);
+        }
+
+        ProjectileStore projectiles = view.getProjectiles();
+        projectiles.clear();
+        int count = NetProtocol.getVarInt(in);
+        projectiles.reserve(count);
+        for (int i = 0; i < count; i++) {
+            int kind = in.get();
+            double x = in.getShort() / (double) POSITION_SCALE;
+            double y = in.getShort() / (double) POSITION_SCALE;
+            projectiles.spawnState(kind, x, y, 0, 0, 0, x, y, 0, 0, 0);
+        }
+        return view;
+    }
+
+    private static void putTimeLeft(ByteBuffer out, long untilMs, long nowMs) {
+        NetProtocol.putVarInt(out, (int) Math.max(0, Math.min(Integer.MAX_VALUE, untilMs - nowMs)));
+    }
+
+    private static long getTimeLeft(ByteBuffer in, long nowMs) {
+        int left = NetProtocol.getVarInt(in);
+        return left == 0 ? 0 : nowMs + left;
+    }
+
+    private static long tickNanos(GameClock clock) {
+        // Real-time runs are shown at the default rate
+        return clock instanceof VirtualClock ? ((VirtualClock) clock).getTickNanos()
+                : 1_000_000_000L / GameLoop.DEFAULT_TICK_RATE;
+    }
+
+    private static int difficultyIndex(String difficulty) {
+        for (int i = 0; i < DIFFICULTIES.length; i++) {
+            if (DIFFICULTIES[i].equals(difficulty)) return i;
+        }
+        return 1;
+    }
+}
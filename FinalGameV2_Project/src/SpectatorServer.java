@@ -0,0 +1,352 @@
+package src;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * SpectatorServer broadcasts a live GameWorld to any number of TCP
+ * spectators (see SpectatorClient). publish() encodes the tick once into
+ * a length-prefixed SpectatorFrame; a single selector thread then hands
+ * that same buffer to every connection.
+ *
+ * Each spectator has a small queue of frames. Every frame is a complete
+ * picture, so when a slow spectator's queue is full its oldest waiting
+ * frame is dropped rather than letting memory or latency build up, and a
+ * spectator that cannot take a single frame for STALL_TIMEOUT_NANOS is
+ * disconnected. Fast spectators are never held up by slow ones.
+ *
+ * publish() may be called from any one thread; if the selector thread has
+ * not picked up the previous frame yet, that frame is replaced.
+ *
+ * Usage: java src.SpectatorServer [--port N] [--character warrior|rogue|mage] [--difficulty EASY|MEDIUM|NIGHTMARE] [--seed N]
+ * runs a bot through endless mode and broadcasts it.
+ */
+public class SpectatorServer implements Closeable {
+    public static final int DEFAULT_PORT = 27961;
+    // Frames waiting per spectator before the oldest is dropped
+    private static final int MAX_QUEUED_FRAMES = 4;
+    private static final long STALL_TIMEOUT_NANOS = 3_000_000_000L;
+    private static final long SELECT_TIMEOUT_MS = 250;
+
+    /**
+     * One spectator connection; touched only by the selector thread.
+     */
+    private static final class Spectator {
+        final SocketChannel channel;
+        final SelectionKey key;
+        final ArrayDeque<ByteBuffer> queue = new ArrayDeque<>(MAX_QUEUED_FRAMES);
+        // Frame being written (a view of a shared frame) and when it started
+        ByteBuffer current;
+        long currentSinceNanos;
+
+        Spectator(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+    }
+
+    private final ServerSocketChannel server;
+    private final Selector selector;
+    private final Thread thread;
+    private final List<Spectator> spectators = new ArrayList<>();
+    private final AtomicReference<ByteBuffer> pending = new AtomicReference<>();
+    private final ByteBuffer readScratch = ByteBuffer.allocate(256);
+    private volatile boolean running = true;
+
+    // Publisher thread only
+    private ByteBuffer encodeBuffer = ByteBuffer.allocate(1 << 16);
+
+    // Written by the selector thread, readable from any
+    private volatile int spectatorCount = 0;
+    private volatile long framesPublished = 0;
+    private volatile long framesSent = 0;
+    private volatile long framesDropped = 0;
+    private volatile long spectatorsDropped = 0;
+    private volatile long bytesSent = 0;
+
+    /**
+     * Bind to the port on all interfaces (0 picks a free one) and start
+     * the selector thread.
+     */
+    public SpectatorServer(int port) throws IOException {
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(port));
+        server.configureBlocking(false);
+        selector = Selector.open();
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        thread = new Thread(this::run, "spectator-broadcast");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Encode the world's current tick and queue it for every spectator.
+     * The caller must keep the world from changing during the call.
+     */
+    public void publish(GameWorld world) {
+        int needed = Integer.BYTES + SpectatorFrame.maxBytes(world);
+        if (encodeBuffer.capacity() < needed) {
+            encodeBuffer = ByteBuffer.allocate(needed * 2);
+        }
+        encodeBuffer.clear();
+        encodeBuffer.position(Integer.BYTES);
+        SpectatorFrame.encode(world, encodeBuffer);
+        int length = encodeBuffer.position() - Integer.BYTES;
+        encodeBuffer.putInt(0, length);
+        encodeBuffer.flip();
+
+        // One immutable copy shared by every connection
+        ByteBuffer frame = ByteBuffer.allocate(encodeBuffer.remaining());
+        frame.put(encodeBuffer).flip();
+        pending.set(frame.asReadOnlyBuffer());
+        framesPublished++;
+        selector.wakeup();
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                selector.select(SELECT_TIMEOUT_MS);
+                long now = System.nanoTime();
+                ByteBuffer frame = pending.getAndSet(null);
+                if (frame != null) {
+                    broadcast(frame, now);
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        Spectator s = (Spectator) key.attachment();
+                        if (key.isReadable()) {
+                            readAndDiscard(s);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            flush(s, now);
+                        }
+                    }
+                }
+                dropStalled(now);
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if (running) {
+                System.err.println("Spectator server stopped: " + e.getMessage());
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = server.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+            Spectator s = new Spectator(channel, key);
+            key.attach(s);
+            spectators.add(s);
+            spectatorCount = spectators.size();
+        }
+    }
+
+    // Spectators send nothing; reading only notices when they hang up
+    private void readAndDiscard(Spectator s) {
+        try {
+            readScratch.clear();
+            if (s.channel.read(readScratch) < 0) {
+                disconnect(s);
+            }
+        } catch (IOException e) {
+            disconnect(s);
+        }
+    }
+
+    private void broadcast(ByteBuffer frame, long now) {
+        for (int i = spectators.size() - 1; i >= 0; i--) {
+            Spectator s = spectators.get(i);
+            if (s.queue.size() == MAX_QUEUED_FRAMES) {
+                s.queue.pollFirst();
+                framesDropped++;
+            }
+            s.queue.addLast(frame);
+            // Most spectators keep up, so try to send right away
+            flush(s, now);
+        }
+    }
+
+    // Write queued frames until done or the socket buffer is full
+    private void flush(Spectator s, long now) {
+        try {
+            while (true) {
+                if (s.current == null) {
+                    ByteBuffer next = s.queue.pollFirst();
+                    if (next == null) {
+                        s.key.interestOps(SelectionKey.OP_READ);
+                        return;
+                    }
+                    s.current = next.duplicate();
+                    s.currentSinceNanos = now;
+                }
+                bytesSent += s.channel.write(s.current);
+                if (s.current.hasRemaining()) {
+                    s.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+                s.current = null;
+                framesSent++;
+            }
+        } catch (IOException e) {
+            disconnect(s);
+        }
+    }
+
+    private void dropStalled(long now) {
+        for (int i = spectators.size() - 1; i >= 0; i--) {
+            Spectator s = spectators.get(i);
+            if (s.current != null && now - s.currentSinceNanos > STALL_TIMEOUT_NANOS) {
+                disconnect(s);
+                spectatorsDropped++;
+            }
+        }
+    }
+
+    private void disconnect(Spectator s) {
+        if (!spectators.remove(s)) return;
+        spectatorCount = spectators.size();
+        s.key.cancel();
+        try {
+            s.channel.close();
+        } catch (IOException ignored) {
+            // Already gone
+        }
+    }
+
+    /**
+     * Stop the selector thread and close every connection.
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Spectator s : new ArrayList<>(spectators)) {
+            disconnect(s);
+        }
+        selector.close();
+        server.close();
+    }
+
+    public int getPort() {
+        try {
+            return ((InetSocketAddress) server.getLocalAddress()).getPort();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    public int getSpectatorCount() { return spectatorCount; }
+    public long getFramesPublished() { return framesPublished; }
+    public long getFramesSent() { return framesSent; }
+    public long getFramesDropped() { return framesDropped; }
+    public long getSpectatorsDropped() { return spectatorsDropped; }
+    public long getBytesSent() { return bytesSent; }
+
+    public static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        int type = GameWorld.WARRIOR;
+        String difficulty = "MEDIUM";
+        long seed = System.nanoTime();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (i + 1 >= args.length) {
+                usage("Missing value for " + arg);
+            }
+            String value = args[++i];
+            switch (arg) {
+                case "--port": port = Integer.parseInt(value); break;
+                case "--character": type = parseCharacter(value); break;
+                case "--difficulty": difficulty = value.toUpperCase(); break;
+                case "--seed": seed = Long.parseLong(value); break;
+                default: usage("Unknown option " + arg);
+            }
+        }
+        if (type < 0) {
+            usage("Character must be warrior, rogue or mage");
+        }
+        if (!difficulty.equals("EASY") && !difficulty.equals("MEDIUM") && !difficulty.equals("NIGHTMARE")) {
+            usage("Unknown difficulty " + difficulty);
+        }
+
+        SpectatorServer spectators = new SpectatorServer(port);
+        System.out.println("Broadcasting a bot's endless run on TCP port " + spectators.getPort());
+        BotController bot = new BotController(type);
+        GameWorld world = newBotWorld(type, difficulty, seed);
+        long tickNanos = 1_000_000_000L / GameLoop.DEFAULT_TICK_RATE;
+        long start = System.nanoTime();
+        long lastReport = start;
+        for (long t = 0; ; t++) {
+            long wait = start + t * tickNanos - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            if (!world.isRunning()) {
+                world = newBotWorld(type, difficulty, ++seed);
+            }
+            world.setInput(bot.decide(world));
+            world.step();
+            spectators.publish(world);
+
+            long now = System.nanoTime();
+            if (now - lastReport >= 5_000_000_000L) {
+                lastReport = now;
+                System.out.printf("%d spectators, %d frames sent, %d dropped, %d disconnected, %.1f MB sent%n",
+                        spectators.getSpectatorCount(), spectators.getFramesSent(), spectators.getFramesDropped(),
+                        spectators.getSpectatorsDropped(), spectators.getBytesSent() / 1e6);
+            }
+        }
+    }
+
+    private static GameWorld newBotWorld(int type, String difficulty, long seed) {
+        GameWorld world = new GameWorld(new VirtualClock(1_000_000_000L / GameLoop.DEFAULT_TICK_RATE), seed,
+                type, true, difficulty, 1, GameWorld.SILENT);
+        world.setEffectsEnabled(false);
+        return world;
+    }
+
+    // GameWorld character type for a name, or -1
+    static int parseCharacter(String name) {
+        switch (name.toLowerCase()) {
+            case "warrior": return GameWorld.WARRIOR;
+            case "rogue": return GameWorld.ROGUE;
+            case "mage": return GameWorld.MAGE;
+            default: return -1;
+        }
+    }
+
+    private static void usage(String error) {
+        System.err.println(error);
+        System.err.println("Usage: java src.SpectatorServer [--port N] [--character warrior|rogue|mage] "
+                + "[--difficulty EASY|MEDIUM|NIGHTMARE] [--seed N]");
+        System.exit(2);
+    }
+}
@@ -0,0 +1,65 @@
+package src;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.io.IOException;
+import javax.swing.JFrame;
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+
+/**
+ * SpectatorWindow watches a SpectatorServer broadcast, drawing each
+ * received frame with the game's own GameRenderer.
+ *
+ * Usage: java src.SpectatorWindow [host] [port]
+ */
+public class SpectatorWindow extends JPanel {
+    private final SpectatorClient client;
+    private final GameRenderer renderer = new GameRenderer();
+
+    public SpectatorWindow(SpectatorClient client) {
+        this.client = client;
+        setPreferredSize(new Dimension(GameWorld.WIDTH, GameWorld.HEIGHT));
+        setBackground(Color.BLACK);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        synchronized (client.getLock()) {
+            GameWorld view = client.getView();
+            if (view != null) {
+                renderer.render(g, view, 1.0);
+            }
+            String status = !client.isConnected() ? "Broadcast ended"
+                    : view == null ? "Waiting for broadcast..."
+                    : !view.isRunning() ? "Run over" : null;
+            if (status != null) {
+                g.setColor(Color.WHITE);
+                g.drawString(status, GameWorld.WIDTH / 2 - 50, GameWorld.HEIGHT / 2);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        String host = args.length > 0 ? args[0] : "127.0.0.1";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : SpectatorServer.DEFAULT_PORT;
+        SpectatorClient client = new SpectatorClient(host, port);
+
+        SwingUtilities.invokeLater(() -> {
+            JFrame frame = new JFrame("Dodge Adventure - watching " + host + ":" + port);
+            SpectatorWindow panel = new SpectatorWindow(client);
+            frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+            frame.setResizable(false);
+            frame.setContentPane(panel);
+            frame.pack();
+            frame.setLocationRelativeTo(null);
+            frame.setVisible(true);
+
+            // Frames arrive at the broadcaster's tick rate; repaint at the same pace
+            GameLoop loop = new GameLoop(GameLoop.DEFAULT_TICK_RATE, panel::repaint, () -> { });
+            loop.start();
+        });
+    }
+}
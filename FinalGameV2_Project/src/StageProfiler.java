@@ -0,0 +1,126 @@
+package src;
+
+/**
+ * StageProfiler times the stages of a repeated pass, such as a simulation
+ * tick or a paint. start() begins a pass, each mark(stage) charges the time
+ * since the previous mark to that stage, and end() records the whole pass.
+ * The interval between successive start() calls is kept too, which for a
+ * paint pass is the frame time.
+ *
+ * Every sample goes into a preallocated ring of the last HISTORY values
+ * per stage, so profiling allocates nothing. A profiler is written by one
+ * thread; readers on other threads may see slightly stale samples.
+ * DISABLED ignores every call, so instrumented code needs no null checks.
+ */
+public class StageProfiler {
+    // Samples kept per ring (a power of two)
+    public static final int HISTORY = 256;
+
+    /** Shared profiler that records nothing. */
+    public static final StageProfiler DISABLED = new StageProfiler();
+
+    private final String[] stageNames;
+    private final long[][] stageNanos;
+    private final long[] passNanos = new long[HISTORY];
+    private final long[] intervalNanos = new long[HISTORY];
+    // Index of the next pass; stage samples of pass n live at n % HISTORY
+    private long passes = 0;
+    private boolean enabled;
+
+    private long passStartNanos;
+    private long markNanos;
+    private long lastStartNanos = 0;
+    private boolean started = false;
+
+    private StageProfiler() {
+        this.stageNames = new String[0];
+        this.stageNanos = new long[0][];
+        this.enabled = false;
+    }
+
+    public StageProfiler(String... stageNames) {
+        this.stageNames = stageNames.clone();
+        this.stageNanos = new long[stageNames.length][HISTORY];
+        this.enabled = true;
+    }
+
+    /**
+     * Turn recording on or off; a disabled profiler costs one branch per call.
+     */
+    public void setEnabled(boolean enabled) {
+        if (this == DISABLED) return;
+        this.enabled = enabled;
+        started = false;
+    }
+
+    public boolean isEnabled() { return enabled; }
+
+    public void start() {
+        if (!enabled) return;
+        long now = System.nanoTime();
+        int slot = (int) (passes & (HISTORY - 1));
+        intervalNanos[slot] = started ? now - lastStartNanos : 0;
+        for (long[] ring : stageNanos) {
+            ring[slot] = 0;
+        }
+        lastStartNanos = now;
+        passStartNanos = now;
+        markNanos = now;
+        started = true;
+    }
+
+    /**
+     * Charge the time since start() or the previous mark to stage.
+     */
+    public void mark(int stage) {
+        if (!enabled || !started) return;
+        long now = System.nanoTime();
+        stageNanos[stage][(int) (passes & (HISTORY - 1))] += now - markNanos;
+        markNanos = now;
+    }
+
+    public void end() {
+        if (!enabled || !started) return;
+        passNanos[(int) (passes & (HISTORY - 1))] = System.nanoTime() - passStartNanos;
+        passes++;
+    }
+
+    public int getStageCount() { return stageNames.length; }
+    public String getStageName(int stage) { return stageNames[stage]; }
+
+    /** Completed passes still held in the rings. */
+    public int getSampleCount() { return (int) Math.min(passes, HISTORY); }
+
+    /** Duration of the pass age passes ago (0 = latest). */
+    public long getPassNanos(int age) { return passNanos[ringIndex(age)]; }
+
+    /** Time from the start of that pass to the start of the one before it. */
+    public long getIntervalNanos(int age) { return intervalNanos[ringIndex(age)]; }
+
+    public long getStageNanos(int stage, int age) { return stageNanos[stage][ringIndex(age)]; }
+
+    /**
+     * Mean of a stage over the held passes, in nanoseconds.
+     */
+    public double getStageMeanNanos(int stage) {
+        int n = getSampleCount();
+        if (n == 0) return 0;
+        long sum = 0;
+        for (int age = 0; age < n; age++) {
+            sum += getStageNanos(stage, age);
+        }
+        return sum / (double) n;
+    }
+
+    public long getStageMaxNanos(int stage) {
+        long max = 0;
+        for (int age = 0, n = getSampleCount(); age < n; age++) {
+            max = Math.max(max, getStageNanos(stage, age));
+        }
+        return max;
+    }
+
+    private int ringIndex(int age) {
+        return (int) ((passes - 1 - age) & (HISTORY - 1));
+    }
+}
@@ -0,0 +1,256 @@
+package src;
+
+import java.awt.Color;
+import java.awt.FontMetrics;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Rectangle;
+import java.awt.Transparency;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * TextRenderer draws text that changes every frame, such as damage numbers,
+ * timers and scores, by blitting pre-rasterized glyphs instead of calling
+ * Graphics.drawString. Each Strip is one font in one color rasterized into
+ * a single image, one fixed-width cell per character; drawing a string is
+ * one drawImage per character, with no Font, Color or String created and
+ * no text shaping.
+ *
+ * strip() covers printable ASCII. fade() covers the characters of a
+ * number ("-./0123456789") at ALPHA_LEVELS opacities, for text that fades
+ * out. Each glyph is rasterized into its strip the first time it is drawn.
+ * Fonts and colors are looked up by identity, so pass constants.
+ *
+ * Glyphs are placed by their advance widths without kerning, which is how
+ * drawString lays out these fonts anyway.
+ */
+public class TextRenderer {
+    public static final int ALPHA_LEVELS = 16;
+
+    /**
+     * One font and color, rasterized. Characters outside the strip's
+     * range are skipped.
+     */
+    public static final class Strip {
+        private final Font font;
+        private final Color color;
+        private final char first;
+        private final char last;
+        private final GraphicsConfiguration config;
+        // Null until first drawn or measured
+        private BufferedImage image;
+        private int[] advance;
+        // Inked part of each glyph: where it sits in the image, and its
+        // offset from the pen position on the baseline
+        private int[] srcX;
+        private int[] srcY;
+        private int[] inkX;
+        private int[] inkY;
+        private int[] inkWidth;
+        private int[] inkHeight;
+        private FontRenderContext frc;
+        private int cellWidth;
+        private int cellHeight;
+        private int pad;
+        private int ascent;
+
+        private Strip(Font font, Color color, char first, char last, GraphicsConfiguration config) {
+            this.font = font;
+            this.color = color;
+            this.first = first;
+            this.last = last;
+            this.config = config;
+        }
+
+        // Metrics and an empty image; glyphs are drawn in as they are first used
+        private void prepare() {
+            BufferedImage scratch = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D sg = scratch.createGraphics();
+            FontMetrics metrics = sg.getFontMetrics(font);
+            frc = sg.getFontRenderContext();
+            sg.dispose();
+            int count = last - first + 1;
+            advance = new int[count];
+            int widest = 0;
+            for (int i = 0; i < count; i++) {
+                advance[i] = metrics.charWidth((char) (first + i));
+                widest = Math.max(widest, advance[i]);
+            }
+            // Room for glyphs that reach past their advance or the ascent
+            pad = Math.max(2, font.getSize() / 4);
+            ascent = metrics.getAscent();
+            cellWidth = widest + 2 * pad;
+            cellHeight = ascent + metrics.getDescent() + 2 * pad;
+            srcX = new int[count];
+            srcY = new int[count];
+            inkX = new int[count];
+            inkY = new int[count];
+            inkWidth = new int[count];
+            inkHeight = new int[count];
+            Arrays.fill(inkWidth, -1);
+            image = createImage(cellWidth * count, cellHeight);
+        }
+
+        private void rasterizeGlyph(int i) {
+            int penX = i * cellWidth + pad;
+            int penY = pad + ascent;
+            GlyphVector glyph = font.createGlyphVector(frc, new char[] { (char) (first + i) });
+            // Blits cover only the ink, since blending is paid per pixel
+            Rectangle ink = glyph.getPixelBounds(frc, penX, penY)
+                    .intersection(new Rectangle(i * cellWidth, 0, cellWidth, cellHeight));
+            if (ink.isEmpty()) {
+                inkWidth[i] = 0; // blank, e.g. a space
+                return;
+            }
+            Graphics2D g = image.createGraphics();
+            g.setColor(color);
+            g.drawGlyphVector(glyph, penX, penY);
+            g.dispose();
+            srcX[i] = ink.x;
+            srcY[i] = ink.y;
+            inkX[i] = ink.x - penX;
+            inkY[i] = ink.y - penY;
+            inkWidth[i] = ink.width;
+            inkHeight[i] = ink.height;
+        }
+
+        private BufferedImage createImage(int width, int height) {
+            if (config != null) {
+                return config.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+            }
+            return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+        }
+
+        /**
+         * Draw one character with its baseline at y; returns its advance.
+         */
+        public int drawChar(Graphics g, char c, int x, int y) {
+            if (image == null) prepare();
+            if (c < first || c > last) return 0;
+            int i = c - first;
+            if (inkWidth[i] < 0) rasterizeGlyph(i);
+            int w = inkWidth[i];
+            if (w > 0) {
+                int h = inkHeight[i];
+                int sx = srcX[i];
+                int sy = srcY[i];
+                int dx = x + inkX[i];
+                int dy = y + inkY[i];
+                g.drawImage(image, dx, dy, dx + w, dy + h, sx, sy, sx + w, sy + h, null);
+            }
+            return advance[i];
+        }
+
+        /**
+         * Draw text with its baseline at y; returns its width.
+         */
+        public int drawString(Graphics g, CharSequence text, int x, int y) {
+            int start = x;
+            for (int i = 0; i < text.length(); i++) {
+                x += drawChar(g, text.charAt(i), x, y);
+            }
+            return x - start;
+        }
+
+        /**
+         * Draw a whole number in decimal without building a String; returns its width.
+         */
+        public int drawNumber(Graphics g, long value, int x, int y) {
+            int start = x;
+            if (value < 0) {
+                x += drawChar(g, '-', x, y);
+                value = -value;
+            }
+            for (long place = placeOf(value); place > 0; place /= 10) {
+                x += drawChar(g, (char) ('0' + value / place % 10), x, y);
+            }
+            return x - start;
+        }
+
+        public int charWidth(char c) {
+            if (image == null) prepare();
+            return c < first || c > last ? 0 : advance[c - first];
+        }
+
+        public int stringWidth(CharSequence text) {
+            int width = 0;
+            for (int i = 0; i < text.length(); i++) {
+                width += charWidth(text.charAt(i));
+            }
+            return width;
+        }
+
+        public int numberWidth(long value) {
+            int width = 0;
+            if (value < 0) {
+                width += charWidth('-');
+                value = -value;
+            }
+            for (long place = placeOf(value); place > 0; place /= 10) {
+                width += charWidth((char) ('0' + value / place % 10));
+            }
+            return width;
+        }
+
+        // Largest power of ten not above value (1 for 0)
+        private static long placeOf(long value) {
+            long place = 1;
+            while (place <= value / 10) {
+                place *= 10;
+            }
+            return place;
+        }
+    }
+
+    private final GraphicsConfiguration config;
+    private final Map<Font, Map<Color, Strip>> strips = new IdentityHashMap<>();
+    private final Map<Font, Map<Color, Strip[]>> fades = new IdentityHashMap<>();
+
+    public TextRenderer() {
+        config = GraphicsEnvironment.isHeadless() ? null
+                : GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+    }
+
+    /**
+     * Printable ASCII in the given font and color.
+     */
+    public Strip strip(Font font, Color color) {
+        Map<Color, Strip> byColor = strips.computeIfAbsent(font, f -> new IdentityHashMap<>());
+        Strip strip = byColor.get(color);
+        if (strip == null) {
+            strip = new Strip(font, color, ' ', '~', config);
+            byColor.put(color, strip);
+        }
+        return strip;
+    }
+
+    /**
+     * Number characters in the given font and color at the given alpha
+     * (0-255, rounded to one of ALPHA_LEVELS), or null when that rounds
+     * to fully transparent.
+     */
+    public Strip fade(Font font, Color color, int alpha) {
+        int level = (Math.max(0, Math.min(255, alpha)) * ALPHA_LEVELS + 127) / 255;
+        if (level == 0) return null;
+        Map<Color, Strip[]> byColor = fades.computeIfAbsent(font, f -> new IdentityHashMap<>());
+        Strip[] levels = byColor.get(color);
+        if (levels == null) {
+            levels = new Strip[ALPHA_LEVELS + 1];
+            byColor.put(color, levels);
+        }
+        if (levels[level] == null) {
+            Color faded = new Color(color.getRed(), color.getGreen(), color.getBlue(),
+                    color.getAlpha() * level / ALPHA_LEVELS);
+            levels[level] = new Strip(font, faded, '-', '9', config);
+        }
+        return levels[level];
+    }
+}
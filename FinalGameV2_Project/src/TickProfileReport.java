@@ -0,0 +1,264 @@
+package src;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * TickProfileReport summarizes the GameEvents in a flight recording: the
+ * percentiles of every tick and paint stage, the slowest ticks and paints
+ * with the entity counts they ran with, and the level transitions, boss
+ * volleys and sounds. Record with
+ *
+ *   java -XX:StartFlightRecording=filename=run.jfr src.GameWindow
+ *
+ * Usage: java src.TickProfileReport [--worst N] file.jfr
+ */
+public class TickProfileReport {
+    private static final String[] TICK_STAGES = {
+            "total", "input", "boss", "move", "collide", "items", "particles" };
+    private static final String[] TICK_FIELDS = {
+            null, "input", "bossAttack", "move", "collide", "itemsUpdate", "particlesUpdate" };
+    private static final String[] PAINT_STAGES = { "total", "entities", "projectiles", "effects", "hud" };
+    private static final String[] PAINT_FIELDS = { null, "entities", "projectilesDraw", "effects", "hud" };
+
+    /**
+     * A growable column of nanosecond samples.
+     */
+    private static final class Samples {
+        private long[] values = new long[1024];
+        private int count = 0;
+        private boolean sorted = true;
+
+        void add(long value) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+            }
+            values[count++] = value;
+            sorted = false;
+        }
+
+        long percentile(double percentile) {
+            if (count == 0) return 0;
+            if (!sorted) {
+                Arrays.sort(values, 0, count);
+                sorted = true;
+            }
+            int rank = (int) Math.ceil(count * percentile / 100.0);
+            return values[Math.max(0, rank - 1)];
+        }
+
+        double mean() {
+            if (count == 0) return 0;
+            long sum = 0;
+            for (int i = 0; i < count; i++) {
+                sum += values[i];
+            }
+            return sum / (double) count;
+        }
+    }
+
+    private final int worstCount;
+    private final Samples[] tickStages = newColumns(TICK_STAGES.length);
+    private final Samples[] paintStages = newColumns(PAINT_STAGES.length);
+    // Slowest events seen so far, slowest first, at most worstCount each
+    private final List<RecordedEvent> worstTicks = new ArrayList<>();
+    private final List<RecordedEvent> worstPaints = new ArrayList<>();
+    private final List<RecordedEvent> transitions = new ArrayList<>();
+    private final Map<String, int[]> sounds = new TreeMap<>();
+    private final Samples volleyBullets = new Samples();
+    private int maxVolleyProjectiles = 0;
+
+    public TickProfileReport(int worstCount) {
+        this.worstCount = worstCount;
+    }
+
+    private static Samples[] newColumns(int count) {
+        Samples[] columns = new Samples[count];
+        for (int i = 0; i < count; i++) {
+            columns[i] = new Samples();
+        }
+        return columns;
+    }
+
+    /**
+     * Read every event of the recording; events from other sources are skipped.
+     */
+    public void read(Path file) throws IOException {
+        try (RecordingFile recording = new RecordingFile(file)) {
+            while (recording.hasMoreEvents()) {
+                add(recording.readEvent());
+            }
+        }
+    }
+
+    private void add(RecordedEvent event) {
+        switch (event.getEventType().getName()) {
+            case "dodge.Tick":
+                addStages(event, TICK_FIELDS, tickStages);
+                keepWorst(worstTicks, event);
+                break;
+            case "dodge.Paint":
+                addStages(event, PAINT_FIELDS, paintStages);
+                keepWorst(worstPaints, event);
+                break;
+            case "dodge.Volley":
+                volleyBullets.add(event.getInt("bullets"));
+                maxVolleyProjectiles = Math.max(maxVolleyProjectiles, event.getInt("projectiles"));
+                break;
+            case "dodge.LevelTransition":
+                transitions.add(event);
+                break;
+            case "dodge.Sound": {
+                // requested, played
+                int[] counts = sounds.computeIfAbsent(event.getString("name"), n -> new int[2]);
+                counts[0]++;
+                if (event.getBoolean("played")) counts[1]++;
+                break;
+            }
+            default:
+                break;
+        }
+    }
+
+    private static void addStages(RecordedEvent event, String[] fields, Samples[] columns) {
+        columns[0].add(event.getDuration().toNanos());
+        for (int s = 1; s < fields.length; s++) {
+            columns[s].add(event.getLong(fields[s]));
+        }
+    }
+
+    private void keepWorst(List<RecordedEvent> worst, RecordedEvent event) {
+        long nanos = event.getDuration().toNanos();
+        int at = worst.size();
+        while (at > 0 && worst.get(at - 1).getDuration().toNanos() < nanos) {
+            at--;
+        }
+        if (at >= worstCount) return;
+        worst.add(at, event);
+        if (worst.size() > worstCount) {
+            worst.remove(worst.size() - 1);
+        }
+    }
+
+    public void print() {
+        int sounded = 0, played = 0;
+        for (int[] counts : sounds.values()) {
+            sounded += counts[0];
+            played += counts[1];
+        }
+        System.out.printf("%d ticks, %d paints, %d boss volleys, %d level transitions, %d sounds (%d played)%n",
+                tickStages[0].count, paintStages[0].count, volleyBullets.count, transitions.size(), sounded, played);
+        if (tickStages[0].count == 0 && paintStages[0].count == 0) {
+            System.out.println("No tick or paint events; was the recording made with this build?");
+            return;
+        }
+
+        printStages("Tick stage", TICK_STAGES, tickStages);
+        printStages("Paint stage", PAINT_STAGES, paintStages);
+
+        if (!worstTicks.isEmpty()) {
+            System.out.println();
+            System.out.println("Slowest ticks:");
+            for (RecordedEvent e : worstTicks) {
+                System.out.printf("  tick %-8d %7.2f ms  level %d boss %d  projectiles %d particles %d items %d "
+                                + "damage numbers %d  (slowest stage %s)%n",
+                        e.getLong("tick"), e.getDuration().toNanos() / 1e6, e.getInt("level"), e.getInt("boss"),
+                        e.getInt("projectiles"), e.getInt("particles"), e.getInt("items"),
+                        e.getInt("damageNumbers"), slowestStage(e, TICK_STAGES, TICK_FIELDS));
+            }
+        }
+        if (!worstPaints.isEmpty()) {
+            System.out.println();
+            System.out.println("Slowest paints:");
+            for (RecordedEvent e : worstPaints) {
+                System.out.printf("  tick %-8d %7.2f ms  projectiles %d particles %d items %d damage numbers %d  "
+                                + "(slowest stage %s)%n",
+                        e.getLong("tick"), e.getDuration().toNanos() / 1e6, e.getInt("projectiles"),
+                        e.getInt("particles"), e.getInt("items"), e.getInt("damageNumbers"),
+                        slowestStage(e, PAINT_STAGES, PAINT_FIELDS));
+            }
+        }
+
+        if (volleyBullets.count > 0) {
+            System.out.println();
+            System.out.printf("Boss volleys: %.1f bullets on average, %d at most; up to %d projectiles alive%n",
+                    volleyBullets.mean(), volleyBullets.percentile(100), maxVolleyProjectiles);
+        }
+        if (!transitions.isEmpty()) {
+            System.out.println();
+            System.out.println("Level transitions:");
+            for (RecordedEvent e : transitions) {
+                int next = e.getInt("nextBoss");
+                System.out.printf("  tick %-8d level %d -> %d, %s, score %d%n", e.getLong("tick"),
+                        e.getInt("fromLevel"), e.getInt("toLevel"), next == 0 ? "run won" : "boss " + next,
+                        e.getInt("score"));
+            }
+        }
+        if (!sounds.isEmpty()) {
+            System.out.println();
+            System.out.println("Sounds (requested / played):");
+            for (Map.Entry<String, int[]> entry : sounds.entrySet()) {
+                System.out.printf("  %-12s %6d / %d%n", entry.getKey(), entry.getValue()[0], entry.getValue()[1]);
+            }
+        }
+    }
+
+    private static void printStages(String title, String[] names, Samples[] columns) {
+        if (columns[0].count == 0) return;
+        System.out.println();
+        System.out.printf("%-14s %9s %9s %9s %9s %9s   (us)%n", title, "mean", "p50", "p90", "p99", "max");
+        for (int s = 0; s < names.length; s++) {
+            Samples c = columns[s];
+            System.out.printf("  %-12s %9.1f %9.1f %9.1f %9.1f %9.1f%n", names[s], c.mean() / 1e3,
+                    c.percentile(50) / 1e3, c.percentile(90) / 1e3, c.percentile(99) / 1e3,
+                    c.percentile(100) / 1e3);
+        }
+    }
+
+    private static String slowestStage(RecordedEvent e, String[] names, String[] fields) {
+        int slowest = 1;
+        for (int s = 2; s < fields.length; s++) {
+            if (e.getLong(fields[s]) > e.getLong(fields[slowest])) slowest = s;
+        }
+        return names[slowest] + " " + String.format("%.2f ms", e.getLong(fields[slowest]) / 1e6);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int worst = 10;
+        String path = null;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--worst")) {
+                if (i + 1 >= args.length) {
+                    usage("Missing value for --worst");
+                }
+                worst = Integer.parseInt(args[++i]);
+            } else if (arg.startsWith("--")) {
+                usage("Unknown option " + arg);
+            } else {
+                path = arg;
+            }
+        }
+        if (path == null) {
+            usage("No recording given");
+        }
+
+        TickProfileReport report = new TickProfileReport(worst);
+        report.read(Paths.get(path));
+        report.print();
+    }
+
+    private static void usage(String error) {
+        System.err.println(error);
+        System.err.println("Usage: java src.TickProfileReport [--worst N] file.jfr");
+        System.exit(2);
+    }
+}
@@ -0,0 +1,135 @@
+package src;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * VectorProjectileKernel moves projectiles several at a time with the
+ * jdk.incubator.vector API. Every lane computes the straight step; lanes
+ * holding zigzag and spiral projectiles are masked and get their own
+ * update, with FastTrig's polynomials evaluated across lanes. Blocks with
+ * no zigzag or spiral projectiles skip the trig entirely.
+ *
+ * Loaded reflectively by ProjectileStore, so the game still runs (with the
+ * scalar loop) when started without --add-modules jdk.incubator.vector.
+ */
+class VectorProjectileKernel implements ProjectileKernel {
+    private static final VectorSpecies<Double> D = DoubleVector.SPECIES_PREFERRED;
+    // Int lanes matching the double lanes one for one, for the kind array
+    private static final VectorSpecies<Integer> I =
+            VectorSpecies.of(int.class, VectorShape.forBitSize(D.vectorBitSize() / 2));
+
+    VectorProjectileKernel() {
+        if (D.length() < 2 || I.length() != D.length()) {
+            throw new UnsupportedOperationException("No usable vector shape (" + D + ")");
+        }
+    }
+
+    @Override
+    public int move(int from, int to, int[] kind, double[] x, double[] y, double[] prevX, double[] prevY,
+                    double[] vx, double[] vy, double[] phase, double[] centerX, double[] centerY,
+                    double[] radius, double[] radiusStep) {
+        int bound = from + D.loopBound(to - from);
+        for (int i = from; i < bound; i += D.length()) {
+            DoubleVector kinds = (DoubleVector) IntVector.fromArray(I, kind, i)
+                    .convertShape(VectorOperators.I2D, D, 0);
+            VectorMask<Double> zigzag = kinds.compare(VectorOperators.EQ, ProjectileStore.KIND_ZIGZAG);
+            VectorMask<Double> spiral = kinds.compare(VectorOperators.EQ, ProjectileStore.KIND_SPIRAL);
+
+            DoubleVector px = DoubleVector.fromArray(D, x, i);
+            DoubleVector py = DoubleVector.fromArray(D, y, i);
+            px.intoArray(prevX, i);
+            py.intoArray(prevY, i);
+            DoubleVector dx = DoubleVector.fromArray(D, vx, i);
+            DoubleVector dy = DoubleVector.fromArray(D, vy, i);
+
+            DoubleVector nx;
+            DoubleVector ny;
+            VectorMask<Double> curved = zigzag.or(spiral);
+            if (!curved.anyTrue()) {
+                nx = px.add(dx);
+                ny = py.add(dy);
+            } else {
+                DoubleVector ph = DoubleVector.fromArray(D, phase, i);
+                ph = ph.blend(ph.add(1.0), zigzag)
+                        .blend(ph.add(ProjectileStore.SPIRAL_ANGLE_STEP), spiral);
+                ph.intoArray(phase, i);
+
+                // One reduction and both polynomials serve the zigzag sin
+                // and the spiral sin and cos
+                DoubleVector angle = ph.blend(ph.mul(ProjectileStore.ZIGZAG_FREQUENCY), zigzag);
+                DoubleVector k = angle.mul(FastTrig.TWO_OVER_PI).add(FastTrig.ROUND).sub(FastTrig.ROUND);
+                DoubleVector red = angle.sub(k.mul(FastTrig.PIO2_HI)).sub(k.mul(FastTrig.PIO2_LO));
+                DoubleVector red2 = red.mul(red);
+                DoubleVector s = sinPoly(red, red2);
+                DoubleVector c = cosPoly(red2);
+                DoubleVector sin = quadrant(s, c, k);
+
+                DoubleVector zig = sin.mul(ProjectileStore.ZIGZAG_AMPLITUDE);
+                nx = px.add(dx.blend(dx.add(zig), zigzag));
+                ny = py.add(dy);
+
+                if (spiral.anyTrue()) {
+                    // Pulse radius: expand then contract
+                    DoubleVector step = DoubleVector.fromArray(D, radiusStep, i);
+                    DoubleVector r = DoubleVector.fromArray(D, radius, i);
+                    r = r.blend(r.add(step), spiral);
+                    r.intoArray(radius, i);
+                    VectorMask<Double> expanded = spiral
+                            .and(step.compare(VectorOperators.GT, 0.0))
+                            .and(r.compare(VectorOperators.GE, ProjectileStore.SPIRAL_MAX_RADIUS));
+                    VectorMask<Double> contracted = spiral
+                            .and(step.compare(VectorOperators.LT, 0.0))
+                            .and(r.compare(VectorOperators.LE, ProjectileStore.SPIRAL_MIN_RADIUS));
+                    step.blend(-ProjectileStore.SPIRAL_RADIUS_STEP, expanded)
+                            .blend(ProjectileStore.SPIRAL_RADIUS_STEP, contracted)
+                            .intoArray(radiusStep, i);
+
+                    DoubleVector cos = quadrant(s, c, k.add(1.0));
+                    nx = nx.blend(DoubleVector.fromArray(D, centerX, i).add(cos.mul(r)), spiral);
+                    ny = ny.blend(DoubleVector.fromArray(D, centerY, i).add(sin.mul(r)), spiral);
+                }
+            }
+            nx.intoArray(x, i);
+            ny.intoArray(y, i);
+        }
+        return bound;
+    }
+
+    // The same steps as FastTrig, lane by lane
+
+    private static DoubleVector sinPoly(DoubleVector r, DoubleVector r2) {
+        DoubleVector p = r2.mul(FastTrig.S11).add(FastTrig.S9)
+                .mul(r2).add(FastTrig.S7)
+                .mul(r2).add(FastTrig.S5)
+                .mul(r2).add(FastTrig.S3);
+        return r.add(r.mul(r2).mul(p));
+    }
+
+    private static DoubleVector cosPoly(DoubleVector r2) {
+        return r2.mul(FastTrig.C12).add(FastTrig.C10)
+                .mul(r2).add(FastTrig.C8)
+                .mul(r2).add(FastTrig.C6)
+                .mul(r2).add(FastTrig.C4)
+                .mul(r2).add(FastTrig.C2)
+                .mul(r2).add(1.0);
+    }
+
+    /**
+     * Pick +-sin or +-cos of the reduced angle by quadrant q mod 4. q is a
+     * whole double; q - 4 * round(q / 4) leaves it in -2..2.
+     */
+    private static DoubleVector quadrant(DoubleVector s, DoubleVector c, DoubleVector q) {
+        q = q.sub(q.mul(0.25).add(FastTrig.ROUND).sub(FastTrig.ROUND).mul(4.0));
+        // Odd quadrants (+-1) take cos; quadrants 2 and 3 (2, -2, -1) are negated
+        VectorMask<Double> odd = q.mul(q).compare(VectorOperators.EQ, 1.0);
+        VectorMask<Double> negative = q.compare(VectorOperators.LT, 0.0)
+                .or(q.compare(VectorOperators.EQ, 2.0));
+        DoubleVector v = s.blend(c, odd);
+        return v.blend(v.neg(), negative);
+    }
+}
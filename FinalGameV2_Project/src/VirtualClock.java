@@ -0,0 +1,51 @@
+package src;
+
+/**
+ * VirtualClock advances by a fixed amount per tick regardless of real time.
+ * Simulations driven by it are deterministic and can run headless as fast
+ * as the CPU allows.
+ */
+public class VirtualClock implements GameClock {
+    private final long tickNanos;
+    private long tick = 0;
+    private long nanos = 0;
+
+    public VirtualClock(long tickNanos) {
+        if (tickNanos <= 0) {
+            throw new IllegalArgumentException("Tick length must be positive: " + tickNanos);
+        }
+        this.tickNanos = tickNanos;
+    }
+
+    @Override
+    public void advance() {
+        tick++;
+        nanos += tickNanos;
+    }
+
+    @Override
+    public long getTick() { return tick; }
+
+    @Override
+    public long getNanos() { return nanos; }
+
+    public long getTickNanos() { return tickNanos; }
+
+    /**
+     * Jump to a saved tick, as when restoring a saved simulation state.
+     */
+    public void setTick(long tick) {
+        this.tick = tick;
+        this.nanos = tick * tickNanos;
+    }
+
+    /**
+     * Show another clock's tick and time, as the clock of a world copied
+     * for drawing does (see GameWorld.copyViewTo); the time need not be a
+     * whole number of ticks.
+     */
+    public void setTime(long tick, long nanos) {
+        this.tick = tick;
+        this.nanos = nanos;
+    }
+}